@@ -0,0 +1,42 @@
+#!/bin/bash
+# Compare platform-thread and virtual-thread request handling under increasing concurrency.
+# The backend runs with the loadtest profile (seeded in-memory H2) in its own JVM; results go to target/loadtest-*.json.
+#
+#   CLIENTS=1000,5000,10000 DURATION=30 ./loadtest.sh
+
+set -e
+cd "$(dirname "$0")"
+
+PORT=${PORT:-18081}
+CLIENTS=${CLIENTS:-1000,5000,10000}
+DURATION=${DURATION:-30}
+PATHS=${PATHS:-/users/donors/A+,/donations/critical}
+
+mvn -q -B package dependency:build-classpath -Dmdep.outputFile=target/classpath.txt
+CP="target/classes:$(cat target/classpath.txt)"
+
+for mode in platform virtual; do
+    virtual=false
+    [ "$mode" = virtual ] && virtual=true
+    
+    java -cp "$CP" com.hemoglobe.HemoGlobeApplication \
+        --spring.profiles.active=loadtest \
+        --spring.threads.virtual.enabled=$virtual \
+        --server.port=$PORT > target/loadtest-$mode.log 2>&1 &
+    server=$!
+    
+    until curl -s -o /dev/null "http://localhost:$PORT/api/actuator/health"; do
+        sleep 1
+    done
+    
+    java -cp "$CP" com.hemoglobe.benchmarks.LoadTest \
+        --url "http://localhost:$PORT/api" \
+        --clients "$CLIENTS" \
+        --duration "$DURATION" \
+        --paths "$PATHS" \
+        --label "$mode" \
+        --out "target/loadtest-$mode.json"
+    
+    kill $server
+    wait $server || true
+done
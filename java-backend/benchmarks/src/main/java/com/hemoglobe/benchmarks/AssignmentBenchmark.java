@@ -0,0 +1,82 @@
+package com.hemoglobe.benchmarks;
+
+import com.hemoglobe.assignment.AssignmentPlan;
+import com.hemoglobe.assignment.DonorAssignment;
+import com.hemoglobe.assignment.PendingRequests;
+import com.hemoglobe.entity.User;
+import com.hemoglobe.matching.ScoringModelRegistry;
+import com.hemoglobe.matching.WeightedScoringModel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shortage-mode assignment without the database: parallel scoring into the candidate graph plus the optimal solve.
+ * One seeker in ten has a critical request and seekers want one or two donors.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AssignmentBenchmark {
+    
+    @Param({"2000", "10000"})
+    public int donors;
+    
+    @Param({"10000"})
+    public int seekers;
+    
+    /** Fork/join threads, 0 for one per core. */
+    @Param({"0"})
+    public int parallelism;
+    
+    private DonorAssignment assignment;
+    private List<User> donorList;
+    private List<User> seekerList;
+    private Map<Long, PendingRequests> requests;
+    
+    @Setup
+    public void setUp() {
+        assignment = new DonorAssignment(new SimpleMeterRegistry(), 64, 50, 50, 1, 3, 10, 250_000, 600_000, parallelism);
+        ReflectionTestUtils.setField(assignment, "scoringModels",
+                new ScoringModelRegistry(new WeightedScoringModel(50, 40, 30, 50, 10, 180, 10, 10)));
+    
+        SyntheticDataset dataset = new SyntheticDataset(42);
+        donorList = dataset.donors(donors);
+        seekerList = dataset.seekers(seekers);
+        Random random = new Random(43);
+        requests = new HashMap<>();
+        for (User seeker : seekerList) {
+            requests.put(seeker.getId(), new PendingRequests(1 + random.nextInt(2), random.nextInt(10) == 0));
+        }
+    }
+    
+    @TearDown
+    public void tearDown() {
+        assignment.shutdown();
+    }
+    
+    @Benchmark
+    public AssignmentPlan plan() {
+        return assignment.plan("whole_blood", seekerList, requests, donorList);
+    }
+}
@@ -0,0 +1,66 @@
+package com.hemoglobe.benchmarks;
+
+import com.hemoglobe.matching.MatchingReport;
+import com.hemoglobe.service.MatchService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The full automatic matching run for one blood group: load candidates, score, and batch-insert the matches.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class AutoMatchBenchmark {
+    
+    @Param({"10000"})
+    public int donors;
+    
+    @Param({"1000"})
+    public int seekers;
+    
+    private ConfigurableApplicationContext context;
+    private MatchService matchService;
+    private JdbcTemplate jdbcTemplate;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("automatch");
+        matchService = context.getBean(MatchService.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        new SyntheticDataset(42).insertUsers(jdbcTemplate, donors, seekers);
+    }
+    
+    @Setup(Level.Iteration)
+    public void clearMatches() {
+        jdbcTemplate.update("DELETE FROM matches");
+    }
+    
+    @Benchmark
+    public MatchingReport autoMatch() {
+        return matchService.createAutomaticMatches("A+", "whole_blood");
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+}
@@ -0,0 +1,41 @@
+package com.hemoglobe.benchmarks;
+
+import com.hemoglobe.HemoGlobeApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Boots the backend without a web server against a private in-memory H2 database.
+ * Flyway is skipped because its migrations use PostgreSQL-only features; Hibernate creates the schema instead.
+ */
+final class BenchmarkContext {
+    
+    private BenchmarkContext() {}
+    
+    /**
+     * @param overrides further {@code --property=value} arguments, applied after the defaults
+     */
+    static ConfigurableApplicationContext start(String databaseName, String... overrides) {
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.datasource.url=jdbc:h2:mem:" + databaseName + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.hikari.data-source-properties.reWriteBatchedInserts=",
+                "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.hibernate.ddl-auto=create",
+                "--spring.flyway.enabled=false",
+                "--jwt.secret=hemoglobe-benchmark-secret-at-least-32-bytes",
+                "--logging.level.root=WARN",
+                "--logging.level.com.hemoglobe=WARN",
+                "--logging.level.org.springframework.security=WARN"));
+        args.addAll(List.of(overrides));
+        return new SpringApplicationBuilder(HemoGlobeApplication.class)
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                // Command-line arguments, so they take precedence over application.properties
+                .run(args.toArray(String[]::new));
+    }
+}
@@ -0,0 +1,61 @@
+package com.hemoglobe.benchmarks;
+
+import com.hemoglobe.entity.User;
+import com.hemoglobe.security.JwtPrincipal;
+import com.hemoglobe.security.JwtService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of token verification: a token seen before (cache hit) and a token verified from scratch
+ * (signature check and claims parse, with caching disabled).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtBenchmark {
+    
+    private static final String SECRET = "benchmark-secret-key-of-at-least-32-bytes";
+    
+    private JwtService cached;
+    private JwtService uncached;
+    private String token;
+    
+    @Setup
+    public void setUp() {
+        cached = new JwtService(SECRET, Duration.ofHours(1), 10_000, Clock.systemUTC(), List.of());
+        uncached = new JwtService(SECRET, Duration.ofHours(1), 0, Clock.systemUTC(), List.of());
+        User user = new User();
+        user.setId(42L);
+        user.setEmail("donor-42@example.com");
+        user.setUserType("donor");
+        token = cached.issue(user);
+    }
+    
+    @Benchmark
+    public Optional<JwtPrincipal> verifyCached() {
+        return cached.verify(token);
+    }
+    
+    @Benchmark
+    public Optional<JwtPrincipal> verifyUncached() {
+        return uncached.verify(token);
+    }
+}
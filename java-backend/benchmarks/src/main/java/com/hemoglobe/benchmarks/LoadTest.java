@@ -0,0 +1,177 @@
+package com.hemoglobe.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop HTTP load generator: each simulated client is a virtual thread issuing one request at a time,
+ * round-robin over the given paths, for a fixed duration. Reports throughput and latency percentiles per
+ * concurrency level as JSON.
+ * <p>
+ * Options: {@code --url}, {@code --clients 1000,5000,10000}, {@code --duration 30}, {@code --warmup 5} (seconds),
+ * {@code --paths /users/donors/A+,/donations/critical}, {@code --email}/{@code --password} of the account to log in
+ * as (the bearer token is fetched once and shared by all clients), {@code --label} and {@code --out}.
+ */
+public class LoadTest {
+    
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        String url = options.getOrDefault("url", "http://localhost:18081/api");
+        int[] levels = Arrays.stream(options.getOrDefault("clients", "1000,5000,10000").split(",")).mapToInt(Integer::parseInt).toArray();
+        Duration duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "30")));
+        Duration warmup = Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup", "5")));
+        List<URI> paths = Arrays.stream(options.getOrDefault("paths", "/users/donors/A+,/donations/critical").split(","))
+                .map(path -> URI.create(url + path))
+                .toList();
+        String authorization = "Bearer " + login(url, options.getOrDefault("email", "loadtest@example.com"),
+                options.getOrDefault("password", "loadtest"));
+        
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (int clients : levels) {
+            Map<String, Object> result = run(clients, paths, authorization, warmup, duration);
+            result.put("label", options.getOrDefault("label", "default"));
+            System.out.printf("%-10s clients=%-6d throughput=%.0f req/s p50=%.1f ms p99=%.1f ms errors=%d%n",
+                    result.get("label"), clients, result.get("throughput"), result.get("p50Millis"), result.get("p99Millis"), result.get("errors"));
+            results.add(result);
+        }
+        
+        ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        File out = new File(options.getOrDefault("out", "target/loadtest-result.json"));
+        out.getParentFile().mkdirs();
+        objectMapper.writeValue(out, results);
+    }
+    
+    private static Map<String, Object> run(int clients, List<URI> paths, String authorization, Duration warmup, Duration duration)
+            throws InterruptedException {
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+        AtomicLong errors = new AtomicLong();
+        LatencyRecorder[] recorders = new LatencyRecorder[clients];
+        
+        // the client pool is closed (joined) before the HTTP client it sends through
+        try (HttpClient http = HttpClient.newBuilder()
+                     .connectTimeout(Duration.ofSeconds(10))
+                     .version(HttpClient.Version.HTTP_1_1)
+                     .build();
+             ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                LatencyRecorder recorder = recorders[i] = new LatencyRecorder();
+                int offset = i;
+                threads.execute(() -> {
+                    for (int n = offset; ; n++) {
+                        long sent = System.nanoTime();
+                        if (sent >= end) {
+                            return;
+                        }
+                        HttpRequest request = HttpRequest.newBuilder(paths.get(n % paths.size()))
+                                .header("Authorization", authorization)
+                                .timeout(Duration.ofSeconds(30))
+                                .GET()
+                                .build();
+                        boolean ok;
+                        try {
+                            ok = http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() < 400;
+                        } catch (IOException e) {
+                            ok = false;
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                        if (sent >= measureFrom) {
+                            if (ok) {
+                                recorder.record(System.nanoTime() - sent);
+                            } else {
+                                errors.incrementAndGet();
+                            }
+                        }
+                    }
+                });
+            }
+        }
+        
+        int total = 0;
+        for (LatencyRecorder recorder : recorders) {
+            total += recorder.size;
+        }
+        long[] latencies = new long[total];
+        int position = 0;
+        for (LatencyRecorder recorder : recorders) {
+            System.arraycopy(recorder.values, 0, latencies, position, recorder.size);
+            position += recorder.size;
+        }
+        Arrays.sort(latencies);
+        
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("clients", clients);
+        result.put("requests", total);
+        result.put("errors", errors.get());
+        result.put("throughput", total / (double) duration.toSeconds());
+        result.put("p50Millis", percentile(latencies, 0.50));
+        result.put("p99Millis", percentile(latencies, 0.99));
+        result.put("maxMillis", total == 0 ? 0.0 : latencies[total - 1] / 1e6);
+        return result;
+    }
+    
+    private static String login(String url, String email, String password) throws IOException, InterruptedException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url + "/auth/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(Map.of("email", email, "password", password))))
+                .build();
+        try (HttpClient http = HttpClient.newHttpClient()) {
+            HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Login as " + email + " failed: HTTP " + response.statusCode());
+            }
+            return objectMapper.readTree(response.body()).get("token").asText();
+        }
+    }
+    
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0.0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+    
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            options.put(args[i].replaceFirst("^--", ""), args[i + 1]);
+        }
+        return options;
+    }
+    
+    /**
+     * Growable array of latencies owned by a single client thread.
+     */
+    private static final class LatencyRecorder {
+        
+        long[] values = new long[1024];
+        int size;
+        
+        void record(long nanos) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = nanos;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.hemoglobe.benchmarks;
+
+import com.hemoglobe.dto.MatchView;
+import com.hemoglobe.entity.Match;
+import com.hemoglobe.entity.User;
+import com.hemoglobe.repository.CursorPage;
+import com.hemoglobe.repository.KeysetPage;
+import com.hemoglobe.repository.MatchRepository;
+import com.hemoglobe.repository.MatchSpecifications;
+import com.hemoglobe.repository.UserRepository;
+import com.hemoglobe.repository.UserSpecifications;
+import com.hemoglobe.service.MatchService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Repository queries behind the hot list endpoints, against an in-memory database seeded with
+ * 20k users and the matches produced by one auto-match run per blood group.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepositoryBenchmark {
+    
+    private static final KeysetPage PAGE = KeysetPage.first(KeysetPage.DEFAULT_LIMIT);
+    
+    private ConfigurableApplicationContext context;
+    private UserRepository userRepository;
+    private MatchRepository matchRepository;
+    private MatchService matchService;
+    private TransactionTemplate readOnly;
+    private long seekerId;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("repository");
+        userRepository = context.getBean(UserRepository.class);
+        matchRepository = context.getBean(MatchRepository.class);
+        matchService = context.getBean(MatchService.class);
+        readOnly = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnly.setReadOnly(true);
+        
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        new SyntheticDataset(42).insertUsers(jdbcTemplate, 15000, 5000);
+        for (String bloodGroup : List.of("O+", "A+", "B+", "AB+", "O-", "A-", "B-", "AB-")) {
+            matchService.createAutomaticMatches(bloodGroup, "whole_blood");
+        }
+        seekerId = jdbcTemplate.queryForObject("SELECT MIN(seeker_id) FROM matches", Long.class);
+    }
+    
+    @Benchmark
+    public List<User> availableDonorsByGroup() {
+        return userRepository.findAvailableUsersByBloodGroupAndType("A+", "donor");
+    }
+    
+    @Benchmark
+    public List<User> compatibleDonors() {
+        return userRepository.findAvailableUsersByBloodGroupsAndType(Set.of("O-", "O+", "A-", "A+"), "donor");
+    }
+    
+    @Benchmark
+    public CursorPage<User> availableDonorsPage() {
+        return userRepository.findPage(UserSpecifications.availableByBloodGroupAndType("A+", "donor"), PAGE);
+    }
+    
+    @Benchmark
+    public CursorPage<User> locationSearchPage() {
+        return userRepository.findPage(UserSpecifications.availableByLocationAndType("pune", "donor"), PAGE);
+    }
+    
+    @Benchmark
+    public CursorPage<Match> matchesPageWithUsers() {
+        return readOnly.execute(status -> matchRepository.findPage(MatchSpecifications.fetchUsers(), PAGE));
+    }
+    
+    @Benchmark
+    public CursorPage<MatchView> matchesByUser() {
+        return matchService.getMatchesByUserId(seekerId, PAGE);
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+}
@@ -0,0 +1,68 @@
+package com.hemoglobe.benchmarks;
+
+import com.hemoglobe.entity.User;
+import com.hemoglobe.matching.MatchCandidate;
+import com.hemoglobe.matching.MatchingEngine;
+import com.hemoglobe.matching.ScoringModelRegistry;
+import com.hemoglobe.matching.WeightedScoringModel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pairwise scoring and top-K selection of the matching engine, without the database write.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScoringBenchmark {
+    
+    @Param({"1000", "10000", "100000"})
+    public int donors;
+    
+    @Param({"100"})
+    public int seekers;
+    
+    private MatchingEngine engine;
+    private List<User> donorList;
+    private List<User> seekerList;
+    
+    @Setup
+    public void setUp() {
+        engine = new MatchingEngine();
+        ReflectionTestUtils.setField(engine, "topK", 10);
+        ReflectionTestUtils.setField(engine, "minScore", 50);
+        ReflectionTestUtils.setField(engine, "scoringModels",
+                new ScoringModelRegistry(new WeightedScoringModel(50, 40, 30, 50, 10, 180, 10, 10)));
+        ReflectionTestUtils.setField(engine, "meterRegistry", new SimpleMeterRegistry());
+        
+        SyntheticDataset dataset = new SyntheticDataset(42);
+        donorList = dataset.donors(donors);
+        seekerList = dataset.seekers(seekers);
+    }
+    
+    @Benchmark
+    public List<MatchCandidate> plan() {
+        List<MatchCandidate> candidates = new ArrayList<>();
+        engine.plan("whole_blood", seekerList, Set.of(), donorList, candidates);
+        return candidates;
+    }
+}
@@ -0,0 +1,77 @@
+package com.hemoglobe.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hemoglobe.dto.MatchView;
+import com.hemoglobe.dto.UserSummary;
+import com.hemoglobe.entity.Match;
+import com.hemoglobe.entity.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of the list payloads, comparing the entities with the views the controllers return.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+    
+    @Param({"50", "500"})
+    public int size;
+    
+    private ObjectMapper objectMapper;
+    private List<User> users;
+    private List<UserSummary> userSummaries;
+    private List<Match> matches;
+    private List<MatchView> matchViews;
+    
+    @Setup
+    public void setUp() {
+        // Same defaults as the mapper Spring Boot configures for the controllers
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        
+        SyntheticDataset dataset = new SyntheticDataset(42);
+        users = dataset.donors(size);
+        List<User> seekers = dataset.seekers(size);
+        userSummaries = users.stream().map(UserSummary::from).toList();
+        matches = dataset.matches(users, seekers, size);
+        matchViews = matches.stream().map(MatchView::from).toList();
+    }
+    
+    @Benchmark
+    public byte[] users() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(users);
+    }
+    
+    @Benchmark
+    public byte[] userSummaries() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(userSummaries);
+    }
+    
+    @Benchmark
+    public byte[] matches() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(matches);
+    }
+    
+    @Benchmark
+    public byte[] matchViews() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(matchViews);
+    }
+}
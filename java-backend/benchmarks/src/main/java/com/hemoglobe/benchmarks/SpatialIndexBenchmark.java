@@ -0,0 +1,99 @@
+package com.hemoglobe.benchmarks;
+
+import com.hemoglobe.entity.User;
+import com.hemoglobe.geo.DonorLocation;
+import com.hemoglobe.geo.DonorSpatialIndex;
+import com.hemoglobe.geo.NearbyDonor;
+import com.hemoglobe.matching.BloodCompatibility;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Nearest-donor lookups on the in-memory grid index, as served by {@code GET /users/donors/nearby}: the 20 nearest
+ * donors able to give whole blood to an O+ recipient within 50 km, from points scattered around the dataset's cities.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SpatialIndexBenchmark {
+    
+    private static final int QUERY_POINTS = 1024;
+    
+    @Param({"10000", "100000", "1000000"})
+    public int donors;
+    
+    @Param({"20"})
+    public int limit;
+    
+    private DonorSpatialIndex index;
+    private double[][] points;
+    private int donorMask;
+    private int next;
+    
+    @Setup
+    public void setUp() {
+        index = new DonorSpatialIndex(0.1);
+        index.replaceAll(new SyntheticDataset(42).donors(donors).stream().map(Donor::new));
+        donorMask = BloodCompatibility.donorMask(BloodCompatibility.WHOLE_BLOOD, BloodCompatibility.indexOf("O+"));
+        
+        // Query from the seekers' locations, so the points follow the same city clusters as the donors
+        List<User> seekers = new SyntheticDataset(42).seekers(QUERY_POINTS);
+        points = new double[QUERY_POINTS][];
+        Random random = new Random(7);
+        for (int i = 0; i < QUERY_POINTS; i++) {
+            User seeker = seekers.get(random.nextInt(seekers.size()));
+            points[i] = new double[] {seeker.getLatitude(), seeker.getLongitude()};
+        }
+    }
+    
+    @Benchmark
+    public List<NearbyDonor> nearest() {
+        double[] point = points[next++ & (QUERY_POINTS - 1)];
+        return index.nearest(point[0], point[1], 50, donorMask, limit);
+    }
+    
+    private record Donor(User user) implements DonorLocation {
+        
+        @Override
+        public Long getId() {
+            return user.getId();
+        }
+        
+        @Override
+        public String getBloodGroup() {
+            return user.getBloodGroup();
+        }
+        
+        @Override
+        public Double getLatitude() {
+            return user.getLatitude();
+        }
+        
+        @Override
+        public Double getLongitude() {
+            return user.getLongitude();
+        }
+        
+        @Override
+        public LocalDateTime getNextEligibleAt() {
+            return null;
+        }
+    }
+}
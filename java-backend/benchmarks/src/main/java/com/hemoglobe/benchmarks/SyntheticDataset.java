@@ -0,0 +1,116 @@
+package com.hemoglobe.benchmarks;
+
+import com.hemoglobe.entity.Match;
+import com.hemoglobe.entity.User;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic generator of users and matches with a realistic blood group mix, spread around a set of cities.
+ * The same seed always yields the same data, so results are comparable between runs.
+ */
+public class SyntheticDataset {
+    
+    private static final String[] GROUPS = {"O+", "A+", "B+", "AB+", "O-", "A-", "B-", "AB-"};
+    private static final double[] GROUP_SHARE = {0.38, 0.34, 0.09, 0.03, 0.07, 0.06, 0.02, 0.01};
+    
+    private static final String[] CITIES = {"Mumbai", "Pune", "Delhi", "Bangalore", "Chennai", "London", "Paris", "New York"};
+    private static final double[][] CITY_COORDINATES = {
+            {19.0760, 72.8777}, {18.5204, 73.8567}, {28.6139, 77.2090}, {12.9716, 77.5946},
+            {13.0827, 80.2707}, {51.5074, -0.1278}, {48.8566, 2.3522}, {40.7128, -74.0060}};
+    
+    private final long seed;
+    
+    public SyntheticDataset(long seed) {
+        this.seed = seed;
+    }
+    
+    public List<User> donors(int count) {
+        return users(count, "donor", seed);
+    }
+    
+    public List<User> seekers(int count) {
+        return users(count, "seeker", seed + 1);
+    }
+    
+    /**
+     * Matches between the given users, with ids assigned in order, for serialization benchmarks.
+     */
+    public List<Match> matches(List<User> donors, List<User> seekers, int count) {
+        Random random = new Random(seed + 2);
+        List<Match> matches = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            User donor = donors.get(random.nextInt(donors.size()));
+            User seeker = seekers.get(random.nextInt(seekers.size()));
+            Match match = new Match(donor, seeker, seeker.getBloodGroup(),
+                    BigDecimal.valueOf(random.nextInt(5000), 2), 50 + random.nextInt(51));
+            match.setId((long) i + 1);
+            matches.add(match);
+        }
+        return matches;
+    }
+    
+    /**
+     * Insert donors and seekers with JDBC batches, bypassing JPA so large datasets load quickly.
+     */
+    public void insertUsers(JdbcTemplate jdbcTemplate, int donorCount, int seekerCount) {
+        List<User> users = new ArrayList<>(donors(donorCount));
+        users.addAll(seekers(seekerCount));
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO users (name, email, blood_group, location, latitude, longitude, age, user_type, is_available, created_at, updated_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                users, 1000, (ps, user) -> {
+                    ps.setString(1, user.getName());
+                    ps.setString(2, user.getEmail());
+                    ps.setString(3, user.getBloodGroup());
+                    ps.setString(4, user.getLocation());
+                    ps.setDouble(5, user.getLatitude());
+                    ps.setDouble(6, user.getLongitude());
+                    ps.setInt(7, user.getAge());
+                    ps.setString(8, user.getUserType());
+                    ps.setBoolean(9, user.getIsAvailable());
+                    ps.setTimestamp(10, now);
+                    ps.setTimestamp(11, now);
+                });
+    }
+    
+    private static List<User> users(int count, String userType, long seed) {
+        Random random = new Random(seed);
+        List<User> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int city = random.nextInt(CITIES.length);
+            User user = new User();
+            user.setId((long) i + 1);
+            user.setName(userType + "-" + i);
+            user.setEmail(userType + "-" + seed + "-" + i + "@example.com");
+            user.setBloodGroup(bloodGroup(random));
+            user.setLocation(CITIES[city]);
+            // Scatter within roughly 30 km of the city centre
+            user.setLatitude(CITY_COORDINATES[city][0] + (random.nextDouble() - 0.5) * 0.5);
+            user.setLongitude(CITY_COORDINATES[city][1] + (random.nextDouble() - 0.5) * 0.5);
+            user.setAge(18 + random.nextInt(48));
+            user.setUserType(userType);
+            user.setIsAvailable(random.nextDouble() < 0.8);
+            users.add(user);
+        }
+        return users;
+    }
+    
+    private static String bloodGroup(Random random) {
+        double r = random.nextDouble();
+        for (int i = 0; i < GROUPS.length; i++) {
+            r -= GROUP_SHARE[i];
+            if (r < 0) {
+                return GROUPS[i];
+            }
+        }
+        return GROUPS[0];
+    }
+}
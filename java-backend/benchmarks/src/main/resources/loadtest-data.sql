@@ -0,0 +1,25 @@
+-- 20k users and 10k donations with the same blood group mix as SyntheticDataset.
+INSERT INTO users (name, email, blood_group, location, age, user_type, is_available, created_at, updated_at)
+SELECT 'user-' || x,
+       'user-' || x || '@example.com',
+       CASE WHEN MOD(x, 100) < 38 THEN 'O+' WHEN MOD(x, 100) < 72 THEN 'A+' WHEN MOD(x, 100) < 81 THEN 'B+'
+            WHEN MOD(x, 100) < 84 THEN 'AB+' WHEN MOD(x, 100) < 91 THEN 'O-' WHEN MOD(x, 100) < 97 THEN 'A-'
+            WHEN MOD(x, 100) < 99 THEN 'B-' ELSE 'AB-' END,
+       CASE MOD(x, 4) WHEN 0 THEN 'Mumbai' WHEN 1 THEN 'Pune' WHEN 2 THEN 'Delhi' ELSE 'Chennai' END,
+       18 + MOD(x, 48),
+       CASE WHEN MOD(x, 4) = 0 THEN 'seeker' ELSE 'donor' END,
+       MOD(x, 5) <> 0,
+       CURRENT_TIMESTAMP, CURRENT_TIMESTAMP
+FROM SYSTEM_RANGE(1, 20000) AS r(x);
+
+INSERT INTO donations (seeker_id, blood_group, donation_type, location, status, urgency, created_at, updated_at)
+SELECT 4 * MOD(x, 5000) + 4, 'A+', 'whole_blood', 'Pune',
+       CASE WHEN MOD(x, 3) = 0 THEN 'pending' ELSE 'completed' END,
+       CASE WHEN MOD(x, 10) = 0 THEN 'critical' ELSE 'normal' END,
+       CURRENT_TIMESTAMP, CURRENT_TIMESTAMP
+FROM SYSTEM_RANGE(1, 10000) AS r(x);
+
+-- Account the load generator logs in as (password "loadtest"); unavailable, so it is in no query result.
+INSERT INTO users (name, email, blood_group, location, age, user_type, is_available, password_hash, created_at, updated_at)
+VALUES ('loadtest', 'loadtest@example.com', 'O+', 'Pune', 30, 'seeker', false,
+        '$2a$10$PWjjL14Sspk9bkqpGb.eMuSYjjRZHlSfd52vnMCR0kdzHYdjyepzm', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP);
@@ -0,0 +1,245 @@
+package com.hemoglobe.admission;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hemoglobe.security.JwtPrincipal;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Admission control in front of every controller, after authentication.
+ * <ol>
+ *   <li>Rate limit: each client (user id, or remote address before login) has a token bucket per route class -
+ *       {@code auth}, {@code heavy} or {@code standard}, chosen by the {@code admission.*.paths} patterns.</li>
+ *   <li>Overload: past {@code admission.max-in-flight} concurrent requests, new requests are shed.</li>
+ *   <li>Heavy routes (auto-match, exports, bulk transfer, analytics) also need one of
+ *       {@code admission.heavy.max-concurrent} slots, waiting up to {@code admission.heavy.queue-timeout-ms}.</li>
+ * </ol>
+ * Rejections are {@code 429 Too Many Requests} with {@code Retry-After}. Critical-urgency donation traffic - the
+ * critical donation lists, and donation writes whose body has {@code "urgency": "critical"} - is a priority lane
+ * that is never shed and needs no heavy slot. Since any client can mark a body critical, the lane still has its own,
+ * more generous per-client bucket ({@code admission.critical.*}), separate from the client's other buckets.
+ */
+@Component
+public class AdmissionFilter extends OncePerRequestFilter {
+    
+    private static final int MAX_INSPECTED_BODY = 64 * 1024;
+    
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final RateLimiter rateLimiter;
+    private final List<RoutePolicy> policies;
+    private final RoutePolicy standard;
+    private final RoutePolicy heavy;
+    private final RoutePolicy critical;
+    private final Semaphore heavySlots;
+    private final long heavyQueueTimeoutMillis;
+    private final int maxInFlight;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Counter> rejections = new ConcurrentHashMap<>();
+    private final Counter priorityRequests;
+    
+    public AdmissionFilter(ObjectMapper objectMapper,
+                           MeterRegistry meterRegistry,
+                           @Value("${admission.max-in-flight:1000}") int maxInFlight,
+                           @Value("${admission.max-clients:100000}") long maxClients,
+                           @Value("${admission.auth.paths:/auth/login,/auth/register}") List<String> authPaths,
+                           @Value("${admission.auth.permits-per-second:1}") double authRate,
+                           @Value("${admission.auth.burst:10}") int authBurst,
+                           @Value("${admission.heavy.paths:/matches/auto-match,/matches/auto-match/*}") List<String> heavyPaths,
+                           @Value("${admission.heavy.permits-per-second:0.2}") double heavyRate,
+                           @Value("${admission.heavy.burst:3}") int heavyBurst,
+                           @Value("${admission.heavy.max-concurrent:4}") int heavyMaxConcurrent,
+                           @Value("${admission.heavy.queue-timeout-ms:2000}") long heavyQueueTimeoutMillis,
+                           @Value("${admission.standard.permits-per-second:50}") double standardRate,
+                           @Value("${admission.standard.burst:100}") int standardBurst,
+                           @Value("${admission.critical.permits-per-second:20}") double criticalRate,
+                           @Value("${admission.critical.burst:200}") int criticalBurst) {
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.maxInFlight = maxInFlight;
+        this.rateLimiter = new RateLimiter(maxClients, Duration.ofMinutes(10));
+        this.heavy = new RoutePolicy("heavy", heavyPaths, heavyRate, heavyBurst);
+        this.standard = new RoutePolicy("standard", List.of("/**"), standardRate, standardBurst);
+        this.critical = new RoutePolicy("critical", List.of(), criticalRate, criticalBurst);
+        this.policies = List.of(new RoutePolicy("auth", authPaths, authRate, authBurst), heavy);
+        this.heavySlots = new Semaphore(heavyMaxConcurrent, true);
+        this.heavyQueueTimeoutMillis = heavyQueueTimeoutMillis;
+        this.priorityRequests = meterRegistry.counter("admission.priority");
+        meterRegistry.gauge("admission.in.flight", inFlight);
+    }
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (isDonationWrite(request, path)) {
+            request = buffered(request);
+        }
+        if (isPriority(request, path)) {
+            long waitNanos = rateLimiter.tryAcquire(client(request) + '|' + critical.name(), critical);
+            if (waitNanos > 0) {
+                reject(response, "rate", critical, waitNanos);
+                return;
+            }
+            priorityRequests.increment();
+            chain.doFilter(request, response);
+            return;
+        }
+    
+        RoutePolicy policy = policyFor(path);
+        long waitNanos = rateLimiter.tryAcquire(client(request) + '|' + policy.name(), policy);
+        if (waitNanos > 0) {
+            reject(response, "rate", policy, waitNanos);
+            return;
+        }
+    
+        boolean heavySlot = false;
+        boolean releaseHeavySlot = true;
+        try {
+            if (inFlight.incrementAndGet() > maxInFlight) {
+                reject(response, "overload", policy, TimeUnit.SECONDS.toNanos(1));
+                return;
+            }
+            if (policy == heavy) {
+                heavySlot = heavySlots.tryAcquire(heavyQueueTimeoutMillis, TimeUnit.MILLISECONDS);
+                if (!heavySlot) {
+                    reject(response, "concurrency", policy, TimeUnit.MILLISECONDS.toNanos(heavyQueueTimeoutMillis));
+                    return;
+                }
+            }
+            chain.doFilter(request, response);
+            if (heavySlot && request.isAsyncStarted()) {
+                // streamed responses keep working the database until the async request completes
+                releaseHeavySlot = false;
+                SlotRelease slotRelease = new SlotRelease(heavySlots);
+                try {
+                    request.getAsyncContext().addListener(slotRelease);
+                } catch (IllegalStateException e) {
+                    slotRelease.release();
+                }
+                if (!request.isAsyncStarted()) {
+                    slotRelease.release(); // completed before the listener was added
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            reject(response, "concurrency", policy, TimeUnit.SECONDS.toNanos(1));
+        } finally {
+            inFlight.decrementAndGet();
+            if (heavySlot && releaseHeavySlot) {
+                heavySlots.release();
+            }
+        }
+    }
+    
+    private RoutePolicy policyFor(String path) {
+        for (RoutePolicy policy : policies) {
+            for (String pattern : policy.paths()) {
+                if (pathMatcher.match(pattern, path)) {
+                    return policy;
+                }
+            }
+        }
+        return standard;
+    }
+    
+    private static String client(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof JwtPrincipal principal) {
+            return "user:" + principal.userId();
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+    
+    private static boolean isDonationWrite(HttpServletRequest request, String path) {
+        return ("POST".equals(request.getMethod()) || "PUT".equals(request.getMethod())) && path.startsWith("/donations")
+                && request.getContentLengthLong() > 0 && request.getContentLengthLong() <= MAX_INSPECTED_BODY;
+    }
+    
+    private boolean isPriority(HttpServletRequest request, String path) {
+        if ("GET".equals(request.getMethod())) {
+            return path.equals("/donations/critical") || path.equals("/donations/urgency/critical");
+        }
+        if (request instanceof BufferedBodyRequest buffered) {
+            try {
+                return "critical".equalsIgnoreCase(objectMapper.readTree(buffered.body()).path("urgency").asText());
+            } catch (IOException e) {
+                return false; // malformed JSON is rejected by the controller
+            }
+        }
+        return false;
+    }
+    
+    private static HttpServletRequest buffered(HttpServletRequest request) throws IOException {
+        return new BufferedBodyRequest(request, request.getInputStream().readNBytes(MAX_INSPECTED_BODY));
+    }
+    
+    private void reject(HttpServletResponse response, String reason, RoutePolicy policy, long retryAfterNanos) throws IOException {
+        rejections.computeIfAbsent(reason + '|' + policy.name(), key ->
+                meterRegistry.counter("admission.rejected", "reason", reason, "route", policy.name())).increment();
+        long retryAfterSeconds = Math.max(1, (retryAfterNanos + 999_999_999L) / 1_000_000_000L);
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"error\":\"Too many requests\"}");
+    }
+    
+    /** Returns a heavy-route slot once, when an async (streamed) response finishes however it ends. */
+    private record SlotRelease(Semaphore slots, AtomicBoolean released) implements AsyncListener {
+    
+        SlotRelease(Semaphore slots) {
+            this(slots, new AtomicBoolean());
+        }
+    
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release();
+        }
+    
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release();
+        }
+    
+        @Override
+        public void onError(AsyncEvent event) {
+            release();
+        }
+    
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    
+        void release() {
+            if (released.compareAndSet(false, true)) {
+                slots.release();
+            }
+        }
+    }
+}
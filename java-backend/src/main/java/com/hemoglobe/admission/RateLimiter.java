@@ -0,0 +1,57 @@
+package com.hemoglobe.admission;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Token buckets per key, each held as a single {@link AtomicLong} and taken with one compare-and-set.
+ * <p>
+ * A bucket stores the time its next token becomes available (the generic cell rate algorithm): a request is admitted
+ * when that time is at most the policy's tolerance ahead of now, and pushes it one interval further. This is
+ * equivalent to a token bucket without a separate refill step. Idle buckets are dropped after {@code idle}, which
+ * is the same as a full bucket.
+ */
+final class RateLimiter {
+    
+    private final Cache<String, AtomicLong> buckets;
+    private final LongSupplier nanoTime;
+    private final long origin;
+    
+    RateLimiter(long maximumKeys, Duration idle) {
+        this(maximumKeys, idle, System::nanoTime);
+    }
+    
+    RateLimiter(long maximumKeys, Duration idle, LongSupplier nanoTime) {
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maximumKeys)
+                .expireAfterAccess(idle)
+                .build();
+        this.nanoTime = nanoTime;
+        this.origin = nanoTime.getAsLong();
+    }
+    
+    /**
+     * Take a token from the key's bucket; returns 0 if one was taken, otherwise the nanoseconds until one is free.
+     */
+    long tryAcquire(String key, RoutePolicy policy) {
+        AtomicLong bucket = buckets.get(key, k -> new AtomicLong());
+        long now = nanoTime.getAsLong() - origin;
+        long interval = policy.intervalNanos();
+        long tolerance = policy.toleranceNanos();
+        while (true) {
+            long available = bucket.get();
+            long start = Math.max(available, now);
+            long wait = start - now - tolerance;
+            if (wait > 0) {
+                return wait;
+            }
+            if (bucket.compareAndSet(available, start + interval)) {
+                return 0;
+            }
+        }
+    }
+}
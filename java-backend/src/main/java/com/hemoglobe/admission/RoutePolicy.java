@@ -0,0 +1,26 @@
+package com.hemoglobe.admission;
+
+import java.util.List;
+
+/**
+ * A class of routes sharing one rate limit: each client gets a bucket of {@code burst} requests per class,
+ * refilled at {@code permitsPerSecond}.
+ */
+record RoutePolicy(String name, List<String> paths, double permitsPerSecond, int burst) {
+    
+    RoutePolicy {
+        if (!(permitsPerSecond > 0) || burst < 1) {
+            throw new IllegalArgumentException("Rate limit of " + name + " must allow at least one request");
+        }
+    }
+    
+    /** Nanoseconds between two refilled tokens. */
+    long intervalNanos() {
+        return (long) (1_000_000_000L / permitsPerSecond);
+    }
+    
+    /** How far ahead of the steady rate a client may get, i.e. the burst beyond the first request. */
+    long toleranceNanos() {
+        return intervalNanos() * (burst - 1);
+    }
+}
@@ -0,0 +1,19 @@
+package com.hemoglobe.analytics;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Donation requests in one grid cell, blood group, urgency and time bucket. {@code latitude}/{@code longitude}
+ * are the cell's south-west corner.
+ */
+public record DemandCell(
+        double latitude,
+        double longitude,
+        String bloodGroup,
+        String urgency,
+        LocalDateTime bucket,
+        long requests,
+        long pending,
+        BigDecimal amountMl) {
+}
@@ -0,0 +1,19 @@
+package com.hemoglobe.analytics;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Heatmap data for a time window. {@code refreshedAt} is when the rollups were last rebuilt, or {@code null}
+ * when they are computed live.
+ */
+public record DemandReport(
+        double cellDegrees,
+        String bucket,
+        LocalDateTime from,
+        LocalDateTime to,
+        Instant refreshedAt,
+        List<DemandCell> demand,
+        List<SupplyCell> supply) {
+}
@@ -0,0 +1,259 @@
+package com.hemoglobe.analytics;
+
+import com.hemoglobe.matching.UserChangedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.postgresql.PGConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Demand and supply rollups behind the heatmap API.
+ * <p>
+ * On PostgreSQL the rollups are the {@code demand_rollup} and {@code supply_rollup} materialized views (migrations V6, V13):
+ * donation and user writes mark them dirty, and a background task refreshes dirty views concurrently every
+ * {@code analytics.refresh-interval-ms}, so readers never wait on a refresh and a query reads O(cells × buckets)
+ * rows instead of every donation. Other databases aggregate the same SELECTs live.
+ * <p>
+ * The refresher runs from {@code ApplicationReadyEvent} until the context starts closing, so it never runs against a
+ * DataSource that is not yet injected or already closed.
+ */
+@Component
+public class DemandRollups implements SmartLifecycle {
+    
+    private static final Logger log = LoggerFactory.getLogger(DemandRollups.class);
+    
+    /** Size of a rollup cell; coarser cells are whole multiples of it. */
+    public static final double CELL_DEGREES = 0.1;
+    
+    private static final Set<String> BUCKETS = Set.of("hour", "day", "week");
+    
+    /** How long closing the context waits for a refresh in flight. */
+    private static final long STOP_TIMEOUT_SECONDS = 10;
+    
+    static final String DEMAND_SQL =
+            "SELECT CAST(FLOOR(latitude * 10) AS INTEGER) AS cell_lat, CAST(FLOOR(longitude * 10) AS INTEGER) AS cell_lon, " +
+            "blood_group, urgency, DATE_TRUNC('hour', created_at) AS bucket, COUNT(*) AS requests, " +
+            "SUM(CASE WHEN status = 'pending' THEN 1 ELSE 0 END) AS pending, COALESCE(SUM(amount), 0) AS amount_ml " +
+            "FROM donations WHERE latitude IS NOT NULL AND longitude IS NOT NULL AND created_at IS NOT NULL " +
+            "GROUP BY CAST(FLOOR(latitude * 10) AS INTEGER), CAST(FLOOR(longitude * 10) AS INTEGER), blood_group, urgency, " +
+            "DATE_TRUNC('hour', created_at)";
+    
+    static final String SUPPLY_SQL =
+            "SELECT CAST(FLOOR(latitude * 10) AS INTEGER) AS cell_lat, CAST(FLOOR(longitude * 10) AS INTEGER) AS cell_lon, " +
+            "blood_group, COUNT(*) AS donors FROM users " +
+            "WHERE user_type = 'donor' AND is_available = true AND latitude IS NOT NULL AND longitude IS NOT NULL " +
+            "AND (next_eligible_at IS NULL OR next_eligible_at <= LOCALTIMESTAMP) " +
+            "GROUP BY CAST(FLOOR(latitude * 10) AS INTEGER), CAST(FLOOR(longitude * 10) AS INTEGER), blood_group";
+    
+    private static final String NEWLY_ELIGIBLE_SQL =
+            "SELECT EXISTS (SELECT 1 FROM users WHERE user_type = 'donor' AND is_available = true " +
+            "AND next_eligible_at > ? AND next_eligible_at <= ?)";
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    
+    private final AtomicBoolean demandDirty = new AtomicBoolean(true);
+    private final AtomicBoolean supplyDirty = new AtomicBoolean(true);
+    private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().factory());
+    private final MeterRegistry meterRegistry;
+    private final Duration maxWindow;
+    private final long refreshIntervalMillis;
+    private volatile boolean running;
+    private volatile Boolean materialized;
+    private volatile Instant refreshedAt;
+    private volatile LocalDateTime supplyAsOf;
+    
+    public DemandRollups(MeterRegistry meterRegistry,
+                         @Value("${analytics.refresh-interval-ms:15000}") long refreshIntervalMillis,
+                         @Value("${analytics.max-window-days:31}") long maxWindowDays) {
+        this.meterRegistry = meterRegistry;
+        this.maxWindow = Duration.ofDays(maxWindowDays);
+        this.refreshIntervalMillis = refreshIntervalMillis;
+    }
+    
+    /**
+     * Start refreshing once the context is ready; scheduling from the constructor could run a pass before the JDBC
+     * templates were injected.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        refresher.scheduleWithFixedDelay(this::refresh, refreshIntervalMillis, refreshIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Stop refreshing when the context starts closing, before the DataSource is closed; a refresh in flight is given
+     * {@value #STOP_TIMEOUT_SECONDS} seconds to finish.
+     */
+    @Override
+    public synchronized void stop() {
+        running = false;
+        refresher.shutdown();
+        try {
+            if (!refresher.awaitTermination(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                refresher.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            refresher.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+    
+    /** Started by {@link #start()} on {@code ApplicationReadyEvent} rather than on refresh. */
+    @Override
+    public boolean isAutoStartup() {
+        return false;
+    }
+    
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onDonationChanged(DonationChangedEvent event) {
+        demandDirty.set(true);
+    }
+    
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        supplyDirty.set(true);
+    }
+    
+    /**
+     * Demand in {@code [from, to)} grouped by cell ({@code resolution} × 0.1 degrees), blood group, urgency and
+     * {@code bucket} ({@code hour}, {@code day} or {@code week}), with current supply on the same cells.
+     */
+    public DemandReport report(LocalDateTime from, LocalDateTime to, String bucket, int resolution,
+                               String bloodGroup, String urgency) {
+        if (!BUCKETS.contains(bucket)) {
+            throw new IllegalArgumentException("Unknown bucket: " + bucket);
+        }
+        if (resolution < 1 || resolution > 100) {
+            throw new IllegalArgumentException("Resolution must be between 1 and 100");
+        }
+        if (!from.isBefore(to) || Duration.between(from, to).compareTo(maxWindow) > 0) {
+            throw new IllegalArgumentException("Window must be positive and at most " + maxWindow.toDays() + " days");
+        }
+        boolean useViews = materialized();
+        
+        // bucket and resolution are validated above and inlined so the GROUP BY expressions match the SELECT list
+        String latCell = "FLOOR(cell_lat * 1.0 / " + resolution + ")";
+        String lonCell = "FLOOR(cell_lon * 1.0 / " + resolution + ")";
+        String timeBucket = "DATE_TRUNC('" + bucket + "', bucket)";
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("from", from)
+                .addValue("to", to)
+                .addValue("bloodGroup", bloodGroup)
+                .addValue("urgency", urgency);
+        String filters = (bloodGroup != null ? " AND blood_group = :bloodGroup" : "") + (urgency != null ? " AND urgency = :urgency" : "");
+        
+        String demandSql = "SELECT " + latCell + ", " + lonCell + ", blood_group, urgency, " + timeBucket + " AS time_bucket, " +
+                "SUM(requests), SUM(pending), SUM(amount_ml) " +
+                "FROM " + (useViews ? "demand_rollup" : "(" + DEMAND_SQL + ") demand_rollup") +
+                " WHERE bucket >= :from AND bucket < :to" + filters +
+                " GROUP BY " + latCell + ", " + lonCell + ", blood_group, urgency, " + timeBucket +
+                " ORDER BY time_bucket, 1, 2, blood_group, urgency";
+        List<DemandCell> demand = namedParameterJdbcTemplate.query(demandSql, params, (rs, row) -> new DemandCell(
+                corner(rs.getLong(1), resolution),
+                corner(rs.getLong(2), resolution),
+                rs.getString(3),
+                rs.getString(4),
+                rs.getTimestamp(5).toLocalDateTime(),
+                rs.getLong(6),
+                rs.getLong(7),
+                rs.getBigDecimal(8)));
+        
+        String supplySql = "SELECT " + latCell + ", " + lonCell + ", blood_group, SUM(donors) " +
+                "FROM " + (useViews ? "supply_rollup" : "(" + SUPPLY_SQL + ") supply_rollup") +
+                (bloodGroup != null ? " WHERE blood_group = :bloodGroup" : "") +
+                " GROUP BY " + latCell + ", " + lonCell + ", blood_group ORDER BY 1, 2, blood_group";
+        List<SupplyCell> supply = namedParameterJdbcTemplate.query(supplySql, params, (rs, row) -> new SupplyCell(
+                corner(rs.getLong(1), resolution),
+                corner(rs.getLong(2), resolution),
+                rs.getString(3),
+                rs.getLong(4)));
+        
+        return new DemandReport(CELL_DEGREES * resolution, bucket, from, to, useViews ? refreshedAt : null, demand, supply);
+    }
+    
+    private void refresh() {
+        try {
+            if (!materialized()) {
+                return;
+            }
+            boolean refreshed = refreshIfDirty(demandDirty, "demand_rollup");
+            // Supply counts only eligible donors, so deferrals running out change it without a user write
+            LocalDateTime now = LocalDateTime.now();
+            if (supplyAsOf != null && Boolean.TRUE.equals(jdbcTemplate.queryForObject(NEWLY_ELIGIBLE_SQL, Boolean.class, supplyAsOf, now))) {
+                supplyDirty.set(true);
+            }
+            if (refreshIfDirty(supplyDirty, "supply_rollup")) {
+                supplyAsOf = now;
+                refreshed = true;
+            }
+            if (refreshed) {
+                refreshedAt = Instant.now();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Rollup refresh failed, will retry", e);
+        }
+    }
+    
+    private boolean refreshIfDirty(AtomicBoolean dirty, String view) {
+        if (!dirty.getAndSet(false)) {
+            return false;
+        }
+        try {
+            Timer.builder("analytics.rollup.refresh").tag("view", view).register(meterRegistry)
+                    .record(() -> jdbcTemplate.execute("REFRESH MATERIALIZED VIEW CONCURRENTLY " + view));
+            return true;
+        } catch (RuntimeException e) {
+            dirty.set(true);
+            throw e;
+        }
+    }
+    
+    private boolean materialized() {
+        Boolean postgres = materialized;
+        if (postgres == null) {
+            materialized = postgres = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> connection.isWrapperFor(PGConnection.class));
+        }
+        return Boolean.TRUE.equals(postgres);
+    }
+    
+    private static double corner(long cell, int resolution) {
+        // Divide rather than multiply by 0.1 so whole tenths come out exact (185 -> 18.5)
+        return cell * resolution / 10.0;
+    }
+}
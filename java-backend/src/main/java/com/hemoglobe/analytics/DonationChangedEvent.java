@@ -0,0 +1,7 @@
+package com.hemoglobe.analytics;
+
+/**
+ * Published when a donation is created, updated or deleted.
+ */
+public record DonationChangedEvent(long donationId) {
+}
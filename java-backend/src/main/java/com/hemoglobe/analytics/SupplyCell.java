@@ -0,0 +1,7 @@
+package com.hemoglobe.analytics;
+
+/**
+ * Available donors of one blood group in a grid cell, keyed by the cell's south-west corner.
+ */
+public record SupplyCell(double latitude, double longitude, String bloodGroup, long availableDonors) {
+}
@@ -0,0 +1,8 @@
+package com.hemoglobe.assignment;
+
+/**
+ * The edges a solver chose, ascending. {@code optimal} is false when the time budget ran out first, in which case the
+ * edges are the best assignment found so far and still respect every demand and capacity.
+ */
+public record Assignment(int[] edges, boolean optimal) {
+}
@@ -0,0 +1,13 @@
+package com.hemoglobe.assignment;
+
+import com.hemoglobe.matching.MatchCandidate;
+
+import java.util.List;
+
+/**
+ * The pairs {@link DonorAssignment} chose, with the size of the graph they were chosen from. {@code optimal} is false
+ * when the time budget ran out and part of the assignment was completed greedily.
+ */
+public record AssignmentPlan(List<MatchCandidate> candidates, long pairsEvaluated, int edges, int components,
+                             int hungarianComponents, long totalWeight, boolean optimal) {
+}
@@ -0,0 +1,157 @@
+package com.hemoglobe.assignment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A weighted bipartite graph of seekers and donors in compressed sparse rows: the edges of seeker {@code s} are
+ * {@code rowStart[s]} to {@code rowStart[s + 1] - 1}, each naming a donor and a positive weight. Seeker {@code s}
+ * takes up to {@code demand[s]} donors, donor {@code d} serves up to {@code capacity[d]} seekers and each pair is
+ * used at most once. Seekers and donors are plain indices; callers map them back to users.
+ */
+public record AssignmentProblem(int[] demand, int[] capacity, int[] rowStart, int[] donors, int[] weights) {
+    
+    public AssignmentProblem {
+        if (rowStart.length != demand.length + 1 || donors.length != weights.length || rowStart[demand.length] != donors.length) {
+            throw new IllegalArgumentException("Malformed assignment graph");
+        }
+    }
+    
+    public int seekers() {
+        return demand.length;
+    }
+    
+    public int donorCount() {
+        return capacity.length;
+    }
+    
+    public int edges() {
+        return donors.length;
+    }
+    
+    /** The seeker of every edge. */
+    int[] edgeSeekers() {
+        int[] seekers = new int[edges()];
+        for (int s = 0; s < seekers(); s++) {
+            for (int e = rowStart[s]; e < rowStart[s + 1]; e++) {
+                seekers[e] = s;
+            }
+        }
+        return seekers;
+    }
+    
+    /** Total weight of the given edges. */
+    public long weight(int[] edges) {
+        long weight = 0;
+        for (int e : edges) {
+            weight += weights[e];
+        }
+        return weight;
+    }
+    
+    /**
+     * Split into connected components that share no seeker or donor, each with the global index of its edges.
+     * Components come in the order of their lowest seeker; isolated seekers and donors are dropped.
+     */
+    List<Component> components() {
+        int seekers = seekers();
+        int[] parent = new int[seekers + donorCount()];
+        for (int i = 0; i < parent.length; i++) {
+            parent[i] = i;
+        }
+        for (int s = 0; s < seekers; s++) {
+            for (int e = rowStart[s]; e < rowStart[s + 1]; e++) {
+                int a = find(parent, s);
+                int b = find(parent, seekers + donors[e]);
+                if (a != b) {
+                    parent[Math.max(a, b)] = Math.min(a, b);
+                }
+            }
+        }
+    
+        // Roots are the lowest node of each component, so a seeker whenever the component has an edge
+        int[] componentOf = new int[seekers];
+        List<int[]> members = new ArrayList<>();
+        int[] sizes = new int[seekers];
+        for (int s = 0; s < seekers; s++) {
+            if (rowStart[s] == rowStart[s + 1]) {
+                componentOf[s] = -1;
+                continue;
+            }
+            int root = find(parent, s);
+            if (root == s) {
+                componentOf[s] = members.size();
+                members.add(null);
+            } else {
+                componentOf[s] = componentOf[root];
+            }
+            sizes[componentOf[s]]++;
+        }
+        for (int c = 0; c < members.size(); c++) {
+            members.set(c, new int[sizes[c]]);
+            sizes[c] = 0;
+        }
+        for (int s = 0; s < seekers; s++) {
+            if (componentOf[s] >= 0) {
+                members.get(componentOf[s])[sizes[componentOf[s]]++] = s;
+            }
+        }
+    
+        int[] localDonor = new int[donorCount()];
+        Arrays.fill(localDonor, -1);
+        List<Component> components = new ArrayList<>(members.size());
+        for (int[] rows : members) {
+            components.add(component(rows, localDonor));
+        }
+        return components;
+    }
+    
+    private Component component(int[] rows, int[] localDonor) {
+        int edgeCount = 0;
+        for (int s : rows) {
+            edgeCount += rowStart[s + 1] - rowStart[s];
+        }
+        int[] demand = new int[rows.length];
+        int[] rowStart = new int[rows.length + 1];
+        int[] donors = new int[edgeCount];
+        int[] weights = new int[edgeCount];
+        int[] edges = new int[edgeCount];
+        List<Integer> donorIndex = new ArrayList<>();
+        int e = 0;
+        for (int r = 0; r < rows.length; r++) {
+            int s = rows[r];
+            demand[r] = this.demand[s];
+            for (int g = this.rowStart[s]; g < this.rowStart[s + 1]; g++) {
+                int donor = this.donors[g];
+                if (localDonor[donor] < 0) {
+                    localDonor[donor] = donorIndex.size();
+                    donorIndex.add(donor);
+                }
+                donors[e] = localDonor[donor];
+                weights[e] = this.weights[g];
+                edges[e++] = g;
+            }
+            rowStart[r + 1] = e;
+        }
+        int[] capacity = new int[donorIndex.size()];
+        for (int d = 0; d < capacity.length; d++) {
+            capacity[d] = this.capacity[donorIndex.get(d)];
+        }
+        return new Component(new AssignmentProblem(demand, capacity, rowStart, donors, weights), edges);
+    }
+    
+    private static int find(int[] parent, int node) {
+        while (parent[node] != node) {
+            parent[node] = parent[parent[node]];
+            node = parent[node];
+        }
+        return node;
+    }
+    
+    /**
+     * A connected part of a problem; {@code edges[e]} is the index in the whole problem of local edge {@code e}.
+     */
+    record Component(AssignmentProblem problem, int[] edges) {
+    }
+}
@@ -0,0 +1,11 @@
+package com.hemoglobe.assignment;
+
+/**
+ * Summary of an assignment run: the graph solved ({@code edges} kept out of {@code pairsEvaluated} scored, split into
+ * {@code components}, of which {@code hungarianComponents} were solved densely), the pairs assigned with their total
+ * weight, and the match rows written and expired.
+ */
+public record AssignmentReport(String bloodGroup, int seekers, int donors, long pairsEvaluated, int edges, int components,
+                               int hungarianComponents, int pairsAssigned, long totalWeight, boolean optimal,
+                               int rowsWritten, int rowsRetired, long elapsedMillis) {
+}
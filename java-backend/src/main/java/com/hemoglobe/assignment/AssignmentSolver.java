@@ -0,0 +1,18 @@
+package com.hemoglobe.assignment;
+
+/**
+ * Finds a maximum-weight assignment of an {@link AssignmentProblem}. Solvers are stateless and deterministic: the
+ * same problem always gives the same assignment, whatever the thread.
+ */
+public interface AssignmentSolver {
+    
+    /**
+     * Solve {@code problem}, giving up with the best assignment so far once {@link System#nanoTime()} passes
+     * {@code deadlineNanos}.
+     */
+    Assignment solve(AssignmentProblem problem, long deadlineNanos);
+    
+    static boolean expired(long deadlineNanos) {
+        return System.nanoTime() - deadlineNanos > 0;
+    }
+}
@@ -0,0 +1,315 @@
+package com.hemoglobe.assignment;
+
+import com.hemoglobe.entity.User;
+import com.hemoglobe.matching.DonorBatch;
+import com.hemoglobe.matching.DonorReliability;
+import com.hemoglobe.matching.MatchCandidate;
+import com.hemoglobe.matching.ScoringModel;
+import com.hemoglobe.matching.ScoringModelRegistry;
+import com.hemoglobe.matching.SeekerProfile;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Shortage-mode matching: instead of offering every seeker its top K donors, which can hand the same scarce donor to
+ * everyone, give each donor to at most {@code assignment.donor-capacity} seekers so that the total weight is maximal.
+ * <p>
+ * Seekers and donors form a weighted bipartite graph. A pair's weight is its {@link ScoringModel} score (blood group,
+ * distance, rest, reliability) plus {@code assignment.urgency-weight} for seekers with a pending critical request, so
+ * the solver trades distance against urgency across the whole blood group. Each seeker keeps its
+ * {@code assignment.candidates-per-seeker} best donors as edges and wants one donor per pending request, up to
+ * {@code assignment.max-demand}. Scoring runs in parallel over seekers; the graph is then split into connected
+ * components, which are solved in parallel: small ones with the {@link HungarianSolver}, the rest with the
+ * {@link MinCostFlowSolver}. Results are deterministic whatever the parallelism.
+ * <p>
+ * The solve is given {@code assignment.time-budget-ms}. Components that run out of time keep their best assignment so
+ * far and are topped up greedily, heaviest pairs first; the plan is then reported as not optimal.
+ */
+@Component
+public class DonorAssignment {
+    
+    private static final Logger log = LoggerFactory.getLogger(DonorAssignment.class);
+    
+    private static final String PENDING_REQUESTS_SQL =
+            "SELECT seeker_id, COUNT(*), MAX(CASE WHEN urgency = 'critical' THEN 1 ELSE 0 END) FROM donations " +
+            "WHERE status = 'pending' AND seeker_id IS NOT NULL GROUP BY seeker_id";
+    
+    /** Seekers scored per fork/join task. */
+    private static final int CHUNK = 64;
+    
+    private final int candidatesPerSeeker;
+    private final int minScore;
+    private final double urgencyWeight;
+    private final int donorCapacity;
+    private final int maxDemand;
+    private final long timeBudgetNanos;
+    private final HungarianSolver hungarian;
+    private final MinCostFlowSolver minCostFlow = new MinCostFlowSolver();
+    private final ForkJoinPool pool;
+    private final Timer planTimer;
+    private final Counter budgetExceeded;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private ScoringModelRegistry scoringModels;
+    
+    @Autowired(required = false)
+    private DonorReliability donorReliability;
+    
+    public DonorAssignment(MeterRegistry meterRegistry,
+                           @Value("${assignment.candidates-per-seeker:64}") int candidatesPerSeeker,
+                           @Value("${matching.min-score:50}") int minScore,
+                           @Value("${assignment.urgency-weight:50}") double urgencyWeight,
+                           @Value("${assignment.donor-capacity:1}") int donorCapacity,
+                           @Value("${assignment.max-demand:3}") int maxDemand,
+                           @Value("${matching.top-k:10}") int topK,
+                           @Value("${assignment.hungarian-max-cells:250000}") long hungarianMaxCells,
+                           @Value("${assignment.time-budget-ms:10000}") long timeBudgetMillis,
+                           @Value("${assignment.parallelism:0}") int parallelism) {
+        if (candidatesPerSeeker < 1 || donorCapacity < 1 || maxDemand < 1) {
+            throw new IllegalArgumentException("Assignment candidates, donor capacity and demand must be positive");
+        }
+        this.candidatesPerSeeker = candidatesPerSeeker;
+        this.minScore = minScore;
+        this.urgencyWeight = urgencyWeight;
+        this.donorCapacity = donorCapacity;
+        // Matches are written as each seeker's pending set, which holds at most K donors
+        this.maxDemand = Math.min(maxDemand, topK);
+        this.timeBudgetNanos = TimeUnit.MILLISECONDS.toNanos(timeBudgetMillis);
+        this.hungarian = new HungarianSolver(hungarianMaxCells);
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.planTimer = meterRegistry.timer("assignment.plan");
+        this.budgetExceeded = meterRegistry.counter("assignment.budget.exceeded");
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+    
+    /**
+     * Pending donation requests per seeker: how many, and whether any is critical.
+     */
+    public Map<Long, PendingRequests> pendingRequests() {
+        Map<Long, PendingRequests> requests = new HashMap<>();
+        jdbcTemplate.query(PENDING_REQUESTS_SQL, rs -> {
+            requests.put(rs.getLong(1), new PendingRequests(rs.getInt(2), rs.getInt(3) == 1));
+        });
+        return requests;
+    }
+    
+    /**
+     * Assign {@code donors} to {@code seekers} for {@code donationType}; seekers without pending requests want one
+     * donor at normal urgency.
+     */
+    public AssignmentPlan plan(String donationType, List<User> seekers, Map<Long, PendingRequests> requests, List<User> donors) {
+        long start = System.nanoTime();
+        long deadline = start + timeBudgetNanos;
+        ScoringModel model = scoringModels.current();
+        DonorBatch batch = DonorBatch.of(donors, LocalDateTime.now(), donorReliability != null ? donorReliability : DonorReliability.NEUTRAL);
+    
+        List<SeekerProfile> profiles = new ArrayList<>(seekers.size());
+        List<Integer> demand = new ArrayList<>(seekers.size());
+        for (User seeker : seekers) {
+            PendingRequests pending = requests.getOrDefault(seeker.getId(), PendingRequests.NONE);
+            SeekerProfile profile = SeekerProfile.of(seeker, donationType, pending.critical() ? 1.0 : 0.0);
+            if (profile != null) {
+                profiles.add(profile);
+                demand.add(Math.clamp(pending.count(), 1, maxDemand));
+            }
+        }
+    
+        Graph graph = build(model, profiles, batch);
+        int[] capacity = new int[batch.size()];
+        Arrays.fill(capacity, donorCapacity);
+        AssignmentProblem problem = new AssignmentProblem(demand.stream().mapToInt(Integer::intValue).toArray(),
+                capacity, graph.rowStart(), graph.donors(), graph.weights());
+    
+        List<AssignmentProblem.Component> components = problem.components();
+        List<Assignment> solved = pool.submit(() -> components.parallelStream()
+                .map(component -> solverFor(component.problem()).solve(component.problem(), deadline))
+                .toList()).join();
+    
+        boolean[] used = new boolean[problem.edges()];
+        boolean optimal = true;
+        int hungarianComponents = 0;
+        for (int c = 0; c < components.size(); c++) {
+            AssignmentProblem.Component component = components.get(c);
+            Assignment assignment = solved.get(c);
+            for (int e : assignment.edges()) {
+                used[component.edges()[e]] = true;
+            }
+            optimal &= assignment.optimal();
+            hungarianComponents += solverFor(component.problem()) == hungarian ? 1 : 0;
+        }
+        if (!optimal) {
+            budgetExceeded.increment();
+            fillGreedily(problem, used);
+        }
+    
+        List<MatchCandidate> candidates = new ArrayList<>();
+        long totalWeight = 0;
+        int[] edgeSeekers = problem.edgeSeekers();
+        for (int e = 0; e < used.length; e++) {
+            if (used[e]) {
+                candidates.add(MatchCandidate.of(profiles.get(edgeSeekers[e]), batch, problem.donors()[e], graph.scores()[e]));
+                totalWeight += problem.weights()[e];
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        planTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        log.info("Assigned {} pairs over {} edges in {} components (weight {}, optimal {}) in {} ms",
+                candidates.size(), problem.edges(), components.size(), totalWeight, optimal, elapsed / 1_000_000);
+        return new AssignmentPlan(candidates, graph.pairsEvaluated(), problem.edges(), components.size(),
+                hungarianComponents, totalWeight, optimal);
+    }
+    
+    private AssignmentSolver solverFor(AssignmentProblem problem) {
+        return hungarian.fits(problem) ? hungarian : minCostFlow;
+    }
+    
+    /**
+     * Score every seeker against the donor batch in parallel and keep its best {@code candidatesPerSeeker} donors,
+     * by weight and then donor order, as ascending edges.
+     */
+    private Graph build(ScoringModel model, List<SeekerProfile> profiles, DonorBatch batch) {
+        int seekers = profiles.size();
+        int[][] rowDonors = new int[seekers][];
+        int[][] rowScores = new int[seekers][];
+        long[] pairsEvaluated = new long[(seekers + CHUNK - 1) / CHUNK];
+        pool.submit(() -> IntStream.range(0, pairsEvaluated.length).parallel().forEach(chunk -> {
+            int[] scores = new int[batch.size()];
+            long[] best = new long[candidatesPerSeeker];
+            for (int s = chunk * CHUNK; s < Math.min(seekers, (chunk + 1) * CHUNK); s++) {
+                SeekerProfile seeker = profiles.get(s);
+                pairsEvaluated[chunk] += model.score(seeker, batch, scores);
+                int premium = (int) Math.round(urgencyWeight * seeker.urgency());
+                int kept = 0;
+                for (int i = 0; i < scores.length; i++) {
+                    int score = scores[i];
+                    if (score < minScore || score == ScoringModel.INCOMPATIBLE) {
+                        continue;
+                    }
+                    // Higher weight first, then lower donor index, so ties resolve the same way every run
+                    long key = ((long) (score + premium) << 32) | (Integer.MAX_VALUE - i);
+                    if (kept < best.length) {
+                        best[kept] = key;
+                        siftUp(best, kept++);
+                    } else if (key > best[0]) {
+                        best[0] = key;
+                        siftDown(best, kept);
+                    }
+                }
+                int[] donors = new int[kept];
+                for (int k = 0; k < kept; k++) {
+                    donors[k] = Integer.MAX_VALUE - (int) best[k];
+                }
+                Arrays.sort(donors);
+                int[] rowScore = new int[kept];
+                for (int k = 0; k < kept; k++) {
+                    rowScore[k] = scores[donors[k]];
+                }
+                rowDonors[s] = donors;
+                rowScores[s] = rowScore;
+            }
+        })).join();
+    
+        int[] rowStart = new int[seekers + 1];
+        for (int s = 0; s < seekers; s++) {
+            rowStart[s + 1] = rowStart[s] + rowDonors[s].length;
+        }
+        int[] donors = new int[rowStart[seekers]];
+        int[] scores = new int[donors.length];
+        int[] weights = new int[donors.length];
+        for (int s = 0; s < seekers; s++) {
+            System.arraycopy(rowDonors[s], 0, donors, rowStart[s], rowDonors[s].length);
+            System.arraycopy(rowScores[s], 0, scores, rowStart[s], rowScores[s].length);
+            int premium = (int) Math.round(urgencyWeight * profiles.get(s).urgency());
+            for (int e = rowStart[s]; e < rowStart[s + 1]; e++) {
+                weights[e] = scores[e] + premium;
+            }
+        }
+        return new Graph(rowStart, donors, scores, weights, Arrays.stream(pairsEvaluated).sum());
+    }
+    
+    /** Add unused edges, heaviest first, while their seeker and donor have room; used after the budget ran out. */
+    private static void fillGreedily(AssignmentProblem problem, boolean[] used) {
+        int[] edgeSeekers = problem.edgeSeekers();
+        int[] demandLeft = problem.demand().clone();
+        int[] capacityLeft = problem.capacity().clone();
+        int free = 0;
+        for (int e = 0; e < used.length; e++) {
+            if (used[e]) {
+                demandLeft[edgeSeekers[e]]--;
+                capacityLeft[problem.donors()[e]]--;
+            } else {
+                free++;
+            }
+        }
+        long[] order = new long[free];
+        free = 0;
+        for (int e = 0; e < used.length; e++) {
+            if (!used[e]) {
+                order[free++] = ((long) -problem.weights()[e] << 32) | e;
+            }
+        }
+        Arrays.sort(order);
+        for (long key : order) {
+            int e = (int) key;
+            if (demandLeft[edgeSeekers[e]] > 0 && capacityLeft[problem.donors()[e]] > 0) {
+                used[e] = true;
+                demandLeft[edgeSeekers[e]]--;
+                capacityLeft[problem.donors()[e]]--;
+            }
+        }
+    }
+    
+    private static void siftUp(long[] heap, int i) {
+        long key = heap[i];
+        while (i > 0 && heap[(i - 1) >>> 1] > key) {
+            heap[i] = heap[(i - 1) >>> 1];
+            i = (i - 1) >>> 1;
+        }
+        heap[i] = key;
+    }
+    
+    private static void siftDown(long[] heap, int size) {
+        long key = heap[0];
+        int i = 0;
+        while (2 * i + 1 < size) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (heap[child] >= key) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = key;
+    }
+    
+    private record Graph(int[] rowStart, int[] donors, int[] scores, int[] weights, long pairsEvaluated) {
+    }
+}
@@ -0,0 +1,143 @@
+package com.hemoglobe.assignment;
+
+import java.util.Arrays;
+
+/**
+ * The Hungarian method (shortest augmenting paths with row and column potentials) on a dense cost matrix, for small
+ * problems. Seekers are expanded into one row per unit of demand and donors into one column per unit of capacity,
+ * plus one zero-cost column per row for staying unassigned, so the matrix has {@code rows * (columns + rows)} cells
+ * and the solve takes {@code O(rows^2 * (columns + rows))}.
+ * <p>
+ * Expanding both sides could give the same pair two slots, so only problems where every seeker wants one donor or
+ * every donor serves one seeker {@link #fits fit}. Rows are added one at a time and the assignment of the rows added
+ * so far is optimal among them, which is the best-so-far answer when the deadline passes.
+ */
+public class HungarianSolver implements AssignmentSolver {
+    
+    /** Cost of a pair without an edge; larger than any assignment that leaves the row unassigned instead. */
+    private static final long FORBIDDEN = 1L << 40;
+    
+    private final long maxCells;
+    
+    public HungarianSolver(long maxCells) {
+        this.maxCells = maxCells;
+    }
+    
+    /** Whether {@code problem} is small enough for the dense matrix and cannot assign a pair twice. */
+    public boolean fits(AssignmentProblem problem) {
+        long rows = Arrays.stream(problem.demand()).asLongStream().sum();
+        long columns = Arrays.stream(problem.capacity()).asLongStream().sum() + rows;
+        boolean singleSlot = Arrays.stream(problem.demand()).allMatch(d -> d <= 1)
+                || Arrays.stream(problem.capacity()).allMatch(c -> c <= 1);
+        return singleSlot && rows * columns <= maxCells;
+    }
+    
+    @Override
+    public Assignment solve(AssignmentProblem problem, long deadlineNanos) {
+        int[] rowSeeker = slots(problem.demand());
+        int[] columnDonor = slots(problem.capacity());
+        int[] donorColumn = new int[problem.donorCount() + 1];
+        for (int d = 0; d < problem.donorCount(); d++) {
+            donorColumn[d + 1] = donorColumn[d] + problem.capacity()[d];
+        }
+        int n = rowSeeker.length;
+        int m = columnDonor.length + n;
+    
+        // 1-based, as in the textbook formulation; column 0 is the virtual start of each augmenting path
+        long[] cost = new long[(n + 1) * (m + 1)];
+        for (int r = 1; r <= n; r++) {
+            int seeker = rowSeeker[r - 1];
+            Arrays.fill(cost, r * (m + 1) + 1, r * (m + 1) + 1 + columnDonor.length, FORBIDDEN);
+            for (int e = problem.rowStart()[seeker]; e < problem.rowStart()[seeker + 1]; e++) {
+                int donor = problem.donors()[e];
+                for (int c = donorColumn[donor]; c < donorColumn[donor + 1]; c++) {
+                    cost[r * (m + 1) + c + 1] = -problem.weights()[e];
+                }
+            }
+        }
+    
+        long[] u = new long[n + 1];
+        long[] v = new long[m + 1];
+        int[] rowOf = new int[m + 1];
+        int[] way = new int[m + 1];
+        long[] minv = new long[m + 1];
+        boolean[] used = new boolean[m + 1];
+        boolean optimal = true;
+        for (int r = 1; r <= n; r++) {
+            if (AssignmentSolver.expired(deadlineNanos)) {
+                optimal = false;
+                break;
+            }
+            rowOf[0] = r;
+            int j0 = 0;
+            Arrays.fill(minv, Long.MAX_VALUE);
+            Arrays.fill(used, false);
+            do {
+                used[j0] = true;
+                int i0 = rowOf[j0];
+                long delta = Long.MAX_VALUE;
+                int j1 = 0;
+                int base = i0 * (m + 1);
+                for (int j = 1; j <= m; j++) {
+                    if (!used[j]) {
+                        long current = cost[base + j] - u[i0] - v[j];
+                        if (current < minv[j]) {
+                            minv[j] = current;
+                            way[j] = j0;
+                        }
+                        if (minv[j] < delta) {
+                            delta = minv[j];
+                            j1 = j;
+                        }
+                    }
+                }
+                for (int j = 0; j <= m; j++) {
+                    if (used[j]) {
+                        u[rowOf[j]] += delta;
+                        v[j] -= delta;
+                    } else {
+                        minv[j] -= delta;
+                    }
+                }
+                j0 = j1;
+            } while (rowOf[j0] != 0);
+            do {
+                int j1 = way[j0];
+                rowOf[j0] = rowOf[j1];
+                j0 = j1;
+            } while (j0 != 0);
+        }
+    
+        int[] edges = new int[n];
+        int count = 0;
+        for (int c = 1; c <= columnDonor.length; c++) {
+            int r = rowOf[c];
+            if (r != 0 && cost[r * (m + 1) + c] < FORBIDDEN) {
+                edges[count++] = edgeOf(problem, rowSeeker[r - 1], columnDonor[c - 1]);
+            }
+        }
+        edges = Arrays.copyOf(edges, count);
+        Arrays.sort(edges);
+        return new Assignment(edges, optimal);
+    }
+    
+    private static int[] slots(int[] units) {
+        int[] owner = new int[Arrays.stream(units).sum()];
+        int slot = 0;
+        for (int i = 0; i < units.length; i++) {
+            for (int k = 0; k < units[i]; k++) {
+                owner[slot++] = i;
+            }
+        }
+        return owner;
+    }
+    
+    private static int edgeOf(AssignmentProblem problem, int seeker, int donor) {
+        for (int e = problem.rowStart()[seeker]; e < problem.rowStart()[seeker + 1]; e++) {
+            if (problem.donors()[e] == donor) {
+                return e;
+            }
+        }
+        throw new IllegalStateException("No edge between seeker " + seeker + " and donor " + donor);
+    }
+}
@@ -0,0 +1,353 @@
+package com.hemoglobe.assignment;
+
+import java.util.Arrays;
+
+/**
+ * Successive shortest paths on the sparse flow network source → seekers (demand) → donors (capacity) → sink, with an
+ * edge cost of minus the pair's weight, for problems too large for a dense matrix.
+ * <p>
+ * Each phase runs Dijkstra over reduced costs from every seeker with demand left, stopping at the sink, and moves the
+ * node potentials so that every shortest augmenting path uses only zero-reduced-cost edges. It then augments along as
+ * many of those paths as a depth-first search finds before running Dijkstra again. Costs are small integers, so the
+ * shortest path cost takes few distinct values and most phases augment many paths. The search stops once the
+ * cheapest path no longer adds weight.
+ * <p>
+ * After every phase the flow is a maximum-weight assignment of its size, which is the best-so-far answer when the
+ * deadline passes.
+ */
+public class MinCostFlowSolver implements AssignmentSolver {
+    
+    private static final long UNREACHED = Long.MAX_VALUE / 4;
+    
+    @Override
+    public Assignment solve(AssignmentProblem problem, long deadlineNanos) {
+        return new Network(problem).solve(deadlineNanos);
+    }
+    
+    /** Residual state of one solve. Node {@code s} is seeker {@code s}, node {@code seekers + d} is donor {@code d}. */
+    private static final class Network {
+    
+        private final int seekers;
+        private final int[] rowStart;
+        private final int[] donors;
+        private final int[] weights;
+        private final int[] columnStart;
+        private final int[] columnEdges;
+        private final int[] edgeSeekers;
+        private final boolean[] used;
+        private final int[] demandLeft;
+        private final int[] capacityLeft;
+        private final long[] potential;
+        private long sinkPotential;
+        private final long[] distance;
+        private final NodeHeap heap;
+        private final int[] arc;
+        private final boolean[] dead;
+        private final boolean[] onPath;
+        private final int[] pathNodes;
+        private final int[] pathEdges;
+    
+        Network(AssignmentProblem problem) {
+            this.seekers = problem.seekers();
+            this.rowStart = problem.rowStart();
+            this.donors = problem.donors();
+            this.weights = problem.weights();
+            int donorCount = problem.donorCount();
+            int nodes = seekers + donorCount;
+    
+            // Edges by donor, to walk back from a donor to the seekers it serves
+            columnStart = new int[donorCount + 1];
+            for (int donor : donors) {
+                columnStart[donor + 1]++;
+            }
+            for (int d = 0; d < donorCount; d++) {
+                columnStart[d + 1] += columnStart[d];
+            }
+            columnEdges = new int[donors.length];
+            int[] fill = Arrays.copyOf(columnStart, donorCount);
+            for (int e = 0; e < donors.length; e++) {
+                columnEdges[fill[donors[e]]++] = e;
+            }
+            edgeSeekers = problem.edgeSeekers();
+    
+            used = new boolean[donors.length];
+            demandLeft = problem.demand().clone();
+            capacityLeft = problem.capacity().clone();
+            distance = new long[nodes];
+            heap = new NodeHeap(nodes, distance);
+            arc = new int[nodes];
+            dead = new boolean[nodes];
+            onPath = new boolean[nodes];
+            pathNodes = new int[nodes + 1];
+            pathEdges = new int[nodes + 1];
+    
+            // Seekers at 0 and each donor at minus its best weight make every reduced cost non-negative
+            potential = new long[nodes];
+            for (int e = 0; e < donors.length; e++) {
+                int node = seekers + donors[e];
+                potential[node] = Math.min(potential[node], -weights[e]);
+            }
+            for (int d = 0; d < donorCount; d++) {
+                sinkPotential = Math.min(sinkPotential, potential[seekers + d]);
+            }
+        }
+    
+        Assignment solve(long deadlineNanos) {
+            while (true) {
+                if (AssignmentSolver.expired(deadlineNanos)) {
+                    return assignment(false);
+                }
+                long sink = shortestPaths();
+                if (sink >= UNREACHED) {
+                    break;
+                }
+                for (int node = 0; node < potential.length; node++) {
+                    potential[node] += Math.min(distance[node], sink);
+                }
+                sinkPotential += sink;
+                // The source stays at potential 0, so the sink's potential is the cost of the cheapest path
+                if (sinkPotential >= 0) {
+                    break;
+                }
+                if (!augment(deadlineNanos)) {
+                    return assignment(false);
+                }
+            }
+            return assignment(true);
+        }
+    
+        /** Dijkstra over reduced costs from every seeker with demand left; returns the distance to the sink. */
+        private long shortestPaths() {
+            Arrays.fill(distance, UNREACHED);
+            heap.clear();
+            for (int s = 0; s < seekers; s++) {
+                if (demandLeft[s] > 0) {
+                    distance[s] = -potential[s];
+                    heap.push(s);
+                }
+            }
+            long sink = UNREACHED;
+            while (!heap.isEmpty()) {
+                int node = heap.peek();
+                long d = distance[node];
+                if (d >= sink) {
+                    break;
+                }
+                heap.pop();
+                if (node < seekers) {
+                    for (int e = rowStart[node]; e < rowStart[node + 1]; e++) {
+                        if (!used[e]) {
+                            int next = seekers + donors[e];
+                            relax(next, d - weights[e] + potential[node] - potential[next]);
+                        }
+                    }
+                } else {
+                    int donor = node - seekers;
+                    if (capacityLeft[donor] > 0) {
+                        sink = Math.min(sink, d + potential[node] - sinkPotential);
+                    }
+                    for (int k = columnStart[donor]; k < columnStart[donor + 1]; k++) {
+                        int e = columnEdges[k];
+                        if (used[e]) {
+                            int next = edgeSeekers[e];
+                            relax(next, d + weights[e] + potential[node] - potential[next]);
+                        }
+                    }
+                }
+            }
+            return sink;
+        }
+    
+        private void relax(int node, long d) {
+            if (d < distance[node]) {
+                distance[node] = d;
+                heap.pushOrDecrease(node);
+            }
+        }
+    
+        /**
+         * Augment along zero-reduced-cost paths until the depth-first search finds no more; false if the deadline
+         * passed first.
+         */
+        private boolean augment(long deadlineNanos) {
+            Arrays.fill(arc, 0);
+            Arrays.fill(dead, false);
+            for (int s = 0; s < seekers; s++) {
+                while (demandLeft[s] > 0 && potential[s] == 0 && !dead[s]) {
+                    if (AssignmentSolver.expired(deadlineNanos)) {
+                        return false;
+                    }
+                    if (!augmentFrom(s)) {
+                        break;
+                    }
+                }
+            }
+            return true;
+        }
+    
+        private boolean augmentFrom(int root) {
+            int top = 0;
+            pathNodes[0] = root;
+            onPath[root] = true;
+            while (top >= 0) {
+                int node = pathNodes[top];
+                if (node >= seekers && capacityLeft[node - seekers] > 0 && potential[node] == sinkPotential) {
+                    for (int k = 1; k <= top; k++) {
+                        used[pathEdges[k]] = !used[pathEdges[k]];
+                    }
+                    for (int k = 0; k <= top; k++) {
+                        onPath[pathNodes[k]] = false;
+                    }
+                    demandLeft[root]--;
+                    capacityLeft[node - seekers]--;
+                    return true;
+                }
+                int e = nextAdmissible(node);
+                if (e < 0) {
+                    dead[node] = true;
+                    onPath[node] = false;
+                    top--;
+                } else {
+                    int next = node < seekers ? seekers + donors[e] : edgeSeekers[e];
+                    pathNodes[++top] = next;
+                    pathEdges[top] = e;
+                    onPath[next] = true;
+                }
+            }
+            return false;
+        }
+    
+        /** The next zero-reduced-cost residual edge out of {@code node} to a live node off the path, or -1. */
+        private int nextAdmissible(int node) {
+            if (node < seekers) {
+                for (int end = rowStart[node + 1] - rowStart[node]; arc[node] < end; arc[node]++) {
+                    int e = rowStart[node] + arc[node];
+                    int next = seekers + donors[e];
+                    if (!used[e] && !dead[next] && !onPath[next] && potential[node] - weights[e] == potential[next]) {
+                        return e;
+                    }
+                }
+            } else {
+                int donor = node - seekers;
+                for (int end = columnStart[donor + 1] - columnStart[donor]; arc[node] < end; arc[node]++) {
+                    int e = columnEdges[columnStart[donor] + arc[node]];
+                    int next = edgeSeekers[e];
+                    if (used[e] && !dead[next] && !onPath[next] && potential[node] + weights[e] == potential[next]) {
+                        return e;
+                    }
+                }
+            }
+            return -1;
+        }
+    
+        private Assignment assignment(boolean optimal) {
+            int count = 0;
+            for (boolean u : used) {
+                count += u ? 1 : 0;
+            }
+            int[] edges = new int[count];
+            count = 0;
+            for (int e = 0; e < used.length; e++) {
+                if (used[e]) {
+                    edges[count++] = e;
+                }
+            }
+            return new Assignment(edges, optimal);
+        }
+    }
+    
+    /** Binary min-heap of node indices keyed by a shared distance array, with decrease-key. */
+    private static final class NodeHeap {
+    
+        private final int[] nodes;
+        private final int[] position;
+        private final long[] keys;
+        private int size;
+    
+        NodeHeap(int capacity, long[] keys) {
+            this.nodes = new int[capacity];
+            this.position = new int[capacity];
+            this.keys = keys;
+            Arrays.fill(position, -1);
+        }
+    
+        boolean isEmpty() {
+            return size == 0;
+        }
+    
+        void clear() {
+            for (int i = 0; i < size; i++) {
+                position[nodes[i]] = -1;
+            }
+            size = 0;
+        }
+    
+        int peek() {
+            return nodes[0];
+        }
+    
+        void push(int node) {
+            nodes[size] = node;
+            position[node] = size;
+            up(size++);
+        }
+    
+        void pushOrDecrease(int node) {
+            if (position[node] < 0) {
+                push(node);
+            } else {
+                up(position[node]);
+            }
+        }
+    
+        void pop() {
+            position[nodes[0]] = -1;
+            if (--size > 0) {
+                nodes[0] = nodes[size];
+                position[nodes[0]] = 0;
+                down(0);
+            }
+        }
+    
+        private void up(int i) {
+            int node = nodes[i];
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!less(node, nodes[parent])) {
+                    break;
+                }
+                nodes[i] = nodes[parent];
+                position[nodes[i]] = i;
+                i = parent;
+            }
+            nodes[i] = node;
+            position[node] = i;
+        }
+    
+        private void down(int i) {
+            int node = nodes[i];
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && less(nodes[child + 1], nodes[child])) {
+                    child++;
+                }
+                if (!less(nodes[child], node)) {
+                    break;
+                }
+                nodes[i] = nodes[child];
+                position[nodes[i]] = i;
+                i = child;
+            }
+            nodes[i] = node;
+            position[node] = i;
+        }
+    
+        /** Ties go to the lower node, so the search order never depends on insertion history. */
+        private boolean less(int a, int b) {
+            return keys[a] < keys[b] || (keys[a] == keys[b] && a < b);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.hemoglobe.assignment;
+
+/**
+ * A seeker's pending donation requests: how many, and whether any of them is critical.
+ */
+public record PendingRequests(int count, boolean critical) {
+    
+    public static final PendingRequests NONE = new PendingRequests(0, false);
+}
@@ -0,0 +1,116 @@
+package com.hemoglobe.automatch;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Mutable progress of one sharded auto-match run, updated by scoring and writer threads and read by pollers through
+ * {@link #view()}. Cancellation is cooperative: workers check {@link #isCancelRequested()} between shards and slices.
+ */
+public class AutoMatchJob {
+    
+    public enum Status { QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED }
+    
+    public enum Phase { LOADING, SCORING, MERGING, WRITING, DONE }
+    
+    private final String id = UUID.randomUUID().toString();
+    private final String donationType;
+    private final LocalDateTime createdAt = LocalDateTime.now();
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile Status status = Status.QUEUED;
+    private volatile Phase phase = Phase.LOADING;
+    private volatile boolean cancelRequested;
+    private volatile String error;
+    
+    private volatile int shards;
+    private volatile int seekers;
+    private volatile int pairsKept;
+    private final AtomicInteger shardsDone = new AtomicInteger();
+    private final AtomicInteger seekersScored = new AtomicInteger();
+    private final AtomicInteger seekersWritten = new AtomicInteger();
+    private final AtomicLong pairsEvaluated = new AtomicLong();
+    private final AtomicInteger rowsWritten = new AtomicInteger();
+    private final AtomicInteger rowsRetired = new AtomicInteger();
+    
+    AutoMatchJob(String donationType) {
+        this.donationType = donationType;
+    }
+    
+    public String id() {
+        return id;
+    }
+    
+    public String donationType() {
+        return donationType;
+    }
+    
+    public Status status() {
+        return status;
+    }
+    
+    public boolean isActive() {
+        return status == Status.QUEUED || status == Status.RUNNING;
+    }
+    
+    public boolean isCancelRequested() {
+        return cancelRequested;
+    }
+    
+    void requestCancel() {
+        cancelRequested = true;
+    }
+    
+    void started() {
+        startedAt = LocalDateTime.now();
+        status = Status.RUNNING;
+    }
+    
+    void phase(Phase phase) {
+        this.phase = phase;
+    }
+    
+    void planned(int shards, int seekers) {
+        this.shards = shards;
+        this.seekers = seekers;
+    }
+    
+    void shardScored(int seekers, long pairs) {
+        seekersScored.addAndGet(seekers);
+        pairsEvaluated.addAndGet(pairs);
+        shardsDone.incrementAndGet();
+    }
+    
+    void merged(int pairsKept) {
+        this.pairsKept = pairsKept;
+    }
+    
+    void sliceWritten(int seekers, int written, int retired) {
+        seekersWritten.addAndGet(seekers);
+        rowsWritten.addAndGet(written);
+        rowsRetired.addAndGet(retired);
+    }
+    
+    void finished(Status status, String error) {
+        this.error = error;
+        this.phase = Phase.DONE;
+        this.finishedAt = LocalDateTime.now();
+        this.status = status;
+    }
+    
+    public AutoMatchJobView view() {
+        LocalDateTime end = finishedAt != null ? finishedAt : LocalDateTime.now();
+        long elapsedMillis = startedAt != null ? Duration.between(startedAt, end).toMillis() : 0;
+        // Scoring and writing each visit every seeker once
+        double progress = status == Status.COMPLETED ? 1.0
+                : seekers == 0 ? 0.0 : (seekersScored.get() + seekersWritten.get()) / (2.0 * seekers);
+        return new AutoMatchJobView(id, status.name().toLowerCase(Locale.ROOT), phase.name().toLowerCase(Locale.ROOT), donationType,
+                shards, shardsDone.get(), seekers, seekersScored.get(), seekersWritten.get(), pairsEvaluated.get(),
+                pairsKept, rowsWritten.get(), rowsRetired.get(), progress, cancelRequested,
+                createdAt, startedAt, finishedAt, elapsedMillis, error);
+    }
+}
@@ -0,0 +1,13 @@
+package com.hemoglobe.automatch;
+
+import java.time.LocalDateTime;
+
+/**
+ * Snapshot of an auto-match job for polling. {@code progress} runs from 0 to 1 over scoring and writing.
+ */
+public record AutoMatchJobView(String id, String status, String phase, String donationType, int shards, int shardsDone,
+                               int seekers, int seekersScored, int seekersWritten, long pairsEvaluated, int pairsKept,
+                               int rowsWritten, int rowsRetired, double progress, boolean cancelRequested,
+                               LocalDateTime createdAt, LocalDateTime startedAt, LocalDateTime finishedAt,
+                               long elapsedMillis, String error) {
+}
@@ -0,0 +1,323 @@
+package com.hemoglobe.automatch;
+
+import com.hemoglobe.entity.User;
+import com.hemoglobe.matching.BloodCompatibility;
+import com.hemoglobe.matching.DonorBatch;
+import com.hemoglobe.matching.MatchCandidate;
+import com.hemoglobe.matching.MatchingEngine;
+import com.hemoglobe.matching.ScoringModel;
+import com.hemoglobe.matching.ScoringModelRegistry;
+import com.hemoglobe.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asynchronous auto-match over every blood group at once. Available seekers are partitioned into shards by blood
+ * group and a {@code auto-match.shard-degrees} grid cell of their coordinates (one extra shard per group for seekers
+ * without coordinates), split to at most {@code auto-match.shard-size} seekers. Shards are scored in parallel on a
+ * fork/join pool against one shared {@link DonorBatch} per recipient group, keeping {@code auto-match.overfetch}
+ * times K donors per seeker. Shards share nothing but read-only batches, so scoring scales with cores.
+ * <p>
+ * The merge walks all candidates best first and accepts a pair while its seeker has fewer than K and its donor fewer
+ * than {@code auto-match.donor-capacity} accepted pairs, so no donor is offered to every seeker nearby. Writes go
+ * through {@link MatchingEngine#write} in seeker slices on {@code auto-match.write-connections} writer threads, which
+ * bounds the connections the job holds. Results do not depend on the parallelism.
+ * <p>
+ * One job runs at a time; jobs can be polled and cancelled by id, and cancellation stops at the next shard or slice.
+ */
+@Component
+public class AutoMatchJobs {
+    
+    private static final Logger log = LoggerFactory.getLogger(AutoMatchJobs.class);
+    
+    /** Best pair first; seeker and donor ids break ties so the merge is deterministic. */
+    private static final Comparator<MatchCandidate> BEST_FIRST =
+            Comparator.comparingInt(MatchCandidate::compatibilityScore).reversed()
+                    .thenComparingLong(MatchCandidate::seekerId)
+                    .thenComparingLong(MatchCandidate::donorId);
+    
+    /** Cell key of seekers without coordinates, which sorts first. */
+    private static final long NO_COORDINATES = Long.MIN_VALUE;
+    
+    private final double shardDegrees;
+    private final int shardSize;
+    private final int overfetch;
+    private final int donorCapacity;
+    private final int writeSlice;
+    private final int retainedJobs;
+    private final ForkJoinPool pool;
+    private final ExecutorService writers;
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(Thread.ofVirtual().factory());
+    private final Map<String, AutoMatchJob> jobs = new LinkedHashMap<>();
+    private final Timer jobTimer;
+    private final MeterRegistry meterRegistry;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private MatchingEngine matchingEngine;
+    
+    @Autowired
+    private ScoringModelRegistry scoringModels;
+    
+    public AutoMatchJobs(MeterRegistry meterRegistry,
+                         @Value("${auto-match.shard-degrees:1.0}") double shardDegrees,
+                         @Value("${auto-match.shard-size:500}") int shardSize,
+                         @Value("${auto-match.overfetch:2}") int overfetch,
+                         @Value("${auto-match.donor-capacity:25}") int donorCapacity,
+                         @Value("${auto-match.write-connections:2}") int writeConnections,
+                         @Value("${auto-match.write-slice:1000}") int writeSlice,
+                         @Value("${auto-match.retained-jobs:20}") int retainedJobs,
+                         @Value("${auto-match.parallelism:0}") int parallelism) {
+        if (shardDegrees <= 0 || shardSize < 1 || overfetch < 1 || donorCapacity < 1 || writeConnections < 1 || writeSlice < 1) {
+            throw new IllegalArgumentException("Auto-match shard size, overfetch, capacity and writers must be positive");
+        }
+        this.shardDegrees = shardDegrees;
+        this.shardSize = shardSize;
+        this.overfetch = overfetch;
+        this.donorCapacity = donorCapacity;
+        this.writeSlice = writeSlice;
+        this.retainedJobs = Math.max(1, retainedJobs);
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.writers = Executors.newFixedThreadPool(writeConnections, Thread.ofVirtual().factory());
+        this.meterRegistry = meterRegistry;
+        this.jobTimer = meterRegistry.timer("automatch.job");
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        synchronized (jobs) {
+            jobs.values().forEach(AutoMatchJob::requestCancel);
+        }
+        runner.shutdownNow();
+        writers.shutdownNow();
+        pool.shutdownNow();
+    }
+    
+    /**
+     * Queue a job for {@code donationType}; fails if another job is still queued or running.
+     */
+    public AutoMatchJob start(String donationType) {
+        // Reject unknown donation types before queueing
+        BloodCompatibility.donorMask(donationType, 0);
+        AutoMatchJob job = new AutoMatchJob(donationType);
+        synchronized (jobs) {
+            for (AutoMatchJob other : jobs.values()) {
+                if (other.isActive()) {
+                    throw new IllegalStateException("Auto-match job " + other.id() + " is already " + other.view().status());
+                }
+            }
+            jobs.put(job.id(), job);
+            // Forget the oldest finished jobs
+            for (Iterator<AutoMatchJob> it = jobs.values().iterator(); jobs.size() > retainedJobs && it.hasNext(); ) {
+                if (!it.next().isActive()) {
+                    it.remove();
+                }
+            }
+        }
+        runner.execute(() -> run(job));
+        return job;
+    }
+    
+    public Optional<AutoMatchJob> get(String id) {
+        synchronized (jobs) {
+            return Optional.ofNullable(jobs.get(id));
+        }
+    }
+    
+    /**
+     * Ask a job to stop; shards and slices already started finish, and rows already written stay.
+     */
+    public Optional<AutoMatchJob> cancel(String id) {
+        Optional<AutoMatchJob> job = get(id);
+        job.ifPresent(AutoMatchJob::requestCancel);
+        return job;
+    }
+    
+    private void run(AutoMatchJob job) {
+        long start = System.nanoTime();
+        job.started();
+        try {
+            execute(job);
+            job.finished(AutoMatchJob.Status.COMPLETED, null);
+        } catch (CancellationException e) {
+            job.finished(AutoMatchJob.Status.CANCELLED, null);
+        } catch (RuntimeException e) {
+            if (job.isCancelRequested()) {
+                job.finished(AutoMatchJob.Status.CANCELLED, null);
+            } else {
+                log.error("Auto-match job {} failed", job.id(), e);
+                job.finished(AutoMatchJob.Status.FAILED, e.getMessage());
+            }
+        }
+        jobTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        meterRegistry.counter("automatch.jobs", "status", job.view().status()).increment();
+        AutoMatchJobView view = job.view();
+        log.info("Auto-match job {} {}: {} shards, {} seekers, {} pairs kept, {} written, {} retired in {} ms",
+                view.id(), view.status(), view.shards(), view.seekers(), view.pairsKept(), view.rowsWritten(),
+                view.rowsRetired(), view.elapsedMillis());
+    }
+    
+    private void execute(AutoMatchJob job) {
+        String donationType = job.donationType();
+        List<String> groups = BloodCompatibility.labels(0xFF);
+        List<User> seekers = userRepository.findAvailableUsersByBloodGroupsAndType(groups, "seeker");
+        List<User> donors = userRepository.findEligibleDonorsByBloodGroups(groups, LocalDateTime.now());
+        Set<Long> urgentSeekers = matchingEngine.criticalSeekers();
+        ScoringModel model = scoringModels.current();
+        checkCancelled(job);
+    
+        // One batch per recipient group, holding only the donors that may give to it
+        DonorBatch[] batches = new DonorBatch[groups.size()];
+        for (int g = 0; g < batches.length; g++) {
+            int mask = BloodCompatibility.donorMask(donationType, g);
+            batches[g] = matchingEngine.batch(donors.stream()
+                    .filter(donor -> BloodCompatibility.isCompatible(mask, BloodCompatibility.indexOf(donor.getBloodGroup())))
+                    .toList());
+        }
+        List<Shard> shards = shards(seekers);
+        List<Long> seekerIds = shards.stream().flatMap(shard -> shard.seekers().stream()).map(User::getId).toList();
+        job.planned(shards.size(), seekerIds.size());
+    
+        job.phase(AutoMatchJob.Phase.SCORING);
+        int keep = matchingEngine.topK() * overfetch;
+        List<List<MatchCandidate>> scored = pool.submit(() -> shards.parallelStream().map(shard -> {
+            checkCancelled(job);
+            List<MatchCandidate> out = new ArrayList<>(shard.seekers().size() * keep);
+            long pairs = matchingEngine.plan(donationType, shard.seekers(), urgentSeekers, model, batches[shard.group()], keep, out);
+            job.shardScored(shard.seekers().size(), pairs);
+            return out;
+        }).toList()).join();
+        checkCancelled(job);
+    
+        job.phase(AutoMatchJob.Phase.MERGING);
+        Map<Long, List<MatchCandidate>> accepted = merge(scored);
+        job.merged(accepted.values().stream().mapToInt(List::size).sum());
+    
+        job.phase(AutoMatchJob.Phase.WRITING);
+        List<Future<?>> slices = new ArrayList<>();
+        for (int from = 0; from < seekerIds.size(); from += writeSlice) {
+            List<Long> slice = seekerIds.subList(from, Math.min(from + writeSlice, seekerIds.size()));
+            slices.add(writers.submit(() -> {
+                checkCancelled(job);
+                List<MatchCandidate> candidates = new ArrayList<>();
+                for (Long seekerId : slice) {
+                    candidates.addAll(accepted.getOrDefault(seekerId, List.of()));
+                }
+                MatchingEngine.WriteCounts counts = matchingEngine.write(slice, candidates);
+                job.sliceWritten(slice.size(), counts.written(), counts.retired());
+            }));
+        }
+        for (Future<?> slice : slices) {
+            try {
+                slice.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                job.requestCancel();
+                throw new CancellationException("Interrupted");
+            } catch (ExecutionException e) {
+                // Drop the slices not started yet; the job fails with the first error
+                slices.forEach(pending -> pending.cancel(false));
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        // A slice skipped for cancellation fails its future, so reaching here means every slice was written
+    }
+    
+    /**
+     * Seekers by blood group and grid cell, in group and cell order, each cell split into shards of at most
+     * {@code shardSize} seekers. Seekers with an unknown blood group are left out.
+     */
+    List<Shard> shards(List<User> seekers) {
+        List<TreeMap<Long, List<User>>> cells = new ArrayList<>();
+        for (int g = 0; g < 8; g++) {
+            cells.add(new TreeMap<>());
+        }
+        for (User seeker : seekers) {
+            int group = BloodCompatibility.indexOf(seeker.getBloodGroup());
+            if (group >= 0) {
+                cells.get(group).computeIfAbsent(cellOf(seeker), cell -> new ArrayList<>()).add(seeker);
+            }
+        }
+        List<Shard> shards = new ArrayList<>();
+        for (int g = 0; g < cells.size(); g++) {
+            for (Map.Entry<Long, List<User>> cell : cells.get(g).entrySet()) {
+                List<User> members = cell.getValue();
+                for (int from = 0; from < members.size(); from += shardSize) {
+                    shards.add(new Shard(g, cell.getKey(), members.subList(from, Math.min(from + shardSize, members.size()))));
+                }
+            }
+        }
+        return shards;
+    }
+    
+    private long cellOf(User seeker) {
+        if (seeker.getLatitude() == null || seeker.getLongitude() == null) {
+            return NO_COORDINATES;
+        }
+        long row = (long) Math.floor(seeker.getLatitude() / shardDegrees);
+        long column = (long) Math.floor(seeker.getLongitude() / shardDegrees);
+        return (row << 32) | (column & 0xFFFFFFFFL);
+    }
+    
+    /**
+     * Accept candidates best first while the seeker has fewer than K and the donor fewer than the capacity.
+     */
+    private Map<Long, List<MatchCandidate>> merge(List<List<MatchCandidate>> scored) {
+        List<MatchCandidate> all = new ArrayList<>();
+        for (List<MatchCandidate> shard : scored) {
+            all.addAll(shard);
+        }
+        all.sort(BEST_FIRST);
+        int topK = matchingEngine.topK();
+        Map<Long, List<MatchCandidate>> bySeeker = new HashMap<>();
+        Map<Long, Integer> donorLoad = new HashMap<>();
+        for (MatchCandidate candidate : all) {
+            List<MatchCandidate> kept = bySeeker.computeIfAbsent(candidate.seekerId(), id -> new ArrayList<>(topK));
+            if (kept.size() < topK && donorLoad.getOrDefault(candidate.donorId(), 0) < donorCapacity) {
+                kept.add(candidate);
+                donorLoad.merge(candidate.donorId(), 1, Integer::sum);
+            }
+        }
+        return bySeeker;
+    }
+    
+    private static void checkCancelled(AutoMatchJob job) {
+        if (job.isCancelRequested()) {
+            throw new CancellationException("Auto-match job " + job.id() + " cancelled");
+        }
+    }
+    
+    /** Seekers of one blood group in one grid cell. */
+    record Shard(int group, long cell, List<User> seekers) {
+    }
+}
@@ -0,0 +1,91 @@
+package com.hemoglobe.bulk;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import org.springframework.http.MediaType;
+
+import java.util.Locale;
+
+/**
+ * Wire formats accepted and produced by the bulk user endpoints.
+ */
+public enum BulkFormat {
+    
+    /** Comma-separated values with a header row naming the columns. */
+    CSV(new MediaType("text", "csv")),
+    
+    /** One JSON object per line. */
+    NDJSON(MediaType.APPLICATION_NDJSON);
+    
+    private static final CsvMapper CSV_MAPPER = CsvMapper.builder()
+            .addModule(new JavaTimeModule())
+            // Keep the record's declaration order for columns instead of CsvMapper's alphabetical default
+            .disable(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+            .enable(CsvParser.Feature.EMPTY_STRING_AS_NULL)
+            .enable(CsvParser.Feature.TRIM_SPACES)
+            .build();
+    
+    private final MediaType mediaType;
+    
+    BulkFormat(MediaType mediaType) {
+        this.mediaType = mediaType;
+    }
+    
+    public MediaType mediaType() {
+        return mediaType;
+    }
+    
+    /**
+     * Streaming reader for rows of {@code type}; columns or properties the type does not declare are ignored.
+     */
+    public ObjectReader reader(ObjectMapper objectMapper, Class<?> type) {
+        if (this == CSV) {
+            return CSV_MAPPER.readerFor(type)
+                    .with(CsvSchema.emptySchema().withHeader())
+                    .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        }
+        return objectMapper.readerFor(type).without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+    
+    /**
+     * Writer for a sequence of {@code type} rows that leaves the target stream open.
+     */
+    public ObjectWriter writer(ObjectMapper objectMapper, Class<?> type) {
+        if (this == CSV) {
+            return CSV_MAPPER.writer(CSV_MAPPER.schemaFor(type).withHeader());
+        }
+        return objectMapper.writerFor(type)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .withRootValueSeparator("\n");
+    }
+    
+    /**
+     * The format named by a {@code format} parameter ({@code csv} or {@code ndjson}).
+     */
+    public static BulkFormat of(String name) {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+    
+    /**
+     * The format of a request body, or {@code null} when the content type is not supported.
+     */
+    public static BulkFormat of(MediaType contentType) {
+        for (BulkFormat format : values()) {
+            if (format.mediaType.isCompatibleWith(contentType)) {
+                return format;
+            }
+        }
+        return null;
+    }
+}
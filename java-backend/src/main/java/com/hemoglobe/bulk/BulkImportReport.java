@@ -0,0 +1,8 @@
+package com.hemoglobe.bulk;
+
+/**
+ * Outcome of a bulk user import. {@code rejected} includes {@code duplicates}; when it is non-zero the per-row
+ * errors can be fetched with the {@code importId}.
+ */
+public record BulkImportReport(String importId, long rows, long imported, long rejected, long duplicates, long elapsedMillis) {
+}
@@ -0,0 +1,9 @@
+package com.hemoglobe.bulk;
+
+import java.util.List;
+
+/**
+ * A rejected import row, written as one line of the import's error file.
+ */
+public record BulkRowError(long line, String email, List<String> errors) {
+}
@@ -0,0 +1,48 @@
+package com.hemoglobe.bulk;
+
+import com.hemoglobe.entity.User;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One user in a bulk import file; uses the same property names as {@link com.hemoglobe.dto.UserSummary}
+ * so exported files can be imported again.
+ */
+public record BulkUserRow(
+        String name,
+        String email,
+        String phone,
+        String bloodGroup,
+        String location,
+        Double latitude,
+        Double longitude,
+        Integer age,
+        BigDecimal weight,
+        String userType,
+        Boolean isAvailable,
+        LocalDateTime lastDonation,
+        String lastDonationType,
+        String medicalConditions,
+        String emergencyContact) {
+    
+    public User toUser() {
+        User user = new User();
+        user.setName(name);
+        user.setEmail(email != null ? email.trim() : null);
+        user.setPhone(phone);
+        user.setBloodGroup(bloodGroup);
+        user.setLocation(location);
+        user.setLatitude(latitude);
+        user.setLongitude(longitude);
+        user.setAge(age);
+        user.setWeight(weight);
+        user.setUserType(userType);
+        user.setIsAvailable(isAvailable != null ? isAvailable : Boolean.TRUE);
+        user.setLastDonation(lastDonation);
+        user.setLastDonationType(lastDonationType);
+        user.setMedicalConditions(medicalConditions);
+        user.setEmergencyContact(emergencyContact);
+        return user;
+    }
+}
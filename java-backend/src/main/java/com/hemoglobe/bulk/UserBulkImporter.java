@@ -0,0 +1,270 @@
+package com.hemoglobe.bulk;
+
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.hemoglobe.cache.AvailableUserCache;
+import com.hemoglobe.eligibility.EligibilityRules;
+import com.hemoglobe.entity.User;
+import com.hemoglobe.geo.DonorIndexLoader;
+import com.hemoglobe.geo.Gazetteer;
+import com.hemoglobe.httpcache.ChangeCounters;
+import com.hemoglobe.httpcache.ChangeCounters.Table;
+import com.hemoglobe.matching.BloodCompatibility;
+import com.hemoglobe.matching.UserChangedEvent;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Streams a CSV or NDJSON user roster into the database. Rows are validated as they are read, emails are checked
+ * against a set preloaded from the table (and against earlier rows of the same file), and accepted rows are handed
+ * to {@link UserBulkLoader} in fixed-size chunks, so memory is bounded by the chunk plus the email set rather
+ * than by the size of the upload. Rejected rows are appended to a per-import error file.
+ */
+@Component
+public class UserBulkImporter {
+    
+    private static final Logger log = LoggerFactory.getLogger(UserBulkImporter.class);
+    
+    @Autowired
+    private UserBulkLoader loader;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private Validator validator;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private Gazetteer gazetteer;
+    
+    @Autowired
+    private EligibilityRules eligibilityRules;
+    
+    @Autowired
+    private AvailableUserCache availableUserCache;
+    
+    @Autowired
+    private DonorIndexLoader donorIndexLoader;
+    
+    @Autowired
+    private ChangeCounters changeCounters;
+    
+    @Value("${bulk.chunk-size:5000}")
+    private int chunkSize;
+    
+    @Value("${bulk.error-dir:${java.io.tmpdir}/hemoglobe-imports}")
+    private Path errorDir;
+    
+    public BulkImportReport importUsers(InputStream body, BulkFormat format) throws IOException {
+        long start = System.nanoTime();
+        Import run = new Import(UUID.randomUUID().toString());
+        
+        try (MappingIterator<BulkUserRow> rows = format.reader(objectMapper, BulkUserRow.class).readValues(body)) {
+            long failedAt = -1;
+            while (true) {
+                BulkUserRow row;
+                JsonLocation location = rows.getCurrentLocation();
+                try {
+                    if (!rows.hasNextValue()) {
+                        break;
+                    }
+                    row = rows.nextValue();
+                } catch (RuntimeException | IOException e) {
+                    long position = Math.max(location.getCharOffset(), location.getByteOffset());
+                    run.rows++;
+                    run.reject(location.getLineNr(), null, List.of("Unreadable row: " + e.getMessage()));
+                    if (position == failedAt) {
+                        // The parser cannot get past this point; the rest of the input is unusable
+                        break;
+                    }
+                    failedAt = position;
+                    continue;
+                }
+                run.accept(rows.getParser().currentTokenLocation().getLineNr(), row);
+            }
+        } finally {
+            run.finish();
+        }
+        
+        if (run.imported > 0) {
+            availableUserCache.invalidateAll();
+            donorIndexLoader.load();
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        log.info("Bulk import {}: {} rows, {} imported, {} rejected in {} ms",
+                run.importId, run.rows, run.imported, run.rejected, elapsedMillis);
+        return new BulkImportReport(run.importId, run.rows, run.imported, run.rejected, run.duplicates, elapsedMillis);
+    }
+    
+    /**
+     * The error file of a finished import, if it rejected any rows.
+     */
+    public Optional<Path> errorFile(String importId) {
+        try {
+            Path file = errorFile(UUID.fromString(importId).toString(), false);
+            return Files.exists(file) ? Optional.of(file) : Optional.empty();
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+    
+    private Path errorFile(String importId, boolean create) {
+        if (create) {
+            try {
+                Files.createDirectories(errorDir);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return errorDir.resolve(importId + ".ndjson");
+    }
+    
+    private Set<String> existingEmails() {
+        Set<String> emails = new HashSet<>();
+        jdbcTemplate.query("SELECT email FROM users", rs -> {
+            emails.add(rs.getString(1));
+        });
+        return emails;
+    }
+    
+    private List<String> validate(User user) {
+        List<String> errors = new ArrayList<>();
+        for (ConstraintViolation<User> violation : validator.validate(user)) {
+            errors.add(violation.getMessage());
+        }
+        if (user.getBloodGroup() != null && BloodCompatibility.indexOf(user.getBloodGroup()) < 0) {
+            errors.add("Unknown blood group: " + user.getBloodGroup());
+        }
+        if (user.getUserType() != null && !"donor".equals(user.getUserType()) && !"seeker".equals(user.getUserType())) {
+            errors.add("User type must be donor or seeker");
+        }
+        return errors;
+    }
+    
+    /**
+     * State of one import: the email set, the pending chunk and the lazily opened error file.
+     */
+    private final class Import {
+        
+        final String importId;
+        final Set<String> emails = existingEmails();
+        final List<User> chunk = new ArrayList<>(chunkSize);
+        final List<Long> chunkLines = new ArrayList<>(chunkSize);
+        final LocalDateTime now = LocalDateTime.now();
+        final ObjectWriter errorWriter = objectMapper.writerFor(BulkRowError.class);
+        BufferedWriter errors;
+        long rows;
+        long imported;
+        long rejected;
+        long duplicates;
+        
+        Import(String importId) {
+            this.importId = importId;
+        }
+        
+        void accept(long line, BulkUserRow row) throws IOException {
+            rows++;
+            User user = row.toUser();
+            List<String> problems = validate(user);
+            if (!problems.isEmpty()) {
+                reject(line, user.getEmail(), problems);
+                return;
+            }
+            if (!emails.add(user.getEmail())) {
+                duplicates++;
+                reject(line, user.getEmail(), List.of("Email already exists"));
+                return;
+            }
+            if (user.getLatitude() == null || user.getLongitude() == null) {
+                gazetteer.lookup(user.getLocation()).ifPresent(point -> {
+                    user.setLatitude(point.latitude());
+                    user.setLongitude(point.longitude());
+                });
+            }
+            eligibilityRules.apply(user);
+            user.setCreatedAt(now);
+            user.setUpdatedAt(now);
+            chunk.add(user);
+            chunkLines.add(line);
+            if (chunk.size() >= chunkSize) {
+                flush();
+            }
+        }
+        
+        void reject(long line, String email, List<String> problems) throws IOException {
+            rejected++;
+            if (errors == null) {
+                errors = Files.newBufferedWriter(errorFile(importId, true), StandardCharsets.UTF_8);
+            }
+            errors.write(errorWriter.writeValueAsString(new BulkRowError(line, email, problems)));
+            errors.newLine();
+        }
+        
+        void flush() throws IOException {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            List<BulkRowError> failures = new ArrayList<>();
+            int loaded = loader.load(chunk, (message, index) ->
+                    failures.add(new BulkRowError(chunkLines.get(index), chunk.get(index).getEmail(), List.of(message))));
+            imported += loaded;
+            for (BulkRowError failure : failures) {
+                reject(failure.line(), failure.email(), failure.errors());
+            }
+            if (loaded > 0) {
+                changeCounters.changed(Table.USERS);
+                // COPY returns no keys; look the new rows up by their unique emails to queue them for matching
+                List<String> emails = chunk.stream().map(User::getEmail).toList();
+                eventPublisher.publishEvent(new UserChangedEvent(namedParameterJdbcTemplate.queryForList(
+                        "SELECT id FROM users WHERE email IN (:emails)", Map.of("emails", emails), Long.class)));
+            }
+            chunk.clear();
+            chunkLines.clear();
+        }
+        
+        void finish() throws IOException {
+            try {
+                flush();
+            } finally {
+                if (errors != null) {
+                    errors.close();
+                }
+            }
+        }
+    }
+}
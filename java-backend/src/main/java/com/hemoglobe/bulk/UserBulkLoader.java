@@ -0,0 +1,151 @@
+package com.hemoglobe.bulk;
+
+import com.hemoglobe.entity.User;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Writes validated users in one transaction per chunk: through {@code COPY ... FROM STDIN} on PostgreSQL and
+ * JDBC batch inserts elsewhere. A chunk that violates a constraint (for instance an email registered concurrently)
+ * is retried row by row so only the offending rows are rejected.
+ */
+@Component
+public class UserBulkLoader {
+    
+    private static final String COLUMNS =
+            "name, email, phone, blood_group, location, age, weight, user_type, is_available, last_donation, " +
+            "last_donation_type, next_eligible_at, medical_conditions, emergency_contact, latitude, longitude, created_at, updated_at";
+    
+    private static final String COPY_SQL = "COPY users (" + COLUMNS + ") FROM STDIN WITH (FORMAT csv)";
+    
+    private static final String INSERT_SQL =
+            "INSERT INTO users (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Value("${bulk.batch-size:500}")
+    private int batchSize;
+    
+    /**
+     * Insert {@code users}, reporting the error message and list index of each row that could not be written
+     * to {@code onFailure}.
+     *
+     * @return the number of rows written
+     */
+    public int load(List<User> users, ObjIntConsumer<String> onFailure) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                if (connection.isWrapperFor(PGConnection.class)) {
+                    copy(connection.unwrap(PGConnection.class), users);
+                } else {
+                    insert(users);
+                }
+                return null;
+            }));
+            return users.size();
+        } catch (DataIntegrityViolationException e) {
+            int written = 0;
+            for (int i = 0; i < users.size(); i++) {
+                User user = users.get(i);
+                try {
+                    jdbcTemplate.update(INSERT_SQL, ps -> bind(ps, user));
+                    written++;
+                } catch (DataAccessException rowFailure) {
+                    onFailure.accept(rowFailure.getMostSpecificCause().getMessage(), i);
+                }
+            }
+            return written;
+        }
+    }
+    
+    private static void copy(PGConnection connection, List<User> users) throws SQLException {
+        StringBuilder csv = new StringBuilder(users.size() * 160);
+        for (User user : users) {
+            csv.append(quote(user.getName())).append(',')
+               .append(quote(user.getEmail())).append(',')
+               .append(quote(user.getPhone())).append(',')
+               .append(quote(user.getBloodGroup())).append(',')
+               .append(quote(user.getLocation())).append(',')
+               .append(value(user.getAge())).append(',')
+               .append(value(user.getWeight())).append(',')
+               .append(quote(user.getUserType())).append(',')
+               .append(value(user.getIsAvailable())).append(',')
+               .append(value(user.getLastDonation())).append(',')
+               .append(quote(user.getLastDonationType())).append(',')
+               .append(value(user.getNextEligibleAt())).append(',')
+               .append(quote(user.getMedicalConditions())).append(',')
+               .append(quote(user.getEmergencyContact())).append(',')
+               .append(value(user.getLatitude())).append(',')
+               .append(value(user.getLongitude())).append(',')
+               .append(value(user.getCreatedAt())).append(',')
+               .append(value(user.getUpdatedAt())).append('\n');
+        }
+        try {
+            connection.getCopyAPI().copyIn(COPY_SQL, new StringReader(csv.toString()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private void insert(List<User> users) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, users, batchSize, UserBulkLoader::bind);
+    }
+    
+    private static void bind(PreparedStatement ps, User user) throws SQLException {
+        ps.setString(1, user.getName());
+        ps.setString(2, user.getEmail());
+        ps.setString(3, user.getPhone());
+        ps.setString(4, user.getBloodGroup());
+        ps.setString(5, user.getLocation());
+        ps.setInt(6, user.getAge());
+        ps.setBigDecimal(7, user.getWeight());
+        ps.setString(8, user.getUserType());
+        ps.setObject(9, user.getIsAvailable(), Types.BOOLEAN);
+        ps.setTimestamp(10, timestamp(user.getLastDonation()));
+        ps.setString(11, user.getLastDonationType());
+        ps.setTimestamp(12, timestamp(user.getNextEligibleAt()));
+        ps.setString(13, user.getMedicalConditions());
+        ps.setString(14, user.getEmergencyContact());
+        ps.setObject(15, user.getLatitude(), Types.DOUBLE);
+        ps.setObject(16, user.getLongitude(), Types.DOUBLE);
+        ps.setTimestamp(17, timestamp(user.getCreatedAt()));
+        ps.setTimestamp(18, timestamp(user.getUpdatedAt()));
+    }
+    
+    private static Timestamp timestamp(LocalDateTime value) {
+        return value != null ? Timestamp.valueOf(value) : null;
+    }
+    
+    /**
+     * A CSV field for COPY: unquoted empty is NULL, so every non-null text value is quoted.
+     */
+    private static String quote(String value) {
+        return value == null ? "" : '"' + value.replace("\"", "\"\"") + '"';
+    }
+    
+    private static String value(Object value) {
+        return value == null ? "" : value.toString();
+    }
+}
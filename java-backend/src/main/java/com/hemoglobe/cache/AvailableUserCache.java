@@ -0,0 +1,65 @@
+package com.hemoglobe.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.hemoglobe.dto.UserSummary;
+import com.hemoglobe.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Bounded cache of the available users in each (blood group, user type) bucket.
+ * <p>
+ * Each value is an immutable list of {@link UserSummary} records sorted by id, so readers share the snapshot without
+ * locking and page through it in memory. The cache is bounded by the total number of cached users and by a TTL;
+ * {@link com.hemoglobe.service.UserService} invalidates the affected buckets on every write.
+ */
+@Component
+public class AvailableUserCache {
+    
+    public static final String NAME = "availableUsers";
+    
+    private final LoadingCache<Key, List<UserSummary>> cache;
+    
+    public AvailableUserCache(UserRepository userRepository,
+                              MeterRegistry meterRegistry,
+                              @Value("${cache.available-users.maximum-weight:200000}") long maximumWeight,
+                              @Value("${cache.available-users.expire-after-write:5m}") Duration expireAfterWrite) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maximumWeight)
+                .<Key, List<UserSummary>>weigher((key, users) -> users.size() + 1)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build(key -> userRepository.findAvailableUsersByBloodGroupAndType(key.bloodGroup(), key.userType()).stream()
+                        .map(UserSummary::from)
+                        .sorted(Comparator.comparing(UserSummary::id))
+                        .toList());
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, NAME);
+    }
+    
+    /**
+     * Available users of the given blood group and type, sorted by id.
+     */
+    public List<UserSummary> get(String bloodGroup, String userType) {
+        return cache.get(new Key(bloodGroup, userType));
+    }
+    
+    public void invalidate(String bloodGroup, String userType) {
+        if (bloodGroup != null && userType != null) {
+            cache.invalidate(new Key(bloodGroup, userType));
+        }
+    }
+    
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+    
+    private record Key(String bloodGroup, String userType) {
+    }
+}
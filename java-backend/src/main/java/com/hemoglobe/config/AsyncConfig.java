@@ -0,0 +1,13 @@
+package com.hemoglobe.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+
+/**
+ * {@code @Async} methods run on Spring Boot's application task executor, which is backed by virtual threads
+ * when {@code spring.threads.virtual.enabled=true} and by the {@code spring.task.execution.pool} otherwise.
+ */
+@Configuration
+@EnableAsync
+public class AsyncConfig {
+}
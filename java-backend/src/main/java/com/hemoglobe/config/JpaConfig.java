@@ -0,0 +1,10 @@
+package com.hemoglobe.config;
+
+import com.hemoglobe.repository.KeysetRepositoryImpl;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+@Configuration
+@EnableJpaRepositories(basePackages = "com.hemoglobe.repository", repositoryBaseClass = KeysetRepositoryImpl.class)
+public class JpaConfig {
+}
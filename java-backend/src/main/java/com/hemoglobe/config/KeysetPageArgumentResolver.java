@@ -0,0 +1,38 @@
+package com.hemoglobe.config;
+
+import com.hemoglobe.repository.KeysetPage;
+import org.springframework.core.MethodParameter;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Binds the {@code cursor}, {@code limit} and {@code direction} query parameters to a {@link KeysetPage}.
+ */
+public class KeysetPageArgumentResolver implements HandlerMethodArgumentResolver {
+    
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return KeysetPage.class.equals(parameter.getParameterType());
+    }
+    
+    @Override
+    public KeysetPage resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                      NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+        String cursor = webRequest.getParameter("cursor");
+        String limit = webRequest.getParameter("limit");
+        String direction = webRequest.getParameter("direction");
+        try {
+            return new KeysetPage(
+                    cursor != null && !cursor.isBlank() ? Long.valueOf(cursor) : null,
+                    limit != null && !limit.isBlank() ? Integer.parseInt(limit) : KeysetPage.DEFAULT_LIMIT,
+                    direction != null && !direction.isBlank() ? Sort.Direction.fromString(direction) : Sort.Direction.ASC);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid pagination parameters", e);
+        }
+    }
+}
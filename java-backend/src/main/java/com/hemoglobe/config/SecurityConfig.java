@@ -0,0 +1,71 @@
+package com.hemoglobe.config;
+
+import com.hemoglobe.repository.UserRepository;
+import com.hemoglobe.security.JwtAuthenticationFilter;
+import com.hemoglobe.security.JwtPrincipal;
+import com.hemoglobe.security.JwtService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.config.Customizer;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.HttpStatusEntryPoint;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+
+/**
+ * Stateless bearer-token security: no session, no CSRF token, every endpoint except login, registration and the
+ * health check requires a token issued by {@link JwtService}, and replacing the scoring model or bulk importing users
+ * requires the admin role.
+ */
+@Configuration
+@EnableWebSecurity
+public class SecurityConfig {
+    
+    /**
+     * Only in a servlet application: the path matchers need Spring MVC, which contexts without a web server (the
+     * benchmarks) do not start.
+     */
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, JwtService jwtService) throws Exception {
+        return http
+                .csrf(csrf -> csrf.disable())
+                .cors(Customizer.withDefaults())
+                .httpBasic(basic -> basic.disable())
+                .formLogin(form -> form.disable())
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .authorizeHttpRequests(auth -> auth
+                        .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
+                        .requestMatchers("/auth/login", "/auth/register", "/auth/logout", "/actuator/health", "/actuator/prometheus", "/error").permitAll()
+                        .requestMatchers(HttpMethod.PUT, "/matches/scoring").hasAuthority(JwtPrincipal.ROLE_ADMIN)
+                        .requestMatchers(HttpMethod.POST, "/users/bulk").hasAuthority(JwtPrincipal.ROLE_ADMIN)
+                        .requestMatchers(HttpMethod.GET, "/users/bulk/imports/**").hasAuthority(JwtPrincipal.ROLE_ADMIN)
+                        .anyRequest().authenticated())
+                .exceptionHandling(errors -> errors.authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED)))
+                .addFilterBefore(new JwtAuthenticationFilter(jwtService), UsernamePasswordAuthenticationFilter.class)
+                .build();
+    }
+    
+    @Bean
+    public PasswordEncoder passwordEncoder() {
+        return new BCryptPasswordEncoder();
+    }
+    
+    /**
+     * Users by email, for Spring Security components that authenticate with a password; token requests never use it.
+     */
+    @Bean
+    public UserDetailsService userDetailsService(UserRepository userRepository) {
+        return email -> userRepository.findByEmail(email)
+                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + email));
+    }
+}
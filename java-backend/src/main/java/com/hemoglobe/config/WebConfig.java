@@ -1,18 +1,60 @@
 package com.hemoglobe.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.mvc.WebContentInterceptor;
+
+import java.time.Duration;
+import java.util.List;
 
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
     
+    @Value("${cors.allowed-origins:http://localhost:5000,http://localhost:3000}")
+    private String[] allowedOrigins;
+    
+    @Value("${http-cache.match-list-max-age:5s}")
+    private Duration matchListMaxAge;
+    
+    @Value("${http-cache.analytics-max-age:60s}")
+    private Duration analyticsMaxAge;
+    
+    /**
+     * The only CORS policy; controllers must not add {@code @CrossOrigin}, since a wildcard origin is rejected
+     * together with credentials.
+     */
     @Override
     public void addCorsMappings(CorsRegistry registry) {
         registry.addMapping("/**")
-                .allowedOrigins("http://localhost:5000", "http://localhost:3000")
+                .allowedOrigins(allowedOrigins)
                 .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
                 .allowedHeaders("*")
-                .allowCredentials(true);
+                .allowCredentials(true)
+                .exposedHeaders("X-Next-Cursor", "Retry-After", "ETag");
+    }
+    
+    /**
+     * Cache-Control per route. Tagged resources may be stored by the client but are revalidated on every use (a 304
+     * costs no query); a user's match list may be reused for {@code http-cache.match-list-max-age} first, and the
+     * demand heatmap for {@code http-cache.analytics-max-age}. Other routes keep Spring Security's {@code no-store}.
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        WebContentInterceptor interceptor = new WebContentInterceptor();
+        interceptor.addCacheMapping(CacheControl.noCache().cachePrivate(),
+                "/users/{id}", "/donations/{id}", "/matches/{id}", "/donations/critical", "/donations/user/{userId}");
+        interceptor.addCacheMapping(CacheControl.maxAge(matchListMaxAge).cachePrivate().mustRevalidate(), "/matches/user/{userId}");
+        interceptor.addCacheMapping(CacheControl.maxAge(analyticsMaxAge).cachePrivate(), "/analytics/**");
+        registry.addInterceptor(interceptor);
+    }
+    
+    @Override
+    public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+        resolvers.add(new KeysetPageArgumentResolver());
     }
 }
\ No newline at end of file
@@ -0,0 +1,39 @@
+package com.hemoglobe.controller;
+
+import com.hemoglobe.analytics.DemandReport;
+import com.hemoglobe.analytics.DemandRollups;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+
+@RestController
+@RequestMapping("/analytics")
+public class AnalyticsController {
+    
+    @Autowired
+    private DemandRollups demandRollups;
+    
+    /**
+     * Blood demand heatmap: requests per grid cell, blood group, urgency and time bucket in {@code [from, to)}
+     * (default: the last 24 hours), plus available donors per cell and blood group.
+     */
+    @GetMapping("/demand")
+    public ResponseEntity<DemandReport> getDemand(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "hour") String bucket,
+            @RequestParam(defaultValue = "1") int resolution,
+            @RequestParam(required = false) String bloodGroup,
+            @RequestParam(required = false) String urgency) {
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minusHours(24);
+        try {
+            return ResponseEntity.ok(demandRollups.report(start, end, bucket, resolution, bloodGroup, urgency));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
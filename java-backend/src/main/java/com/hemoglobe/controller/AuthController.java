@@ -1,6 +1,8 @@
 package com.hemoglobe.controller;
 
+import com.hemoglobe.dto.UserSummary;
 import com.hemoglobe.entity.User;
+import com.hemoglobe.security.JwtService;
 import com.hemoglobe.service.UserService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,12 +16,14 @@ import java.util.Optional;
 
 @RestController
 @RequestMapping("/auth")
-@CrossOrigin(origins = "*")
 public class AuthController {
     
     @Autowired
     private UserService userService;
     
+    @Autowired
+    private JwtService jwtService;
+    
     @PostMapping("/login")
     public ResponseEntity<Map<String, Object>> login(@RequestBody Map<String, String> loginRequest) {
         String email = loginRequest.get("email");
@@ -30,31 +34,31 @@ public class AuthController {
         }
         
         Optional<User> userOptional = userService.getUserByEmail(email);
-        if (userOptional.isEmpty()) {
+        if (userOptional.isEmpty() || !userService.passwordMatches(userOptional.get(), password)) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(Map.of("error", "Invalid credentials"));
         }
         
         User user = userOptional.get();
         
-        // In a real application, you would verify the password hash
-        // For this demo, we'll just return the user
-        
         Map<String, Object> response = new HashMap<>();
-        response.put("user", user);
-        response.put("token", "mock-jwt-token-" + user.getId());
+        response.put("user", UserSummary.from(user));
+        response.put("token", jwtService.issue(user));
         
         return ResponseEntity.ok(response);
     }
     
     @PostMapping("/register")
     public ResponseEntity<Map<String, Object>> register(@Valid @RequestBody User user) {
+        if (user.getRawPassword() == null) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Password is required"));
+        }
         try {
-            User createdUser = userService.createUser(user);
+            UserSummary createdUser = userService.createUser(user);
             
             Map<String, Object> response = new HashMap<>();
             response.put("user", createdUser);
-            response.put("token", "mock-jwt-token-" + createdUser.getId());
+            response.put("token", jwtService.issue(user));
             
             return ResponseEntity.status(HttpStatus.CREATED).body(response);
         } catch (RuntimeException e) {
@@ -64,7 +68,7 @@ public class AuthController {
     
     @PostMapping("/logout")
     public ResponseEntity<Map<String, String>> logout() {
-        // In a real application, you would invalidate the JWT token
+        // Tokens are stateless: the client discards its token, which stays valid until it expires
         return ResponseEntity.ok(Map.of("message", "Logged out successfully"));
     }
 }
\ No newline at end of file
@@ -0,0 +1,63 @@
+package com.hemoglobe.controller;
+
+import com.hemoglobe.httpcache.ChangeCounters;
+import com.hemoglobe.httpcache.ChangeCounters.Table;
+import com.hemoglobe.httpcache.ETags;
+import com.hemoglobe.httpcache.EntityVersions;
+import com.hemoglobe.repository.CursorPage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Conditional GET for the single-resource and list endpoints: a request whose If-None-Match names the current tag is
+ * answered 304 before anything is loaded or serialized.
+ */
+@Component
+class ConditionalGets {
+    
+    @Autowired
+    private ChangeCounters changeCounters;
+    
+    @Autowired
+    private EntityVersions entityVersions;
+    
+    /**
+     * One {@code table} row, loaded by {@code load} unless the client already has its current tag.
+     */
+    <T> ResponseEntity<T> entity(Table table, Long id, String ifNoneMatch, Supplier<Optional<T>> load, Function<T, String> tag) {
+        if (ifNoneMatch != null) {
+            Optional<String> current = entityVersions.current(table, id);
+            if (current.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            if (ETags.matches(ifNoneMatch, current.get())) {
+                return ETags.notModified(current.get());
+            }
+        }
+        long generation = entityVersions.generation(table);
+        Optional<T> view = load.get();
+        if (view.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        String eTag = tag.apply(view.get());
+        entityVersions.seen(table, id, eTag, generation);
+        return ETags.ok(view.get(), eTag);
+    }
+    
+    /**
+     * A page built from {@code tables}, tagged with their change counters as they were before the query.
+     */
+    <T> ResponseEntity<List<T>> page(String ifNoneMatch, Supplier<CursorPage<T>> load, Table... tables) {
+        String eTag = changeCounters.tag(tables);
+        if (ifNoneMatch != null && ETags.matches(ifNoneMatch, eTag)) {
+            return ETags.notModified(eTag);
+        }
+        return Pages.ok(load.get(), eTag);
+    }
+}
@@ -1,52 +1,81 @@
 package com.hemoglobe.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hemoglobe.dto.DonationView;
 import com.hemoglobe.entity.Donation;
+import com.hemoglobe.httpcache.ChangeCounters.Table;
+import com.hemoglobe.httpcache.ETags;
 import com.hemoglobe.service.DonationService;
+import com.hemoglobe.service.PreconditionFailedException;
+import com.hemoglobe.repository.CursorPage;
+import com.hemoglobe.repository.KeysetPage;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
-import java.util.Optional;
 
 @RestController
 @RequestMapping("/donations")
-@CrossOrigin(origins = "*")
 public class DonationController {
     
     @Autowired
     private DonationService donationService;
     
+    @Autowired
+    private ConditionalGets conditionalGets;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
     @GetMapping
-    public ResponseEntity<List<Donation>> getAllDonations() {
-        List<Donation> donations = donationService.getAllDonations();
-        return ResponseEntity.ok(donations);
+    public ResponseEntity<List<DonationView>> getAllDonations(KeysetPage page) {
+        CursorPage<DonationView> donations = donationService.getAllDonations(page);
+        return Pages.ok(donations);
+    }
+    
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportDonations() {
+        return Pages.ndjson(objectMapper, donationService::exportDonations);
     }
     
     @GetMapping("/{id}")
-    public ResponseEntity<Donation> getDonationById(@PathVariable Long id) {
-        Optional<Donation> donation = donationService.getDonationById(id);
-        return donation.map(ResponseEntity::ok)
-                      .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<DonationView> getDonationById(@PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return conditionalGets.entity(Table.DONATIONS, id, ifNoneMatch, () -> donationService.getDonationById(id),
+                donation -> ETags.of(donation.version(), donation.donor(), donation.seeker()));
     }
     
     @PostMapping
-    public ResponseEntity<Donation> createDonation(@Valid @RequestBody Donation donation) {
+    public ResponseEntity<DonationView> createDonation(@Valid @RequestBody Donation donation) {
         try {
-            Donation createdDonation = donationService.createDonation(donation);
+            DonationView createdDonation = donationService.createDonation(donation);
             return ResponseEntity.status(HttpStatus.CREATED).body(createdDonation);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().build();
         }
     }
     
+    /**
+     * Replace the donation; with If-Match only if it is still at that ETag (412 otherwise), and 409 if another update
+     * commits first.
+     */
     @PutMapping("/{id}")
-    public ResponseEntity<Donation> updateDonation(@PathVariable Long id, @Valid @RequestBody Donation donationDetails) {
+    public ResponseEntity<DonationView> updateDonation(@PathVariable Long id, @Valid @RequestBody Donation donationDetails,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
-            Donation updatedDonation = donationService.updateDonation(id, donationDetails);
-            return ResponseEntity.ok(updatedDonation);
+            DonationView updatedDonation = donationService.updateDonation(id, donationDetails, ETags.expectedVersion(ifMatch));
+            return ETags.ok(updatedDonation, ETags.of(updatedDonation.version(), updatedDonation.donor(), updatedDonation.seeker()));
+        } catch (PreconditionFailedException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         }
@@ -63,44 +92,46 @@ public class DonationController {
     }
     
     @GetMapping("/donor/{donorId}")
-    public ResponseEntity<List<Donation>> getDonationsByDonor(@PathVariable Long donorId) {
-        List<Donation> donations = donationService.getDonationsByDonor(donorId);
-        return ResponseEntity.ok(donations);
+    public ResponseEntity<List<DonationView>> getDonationsByDonor(@PathVariable Long donorId, KeysetPage page) {
+        CursorPage<DonationView> donations = donationService.getDonationsByDonor(donorId, page);
+        return Pages.ok(donations);
     }
     
     @GetMapping("/seeker/{seekerId}")
-    public ResponseEntity<List<Donation>> getDonationsBySeeker(@PathVariable Long seekerId) {
-        List<Donation> donations = donationService.getDonationsBySeeker(seekerId);
-        return ResponseEntity.ok(donations);
+    public ResponseEntity<List<DonationView>> getDonationsBySeeker(@PathVariable Long seekerId, KeysetPage page) {
+        CursorPage<DonationView> donations = donationService.getDonationsBySeeker(seekerId, page);
+        return Pages.ok(donations);
     }
     
     @GetMapping("/blood-group/{bloodGroup}")
-    public ResponseEntity<List<Donation>> getDonationsByBloodGroup(@PathVariable String bloodGroup) {
-        List<Donation> donations = donationService.getDonationsByBloodGroup(bloodGroup);
-        return ResponseEntity.ok(donations);
+    public ResponseEntity<List<DonationView>> getDonationsByBloodGroup(@PathVariable String bloodGroup, KeysetPage page) {
+        CursorPage<DonationView> donations = donationService.getDonationsByBloodGroup(bloodGroup, page);
+        return Pages.ok(donations);
     }
     
     @GetMapping("/status/{status}")
-    public ResponseEntity<List<Donation>> getDonationsByStatus(@PathVariable String status) {
-        List<Donation> donations = donationService.getDonationsByStatus(status);
-        return ResponseEntity.ok(donations);
+    public ResponseEntity<List<DonationView>> getDonationsByStatus(@PathVariable String status, KeysetPage page) {
+        CursorPage<DonationView> donations = donationService.getDonationsByStatus(status, page);
+        return Pages.ok(donations);
     }
     
     @GetMapping("/urgency/{urgency}")
-    public ResponseEntity<List<Donation>> getDonationsByUrgency(@PathVariable String urgency) {
-        List<Donation> donations = donationService.getDonationsByUrgency(urgency);
-        return ResponseEntity.ok(donations);
+    public ResponseEntity<List<DonationView>> getDonationsByUrgency(@PathVariable String urgency, KeysetPage page) {
+        CursorPage<DonationView> donations = donationService.getDonationsByUrgency(urgency, page);
+        return Pages.ok(donations);
     }
     
     @GetMapping("/user/{userId}")
-    public ResponseEntity<List<Donation>> getDonationsByUserId(@PathVariable Long userId) {
-        List<Donation> donations = donationService.getDonationsByUserId(userId);
-        return ResponseEntity.ok(donations);
+    public ResponseEntity<List<DonationView>> getDonationsByUserId(@PathVariable Long userId, KeysetPage page,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return conditionalGets.page(ifNoneMatch, () -> donationService.getDonationsByUserId(userId, page),
+                Table.DONATIONS, Table.USERS);
     }
     
     @GetMapping("/critical")
-    public ResponseEntity<List<Donation>> getCriticalPendingDonations() {
-        List<Donation> donations = donationService.getCriticalPendingDonations();
-        return ResponseEntity.ok(donations);
+    public ResponseEntity<List<DonationView>> getCriticalPendingDonations(KeysetPage page,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return conditionalGets.page(ifNoneMatch, () -> donationService.getCriticalPendingDonations(page),
+                Table.DONATIONS, Table.USERS);
     }
 }
\ No newline at end of file
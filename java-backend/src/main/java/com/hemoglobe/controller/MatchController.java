@@ -1,57 +1,114 @@
 package com.hemoglobe.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hemoglobe.assignment.AssignmentReport;
+import com.hemoglobe.automatch.AutoMatchJobView;
+import com.hemoglobe.dto.MatchView;
 import com.hemoglobe.entity.Match;
+import com.hemoglobe.httpcache.ChangeCounters.Table;
+import com.hemoglobe.httpcache.ETags;
+import com.hemoglobe.matching.MatchingReport;
+import com.hemoglobe.matching.ScoringModel;
+import com.hemoglobe.matching.ScoringModelRegistry;
+import com.hemoglobe.matching.WeightedScoringModel;
+import com.hemoglobe.security.JwtPrincipal;
+import com.hemoglobe.service.ForbiddenException;
 import com.hemoglobe.service.MatchService;
+import com.hemoglobe.service.PreconditionFailedException;
+import com.hemoglobe.repository.CursorPage;
+import com.hemoglobe.repository.KeysetPage;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.net.URI;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/matches")
-@CrossOrigin(origins = "*")
 public class MatchController {
     
     @Autowired
     private MatchService matchService;
     
+    @Autowired
+    private ConditionalGets conditionalGets;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private ScoringModelRegistry scoringModels;
+    
     @GetMapping
-    public ResponseEntity<List<Match>> getAllMatches() {
-        List<Match> matches = matchService.getAllMatches();
-        return ResponseEntity.ok(matches);
+    public ResponseEntity<List<MatchView>> getAllMatches(KeysetPage page) {
+        CursorPage<MatchView> matches = matchService.getAllMatches(page);
+        return Pages.ok(matches);
+    }
+    
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportMatches() {
+        return Pages.ndjson(objectMapper, matchService::exportMatches);
     }
     
     @GetMapping("/{id}")
-    public ResponseEntity<Match> getMatchById(@PathVariable Long id) {
-        Optional<Match> match = matchService.getMatchById(id);
-        return match.map(ResponseEntity::ok)
-                   .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<MatchView> getMatchById(@PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return conditionalGets.entity(Table.MATCHES, id, ifNoneMatch, () -> matchService.getMatchById(id), MatchController::eTag);
     }
     
     @PostMapping
-    public ResponseEntity<Match> createMatch(@Valid @RequestBody Match match) {
+    public ResponseEntity<MatchView> createMatch(@Valid @RequestBody Match match) {
         try {
-            Match createdMatch = matchService.createMatch(match);
+            MatchView createdMatch = matchService.createMatch(match);
             return ResponseEntity.status(HttpStatus.CREATED).body(createdMatch);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().build();
         }
     }
     
+    /**
+     * Replace the match; with If-Match only if it is still at that ETag (412 otherwise), and 409 if another update
+     * commits first.
+     */
     @PutMapping("/{id}")
-    public ResponseEntity<Match> updateMatch(@PathVariable Long id, @Valid @RequestBody Match matchDetails) {
+    public ResponseEntity<MatchView> updateMatch(@PathVariable Long id, @Valid @RequestBody Match matchDetails,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
-            Match updatedMatch = matchService.updateMatch(id, matchDetails);
-            return ResponseEntity.ok(updatedMatch);
+            MatchView updatedMatch = matchService.updateMatch(id, matchDetails, ETags.expectedVersion(ifMatch));
+            return ETags.ok(updatedMatch, eTag(updatedMatch));
+        } catch (PreconditionFailedException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         }
     }
     
+    /**
+     * Accept a pending match as its donor (403 for anyone else). Exactly one of any number of concurrent accept and
+     * decline calls wins; the others get 409.
+     */
+    @PostMapping("/{id}/accept")
+    public ResponseEntity<MatchView> acceptMatch(@PathVariable Long id, @AuthenticationPrincipal JwtPrincipal principal) {
+        return claimMatch(id, "accepted", principal);
+    }
+    
+    @PostMapping("/{id}/decline")
+    public ResponseEntity<MatchView> declineMatch(@PathVariable Long id, @AuthenticationPrincipal JwtPrincipal principal) {
+        return claimMatch(id, "declined", principal);
+    }
+    
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteMatch(@PathVariable Long id) {
         try {
@@ -63,56 +120,135 @@ public class MatchController {
     }
     
     @GetMapping("/donor/{donorId}")
-    public ResponseEntity<List<Match>> getMatchesByDonor(@PathVariable Long donorId) {
-        List<Match> matches = matchService.getMatchesByDonor(donorId);
-        return ResponseEntity.ok(matches);
+    public ResponseEntity<List<MatchView>> getMatchesByDonor(@PathVariable Long donorId, KeysetPage page) {
+        CursorPage<MatchView> matches = matchService.getMatchesByDonor(donorId, page);
+        return Pages.ok(matches);
     }
     
     @GetMapping("/seeker/{seekerId}")
-    public ResponseEntity<List<Match>> getMatchesBySeeker(@PathVariable Long seekerId) {
-        List<Match> matches = matchService.getMatchesBySeeker(seekerId);
-        return ResponseEntity.ok(matches);
+    public ResponseEntity<List<MatchView>> getMatchesBySeeker(@PathVariable Long seekerId, KeysetPage page) {
+        CursorPage<MatchView> matches = matchService.getMatchesBySeeker(seekerId, page);
+        return Pages.ok(matches);
     }
     
     @GetMapping("/blood-group/{bloodGroup}")
-    public ResponseEntity<List<Match>> getMatchesByBloodGroup(@PathVariable String bloodGroup) {
-        List<Match> matches = matchService.getMatchesByBloodGroup(bloodGroup);
-        return ResponseEntity.ok(matches);
+    public ResponseEntity<List<MatchView>> getMatchesByBloodGroup(@PathVariable String bloodGroup, KeysetPage page) {
+        CursorPage<MatchView> matches = matchService.getMatchesByBloodGroup(bloodGroup, page);
+        return Pages.ok(matches);
     }
     
     @GetMapping("/status/{status}")
-    public ResponseEntity<List<Match>> getMatchesByStatus(@PathVariable String status) {
-        List<Match> matches = matchService.getMatchesByStatus(status);
-        return ResponseEntity.ok(matches);
+    public ResponseEntity<List<MatchView>> getMatchesByStatus(@PathVariable String status, KeysetPage page) {
+        CursorPage<MatchView> matches = matchService.getMatchesByStatus(status, page);
+        return Pages.ok(matches);
     }
     
     @GetMapping("/user/{userId}")
-    public ResponseEntity<List<Match>> getMatchesByUserId(@PathVariable Long userId) {
-        List<Match> matches = matchService.getMatchesByUserId(userId);
-        return ResponseEntity.ok(matches);
+    public ResponseEntity<List<MatchView>> getMatchesByUserId(@PathVariable Long userId, KeysetPage page,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return conditionalGets.page(ifNoneMatch, () -> matchService.getMatchesByUserId(userId, page),
+                Table.MATCHES, Table.USERS);
     }
     
     @GetMapping("/find/{bloodGroup}/{location}")
-    public ResponseEntity<List<Match>> findPotentialMatches(
+    public ResponseEntity<List<MatchView>> findPotentialMatches(
             @PathVariable String bloodGroup, 
-            @PathVariable String location) {
-        List<Match> matches = matchService.findPotentialMatches(bloodGroup, location);
-        return ResponseEntity.ok(matches);
+            @PathVariable String location,
+            KeysetPage page) {
+        CursorPage<MatchView> matches = matchService.findPotentialMatches(bloodGroup, location, page);
+        return Pages.ok(matches);
     }
     
     @GetMapping("/high-compatibility")
-    public ResponseEntity<List<Match>> getHighCompatibilityMatches(@RequestParam(defaultValue = "80") Integer minScore) {
-        List<Match> matches = matchService.getHighCompatibilityMatches(minScore);
-        return ResponseEntity.ok(matches);
+    public ResponseEntity<List<MatchView>> getHighCompatibilityMatches(@RequestParam(defaultValue = "80") Integer minScore, KeysetPage page) {
+        CursorPage<MatchView> matches = matchService.getHighCompatibilityMatches(minScore, page);
+        return Pages.ok(matches);
+    }
+    
+    @GetMapping("/scoring")
+    public ResponseEntity<ScoringModel> getScoringModel() {
+        return ResponseEntity.ok(scoringModels.current());
+    }
+    
+    /**
+     * Replace the scoring weights; matching passes started from now on use them. Admins only (see SecurityConfig).
+     */
+    @PutMapping("/scoring")
+    public ResponseEntity<ScoringModel> updateScoringModel(@Valid @RequestBody WeightedScoringModel model,
+            @AuthenticationPrincipal JwtPrincipal principal) {
+        scoringModels.swap(model, "user " + principal.userId() + " <" + principal.email() + ">");
+        return ResponseEntity.ok(model);
     }
     
     @PostMapping("/auto-match/{bloodGroup}")
-    public ResponseEntity<String> createAutomaticMatches(@PathVariable String bloodGroup) {
+    public ResponseEntity<MatchingReport> createAutomaticMatches(
+            @PathVariable String bloodGroup,
+            @RequestParam(defaultValue = "whole_blood") String donationType) {
         try {
-            matchService.createAutomaticMatches(bloodGroup);
-            return ResponseEntity.ok("Automatic matches created for blood group: " + bloodGroup);
+            MatchingReport report = matchService.createAutomaticMatches(bloodGroup, donationType);
+            return ResponseEntity.ok(report);
         } catch (RuntimeException e) {
-            return ResponseEntity.badRequest().body("Failed to create automatic matches");
+            return ResponseEntity.badRequest().build();
         }
     }
+    
+    /**
+     * Auto-match every blood group as a background job; returns 202 with the job to poll, or 409 while one runs.
+     */
+    @PostMapping("/auto-match")
+    public ResponseEntity<?> startAutoMatchJob(@RequestParam(defaultValue = "whole_blood") String donationType) {
+        try {
+            AutoMatchJobView job = matchService.startAutoMatchJob(donationType);
+            URI location = ServletUriComponentsBuilder.fromCurrentRequestUri().path("/jobs/{id}").buildAndExpand(job.id()).toUri();
+            return ResponseEntity.accepted().location(location).body(job);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    @GetMapping("/auto-match/jobs/{id}")
+    public ResponseEntity<AutoMatchJobView> getAutoMatchJob(@PathVariable String id) {
+        return matchService.getAutoMatchJob(id).map(ResponseEntity::ok)
+                   .orElse(ResponseEntity.notFound().build());
+    }
+    
+    @DeleteMapping("/auto-match/jobs/{id}")
+    public ResponseEntity<AutoMatchJobView> cancelAutoMatchJob(@PathVariable String id) {
+        return matchService.cancelAutoMatchJob(id).map(job -> ResponseEntity.accepted().body(job))
+                   .orElse(ResponseEntity.notFound().build());
+    }
+    
+    /**
+     * Shortage mode: assign each donor to one seeker, maximising total compatibility and urgency over the blood group.
+     */
+    @PostMapping("/assign/{bloodGroup}")
+    public ResponseEntity<AssignmentReport> assignDonors(
+            @PathVariable String bloodGroup,
+            @RequestParam(defaultValue = "whole_blood") String donationType) {
+        try {
+            AssignmentReport report = matchService.assignDonors(bloodGroup, donationType);
+            return ResponseEntity.ok(report);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    private ResponseEntity<MatchView> claimMatch(Long id, String status, JwtPrincipal principal) {
+        try {
+            MatchView claimedMatch = matchService.claimMatch(id, status, principal.userId());
+            return ETags.ok(claimedMatch, eTag(claimedMatch));
+        } catch (ForbiddenException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+    
+    private static String eTag(MatchView match) {
+        return ETags.of(match.version(), match.donor(), match.seeker());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,84 @@
+package com.hemoglobe.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.hemoglobe.repository.CursorPage;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Response helpers shared by the list and export endpoints.
+ */
+final class Pages {
+    
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    
+    private Pages() {}
+    
+    /**
+     * The page items as the body, with the cursor for the following page in the {@code X-Next-Cursor} header.
+     */
+    static <T> ResponseEntity<List<T>> ok(CursorPage<T> page) {
+        return ok(page, null);
+    }
+    
+    /**
+     * As {@link #ok(CursorPage)}, tagged with {@code eTag} when given.
+     */
+    static <T> ResponseEntity<List<T>> ok(CursorPage<T> page, String eTag) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (eTag != null) {
+            response.eTag(eTag);
+        }
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor().toString());
+        }
+        return response.body(page.items());
+    }
+    
+    /**
+     * Stream the rows produced by {@code export} as newline-delimited JSON, one object per line.
+     */
+    static <T> ResponseEntity<StreamingResponseBody> ndjson(ObjectMapper objectMapper, Consumer<Consumer<T>> export) {
+        ObjectWriter writer = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        StreamingResponseBody body = out -> {
+            export.accept(row -> {
+                try {
+                    writer.writeValue(out, row);
+                    out.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            out.flush();
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+    
+    /**
+     * Stream the rows produced by {@code export} as a sequence written by {@code writer}, for example CSV with a header row.
+     */
+    static <T> ResponseEntity<StreamingResponseBody> stream(ObjectWriter writer, MediaType mediaType, Consumer<Consumer<T>> export) {
+        StreamingResponseBody body = out -> {
+            try (SequenceWriter rows = writer.writeValues(out)) {
+                export.accept(row -> {
+                    try {
+                        rows.write(row);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+            out.flush();
+        };
+        return ResponseEntity.ok().contentType(mediaType).body(body);
+    }
+}
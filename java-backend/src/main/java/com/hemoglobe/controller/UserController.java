@@ -1,66 +1,206 @@
 package com.hemoglobe.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hemoglobe.bulk.BulkFormat;
+import com.hemoglobe.bulk.BulkImportReport;
+import com.hemoglobe.bulk.UserBulkImporter;
+import com.hemoglobe.dto.PasswordChange;
+import com.hemoglobe.dto.UserSummary;
 import com.hemoglobe.entity.User;
+import com.hemoglobe.feed.UserFeedHub;
+import com.hemoglobe.geo.NearbyDonor;
+import com.hemoglobe.httpcache.ChangeCounters.Table;
+import com.hemoglobe.httpcache.ETags;
+import com.hemoglobe.security.JwtPrincipal;
+import com.hemoglobe.service.ForbiddenException;
 import com.hemoglobe.service.UserService;
+import com.hemoglobe.service.PreconditionFailedException;
+import com.hemoglobe.trust.DonorTrust;
+import com.hemoglobe.trust.TrustScores;
+import com.hemoglobe.repository.CursorPage;
+import com.hemoglobe.repository.KeysetPage;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
 @RequestMapping("/users")
-@CrossOrigin(origins = "*")
 public class UserController {
     
     @Autowired
     private UserService userService;
     
+    @Autowired
+    private ConditionalGets conditionalGets;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private UserFeedHub userFeedHub;
+    
+    @Autowired
+    private UserBulkImporter userBulkImporter;
+    
+    @Autowired
+    private TrustScores trustScores;
+    
     @GetMapping
-    public ResponseEntity<List<User>> getAllUsers() {
-        List<User> users = userService.getAllUsers();
-        return ResponseEntity.ok(users);
+    public ResponseEntity<List<UserSummary>> getAllUsers(KeysetPage page) {
+        CursorPage<UserSummary> users = userService.getAllUsers(page);
+        return Pages.ok(users);
+    }
+    
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportUsers() {
+        return Pages.ndjson(objectMapper, userService::exportUsers);
+    }
+    
+    @GetMapping("/bulk")
+    public ResponseEntity<StreamingResponseBody> exportUsersBulk(@RequestParam(defaultValue = "ndjson") String format) {
+        BulkFormat bulkFormat;
+        try {
+            bulkFormat = BulkFormat.of(format);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        return Pages.stream(bulkFormat.writer(objectMapper, UserSummary.class), bulkFormat.mediaType(), userService::exportUsers);
+    }
+    
+    /**
+     * Import a CSV ({@code text/csv}) or NDJSON roster streamed in the request body. Valid rows are stored even when
+     * others are rejected; the rejected rows are listed by {@code GET /users/bulk/imports/{importId}/errors}. Both
+     * require the admin role.
+     */
+    @PostMapping("/bulk")
+    public ResponseEntity<BulkImportReport> importUsers(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                                        InputStream body) throws IOException {
+        BulkFormat format = BulkFormat.of(contentType);
+        if (format == null) {
+            return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE).build();
+        }
+        return ResponseEntity.ok(userBulkImporter.importUsers(body, format));
+    }
+    
+    @GetMapping(value = "/bulk/imports/{importId}/errors", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<Resource> getImportErrors(@PathVariable String importId) {
+        return userBulkImporter.errorFile(importId)
+                .<ResponseEntity<Resource>>map(file -> ResponseEntity.ok().body(new FileSystemResource(file)))
+                .orElse(ResponseEntity.notFound().build());
     }
     
     @GetMapping("/{id}")
-    public ResponseEntity<User> getUserById(@PathVariable Long id) {
-        Optional<User> user = userService.getUserById(id);
-        return user.map(ResponseEntity::ok)
-                  .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<UserSummary> getUserById(@PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return conditionalGets.entity(Table.USERS, id, ifNoneMatch, () -> userService.getUserById(id),
+                user -> ETags.of(user.version()));
+    }
+    
+    /**
+     * Server-sent events for the user's matches and donations: one {@code match} or {@code donation} event per
+     * changed row, and an {@code overflow} event when deltas had to be dropped and the client should re-fetch.
+     * Only the user themselves may subscribe.
+     */
+    @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamEvents(@PathVariable Long id, @AuthenticationPrincipal JwtPrincipal principal) {
+        if (principal.userId() != id) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok(userFeedHub.subscribe(id));
+    }
+    
+    /**
+     * The donor's trust score, served from memory; donors without history get a neutral score.
+     */
+    @GetMapping("/{id}/trust")
+    public ResponseEntity<DonorTrust> getTrust(@PathVariable Long id) {
+        return ResponseEntity.ok(trustScores.get(id));
     }
     
     @GetMapping("/email/{email}")
-    public ResponseEntity<User> getUserByEmail(@PathVariable String email) {
-        Optional<User> user = userService.getUserByEmail(email);
+    public ResponseEntity<UserSummary> getUserByEmail(@PathVariable String email) {
+        Optional<UserSummary> user = userService.getUserByEmail(email).map(UserSummary::from);
         return user.map(ResponseEntity::ok)
                   .orElse(ResponseEntity.notFound().build());
     }
     
     @PostMapping
-    public ResponseEntity<User> createUser(@Valid @RequestBody User user) {
+    public ResponseEntity<UserSummary> createUser(@Valid @RequestBody User user) {
         try {
-            User createdUser = userService.createUser(user);
+            UserSummary createdUser = userService.createUser(user);
             return ResponseEntity.status(HttpStatus.CREATED).body(createdUser);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().build();
         }
     }
     
+    /**
+     * Replace the user; only the user themselves or an admin may. With If-Match only if it is still at that ETag (412
+     * otherwise), and 409 if another update commits first.
+     */
     @PutMapping("/{id}")
-    public ResponseEntity<User> updateUser(@PathVariable Long id, @Valid @RequestBody User userDetails) {
+    public ResponseEntity<UserSummary> updateUser(@PathVariable Long id, @Valid @RequestBody User userDetails,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @AuthenticationPrincipal JwtPrincipal principal) {
+        if (!ownerOrAdmin(principal, id)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
         try {
-            User updatedUser = userService.updateUser(id, userDetails);
-            return ResponseEntity.ok(updatedUser);
+            UserSummary updatedUser = userService.updateUser(id, userDetails, ETags.expectedVersion(ifMatch));
+            return ETags.ok(updatedUser, ETags.of(updatedUser.version()));
+        } catch (PreconditionFailedException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         }
     }
     
+    /**
+     * Change the user's own password; the current password must be sent along. Passwords in {@code PUT /users/{id}}
+     * are ignored.
+     */
+    @PutMapping("/{id}/password")
+    public ResponseEntity<Map<String, String>> changePassword(@PathVariable Long id, @Valid @RequestBody PasswordChange change,
+            @AuthenticationPrincipal JwtPrincipal principal) {
+        if (principal.userId() != id) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        try {
+            userService.changePassword(id, change.currentPassword(), change.newPassword());
+            return ResponseEntity.noContent().build();
+        } catch (ForbiddenException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", e.getMessage()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+    
+    /**
+     * Delete the user; only the user themselves or an admin may.
+     */
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteUser(@PathVariable Long id) {
+    public ResponseEntity<Void> deleteUser(@PathVariable Long id, @AuthenticationPrincipal JwtPrincipal principal) {
+        if (!ownerOrAdmin(principal, id)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
         try {
             userService.deleteUser(id);
             return ResponseEntity.noContent().build();
@@ -70,30 +210,52 @@ public class UserController {
     }
     
     @GetMapping("/blood-group/{bloodGroup}/{userType}")
-    public ResponseEntity<List<User>> getUsersByBloodGroupAndType(
+    public ResponseEntity<List<UserSummary>> getUsersByBloodGroupAndType(
             @PathVariable String bloodGroup, 
-            @PathVariable String userType) {
-        List<User> users = userService.getUsersByBloodGroupAndType(bloodGroup, userType);
-        return ResponseEntity.ok(users);
+            @PathVariable String userType,
+            KeysetPage page) {
+        CursorPage<UserSummary> users = userService.getUsersByBloodGroupAndType(bloodGroup, userType, page);
+        return Pages.ok(users);
     }
     
     @GetMapping("/location/{location}/{userType}")
-    public ResponseEntity<List<User>> getUsersByLocationAndType(
+    public ResponseEntity<List<UserSummary>> getUsersByLocationAndType(
             @PathVariable String location, 
-            @PathVariable String userType) {
-        List<User> users = userService.getUsersByLocationAndType(location, userType);
-        return ResponseEntity.ok(users);
+            @PathVariable String userType,
+            KeysetPage page) {
+        CursorPage<UserSummary> users = userService.getUsersByLocationAndType(location, userType, page);
+        return Pages.ok(users);
     }
     
     @GetMapping("/donors/{bloodGroup}")
-    public ResponseEntity<List<User>> getAvailableDonors(@PathVariable String bloodGroup) {
-        List<User> donors = userService.getAvailableDonors(bloodGroup);
-        return ResponseEntity.ok(donors);
+    public ResponseEntity<List<UserSummary>> getAvailableDonors(@PathVariable String bloodGroup, KeysetPage page) {
+        CursorPage<UserSummary> donors = userService.getAvailableDonors(bloodGroup, page);
+        return Pages.ok(donors);
+    }
+    
+    @GetMapping("/donors/nearby")
+    public ResponseEntity<List<NearbyDonor>> getNearbyDonors(
+            @RequestParam double lat,
+            @RequestParam double lon,
+            @RequestParam(defaultValue = "50") double radiusKm,
+            @RequestParam(required = false) String bloodGroup,
+            @RequestParam(defaultValue = "whole_blood") String donationType,
+            @RequestParam(defaultValue = "20") int limit) {
+        try {
+            List<NearbyDonor> donors = userService.getNearbyDonors(lat, lon, radiusKm, bloodGroup, donationType, Math.min(limit, 500));
+            return ResponseEntity.ok(donors);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
     
     @GetMapping("/seekers/{bloodGroup}")
-    public ResponseEntity<List<User>> getAvailableSeekers(@PathVariable String bloodGroup) {
-        List<User> seekers = userService.getAvailableSeekers(bloodGroup);
-        return ResponseEntity.ok(seekers);
+    public ResponseEntity<List<UserSummary>> getAvailableSeekers(@PathVariable String bloodGroup, KeysetPage page) {
+        CursorPage<UserSummary> seekers = userService.getAvailableSeekers(bloodGroup, page);
+        return Pages.ok(seekers);
+    }
+    
+    private static boolean ownerOrAdmin(JwtPrincipal principal, long userId) {
+        return principal.userId() == userId || principal.admin();
     }
 }
\ No newline at end of file
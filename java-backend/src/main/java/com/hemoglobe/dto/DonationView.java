@@ -0,0 +1,48 @@
+package com.hemoglobe.dto;
+
+import com.hemoglobe.entity.Donation;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * API view of a donation. Expects donor and seeker to have been fetched with the donation.
+ */
+public record DonationView(
+        Long id,
+        UserRef donor,
+        UserRef seeker,
+        String bloodGroup,
+        BigDecimal amount,
+        String donationType,
+        String location,
+        Double latitude,
+        Double longitude,
+        String status,
+        String urgency,
+        LocalDateTime scheduledDate,
+        LocalDateTime completedDate,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt,
+        Long version) {
+    
+    public static DonationView from(Donation donation) {
+        return new DonationView(
+                donation.getId(),
+                UserRef.from(donation.getDonor()),
+                UserRef.from(donation.getSeeker()),
+                donation.getBloodGroup(),
+                donation.getAmount(),
+                donation.getDonationType(),
+                donation.getLocation(),
+                donation.getLatitude(),
+                donation.getLongitude(),
+                donation.getStatus(),
+                donation.getUrgency(),
+                donation.getScheduledDate(),
+                donation.getCompletedDate(),
+                donation.getCreatedAt(),
+                donation.getUpdatedAt(),
+                donation.getVersion());
+    }
+}
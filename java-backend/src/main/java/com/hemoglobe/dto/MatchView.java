@@ -0,0 +1,36 @@
+package com.hemoglobe.dto;
+
+import com.hemoglobe.entity.Match;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * API view of a match. Expects donor and seeker to have been fetched with the match.
+ */
+public record MatchView(
+        Long id,
+        UserRef donor,
+        UserRef seeker,
+        String bloodGroup,
+        BigDecimal distance,
+        Integer compatibilityScore,
+        String status,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt,
+        Long version) {
+    
+    public static MatchView from(Match match) {
+        return new MatchView(
+                match.getId(),
+                UserRef.from(match.getDonor()),
+                UserRef.from(match.getSeeker()),
+                match.getBloodGroup(),
+                match.getDistance(),
+                match.getCompatibilityScore(),
+                match.getStatus(),
+                match.getCreatedAt(),
+                match.getUpdatedAt(),
+                match.getVersion());
+    }
+}
@@ -0,0 +1,16 @@
+package com.hemoglobe.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+/**
+ * Body of {@code PUT /users/{id}/password}: the password the user signs in with now, and the one to replace it.
+ */
+public record PasswordChange(
+        @NotBlank(message = "Current password is required")
+        String currentPassword,
+        @NotNull(message = "New password is required")
+        @Size(min = 8, max = 72, message = "Password must be between 8 and 72 characters")
+        String newPassword) {
+}
@@ -0,0 +1,13 @@
+package com.hemoglobe.dto;
+
+import com.hemoglobe.entity.User;
+
+/**
+ * The donor or seeker side of a match or donation. Its version is part of the embedding entity's ETag.
+ */
+public record UserRef(Long id, String name, String bloodGroup, String location, Long version) {
+    
+    public static UserRef from(User user) {
+        return user != null ? new UserRef(user.getId(), user.getName(), user.getBloodGroup(), user.getLocation(), user.getVersion()) : null;
+    }
+}
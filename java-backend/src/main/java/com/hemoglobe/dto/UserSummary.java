@@ -0,0 +1,56 @@
+package com.hemoglobe.dto;
+
+import com.hemoglobe.entity.User;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * API view of a user without its donation and match collections.
+ */
+public record UserSummary(
+        Long id,
+        String name,
+        String email,
+        String phone,
+        String bloodGroup,
+        String location,
+        Double latitude,
+        Double longitude,
+        Integer age,
+        BigDecimal weight,
+        String userType,
+        Boolean isAvailable,
+        LocalDateTime lastDonation,
+        String lastDonationType,
+        LocalDateTime nextEligibleAt,
+        String medicalConditions,
+        String emergencyContact,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt,
+        Long version) {
+    
+    public static UserSummary from(User user) {
+        return new UserSummary(
+                user.getId(),
+                user.getName(),
+                user.getEmail(),
+                user.getPhone(),
+                user.getBloodGroup(),
+                user.getLocation(),
+                user.getLatitude(),
+                user.getLongitude(),
+                user.getAge(),
+                user.getWeight(),
+                user.getUserType(),
+                user.getIsAvailable(),
+                user.getLastDonation(),
+                user.getLastDonationType(),
+                user.getNextEligibleAt(),
+                user.getMedicalConditions(),
+                user.getEmergencyContact(),
+                user.getCreatedAt(),
+                user.getUpdatedAt(),
+                user.getVersion());
+    }
+}
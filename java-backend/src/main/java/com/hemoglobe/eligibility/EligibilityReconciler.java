@@ -0,0 +1,91 @@
+package com.hemoglobe.eligibility;
+
+import com.hemoglobe.entity.User;
+import com.hemoglobe.httpcache.ChangeCounters;
+import com.hemoglobe.httpcache.ChangeCounters.Table;
+import com.hemoglobe.matching.UserChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Brings {@code users.next_eligible_at} in line with the configured rules once the application has started,
+ * so rows written before the rules changed (or before the column existed) are pruned correctly.
+ * Only rows whose value differs are updated, in JDBC batches, before the donor spatial index is loaded from them.
+ */
+@Component
+public class EligibilityReconciler {
+    
+    private static final Logger log = LoggerFactory.getLogger(EligibilityReconciler.class);
+    
+    private static final String DONORS_SQL =
+            "SELECT id, age, weight, medical_conditions, last_donation, last_donation_type, next_eligible_at " +
+            "FROM users WHERE user_type = 'donor'";
+    
+    private static final String UPDATE_SQL = "UPDATE users SET next_eligible_at = ?, version = version + 1 WHERE id = ?";
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private EligibilityRules eligibilityRules;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private ChangeCounters changeCounters;
+    
+    @Value("${bulk.batch-size:500}")
+    private int batchSize;
+    
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void reconcile() {
+        long start = System.nanoTime();
+        List<User> changed = new ArrayList<>();
+        int[] donors = {0};
+        jdbcTemplate.query(DONORS_SQL, rs -> {
+            donors[0]++;
+            User donor = new User();
+            donor.setId(rs.getLong("id"));
+            donor.setUserType("donor");
+            donor.setAge(rs.getObject("age", Integer.class));
+            donor.setWeight(rs.getBigDecimal("weight"));
+            donor.setMedicalConditions(rs.getString("medical_conditions"));
+            donor.setLastDonation(toLocalDateTime(rs.getTimestamp("last_donation")));
+            donor.setLastDonationType(rs.getString("last_donation_type"));
+            donor.setNextEligibleAt(toLocalDateTime(rs.getTimestamp("next_eligible_at")));
+            if (eligibilityRules.apply(donor)) {
+                changed.add(donor);
+            }
+        });
+        if (!changed.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_SQL, changed, batchSize, (ps, donor) -> {
+                ps.setTimestamp(1, donor.getNextEligibleAt() != null ? Timestamp.valueOf(donor.getNextEligibleAt()) : null);
+                ps.setLong(2, donor.getId());
+            });
+            changeCounters.changed(Table.USERS);
+            eventPublisher.publishEvent(new UserChangedEvent(changed.stream().map(User::getId).toList()));
+        }
+        log.info("Checked eligibility of {} donors, {} updated in {} ms",
+                donors[0], changed.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+    
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+}
@@ -0,0 +1,113 @@
+package com.hemoglobe.eligibility;
+
+import com.hemoglobe.entity.User;
+import com.hemoglobe.matching.BloodCompatibility;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Donor eligibility rules, compiled once from configuration.
+ * <p>
+ * Standing rules (age and weight limits, deferring medical conditions) are folded into a single disqualifying
+ * predicate, with the condition list compiled into one case-insensitive pattern. A donor's eligibility is then
+ * reduced to one date, {@code users.next_eligible_at}: the last donation plus the deferral interval for its
+ * donation type, {@link #DEFERRED_INDEFINITELY} for a disqualified donor, or null when nothing defers them.
+ * Candidate queries compare that indexed column with the current time instead of evaluating rules per row.
+ */
+@Component
+public class EligibilityRules {
+    
+    /** Stored for donors a standing rule disqualifies; never reached, so range queries skip them. */
+    public static final LocalDateTime DEFERRED_INDEFINITELY = LocalDateTime.of(9999, 12, 31, 0, 0);
+    
+    private final int wholeBloodDays;
+    private final int plateletDays;
+    private final int plasmaDays;
+    private final int longestDays;
+    private final Predicate<User> disqualified;
+    
+    public EligibilityRules(@Value("${eligibility.deferral-days.whole-blood:56}") int wholeBloodDays,
+                            @Value("${eligibility.deferral-days.platelets:7}") int plateletDays,
+                            @Value("${eligibility.deferral-days.plasma:28}") int plasmaDays,
+                            @Value("${eligibility.min-age:18}") int minAge,
+                            @Value("${eligibility.max-age:65}") int maxAge,
+                            @Value("${eligibility.min-weight-kg:50}") BigDecimal minWeightKg,
+                            @Value("${eligibility.deferring-conditions:}") List<String> deferringConditions) {
+        this.wholeBloodDays = wholeBloodDays;
+        this.plateletDays = plateletDays;
+        this.plasmaDays = plasmaDays;
+        this.longestDays = Math.max(wholeBloodDays, Math.max(plateletDays, plasmaDays));
+    
+        List<Predicate<User>> rules = new ArrayList<>();
+        rules.add(user -> user.getAge() != null && (user.getAge() < minAge || user.getAge() > maxAge));
+        rules.add(user -> user.getWeight() != null && user.getWeight().compareTo(minWeightKg) < 0);
+        String conditions = deferringConditions.stream()
+                .map(String::trim)
+                .filter(condition -> !condition.isEmpty())
+                .map(Pattern::quote)
+                .collect(Collectors.joining("|"));
+        if (!conditions.isEmpty()) {
+            Pattern pattern = Pattern.compile("\\b(?:" + conditions + ")\\b", Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+            rules.add(user -> user.getMedicalConditions() != null && pattern.matcher(user.getMedicalConditions()).find());
+        }
+        this.disqualified = rules.stream().reduce(user -> false, Predicate::or);
+    }
+    
+    /**
+     * The first time {@code user} may donate, or null when nothing defers them. Only donors are deferred.
+     */
+    public LocalDateTime nextEligibleAt(User user) {
+        if (!"donor".equals(user.getUserType())) {
+            return null;
+        }
+        if (disqualified.test(user)) {
+            return DEFERRED_INDEFINITELY;
+        }
+        LocalDateTime lastDonation = user.getLastDonation();
+        return lastDonation != null ? lastDonation.plusDays(deferralDays(user.getLastDonationType())) : null;
+    }
+    
+    /**
+     * Store the computed {@link #nextEligibleAt} on {@code user}; call before every write of the rule inputs.
+     *
+     * @return whether the stored value changed
+     */
+    public boolean apply(User user) {
+        LocalDateTime nextEligibleAt = nextEligibleAt(user);
+        boolean changed = !Objects.equals(nextEligibleAt, user.getNextEligibleAt());
+        user.setNextEligibleAt(nextEligibleAt);
+        return changed;
+    }
+    
+    /**
+     * Whether {@code donor} may donate at {@code now}, evaluated from the rule inputs rather than the stored date.
+     */
+    public boolean isEligible(User donor, LocalDateTime now) {
+        LocalDateTime nextEligibleAt = nextEligibleAt(donor);
+        return nextEligibleAt == null || !nextEligibleAt.isAfter(now);
+    }
+    
+    /**
+     * Days a donation of {@code donationType} defers the donor; unknown or missing types get the longest deferral.
+     */
+    public int deferralDays(String donationType) {
+        if (donationType == null) {
+            return longestDays;
+        }
+        return switch (donationType) {
+            case BloodCompatibility.WHOLE_BLOOD -> wholeBloodDays;
+            case BloodCompatibility.PLATELETS -> plateletDays;
+            case BloodCompatibility.PLASMA -> plasmaDays;
+            default -> longestDays;
+        };
+    }
+}
@@ -1,8 +1,10 @@
 package com.hemoglobe.entity;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -36,6 +38,10 @@ public class Donation {
     @NotBlank(message = "Location is required")
     private String location;
 
+    private Double latitude;
+
+    private Double longitude;
+
     @NotBlank(message = "Status is required")
     private String status = "pending"; // 'pending', 'completed', 'cancelled'
 
@@ -54,6 +60,12 @@ public class Donation {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version; // optimistic lock, bumped on every update; exposed as the ETag
+
     // Constructors
     public Donation() {}
 
@@ -102,6 +114,12 @@ public class Donation {
     public String getLocation() { return location; }
     public void setLocation(String location) { this.location = location; }
 
+    public Double getLatitude() { return latitude; }
+    public void setLatitude(Double latitude) { this.latitude = latitude; }
+
+    public Double getLongitude() { return longitude; }
+    public void setLongitude(Double longitude) { this.longitude = longitude; }
+
     public String getStatus() { return status; }
     public void setStatus(String status) { this.status = status; }
 
@@ -119,4 +137,7 @@ public class Donation {
 
     public LocalDateTime getUpdatedAt() { return updatedAt; }
     public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
 }
\ No newline at end of file
@@ -1,15 +1,17 @@
 package com.hemoglobe.entity;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "matches")
+@Table(name = "matches", uniqueConstraints = @UniqueConstraint(name = "uq_matches_donor_seeker", columnNames = {"donor_id", "seeker_id"}))
 public class Match {
     
     @Id
@@ -36,7 +38,7 @@ public class Match {
     private Integer compatibilityScore; // 0-100
 
     @NotBlank(message = "Status is required")
-    private String status = "pending"; // 'pending', 'accepted', 'declined'
+    private String status = "pending"; // 'pending', 'accepted', 'declined', 'expired'
 
     @Column(name = "created_at")
     private LocalDateTime createdAt;
@@ -44,6 +46,12 @@ public class Match {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version; // optimistic lock, bumped on every update; exposed as the ETag
+
     // Constructors
     public Match() {}
 
@@ -96,4 +104,7 @@ public class Match {
 
     public LocalDateTime getUpdatedAt() { return updatedAt; }
     public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
 }
\ No newline at end of file
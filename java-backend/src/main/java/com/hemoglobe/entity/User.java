@@ -1,8 +1,12 @@
 package com.hemoglobe.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
+import org.hibernate.annotations.ColumnDefault;
 import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
 import java.math.BigDecimal;
@@ -54,18 +58,43 @@ public class User implements UserDetails {
     @Column(name = "last_donation")
     private LocalDateTime lastDonation;
 
+    @Column(name = "last_donation_type")
+    private String lastDonationType; // 'whole_blood', 'platelets', 'plasma'
+
+    @Column(name = "next_eligible_at")
+    private LocalDateTime nextEligibleAt; // computed by EligibilityRules; null means no deferral
+
     @Column(name = "medical_conditions")
     private String medicalConditions;
 
     @Column(name = "emergency_contact")
     private String emergencyContact;
 
+    @JsonIgnore
+    @Column(name = "password_hash")
+    private String passwordHash; // BCrypt; null until the user sets a password
+
+    @Transient
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
+    @Size(min = 8, max = 72, message = "Password must be between 8 and 72 characters")
+    private String password; // plain text from register requests, hashed by UserService
+
+    private Double latitude;
+
+    private Double longitude;
+
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version; // optimistic lock, bumped on every update; exposed as the ETag
+
     // One-to-many relationships
     @OneToMany(mappedBy = "donor", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<Donation> donatedDonations;
@@ -108,12 +137,12 @@ public class User implements UserDetails {
     // UserDetails implementation
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
-        return List.of();
+        return userType != null ? List.of(new SimpleGrantedAuthority("ROLE_" + userType.toUpperCase())) : List.of();
     }
 
     @Override
     public String getPassword() {
-        return null; // We're not storing passwords in this simplified version
+        return passwordHash;
     }
 
     @Override
@@ -175,18 +204,40 @@ public class User implements UserDetails {
     public LocalDateTime getLastDonation() { return lastDonation; }
     public void setLastDonation(LocalDateTime lastDonation) { this.lastDonation = lastDonation; }
 
+    public String getLastDonationType() { return lastDonationType; }
+    public void setLastDonationType(String lastDonationType) { this.lastDonationType = lastDonationType; }
+
+    public LocalDateTime getNextEligibleAt() { return nextEligibleAt; }
+    public void setNextEligibleAt(LocalDateTime nextEligibleAt) { this.nextEligibleAt = nextEligibleAt; }
+
     public String getMedicalConditions() { return medicalConditions; }
     public void setMedicalConditions(String medicalConditions) { this.medicalConditions = medicalConditions; }
 
     public String getEmergencyContact() { return emergencyContact; }
     public void setEmergencyContact(String emergencyContact) { this.emergencyContact = emergencyContact; }
 
+    public String getPasswordHash() { return passwordHash; }
+    public void setPasswordHash(String passwordHash) { this.passwordHash = passwordHash; }
+
+    @JsonIgnore
+    public String getRawPassword() { return password; }
+    public void setPassword(String password) { this.password = password; }
+
+    public Double getLatitude() { return latitude; }
+    public void setLatitude(Double latitude) { this.latitude = latitude; }
+
+    public Double getLongitude() { return longitude; }
+    public void setLongitude(Double longitude) { this.longitude = longitude; }
+
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
 
     public LocalDateTime getUpdatedAt() { return updatedAt; }
     public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
 
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+
     public List<Donation> getDonatedDonations() { return donatedDonations; }
     public void setDonatedDonations(List<Donation> donatedDonations) { this.donatedDonations = donatedDonations; }
 
@@ -0,0 +1,76 @@
+package com.hemoglobe.feed;
+
+import io.micrometer.core.instrument.Counter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * One open SSE connection and its bounded queue of undelivered deltas.
+ * <p>
+ * Deltas for the same row coalesce, so a burst of updates to one match costs one slot and the client only sees
+ * the latest state. When the queue is full the oldest delta is dropped and the loss is reported on the next
+ * delivery so the client can re-fetch. Nothing runs for an idle subscriber; a virtual thread drains the queue
+ * only while it is non-empty.
+ */
+final class FeedSubscriber {
+    
+    final long userId;
+    final SseEmitter emitter;
+    
+    private final int capacity;
+    private final Counter coalesced;
+    private final Counter dropped;
+    private final LinkedHashMap<String, StatusDelta> pending = new LinkedHashMap<>();
+    private boolean draining;
+    private int droppedSinceDelivery;
+    
+    FeedSubscriber(long userId, SseEmitter emitter, int capacity, Counter coalesced, Counter dropped) {
+        this.userId = userId;
+        this.emitter = emitter;
+        this.capacity = capacity;
+        this.coalesced = coalesced;
+        this.dropped = dropped;
+    }
+    
+    /**
+     * Queue a delta, returning true when the caller must start a drain.
+     */
+    synchronized boolean offer(StatusDelta delta) {
+        if (pending.remove(delta.key()) != null) {
+            coalesced.increment();
+        } else if (pending.size() >= capacity) {
+            Iterator<String> oldest = pending.keySet().iterator();
+            oldest.next();
+            oldest.remove();
+            droppedSinceDelivery++;
+            dropped.increment();
+        }
+        pending.put(delta.key(), delta);
+        if (draining) {
+            return false;
+        }
+        draining = true;
+        return true;
+    }
+    
+    /**
+     * Everything queued so far, or null - ending the drain - when the queue is empty.
+     */
+    synchronized Batch take() {
+        if (pending.isEmpty()) {
+            draining = false;
+            return null;
+        }
+        Batch batch = new Batch(new ArrayList<>(pending.values()), droppedSinceDelivery);
+        pending.clear();
+        droppedSinceDelivery = 0;
+        return batch;
+    }
+    
+    record Batch(List<StatusDelta> deltas, int dropped) {
+    }
+}
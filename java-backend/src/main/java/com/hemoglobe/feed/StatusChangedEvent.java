@@ -0,0 +1,11 @@
+package com.hemoglobe.feed;
+
+/**
+ * Written to the outbox by the services when a match or donation row changes; relayed to the donor's and seeker's
+ * feeds and to the trust scores once the transaction commits.
+ */
+public record StatusChangedEvent(Long donorId, Long seekerId, StatusDelta delta) {
+    
+    /** Outbox event type. */
+    public static final String TYPE = "status_changed";
+}
@@ -0,0 +1,20 @@
+package com.hemoglobe.feed;
+
+import java.time.LocalDateTime;
+
+/**
+ * A change to a match or donation as pushed to the users on either side of it.
+ * {@code entity} is {@code "match"} or {@code "donation"}.
+ */
+public record StatusDelta(
+        String entity,
+        long id,
+        String status,
+        String previousStatus,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt) {
+    
+    String key() {
+        return entity + ":" + id;
+    }
+}
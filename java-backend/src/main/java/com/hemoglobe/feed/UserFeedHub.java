@@ -0,0 +1,156 @@
+package com.hemoglobe.feed;
+
+import com.hemoglobe.outbox.OutboxMessage;
+import com.hemoglobe.outbox.OutboxSubscriber;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process event bus behind the per-user SSE feed.
+ * <p>
+ * Committed match and donation changes arrive from the outbox relay and are routed to the donor's and seeker's open connections. Each connection has
+ * its own bounded, coalescing queue ({@link FeedSubscriber}) drained by a short-lived virtual thread, so a slow client
+ * never blocks the writer or other clients, and an idle connection holds no thread at all.
+ */
+@Component
+public class UserFeedHub implements OutboxSubscriber<StatusChangedEvent> {
+    
+    private final Map<Long, Set<FeedSubscriber>> subscribers = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().factory());
+    
+    private final long timeoutMillis;
+    private final int queueCapacity;
+    private final Counter delivered;
+    private final Counter coalesced;
+    private final Counter dropped;
+    
+    public UserFeedHub(MeterRegistry meterRegistry,
+                       @Value("${feed.timeout-ms:1800000}") long timeoutMillis,
+                       @Value("${feed.queue-capacity:64}") int queueCapacity,
+                       @Value("${feed.heartbeat-seconds:25}") long heartbeatSeconds) {
+        this.timeoutMillis = timeoutMillis;
+        this.queueCapacity = queueCapacity;
+        this.delivered = meterRegistry.counter("feed.deltas", "outcome", "delivered");
+        this.coalesced = meterRegistry.counter("feed.deltas", "outcome", "coalesced");
+        this.dropped = meterRegistry.counter("feed.deltas", "outcome", "dropped");
+        meterRegistry.gauge("feed.subscribers", subscribers, map -> map.values().stream().mapToInt(Set::size).sum());
+        heartbeat.scheduleAtFixedRate(this::heartbeat, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+    }
+    
+    public SseEmitter subscribe(long userId) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        FeedSubscriber subscriber = new FeedSubscriber(userId, emitter, queueCapacity, coalesced, dropped);
+        subscribers.compute(userId, (id, feeds) -> {
+            Set<FeedSubscriber> set = feeds != null ? feeds : ConcurrentHashMap.newKeySet();
+            set.add(subscriber);
+            return set;
+        });
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(e -> unsubscribe(subscriber));
+        return emitter;
+    }
+    
+    @Override
+    public String name() {
+        return "feed";
+    }
+    
+    @Override
+    public String eventType() {
+        return StatusChangedEvent.TYPE;
+    }
+    
+    @Override
+    public Class<StatusChangedEvent> payloadType() {
+        return StatusChangedEvent.class;
+    }
+    
+    @Override
+    public void deliver(List<OutboxMessage<StatusChangedEvent>> messages) {
+        for (OutboxMessage<StatusChangedEvent> message : messages) {
+            onStatusChanged(message.payload());
+        }
+    }
+    
+    public void onStatusChanged(StatusChangedEvent event) {
+        publish(event.donorId(), event.delta());
+        if (event.seekerId() != null && !event.seekerId().equals(event.donorId())) {
+            publish(event.seekerId(), event.delta());
+        }
+    }
+    
+    public void publish(Long userId, StatusDelta delta) {
+        if (userId == null) {
+            return;
+        }
+        Set<FeedSubscriber> feeds = subscribers.get(userId);
+        if (feeds == null) {
+            return;
+        }
+        for (FeedSubscriber subscriber : feeds) {
+            if (subscriber.offer(delta)) {
+                executor.execute(() -> drain(subscriber));
+            }
+        }
+    }
+    
+    private void drain(FeedSubscriber subscriber) {
+        FeedSubscriber.Batch batch;
+        while ((batch = subscriber.take()) != null) {
+            try {
+                if (batch.dropped() > 0) {
+                    subscriber.emitter.send(SseEmitter.event().name("overflow").data(Map.of("dropped", batch.dropped())));
+                }
+                for (StatusDelta delta : batch.deltas()) {
+                    subscriber.emitter.send(SseEmitter.event().name(delta.entity()).data(delta, MediaType.APPLICATION_JSON));
+                    delivered.increment();
+                }
+            } catch (IOException | IllegalStateException e) {
+                subscriber.emitter.completeWithError(e);
+                unsubscribe(subscriber);
+                return;
+            }
+        }
+    }
+    
+    private void heartbeat() {
+        subscribers.values().forEach(feeds -> feeds.forEach(subscriber -> executor.execute(() -> {
+            try {
+                subscriber.emitter.send(SseEmitter.event().comment("ping"));
+            } catch (IOException | IllegalStateException e) {
+                unsubscribe(subscriber);
+            }
+        })));
+    }
+    
+    private void unsubscribe(FeedSubscriber subscriber) {
+        subscribers.computeIfPresent(subscriber.userId, (id, feeds) -> {
+            feeds.remove(subscriber);
+            return feeds.isEmpty() ? null : feeds;
+        });
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        heartbeat.shutdownNow();
+        executor.shutdown();
+        subscribers.values().forEach(feeds -> feeds.forEach(subscriber -> subscriber.emitter.complete()));
+    }
+}
@@ -0,0 +1,39 @@
+package com.hemoglobe.geo;
+
+import com.hemoglobe.eligibility.EligibilityRules;
+import com.hemoglobe.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.stream.Stream;
+
+/**
+ * Populates the donor spatial index from the database once the application has started. Donors a standing rule
+ * disqualifies are left out; those deferred by a recent donation are indexed with the time they become eligible.
+ */
+@Component
+public class DonorIndexLoader {
+    
+    private static final Logger log = LoggerFactory.getLogger(DonorIndexLoader.class);
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private DonorSpatialIndex donorSpatialIndex;
+    
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void load() {
+        long start = System.nanoTime();
+        try (Stream<DonorLocation> donors = userRepository.streamAvailableDonorLocations(EligibilityRules.DEFERRED_INDEFINITELY)) {
+            donorSpatialIndex.replaceAll(donors);
+        }
+        log.info("Indexed {} available donors in {} ms", donorSpatialIndex.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+}
@@ -0,0 +1,19 @@
+package com.hemoglobe.geo;
+
+import java.time.LocalDateTime;
+
+/**
+ * Projection of the donor columns needed to build the spatial index.
+ */
+public interface DonorLocation {
+    
+    Long getId();
+    
+    String getBloodGroup();
+    
+    Double getLatitude();
+    
+    Double getLongitude();
+    
+    LocalDateTime getNextEligibleAt();
+}
@@ -0,0 +1,307 @@
+package com.hemoglobe.geo;
+
+import com.hemoglobe.matching.BloodCompatibility;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * In-memory grid index of available donors for radius and k-nearest queries.
+ * <p>
+ * Donors are bucketed into fixed-size latitude/longitude cells. Each cell holds its entries in primitive
+ * arrays and is replaced wholesale on every write, and a reload builds a new cell map that is swapped in at
+ * once, so readers never lock and never see a partial update. Queries visit the cells overlapping the search
+ * radius in order of a lower bound on their distance and stop as soon as no remaining cell can beat the
+ * current k-th result. Every distance, for filtering, ranking and reporting, is the haversine distance.
+ * <p>
+ * Each entry carries the time the donor is next eligible to donate; queries skip it until then, so a deferred
+ * donor comes back without a write.
+ */
+@Component
+public class DonorSpatialIndex {
+    
+    private static final double KM_PER_DEGREE = 111.195;
+    
+    private final double cellDegrees;
+    private final int lonCells;
+    private volatile ConcurrentHashMap<Long, Cell> cells = new ConcurrentHashMap<>();
+    private volatile ConcurrentHashMap<Long, Long> cellOfDonor = new ConcurrentHashMap<>();
+    
+    public DonorSpatialIndex(@Value("${geo.index.cell-degrees:0.1}") double cellDegrees) {
+        this.cellDegrees = cellDegrees;
+        this.lonCells = (int) Math.ceil(360.0 / cellDegrees);
+    }
+    
+    /**
+     * Index a donor at the given location, skipped by queries until {@code eligibleFrom} (null when not deferred)
+     */
+    public synchronized void put(long userId, String bloodGroup, double latitude, double longitude, LocalDateTime eligibleFrom) {
+        removeEntry(userId);
+        int latCell = latCell(latitude);
+        int lonCell = Math.floorMod(rawLonCell(longitude), lonCells);
+        long key = key(latCell, lonCell);
+        byte group = (byte) BloodCompatibility.indexOf(bloodGroup);
+        cells.compute(key, (k, cell) -> (cell != null ? cell : Cell.EMPTY).with(userId, group, latitude, longitude, epochSecond(eligibleFrom)));
+        cellOfDonor.put(userId, key);
+    }
+    
+    public synchronized void remove(long userId) {
+        removeEntry(userId);
+    }
+    
+    /**
+     * Replace the whole index with the given donors, building each cell once instead of copying it per insert.
+     * The new cells are built aside and published together, so concurrent queries see either the old index or
+     * the new one.
+     */
+    public synchronized void replaceAll(Stream<? extends DonorLocation> donors) {
+        Map<Long, CellBuilder> builders = new HashMap<>();
+        ConcurrentHashMap<Long, Long> donorCells = new ConcurrentHashMap<>();
+        donors.forEach(donor -> {
+            if (donor.getLatitude() == null || donor.getLongitude() == null) {
+                return;
+            }
+            long key = key(latCell(donor.getLatitude()), Math.floorMod(rawLonCell(donor.getLongitude()), lonCells));
+            builders.computeIfAbsent(key, k -> new CellBuilder())
+                    .add(donor.getId(), (byte) BloodCompatibility.indexOf(donor.getBloodGroup()), donor.getLatitude(), donor.getLongitude(),
+                            epochSecond(donor.getNextEligibleAt()));
+            donorCells.put(donor.getId(), key);
+        });
+        
+        ConcurrentHashMap<Long, Cell> built = new ConcurrentHashMap<>(Math.max(16, builders.size() * 2));
+        builders.forEach((key, builder) -> built.put(key, builder.build()));
+        cells = built;
+        cellOfDonor = donorCells;
+    }
+    
+    public int size() {
+        return cellOfDonor.size();
+    }
+    
+    /**
+     * The {@code limit} nearest donors within {@code radiusKm} whose blood group index is set in {@code donorMask}
+     * and who are eligible to donate now, ordered by distance.
+     */
+    public List<NearbyDonor> nearest(double latitude, double longitude, double radiusKm, int donorMask, int limit) {
+        if (limit <= 0 || radiusKm <= 0) {
+            return List.of();
+        }
+        
+        // Collect the populated cells overlapping the bounding box of the search circle
+        Map<Long, Cell> cells = this.cells;
+        long now = epochSecond(LocalDateTime.now());
+        double latSpan = radiusKm / KM_PER_DEGREE;
+        double cosLat = Math.max(Math.cos(Math.toRadians(Math.min(90, Math.abs(latitude) + latSpan))), 1e-6);
+        double lonSpan = Math.min(180, radiusKm / (KM_PER_DEGREE * cosLat));
+        int minLat = latCell(latitude - latSpan);
+        int maxLat = latCell(latitude + latSpan);
+        int minLon = rawLonCell(longitude - lonSpan);
+        int maxLon = Math.min(rawLonCell(longitude + lonSpan), minLon + lonCells - 1);
+        
+        List<Cell> candidates = new ArrayList<>();
+        List<Double> candidateDistances = new ArrayList<>();
+        for (int i = minLat; i <= maxLat; i++) {
+            for (int j = minLon; j <= maxLon; j++) {
+                Cell cell = cells.get(key(i, Math.floorMod(j, lonCells)));
+                if (cell == null) {
+                    continue;
+                }
+                double minDistance = minDistanceBoundKm(latitude, longitude, i, j);
+                if (minDistance <= radiusKm) {
+                    candidates.add(cell);
+                    candidateDistances.add(minDistance);
+                }
+            }
+        }
+        Integer[] order = new Integer[candidates.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(candidateDistances.get(a), candidateDistances.get(b)));
+        
+        // Rank entries by haversine distance; the latitude gap alone is a lower bound that skips most of them cheaply
+        double[] bestDistances = new double[limit];
+        Cell[] bestCells = new Cell[limit];
+        int[] bestSlots = new int[limit];
+        int found = 0;
+        
+        for (Integer index : order) {
+            double cellDistance = candidateDistances.get(index);
+            if (found == limit && cellDistance >= bestDistances[limit - 1]) {
+                break;
+            }
+            Cell cell = candidates.get(index);
+            for (int slot = 0; slot < cell.ids.length; slot++) {
+                int group = cell.groups[slot];
+                if (group < 0 || (donorMask & (1 << group)) == 0 || cell.eligibleFrom[slot] > now) {
+                    continue;
+                }
+                double bound = found == limit ? bestDistances[limit - 1] : radiusKm;
+                if (Math.abs(cell.latitudes[slot] - latitude) * KM_PER_DEGREE > bound) {
+                    continue;
+                }
+                double distance = GeoPoint.haversineKm(latitude, longitude, cell.latitudes[slot], cell.longitudes[slot]);
+                if (distance > radiusKm || (found == limit && distance >= bestDistances[limit - 1])) {
+                    continue;
+                }
+                
+                // Insertion into the sorted top-k arrays
+                int position = found < limit ? found++ : limit - 1;
+                while (position > 0 && bestDistances[position - 1] > distance) {
+                    bestDistances[position] = bestDistances[position - 1];
+                    bestCells[position] = bestCells[position - 1];
+                    bestSlots[position] = bestSlots[position - 1];
+                    position--;
+                }
+                bestDistances[position] = distance;
+                bestCells[position] = cell;
+                bestSlots[position] = slot;
+            }
+        }
+        
+        List<NearbyDonor> result = new ArrayList<>(found);
+        for (int i = 0; i < found; i++) {
+            Cell cell = bestCells[i];
+            int slot = bestSlots[i];
+            result.add(new NearbyDonor(cell.ids[slot], BloodCompatibility.labelOf(cell.groups[slot]),
+                    cell.latitudes[slot], cell.longitudes[slot], bestDistances[i]));
+        }
+        return result;
+    }
+    
+    private void removeEntry(long userId) {
+        Long key = cellOfDonor.remove(userId);
+        if (key != null) {
+            cells.computeIfPresent(key, (k, cell) -> cell.without(userId));
+        }
+    }
+    
+    /**
+     * A lower bound on the haversine distance to any point of a cell: the larger of the distance along the
+     * meridian to the cell's nearest parallel and the distance to the great circle of its nearest meridian.
+     */
+    private double minDistanceBoundKm(double latitude, double longitude, int latCell, int rawLonCell) {
+        double south = latCell * cellDegrees;
+        double west = rawLonCell * cellDegrees;
+        double latGap = Math.max(0, Math.max(south - latitude, latitude - (south + cellDegrees)));
+        double lonGap = Math.max(0, Math.max(west - longitude, longitude - (west + cellDegrees)));
+        double bound = latGap * KM_PER_DEGREE;
+        if (lonGap > 0 && lonGap < 90) {
+            double sine = Math.sin(Math.toRadians(lonGap)) * Math.cos(Math.toRadians(latitude));
+            bound = Math.max(bound, Math.toDegrees(Math.asin(Math.min(1.0, sine))) * KM_PER_DEGREE);
+        }
+        return bound;
+    }
+    
+    private static long epochSecond(LocalDateTime time) {
+        return time != null ? time.toEpochSecond(ZoneOffset.UTC) : Long.MIN_VALUE;
+    }
+    
+    private int latCell(double latitude) {
+        return (int) Math.floor(latitude / cellDegrees);
+    }
+    
+    private int rawLonCell(double longitude) {
+        return (int) Math.floor(longitude / cellDegrees);
+    }
+    
+    private static long key(int latCell, int lonCell) {
+        return ((long) latCell << 32) | (lonCell & 0xffffffffL);
+    }
+    
+    private static final class CellBuilder {
+        
+        long[] ids = new long[8];
+        byte[] groups = new byte[8];
+        double[] latitudes = new double[8];
+        double[] longitudes = new double[8];
+        long[] eligibleFrom = new long[8];
+        int size;
+        
+        void add(long id, byte group, double latitude, double longitude, long eligibleFromSecond) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                groups = Arrays.copyOf(groups, size * 2);
+                latitudes = Arrays.copyOf(latitudes, size * 2);
+                longitudes = Arrays.copyOf(longitudes, size * 2);
+                eligibleFrom = Arrays.copyOf(eligibleFrom, size * 2);
+            }
+            ids[size] = id;
+            groups[size] = group;
+            latitudes[size] = latitude;
+            longitudes[size] = longitude;
+            eligibleFrom[size] = eligibleFromSecond;
+            size++;
+        }
+        
+        Cell build() {
+            return new Cell(Arrays.copyOf(ids, size), Arrays.copyOf(groups, size),
+                    Arrays.copyOf(latitudes, size), Arrays.copyOf(longitudes, size), Arrays.copyOf(eligibleFrom, size));
+        }
+    }
+    
+    private static final class Cell {
+        
+        static final Cell EMPTY = new Cell(new long[0], new byte[0], new double[0], new double[0], new long[0]);
+        
+        final long[] ids;
+        final byte[] groups;
+        final double[] latitudes;
+        final double[] longitudes;
+        final long[] eligibleFrom; // epoch second of the donor's next eligible time, read as UTC
+        
+        Cell(long[] ids, byte[] groups, double[] latitudes, double[] longitudes, long[] eligibleFrom) {
+            this.ids = ids;
+            this.groups = groups;
+            this.latitudes = latitudes;
+            this.longitudes = longitudes;
+            this.eligibleFrom = eligibleFrom;
+        }
+        
+        Cell with(long id, byte group, double latitude, double longitude, long eligibleFromSecond) {
+            int n = ids.length;
+            Cell cell = new Cell(Arrays.copyOf(ids, n + 1), Arrays.copyOf(groups, n + 1),
+                    Arrays.copyOf(latitudes, n + 1), Arrays.copyOf(longitudes, n + 1), Arrays.copyOf(eligibleFrom, n + 1));
+            cell.ids[n] = id;
+            cell.groups[n] = group;
+            cell.latitudes[n] = latitude;
+            cell.longitudes[n] = longitude;
+            cell.eligibleFrom[n] = eligibleFromSecond;
+            return cell;
+        }
+        
+        Cell without(long id) {
+            int n = ids.length;
+            int slot = 0;
+            while (slot < n && ids[slot] != id) {
+                slot++;
+            }
+            if (slot == n) {
+                return this;
+            }
+            if (n == 1) {
+                return null;
+            }
+            // Move the last entry into the vacated slot
+            Cell cell = new Cell(Arrays.copyOf(ids, n - 1), Arrays.copyOf(groups, n - 1),
+                    Arrays.copyOf(latitudes, n - 1), Arrays.copyOf(longitudes, n - 1), Arrays.copyOf(eligibleFrom, n - 1));
+            if (slot < n - 1) {
+                cell.ids[slot] = ids[n - 1];
+                cell.groups[slot] = groups[n - 1];
+                cell.latitudes[slot] = latitudes[n - 1];
+                cell.longitudes[slot] = longitudes[n - 1];
+                cell.eligibleFrom[slot] = eligibleFrom[n - 1];
+            }
+            return cell;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.hemoglobe.geo;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Offline place-name lookup backed by the tab-separated gazetteer shipped with the application.
+ */
+@Component
+public class Gazetteer {
+    
+    private final Map<String, GeoPoint> places = new HashMap<>();
+    
+    public Gazetteer(@Value("${geo.gazetteer:classpath:geo/gazetteer.tsv}") Resource resource) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("\t");
+                places.put(normalise(fields[0]), new GeoPoint(Double.parseDouble(fields[1]), Double.parseDouble(fields[2])));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load gazetteer " + resource, e);
+        }
+    }
+    
+    /**
+     * Resolve a free-text location, trying the whole string first and then each comma-separated part.
+     */
+    public Optional<GeoPoint> lookup(String location) {
+        if (location == null || location.isBlank()) {
+            return Optional.empty();
+        }
+        GeoPoint point = places.get(normalise(location));
+        if (point != null) {
+            return Optional.of(point);
+        }
+        for (String part : location.split(",")) {
+            point = places.get(normalise(part));
+            if (point != null) {
+                return Optional.of(point);
+            }
+        }
+        return Optional.empty();
+    }
+    
+    public int size() {
+        return places.size();
+    }
+    
+    private static String normalise(String name) {
+        return name.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+}
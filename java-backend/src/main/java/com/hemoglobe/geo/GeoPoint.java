@@ -0,0 +1,31 @@
+package com.hemoglobe.geo;
+
+public record GeoPoint(double latitude, double longitude) {
+    
+    private static final double EARTH_RADIUS_KM = 6371.0088;
+    
+    public double distanceKm(GeoPoint other) {
+        return haversineKm(latitude, longitude, other.latitude, other.longitude);
+    }
+    
+    /**
+     * Great-circle distance between two coordinates in kilometres.
+     */
+    public static double haversineKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+    
+    /**
+     * {@link #haversineKm} for coordinates already in radians, with the cosine of each latitude precomputed.
+     */
+    public static double haversineRadians(double lat1, double lon1, double cosLat1, double lat2, double lon2, double cosLat2) {
+        double sinLat = Math.sin((lat2 - lat1) / 2);
+        double sinLon = Math.sin((lon2 - lon1) / 2);
+        double a = sinLat * sinLat + cosLat1 * cosLat2 * sinLon * sinLon;
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+}
@@ -0,0 +1,4 @@
+package com.hemoglobe.geo;
+
+public record NearbyDonor(long userId, String bloodGroup, double latitude, double longitude, double distanceKm) {
+}
@@ -0,0 +1,77 @@
+package com.hemoglobe.httpcache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per-table change counters that tag list responses. Every write path bumps the tables it touched once its transaction
+ * commits, and a tag is taken before the query it describes, so a cached list can only be revalidated while no later
+ * write could have changed it. Answering 304 therefore needs neither the database nor serialization.
+ * <p>
+ * Counters are per instance: writes made by another instance or directly in the database are not seen. To bound how
+ * long such a write can be answered with 304, tags also change every {@code http-cache.validator-ttl}.
+ */
+@Component
+public class ChangeCounters {
+    
+    public enum Table { USERS, DONATIONS, MATCHES }
+    
+    private final AtomicLongArray counters = new AtomicLongArray(Table.values().length);
+    // Distinguishes tags issued before a restart, when the counters start over
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final long ttlMillis;
+    
+    public ChangeCounters(@Value("${http-cache.validator-ttl:60s}") Duration validatorTtl) {
+        this.ttlMillis = Math.max(1, validatorTtl.toMillis());
+    }
+    
+    /**
+     * Record a write to {@code tables}: after commit inside a transaction, immediately otherwise.
+     */
+    public void changed(Table... tables) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    bump(tables);
+                }
+            });
+        } else {
+            bump(tables);
+        }
+    }
+    
+    /**
+     * A number that grows whenever any of {@code tables} changes.
+     */
+    public long generation(Table... tables) {
+        long generation = 0;
+        for (Table table : tables) {
+            generation += counters.get(table.ordinal());
+        }
+        return generation;
+    }
+    
+    /**
+     * Weak tag for the current state of {@code tables}; weak because it names the data rather than the bytes, which
+     * also lets Tomcat compress the response.
+     */
+    public String tag(Table... tables) {
+        StringBuilder tag = new StringBuilder("W/\"").append(epoch).append('.').append(System.currentTimeMillis() / ttlMillis);
+        for (Table table : tables) {
+            tag.append('.').append(counters.get(table.ordinal()));
+        }
+        return tag.append('"').toString();
+    }
+    
+    private void bump(Table... tables) {
+        for (Table table : tables) {
+            counters.incrementAndGet(table.ordinal());
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.hemoglobe.httpcache;
+
+import com.hemoglobe.dto.UserRef;
+import com.hemoglobe.service.PreconditionFailedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Entity tags. A single user is tagged with its optimistic-lock version; a match or donation with its own version
+ * followed by the versions of the donor and seeker it embeds, so renaming either side changes the tag too. The first
+ * component is always the row's version, which is what If-Match is checked against. Lists are tagged by
+ * {@link ChangeCounters}.
+ */
+public final class ETags {
+    
+    private ETags() {}
+    
+    public static String of(Long version) {
+        return "\"" + version + "\"";
+    }
+    
+    public static String of(Long version, UserRef donor, UserRef seeker) {
+        return of(version, donor != null ? donor.version() : null, seeker != null ? seeker.version() : null);
+    }
+    
+    static String of(Long version, Long donorVersion, Long seekerVersion) {
+        return "\"" + version + '.' + (donorVersion != null ? donorVersion : "-") + '.'
+                + (seekerVersion != null ? seekerVersion : "-") + "\"";
+    }
+    
+    /**
+     * The body with its tag as the ETag.
+     */
+    public static <T> ResponseEntity<T> ok(T body, String tag) {
+        return ResponseEntity.ok().eTag(tag).body(body);
+    }
+    
+    public static <T> ResponseEntity<T> notModified(String tag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(tag).build();
+    }
+    
+    /**
+     * Whether an If-None-Match header names {@code tag}. If-None-Match uses weak comparison, so {@code W/} prefixes
+     * are ignored on both sides; the header may list several tags or be {@code *}.
+     */
+    public static boolean matches(String ifNoneMatch, String tag) {
+        String opaque = opaque(tag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.equals("*") || opaque(trimmed).equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * The version an If-Match header requires, or null when there is no header or it is {@code *}. If-Match uses
+     * strong comparison, so a weak tag, a list or anything that is not one of our tags can never match.
+     */
+    public static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            String value = tag.substring(1, tag.length() - 1);
+            int end = value.indexOf('.');
+            try {
+                return Long.parseLong(end < 0 ? value : value.substring(0, end));
+            } catch (NumberFormatException e) {
+                // fall through
+            }
+        }
+        throw new PreconditionFailedException("If-Match " + ifMatch + " does not match any version");
+    }
+    
+    private static String opaque(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+}
@@ -0,0 +1,98 @@
+package com.hemoglobe.httpcache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.hemoglobe.httpcache.ChangeCounters.Table;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Current ETags of single users, donations and matches, for answering conditional GETs without loading the entity.
+ * The tag served by a recent read is reused while none of the tables it depends on has changed since (see
+ * {@link ChangeCounters}); otherwise it is rebuilt from the version columns with a primary-key probe.
+ */
+@Component
+public class EntityVersions {
+    
+    public static final String NAME = "entityTags";
+    
+    private static final String USER_SQL = "SELECT version FROM users WHERE id = ?";
+    
+    private static final String DONATION_SQL =
+            "SELECT x.version, d.version, s.version FROM donations x " +
+            "LEFT JOIN users d ON d.id = x.donor_id LEFT JOIN users s ON s.id = x.seeker_id WHERE x.id = ?";
+    
+    private static final String MATCH_SQL =
+            "SELECT x.version, d.version, s.version FROM matches x " +
+            "LEFT JOIN users d ON d.id = x.donor_id LEFT JOIN users s ON s.id = x.seeker_id WHERE x.id = ?";
+    
+    private final Cache<Key, Seen> seen;
+    private final ChangeCounters changeCounters;
+    private final JdbcTemplate jdbcTemplate;
+    
+    public EntityVersions(ChangeCounters changeCounters, JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry,
+                          @Value("${http-cache.entity-tags:100000}") long maximumSize,
+                          @Value("${http-cache.validator-ttl:60s}") Duration validatorTtl) {
+        this.seen = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(validatorTtl)
+                .recordStats()
+                .build();
+        this.changeCounters = changeCounters;
+        this.jdbcTemplate = jdbcTemplate;
+        CaffeineCacheMetrics.monitor(meterRegistry, seen, NAME);
+    }
+    
+    /**
+     * Generation of everything the tag of a {@code table} row depends on; take it before reading the row.
+     */
+    public long generation(Table table) {
+        return table == Table.USERS ? changeCounters.generation(Table.USERS) : changeCounters.generation(table, Table.USERS);
+    }
+    
+    /**
+     * Remember the tag served for a row read at {@code generation}.
+     */
+    public void seen(Table table, Long id, String tag, long generation) {
+        seen.put(new Key(table, id), new Seen(tag, generation));
+    }
+    
+    /**
+     * The row's current tag, or empty if it does not exist.
+     */
+    public Optional<String> current(Table table, Long id) {
+        Key key = new Key(table, id);
+        Seen remembered = seen.getIfPresent(key);
+        long generation = generation(table);
+        if (remembered != null && remembered.generation() == generation) {
+            return Optional.of(remembered.tag());
+        }
+        Optional<String> tag = probe(table, id);
+        tag.ifPresentOrElse(value -> seen.put(key, new Seen(value, generation)), () -> seen.invalidate(key));
+        return tag;
+    }
+    
+    private Optional<String> probe(Table table, Long id) {
+        List<String> tags = switch (table) {
+            case USERS -> jdbcTemplate.query(USER_SQL, (rs, n) -> ETags.of(rs.getLong(1)), id);
+            case DONATIONS -> jdbcTemplate.query(DONATION_SQL, (rs, n) -> ETags.of(rs.getLong(1),
+                    rs.getObject(2, Long.class), rs.getObject(3, Long.class)), id);
+            case MATCHES -> jdbcTemplate.query(MATCH_SQL, (rs, n) -> ETags.of(rs.getLong(1),
+                    rs.getObject(2, Long.class), rs.getObject(3, Long.class)), id);
+        };
+        return tags.stream().findFirst();
+    }
+    
+    private record Key(Table table, Long id) {
+    }
+    
+    private record Seen(String tag, long generation) {
+    }
+}
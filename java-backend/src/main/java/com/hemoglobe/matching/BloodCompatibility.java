@@ -0,0 +1,129 @@
+package com.hemoglobe.matching;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Precomputed ABO/Rh donor compatibility for the 8 blood groups.
+ * <p>
+ * A group's index is its antigen set: bit 0 = A, bit 1 = B, bit 2 = RhD, so O- is 0 and AB+ is 7.
+ * For each donation type the table holds, per recipient group, a bitmask of the donor groups it can receive from.
+ */
+public final class BloodCompatibility {
+    
+    public static final String WHOLE_BLOOD = "whole_blood";
+    public static final String PLATELETS = "platelets";
+    public static final String PLASMA = "plasma";
+    
+    private static final String[] GROUPS = {"O-", "A-", "B-", "AB-", "O+", "A+", "B+", "AB+"};
+    
+    private static final int ABO = 0b011;
+    private static final int RH = 0b100;
+    
+    private static final int[] RED_CELL_DONORS = new int[8];
+    private static final int[] PLATELET_DONORS = new int[8];
+    private static final int[] PLASMA_DONORS = new int[8];
+    
+    static {
+        for (int recipient = 0; recipient < 8; recipient++) {
+            for (int donor = 0; donor < 8; donor++) {
+                int bit = 1 << donor;
+                // Red cells: the donor must not carry any antigen the recipient lacks
+                if ((donor & ~recipient) == 0) {
+                    RED_CELL_DONORS[recipient] |= bit;
+                }
+                // Plasma: the donor's antibodies must not target the recipient's ABO antigens; RhD is irrelevant
+                if ((recipient & ~donor & ABO) == 0) {
+                    PLASMA_DONORS[recipient] |= bit;
+                    // Platelets: plasma-compatible ABO, and RhD-negative recipients only take RhD-negative units
+                    if ((donor & ~recipient & RH) == 0) {
+                        PLATELET_DONORS[recipient] |= bit;
+                    }
+                }
+            }
+        }
+    }
+    
+    private BloodCompatibility() {}
+    
+    /**
+     * Index of a blood group label such as "AB+", or -1 if it is not one of the 8 ABO/Rh groups.
+     */
+    public static int indexOf(String bloodGroup) {
+        if (bloodGroup == null) {
+            return -1;
+        }
+        return switch (bloodGroup.trim().toUpperCase(Locale.ROOT)) {
+            case "O-" -> 0;
+            case "A-" -> 1;
+            case "B-" -> 2;
+            case "AB-" -> 3;
+            case "O+" -> 4;
+            case "A+" -> 5;
+            case "B+" -> 6;
+            case "AB+" -> 7;
+            default -> -1;
+        };
+    }
+    
+    public static String labelOf(int index) {
+        return GROUPS[index];
+    }
+    
+    /**
+     * Bitmask of donor group indexes that can give {@code donationType} to the recipient group.
+     */
+    public static int donorMask(String donationType, int recipientIndex) {
+        return table(donationType)[recipientIndex];
+    }
+    
+    /**
+     * Bitmask of recipient group indexes the donor group can give {@code donationType} to.
+     */
+    public static int recipientMask(String donationType, int donorIndex) {
+        int mask = 0;
+        for (int recipient = 0; recipient < 8; recipient++) {
+            if (isCompatible(donorMask(donationType, recipient), donorIndex)) {
+                mask |= 1 << recipient;
+            }
+        }
+        return mask;
+    }
+    
+    public static boolean isCompatible(int donorMask, int donorIndex) {
+        return donorIndex >= 0 && (donorMask & (1 << donorIndex)) != 0;
+    }
+    
+    /**
+     * Blood group labels that can donate {@code donationType} to the given recipient group.
+     */
+    public static List<String> donorGroupsFor(String recipientGroup, String donationType) {
+        int recipient = indexOf(recipientGroup);
+        if (recipient < 0) {
+            throw new IllegalArgumentException("Unknown blood group: " + recipientGroup);
+        }
+        return labels(donorMask(donationType, recipient));
+    }
+    
+    public static List<String> labels(int mask) {
+        List<String> groups = new ArrayList<>(Integer.bitCount(mask));
+        for (int i = 0; i < 8; i++) {
+            if ((mask & (1 << i)) != 0) {
+                groups.add(GROUPS[i]);
+            }
+        }
+        return groups;
+    }
+    
+    private static int[] table(String donationType) {
+        if (donationType == null || WHOLE_BLOOD.equals(donationType)) {
+            return RED_CELL_DONORS;
+        }
+        return switch (donationType) {
+            case PLATELETS -> PLATELET_DONORS;
+            case PLASMA -> PLASMA_DONORS;
+            default -> throw new IllegalArgumentException("Unknown donation type: " + donationType);
+        };
+    }
+}
@@ -0,0 +1,57 @@
+package com.hemoglobe.matching;
+
+import com.hemoglobe.entity.User;
+import com.hemoglobe.geo.GeoPoint;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Donors of one matching pass as parallel primitive arrays (struct of arrays), built once and read by every seeker:
+ * blood group index, coordinates in radians with their latitude cosines (NaN without coordinates), normalised
+ * location, days since the last donation (NaN if never) and reliability in [0, 1].
+ */
+public record DonorBatch(long[] ids, int[] groups, double[] latitudeRad, double[] longitudeRad, double[] cosLatitude,
+                         String[] locations, double[] daysSinceDonation, double[] reliability) {
+    
+    public static DonorBatch of(List<User> donors, LocalDateTime now, DonorReliability donorReliability) {
+        int size = donors.size();
+        DonorBatch batch = new DonorBatch(new long[size], new int[size], new double[size], new double[size],
+                new double[size], new String[size], new double[size], new double[size]);
+        for (int i = 0; i < size; i++) {
+            User donor = donors.get(i);
+            batch.ids[i] = donor.getId();
+            batch.groups[i] = BloodCompatibility.indexOf(donor.getBloodGroup());
+            batch.latitudeRad[i] = donor.getLatitude() != null ? Math.toRadians(donor.getLatitude()) : Double.NaN;
+            batch.longitudeRad[i] = donor.getLongitude() != null ? Math.toRadians(donor.getLongitude()) : Double.NaN;
+            batch.cosLatitude[i] = Math.cos(batch.latitudeRad[i]);
+            batch.locations[i] = donor.getLocation() != null ? donor.getLocation().toLowerCase(Locale.ROOT) : "";
+            batch.daysSinceDonation[i] = donor.getLastDonation() != null
+                    ? Duration.between(donor.getLastDonation(), now).toMinutes() / 1440.0 : Double.NaN;
+            batch.reliability[i] = Math.clamp(donorReliability.of(donor.getId()), 0.0, 1.0);
+        }
+        return batch;
+    }
+    
+    public int size() {
+        return ids.length;
+    }
+    
+    /**
+     * Great-circle distance from donor {@code i} to the seeker, NaN if either has no coordinates.
+     */
+    public double distanceKm(int i, SeekerProfile seeker) {
+        return GeoPoint.haversineRadians(latitudeRad[i], longitudeRad[i], cosLatitude[i],
+                seeker.latitudeRad(), seeker.longitudeRad(), seeker.cosLatitude());
+    }
+    
+    /**
+     * Whether donor {@code i} and the seeker are at the same named location, for pairs without coordinates.
+     */
+    public boolean sameLocation(int i, SeekerProfile seeker) {
+        String location = locations[i];
+        return location.contains(seeker.location()) || seeker.location().contains(location);
+    }
+}
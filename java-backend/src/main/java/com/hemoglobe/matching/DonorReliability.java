@@ -0,0 +1,13 @@
+package com.hemoglobe.matching;
+
+/**
+ * How reliably a donor follows through on matches, in [0, 1]. Supplied to scoring as a bean; without one every
+ * donor is {@link #NEUTRAL}.
+ */
+@FunctionalInterface
+public interface DonorReliability {
+    
+    DonorReliability NEUTRAL = donorId -> 0.5;
+    
+    double of(long donorId);
+}
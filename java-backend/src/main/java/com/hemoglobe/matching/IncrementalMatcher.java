@@ -0,0 +1,362 @@
+package com.hemoglobe.matching;
+
+import com.hemoglobe.eligibility.EligibilityRules;
+import com.hemoglobe.entity.User;
+import com.hemoglobe.geo.DonorSpatialIndex;
+import com.hemoglobe.geo.GeoPoint;
+import com.hemoglobe.geo.NearbyDonor;
+import com.hemoglobe.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps pending matches current without full rescans. Changed users are collected in a dirty set that a single
+ * background thread drains every {@code matching.incremental.interval-ms}; each pass re-plans only the seekers
+ * whose top K can have changed:
+ * <ul>
+ *   <li>changed seekers themselves (an unavailable seeker is re-planned with no candidates, expiring its matches);</li>
+ *   <li>seekers holding a pending match with a changed donor, which may need a new score or a replacement;</li>
+ *   <li>seekers around an available, eligible changed donor that it now scores high enough for: fewer than K pending
+ *       matches, or a score above their lowest pending one.</li>
+ * </ul>
+ * Donors whose deferral has just ended count as changed too.
+ * <p>
+ * The work of a pass grows with the number of changed users, not with the size of their blood groups. A changed
+ * donor is only offered to the seekers within {@code matching.incremental.radius-km} of it (through the seeker
+ * coordinates index), or to seekers at its named location when it has no coordinates. A re-planned seeker is scored
+ * against its current pending donors plus the {@code matching.incremental.candidate-pool} nearest compatible donors
+ * from the {@link DonorSpatialIndex} (donors at its named location when it has no coordinates). Replacements from
+ * further away, or from donors without coordinates, are left to full auto-match runs. Results are written through {@link MatchingEngine#write},
+ * which upserts on (donor, seeker) and expires pending pairs that fell out of the top K.
+ */
+@Component
+@ConditionalOnProperty(name = "matching.incremental.enabled", havingValue = "true", matchIfMissing = true)
+public class IncrementalMatcher {
+    
+    private static final Logger log = LoggerFactory.getLogger(IncrementalMatcher.class);
+    
+    private static final String PENDING_SEEKERS_OF_DONORS_SQL =
+            "SELECT DISTINCT seeker_id FROM matches WHERE status = 'pending' AND donor_id IN (:donorIds)";
+    
+    private static final String NEWLY_ELIGIBLE_DONORS_SQL =
+            "SELECT id FROM users WHERE user_type = 'donor' AND is_available = true " +
+            "AND next_eligible_at > :from AND next_eligible_at <= :to";
+    
+    private static final String PENDING_STATS_SQL =
+            "SELECT seeker_id, COUNT(*), MIN(compatibility_score) FROM matches " +
+            "WHERE status = 'pending' AND seeker_id IN (:seekerIds) GROUP BY seeker_id";
+    
+    private static final String PENDING_DONORS_OF_SEEKERS_SQL =
+            "SELECT seeker_id, donor_id FROM matches WHERE status = 'pending' AND seeker_id IN (:seekerIds)";
+    
+    private static final String SEEKERS_IN_BOX_SQL =
+            "SELECT id, latitude, longitude FROM users WHERE user_type = 'seeker' AND is_available = true " +
+            "AND latitude IS NOT NULL AND longitude IS NOT NULL AND latitude BETWEEN :south AND :north " +
+            "AND longitude BETWEEN :west AND :east AND blood_group IN (:bloodGroups)";
+    
+    private static final String SEEKERS_AT_LOCATION_SQL =
+            "SELECT id FROM users WHERE user_type = 'seeker' AND is_available = true " +
+            "AND lower(location) LIKE :pattern AND blood_group IN (:bloodGroups)";
+    
+    private static final double KM_PER_DEGREE = 111.195;
+    
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService drainer = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().factory());
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private MatchingEngine matchingEngine;
+    
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    
+    @Autowired
+    private EligibilityRules eligibilityRules;
+    
+    @Autowired
+    private DonorSpatialIndex donorSpatialIndex;
+    
+    private final String donationType;
+    private final int batchSize;
+    private final long intervalMillis;
+    private final double radiusKm;
+    private final int candidatePool;
+    private final Counter replannedSeekers;
+    private LocalDateTime eligibleSweptUntil = LocalDateTime.now();
+    
+    public IncrementalMatcher(MeterRegistry meterRegistry,
+                              @Value("${matching.incremental.donation-type:whole_blood}") String donationType,
+                              @Value("${matching.incremental.batch-size:1000}") int batchSize,
+                              @Value("${matching.incremental.interval-ms:1000}") long intervalMillis,
+                              @Value("${matching.incremental.radius-km:${matching.max-distance-km:50}}") double radiusKm,
+                              @Value("${matching.incremental.candidate-pool:500}") int candidatePool) {
+        this.donationType = donationType;
+        this.batchSize = batchSize;
+        this.intervalMillis = intervalMillis;
+        this.radiusKm = radiusKm;
+        this.candidatePool = candidatePool;
+        this.replannedSeekers = meterRegistry.counter("matching.incremental.seekers");
+        meterRegistry.gaugeCollectionSize("matching.dirty.users", List.of(), dirty);
+    }
+    
+    /**
+     * Start draining once the context is ready; scheduling from the constructor could run a pass before the
+     * repositories were injected.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        drainer.scheduleWithFixedDelay(this::drain, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+    
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        dirty.addAll(event.userIds());
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        drainer.shutdownNow();
+    }
+    
+    private void drain() {
+        sweepNewlyEligible();
+        while (!dirty.isEmpty()) {
+            List<Long> batch = new ArrayList<>(batchSize);
+            for (Iterator<Long> it = dirty.iterator(); it.hasNext() && batch.size() < batchSize; ) {
+                batch.add(it.next());
+                it.remove();
+            }
+            try {
+                MatchingReport report = rematch(batch);
+                log.debug("Incremental matching for {} changed users: {} written, {} retired in {} ms",
+                        batch.size(), report.rowsWritten(), report.rowsRetired(), report.elapsedMillis());
+            } catch (RuntimeException e) {
+                // Keep the users dirty and retry on the next pass
+                dirty.addAll(batch);
+                log.warn("Incremental matching failed for {} users, will retry", batch.size(), e);
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Deferrals end without any write, so donors whose next eligible date passed since the last sweep are marked dirty
+     * here; the range is read from the next-eligible index.
+     */
+    private void sweepNewlyEligible() {
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            dirty.addAll(namedParameterJdbcTemplate.queryForList(NEWLY_ELIGIBLE_DONORS_SQL,
+                    Map.of("from", eligibleSweptUntil, "to", now), Long.class));
+            eligibleSweptUntil = now;
+        } catch (RuntimeException e) {
+            log.warn("Newly eligible donor sweep failed, will retry", e);
+        }
+    }
+    
+    /**
+     * Re-plan the seekers affected by changes to {@code userIds}.
+     */
+    public MatchingReport rematch(Collection<Long> userIds) {
+        long start = System.nanoTime();
+        Set<Long> seekerIds = new LinkedHashSet<>();
+        Set<Long> donorIds = new HashSet<>();
+        List<User> availableDonors = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (User user : userRepository.findAllById(userIds)) {
+            if ("seeker".equals(user.getUserType())) {
+                seekerIds.add(user.getId());
+            } else if ("donor".equals(user.getUserType())) {
+                donorIds.add(user.getId());
+                if (Boolean.TRUE.equals(user.getIsAvailable()) && eligibilityRules.isEligible(user, now)) {
+                    availableDonors.add(user);
+                }
+            }
+        }
+        if (!donorIds.isEmpty()) {
+            seekerIds.addAll(namedParameterJdbcTemplate.queryForList(
+                    PENDING_SEEKERS_OF_DONORS_SQL, Map.of("donorIds", donorIds), Long.class));
+        }
+        Set<Long> urgentSeekers = matchingEngine.criticalSeekers();
+        if (!availableDonors.isEmpty()) {
+            seekerIds.addAll(seekersImprovedBy(availableDonors, urgentSeekers));
+        }
+        
+        List<User> seekers = new ArrayList<>();
+        for (User seeker : userRepository.findAllById(seekerIds)) {
+            if (Boolean.TRUE.equals(seeker.getIsAvailable()) && "seeker".equals(seeker.getUserType())) {
+                seekers.add(seeker);
+            }
+        }
+        
+        // Score each seeker against its own candidate pool rather than its whole donor group
+        Map<Long, Set<Long>> pools = candidatePools(seekers);
+        Set<Long> poolDonorIds = new HashSet<>();
+        pools.values().forEach(poolDonorIds::addAll);
+        Map<Long, User> eligibleDonors = new HashMap<>();
+        for (User donor : userRepository.findAllById(poolDonorIds)) {
+            if ("donor".equals(donor.getUserType()) && Boolean.TRUE.equals(donor.getIsAvailable())
+                    && eligibilityRules.isEligible(donor, now)) {
+                eligibleDonors.put(donor.getId(), donor);
+            }
+        }
+        List<MatchCandidate> candidates = new ArrayList<>();
+        long pairsEvaluated = 0;
+        for (User seeker : seekers) {
+            List<User> pool = new ArrayList<>();
+            for (Long donorId : pools.getOrDefault(seeker.getId(), Set.of())) {
+                User donor = eligibleDonors.get(donorId);
+                if (donor != null) {
+                    pool.add(donor);
+                }
+            }
+            if (!pool.isEmpty()) {
+                pairsEvaluated += matchingEngine.plan(donationType, List.of(seeker), urgentSeekers, pool, candidates);
+            }
+        }
+        
+        // Seekers that are gone or no longer available are written with no candidates, expiring their pending matches
+        MatchingEngine.WriteCounts counts = matchingEngine.write(seekerIds, candidates);
+        replannedSeekers.increment(seekerIds.size());
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        return new MatchingReport(null, pairsEvaluated, candidates.size(), counts.written(), counts.retired(), elapsedMillis);
+    }
+    
+    /**
+     * Candidate donor ids per seeker: its current pending donors, so they are re-scored rather than expired, and the
+     * nearest compatible donors around it.
+     */
+    private Map<Long, Set<Long>> candidatePools(List<User> seekers) {
+        Map<Long, Set<Long>> pools = new HashMap<>();
+        if (seekers.isEmpty()) {
+            return pools;
+        }
+        for (User seeker : seekers) {
+            Set<Long> pool = pools.computeIfAbsent(seeker.getId(), id -> new HashSet<>());
+            int group = BloodCompatibility.indexOf(seeker.getBloodGroup());
+            if (group < 0) {
+                continue;
+            }
+            if (seeker.getLatitude() != null && seeker.getLongitude() != null) {
+                for (NearbyDonor donor : donorSpatialIndex.nearest(seeker.getLatitude(), seeker.getLongitude(), radiusKm,
+                        BloodCompatibility.donorMask(donationType, group), candidatePool)) {
+                    pool.add(donor.userId());
+                }
+            } else if (seeker.getLocation() != null && !seeker.getLocation().isBlank()) {
+                for (User donor : userRepository.findAvailableUsersByLocationAndType(seeker.getLocation().trim(), "donor")) {
+                    pool.add(donor.getId());
+                }
+            }
+        }
+        namedParameterJdbcTemplate.query(PENDING_DONORS_OF_SEEKERS_SQL, Map.of("seekerIds", pools.keySet()), rs -> {
+            pools.get(rs.getLong(1)).add(rs.getLong(2));
+        });
+        return pools;
+    }
+    
+    /**
+     * Available seekers around the given (eligible) donors whose pending top K the donors would enter.
+     */
+    private Set<Long> seekersImprovedBy(List<User> donors, Set<Long> urgentSeekers) {
+        Set<Long> nearby = new HashSet<>();
+        for (User donor : donors) {
+            int donorGroup = BloodCompatibility.indexOf(donor.getBloodGroup());
+            if (donorGroup >= 0) {
+                nearby.addAll(seekersAround(donor, BloodCompatibility.labels(BloodCompatibility.recipientMask(donationType, donorGroup))));
+            }
+        }
+        if (nearby.isEmpty()) {
+            return Set.of();
+        }
+        
+        Map<Long, int[]> pending = new HashMap<>();
+        namedParameterJdbcTemplate.query(PENDING_STATS_SQL, Map.of("seekerIds", nearby), rs -> {
+            pending.put(rs.getLong(1), new int[] {rs.getInt(2), rs.getInt(3)});
+        });
+        
+        List<User> seekers = new ArrayList<>();
+        for (User seeker : userRepository.findAllById(nearby)) {
+            if (Boolean.TRUE.equals(seeker.getIsAvailable()) && "seeker".equals(seeker.getUserType())) {
+                seekers.add(seeker);
+            }
+        }
+        List<MatchCandidate> candidates = new ArrayList<>();
+        matchingEngine.plan(donationType, seekers, urgentSeekers, donors, candidates);
+        
+        Set<Long> improved = new HashSet<>();
+        int topK = matchingEngine.topK();
+        for (MatchCandidate candidate : candidates) {
+            int[] stats = pending.get(candidate.seekerId());
+            if (stats == null || stats[0] < topK || candidate.compatibilityScore() > stats[1]) {
+                improved.add(candidate.seekerId());
+            }
+        }
+        return improved;
+    }
+    
+    /**
+     * Ids of available seekers of the given groups within the radius of a donor, read from the seeker coordinates
+     * index; seekers at its named location if the donor has no coordinates.
+     */
+    private List<Long> seekersAround(User donor, List<String> recipientGroups) {
+        if (recipientGroups.isEmpty()) {
+            return List.of();
+        }
+        if (donor.getLatitude() == null || donor.getLongitude() == null) {
+            if (donor.getLocation() == null || donor.getLocation().isBlank()) {
+                return List.of();
+            }
+            String pattern = "%" + donor.getLocation().trim().toLowerCase(Locale.ROOT) + "%";
+            return namedParameterJdbcTemplate.queryForList(SEEKERS_AT_LOCATION_SQL,
+                    Map.of("pattern", pattern, "bloodGroups", recipientGroups), Long.class);
+        }
+        double latitude = donor.getLatitude();
+        double longitude = donor.getLongitude();
+        double latSpan = radiusKm / KM_PER_DEGREE;
+        double cosLat = Math.cos(Math.toRadians(Math.min(90, Math.abs(latitude) + latSpan)));
+        double lonSpan = cosLat > 1e-6 ? radiusKm / (KM_PER_DEGREE * cosLat) : 180;
+        // A box crossing the antimeridian (or a pole) is widened to every longitude; the distance check trims it
+        boolean wraps = longitude - lonSpan < -180 || longitude + lonSpan > 180;
+        Map<String, Object> params = Map.of(
+                "south", latitude - latSpan, "north", latitude + latSpan,
+                "west", wraps ? -180.0 : longitude - lonSpan, "east", wraps ? 180.0 : longitude + lonSpan,
+                "bloodGroups", recipientGroups);
+        List<Long> seekerIds = new ArrayList<>();
+        namedParameterJdbcTemplate.query(SEEKERS_IN_BOX_SQL, params, rs -> {
+            if (GeoPoint.haversineKm(latitude, longitude, rs.getDouble(2), rs.getDouble(3)) <= radiusKm) {
+                seekerIds.add(rs.getLong(1));
+            }
+        });
+        return seekerIds;
+    }
+}
@@ -0,0 +1,26 @@
+package com.hemoglobe.matching;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * A scored donor-seeker pair produced by the matching engine, not yet persisted.
+ */
+public record MatchCandidate(long donorId, long seekerId, String bloodGroup, int compatibilityScore, BigDecimal distance) {
+    
+    /**
+     * The pair of {@code seeker} and donor {@code i} of {@code donors}, with its distance rounded to 2 decimals.
+     */
+    public static MatchCandidate of(SeekerProfile seeker, DonorBatch donors, int i, int score) {
+        return new MatchCandidate(donors.ids()[i], seeker.id(), seeker.bloodGroup(), score,
+                toDistance(donors.distanceKm(i, seeker), donors.locations()[i], seeker.location()));
+    }
+    
+    private static BigDecimal toDistance(double distanceKm, String location1, String location2) {
+        if (!Double.isNaN(distanceKm)) {
+            return BigDecimal.valueOf(distanceKm).setScale(2, RoundingMode.HALF_UP);
+        }
+        // Without coordinates only an identical location gives a known distance
+        return location1.equals(location2) ? BigDecimal.ZERO : null;
+    }
+}
@@ -0,0 +1,280 @@
+package com.hemoglobe.matching;
+
+import com.hemoglobe.entity.User;
+import com.hemoglobe.httpcache.ChangeCounters;
+import com.hemoglobe.httpcache.ChangeCounters.Table;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Scores donor-seeker pairs in memory with the active {@link ScoringModel}, keeps the best K donors per seeker and
+ * upserts the survivors with JDBC batches in chunked transactions.
+ */
+@Component
+public class MatchingEngine {
+    
+    private static final String UPSERT_MATCH_SQL =
+            "INSERT INTO matches (donor_id, seeker_id, blood_group, distance, compatibility_score, status, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, 'pending', ?, ?) " +
+            "ON CONFLICT (donor_id, seeker_id) DO UPDATE SET blood_group = EXCLUDED.blood_group, distance = EXCLUDED.distance, " +
+            "compatibility_score = EXCLUDED.compatibility_score, status = 'pending', updated_at = EXCLUDED.updated_at, " +
+            "version = matches.version + 1 " +
+            // Accepted and declined matches are decisions, not candidates; unchanged pending rows are left unwritten
+            "WHERE matches.status = 'expired' OR (matches.status = 'pending' AND (" +
+            "matches.compatibility_score IS DISTINCT FROM EXCLUDED.compatibility_score " +
+            "OR matches.distance IS DISTINCT FROM EXCLUDED.distance OR matches.blood_group <> EXCLUDED.blood_group))";
+    
+    /** The same upsert as standard MERGE, for databases without {@code ON CONFLICT ... DO UPDATE} (H2). */
+    private static final String MERGE_MATCH_SQL =
+            "MERGE INTO matches m USING (VALUES (CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS VARCHAR), CAST(? AS NUMERIC), " +
+            "CAST(? AS INTEGER), CAST(? AS TIMESTAMP), CAST(? AS TIMESTAMP))) " +
+            "AS c (donor_id, seeker_id, blood_group, distance, compatibility_score, created_at, updated_at) " +
+            "ON m.donor_id = c.donor_id AND m.seeker_id = c.seeker_id " +
+            "WHEN MATCHED AND (m.status = 'expired' OR (m.status = 'pending' AND (m.compatibility_score IS DISTINCT FROM c.compatibility_score " +
+            "OR m.distance IS DISTINCT FROM c.distance OR m.blood_group <> c.blood_group))) " +
+            "THEN UPDATE SET blood_group = c.blood_group, distance = c.distance, " +
+            "compatibility_score = c.compatibility_score, status = 'pending', updated_at = c.updated_at, version = m.version + 1 " +
+            "WHEN NOT MATCHED THEN INSERT (donor_id, seeker_id, blood_group, distance, compatibility_score, status, created_at, updated_at) " +
+            "VALUES (c.donor_id, c.seeker_id, c.blood_group, c.distance, c.compatibility_score, 'pending', c.created_at, c.updated_at)";
+    
+    private static final String RETIRE_MATCHES_SQL =
+            "UPDATE matches SET status = 'expired', updated_at = ?, version = version + 1 WHERE seeker_id = ? AND status = 'pending' AND donor_id NOT IN (%s)";
+    
+    private static final String CRITICAL_SEEKERS_SQL =
+            "SELECT DISTINCT seeker_id FROM donations WHERE urgency = 'critical' AND status = 'pending' AND seeker_id IS NOT NULL";
+    
+    private static final Comparator<MatchCandidate> BY_SCORE =
+            Comparator.comparingInt(MatchCandidate::compatibilityScore);
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Autowired
+    private ScoringModelRegistry scoringModels;
+    
+    @Autowired(required = false)
+    private DonorReliability donorReliability;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Autowired
+    private ChangeCounters changeCounters;
+    
+    @Value("${matching.top-k:10}")
+    private int topK;
+    
+    @Value("${matching.min-score:50}")
+    private int minScore;
+    
+    @Value("${matching.batch-size:500}")
+    private int batchSize;
+    
+    @Value("${matching.chunk-size:5000}")
+    private int chunkSize;
+    
+    private volatile String upsertSql;
+    
+    public MatchingReport run(String bloodGroup, String donationType, List<User> seekers, List<User> donors) {
+        long start = System.nanoTime();
+        
+        List<MatchCandidate> candidates = new ArrayList<>();
+        long pairsEvaluated = plan(donationType, seekers, donors, candidates);
+        List<Long> seekerIds = seekers.stream().map(User::getId).toList();
+        WriteCounts counts = write(seekerIds, candidates);
+        
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        return new MatchingReport(bloodGroup, pairsEvaluated, candidates.size(), counts.written(), counts.retired(), elapsedMillis);
+    }
+    
+    public int topK() {
+        return topK;
+    }
+    
+    /**
+     * Score every seeker against every ABO/Rh-compatible donor and collect the top K donors per seeker into {@code out}.
+     * Seekers with a pending critical request are scored as urgent. Returns the number of pairs evaluated.
+     */
+    public long plan(String donationType, List<User> seekers, List<User> donors, List<MatchCandidate> out) {
+        return plan(donationType, seekers, criticalSeekers(), donors, out);
+    }
+    
+    /**
+     * {@link #plan(String, List, List, List)} with the urgent seekers given.
+     */
+    public long plan(String donationType, List<User> seekers, Set<Long> urgentSeekers, List<User> donors, List<MatchCandidate> out) {
+        // Resolve donors into primitive arrays once; the model then scores each seeker against the whole batch
+        return plan(donationType, seekers, urgentSeekers, scoringModels.current(), batch(donors), topK, out);
+    }
+    
+    /**
+     * Donors resolved into a {@link DonorBatch} with their current reliability, for scoring many seeker sets.
+     */
+    public DonorBatch batch(List<User> donors) {
+        return DonorBatch.of(donors, LocalDateTime.now(), donorReliability != null ? donorReliability : DonorReliability.NEUTRAL);
+    }
+    
+    /**
+     * Score seekers against a prebuilt batch with the given model and collect the best {@code keep} donors per seeker
+     * into {@code out}. Safe to call from several threads sharing one batch.
+     */
+    public long plan(String donationType, List<User> seekers, Set<Long> urgentSeekers, ScoringModel model,
+                     DonorBatch batch, int keep, List<MatchCandidate> out) {
+        long start = System.nanoTime();
+        int[] scores = new int[batch.size()];
+        
+        long pairsEvaluated = 0;
+        PriorityQueue<MatchCandidate> best = new PriorityQueue<>(keep + 1, BY_SCORE);
+        for (User user : seekers) {
+            SeekerProfile seeker = SeekerProfile.of(user, donationType, urgentSeekers.contains(user.getId()) ? 1.0 : 0.0);
+            if (seeker == null) {
+                continue;
+            }
+            pairsEvaluated += model.score(seeker, batch, scores);
+            best.clear();
+            
+            for (int i = 0; i < scores.length; i++) {
+                int score = scores[i];
+                if (score < minScore || score == ScoringModel.INCOMPATIBLE) {
+                    continue;
+                }
+                if (best.size() == keep && best.peek().compatibilityScore() >= score) {
+                    continue;
+                }
+                best.add(MatchCandidate.of(seeker, batch, i, score));
+                if (best.size() > keep) {
+                    best.poll();
+                }
+            }
+            out.addAll(best);
+        }
+        meterRegistry.timer("matching.plan").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        meterRegistry.counter("matching.pairs.scored").increment(pairsEvaluated);
+        return pairsEvaluated;
+    }
+    
+    /**
+     * Seekers with a pending critical request, read from the partial critical-pending index.
+     */
+    public Set<Long> criticalSeekers() {
+        return new HashSet<>(jdbcTemplate.queryForList(CRITICAL_SEEKERS_SQL, Long.class));
+    }
+    
+    /**
+     * Make {@code candidates} the pending matches of {@code seekerIds}: upsert every candidate pair and expire the
+     * seekers' other pending matches. Runs in transactions covering whole seekers and roughly {@code chunkSize}
+     * candidates, each sent as JDBC batches. Candidates must belong to the given seekers.
+     */
+    public WriteCounts write(Collection<Long> seekerIds, List<MatchCandidate> candidates) {
+        long start = System.nanoTime();
+        Map<Long, List<MatchCandidate>> bySeeker = new LinkedHashMap<>();
+        for (Long seekerId : seekerIds) {
+            bySeeker.put(seekerId, new ArrayList<>(topK));
+        }
+        for (MatchCandidate candidate : candidates) {
+            bySeeker.computeIfAbsent(candidate.seekerId(), id -> new ArrayList<>(topK)).add(candidate);
+        }
+        
+        int written = 0;
+        int retired = 0;
+        List<Long> chunkSeekers = new ArrayList<>();
+        List<MatchCandidate> chunk = new ArrayList<>();
+        for (Iterator<Map.Entry<Long, List<MatchCandidate>>> it = bySeeker.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Long, List<MatchCandidate>> seeker = it.next();
+            chunkSeekers.add(seeker.getKey());
+            chunk.addAll(seeker.getValue());
+            if (chunk.size() >= chunkSize || chunkSeekers.size() >= chunkSize || !it.hasNext()) {
+                WriteCounts counts = transactionTemplate.execute(status -> writeChunk(chunkSeekers, chunk, bySeeker));
+                written += counts.written();
+                retired += counts.retired();
+                chunkSeekers.clear();
+                chunk.clear();
+            }
+        }
+        meterRegistry.timer("matching.write").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        meterRegistry.counter("matching.rows", "op", "written").increment(written);
+        meterRegistry.counter("matching.rows", "op", "retired").increment(retired);
+        return new WriteCounts(written, retired);
+    }
+    
+    private WriteCounts writeChunk(List<Long> seekerIds, List<MatchCandidate> chunk, Map<Long, List<MatchCandidate>> bySeeker) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int[][] retiredCounts = jdbcTemplate.batchUpdate(RETIRE_MATCHES_SQL.formatted(placeholders(topK)), seekerIds, batchSize, (ps, seekerId) -> {
+            ps.setTimestamp(1, now);
+            ps.setLong(2, seekerId);
+            // Pad the kept-donor list to K with 0, which is never an id
+            List<MatchCandidate> kept = bySeeker.get(seekerId);
+            for (int i = 0; i < topK; i++) {
+                ps.setLong(3 + i, i < kept.size() ? kept.get(i).donorId() : 0L);
+            }
+        });
+        int[][] writtenCounts = jdbcTemplate.batchUpdate(upsertSql(), chunk, batchSize, (ps, candidate) -> {
+            ps.setLong(1, candidate.donorId());
+            ps.setLong(2, candidate.seekerId());
+            ps.setString(3, candidate.bloodGroup());
+            ps.setBigDecimal(4, candidate.distance());
+            ps.setInt(5, candidate.compatibilityScore());
+            ps.setTimestamp(6, now);
+            ps.setTimestamp(7, now);
+        });
+        WriteCounts counts = new WriteCounts(rows(writtenCounts), rows(retiredCounts));
+        if (counts.written() > 0 || counts.retired() > 0) {
+            changeCounters.changed(Table.MATCHES);
+        }
+        return counts;
+    }
+    
+    private static int rows(int[][] counts) {
+        int rows = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                // The driver may report SUCCESS_NO_INFO (-2) for rewritten batches
+                rows += count < 0 ? 1 : count;
+            }
+        }
+        return rows;
+    }
+    
+    private String upsertSql() {
+        String sql = upsertSql;
+        if (sql == null) {
+            Boolean postgres = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> connection.isWrapperFor(PGConnection.class));
+            upsertSql = sql = Boolean.TRUE.equals(postgres) ? UPSERT_MATCH_SQL : MERGE_MATCH_SQL;
+        }
+        return sql;
+    }
+    
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+    
+    /**
+     * Rows upserted (inserted or changed) and pending rows expired by {@link #write}.
+     */
+    public record WriteCounts(int written, int retired) {
+    }
+}
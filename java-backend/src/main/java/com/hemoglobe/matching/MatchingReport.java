@@ -0,0 +1,8 @@
+package com.hemoglobe.matching;
+
+/**
+ * Summary of an automatic matching run. {@code rowsWritten} counts matches inserted or re-scored,
+ * {@code rowsRetired} pending matches expired because the pair fell out of the seeker's top K.
+ */
+public record MatchingReport(String bloodGroup, long pairsEvaluated, int pairsKept, int rowsWritten, int rowsRetired, long elapsedMillis) {
+}
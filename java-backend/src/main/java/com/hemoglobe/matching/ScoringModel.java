@@ -0,0 +1,21 @@
+package com.hemoglobe.matching;
+
+/**
+ * Scores one seeker against a batch of donors held in primitive arrays.
+ * <p>
+ * Implementations are called once per seeker with the whole donor batch and must not allocate per pair; they are
+ * shared between matching threads, so they must be immutable. The active model is held by
+ * {@link ScoringModelRegistry} and can be swapped at runtime; a matching pass keeps the model it started with.
+ */
+public interface ScoringModel {
+    
+    /** Score written for donors whose blood group cannot give to the seeker. */
+    int INCOMPATIBLE = -1;
+    
+    /**
+     * Write a 0-100 score for every donor in {@code donors} to {@code scores}, or {@link #INCOMPATIBLE}.
+     *
+     * @return the number of compatible pairs scored
+     */
+    int score(SeekerProfile seeker, DonorBatch donors, int[] scores);
+}
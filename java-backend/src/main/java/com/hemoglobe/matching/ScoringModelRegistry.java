@@ -0,0 +1,54 @@
+package com.hemoglobe.matching;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the active {@link ScoringModel}. Starts with a {@link WeightedScoringModel} built from the
+ * {@code matching.scoring.*} weights; {@link #swap} replaces it atomically without a restart. Passes already running
+ * finish with the model they read.
+ */
+@Component
+public class ScoringModelRegistry {
+    
+    private static final Logger log = LoggerFactory.getLogger(ScoringModelRegistry.class);
+    
+    private final AtomicReference<ScoringModel> current;
+    
+    @Autowired
+    public ScoringModelRegistry(@Value("${matching.scoring.abo-exact:50}") double aboExact,
+                                @Value("${matching.scoring.abo-compatible:40}") double aboCompatible,
+                                @Value("${matching.scoring.distance:30}") double distance,
+                                @Value("${matching.max-distance-km:50}") double maxDistanceKm,
+                                @Value("${matching.scoring.rest:10}") double rest,
+                                @Value("${matching.scoring.rest-days:180}") double restDays,
+                                @Value("${matching.scoring.reliability:10}") double reliability,
+                                @Value("${matching.scoring.urgency:10}") double urgency) {
+        this(new WeightedScoringModel(aboExact, aboCompatible, distance, maxDistanceKm, rest, restDays, reliability, urgency));
+    }
+    
+    public ScoringModelRegistry(ScoringModel initial) {
+        this.current = new AtomicReference<>(initial);
+    }
+    
+    public ScoringModel current() {
+        return current.get();
+    }
+    
+    /**
+     * Make {@code model} the active model for every matching pass that starts from now on, logged against
+     * {@code swappedBy}.
+     *
+     * @return the model it replaced
+     */
+    public ScoringModel swap(ScoringModel model, String swappedBy) {
+        ScoringModel previous = current.getAndSet(model);
+        log.info("Scoring model swapped by {}: {} -> {}", swappedBy, previous, model);
+        return previous;
+    }
+}
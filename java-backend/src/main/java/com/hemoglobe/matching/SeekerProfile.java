@@ -0,0 +1,29 @@
+package com.hemoglobe.matching;
+
+import com.hemoglobe.entity.User;
+
+import java.util.Locale;
+
+/**
+ * A seeker resolved once per matching pass: blood group index, compatible donor mask, coordinates in radians
+ * (NaN without coordinates), normalised location and urgency in [0, 1].
+ */
+public record SeekerProfile(long id, String bloodGroup, int group, int donorMask,
+                            double latitudeRad, double longitudeRad, double cosLatitude,
+                            String location, double urgency) {
+    
+    /**
+     * Profile of {@code seeker} for {@code donationType}, or null if its blood group is unknown.
+     */
+    public static SeekerProfile of(User seeker, String donationType, double urgency) {
+        int group = BloodCompatibility.indexOf(seeker.getBloodGroup());
+        if (group < 0) {
+            return null;
+        }
+        double latitude = seeker.getLatitude() != null ? Math.toRadians(seeker.getLatitude()) : Double.NaN;
+        double longitude = seeker.getLongitude() != null ? Math.toRadians(seeker.getLongitude()) : Double.NaN;
+        return new SeekerProfile(seeker.getId(), seeker.getBloodGroup(), group, BloodCompatibility.donorMask(donationType, group),
+                latitude, longitude, Math.cos(latitude),
+                seeker.getLocation() != null ? seeker.getLocation().toLowerCase(Locale.ROOT) : "", urgency);
+    }
+}
@@ -0,0 +1,15 @@
+package com.hemoglobe.matching;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Published when users are created or change in a way that affects matching: availability, blood group,
+ * user type, location or donor eligibility.
+ */
+public record UserChangedEvent(Collection<Long> userIds) {
+    
+    public static UserChangedEvent of(long userId) {
+        return new UserChangedEvent(List.of(userId));
+    }
+}
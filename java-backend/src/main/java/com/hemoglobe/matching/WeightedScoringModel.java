@@ -0,0 +1,67 @@
+package com.hemoglobe.matching;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+
+/**
+ * The default scoring model: a weighted sum of points, capped at 100.
+ * <ul>
+ *   <li>{@code aboExact} / {@code aboCompatible}: same blood group, or another compatible group, so universal donors
+ *       are kept for those who need them;</li>
+ *   <li>{@code distance}: decays linearly to zero at {@code maxDistanceKm}; without coordinates on both sides it is
+ *       awarded in full when the location names overlap;</li>
+ *   <li>{@code rest}: grows with the days since the donor last gave, full after {@code restDays} or for donors who
+ *       never gave, spreading requests away from recent donors;</li>
+ *   <li>{@code reliability}: scaled by the donor's {@link DonorReliability};</li>
+ *   <li>{@code urgency}: scaled by the seeker's urgency, so critical seekers clear the minimum score more easily.</li>
+ * </ul>
+ * Scores are capped at 100, so each weight is bounded by it; the bounds are checked on models sent to the API.
+ */
+public record WeightedScoringModel(@DecimalMin("0") @DecimalMax("100") double aboExact,
+                                   @DecimalMin("0") @DecimalMax("100") double aboCompatible,
+                                   @DecimalMin("0") @DecimalMax("100") double distance,
+                                   @DecimalMin(value = "0", inclusive = false) @DecimalMax("20000") double maxDistanceKm,
+                                   @DecimalMin("0") @DecimalMax("100") double rest,
+                                   @DecimalMin(value = "0", inclusive = false) @DecimalMax("3650") double restDays,
+                                   @DecimalMin("0") @DecimalMax("100") double reliability,
+                                   @DecimalMin("0") @DecimalMax("100") double urgency) implements ScoringModel {
+    
+    public WeightedScoringModel {
+        if (aboExact < 0 || aboCompatible < 0 || distance < 0 || rest < 0 || reliability < 0 || urgency < 0) {
+            throw new IllegalArgumentException("Scoring weights must not be negative");
+        }
+        if (!(maxDistanceKm > 0) || !(restDays > 0)) {
+            throw new IllegalArgumentException("maxDistanceKm and restDays must be positive");
+        }
+    }
+    
+    @Override
+    public int score(SeekerProfile seeker, DonorBatch donors, int[] scores) {
+        int[] groups = donors.groups();
+        double[] daysSinceDonation = donors.daysSinceDonation();
+        double[] donorReliability = donors.reliability();
+        int donorMask = seeker.donorMask();
+        double seekerPoints = urgency * seeker.urgency();
+        int scored = 0;
+        for (int i = 0; i < groups.length; i++) {
+            int group = groups[i];
+            if (!BloodCompatibility.isCompatible(donorMask, group)) {
+                scores[i] = INCOMPATIBLE;
+                continue;
+            }
+            scored++;
+            double points = (group == seeker.group() ? aboExact : aboCompatible) + seekerPoints;
+            double distanceKm = donors.distanceKm(i, seeker);
+            if (!Double.isNaN(distanceKm)) {
+                points += distance * Math.max(0, 1 - distanceKm / maxDistanceKm);
+            } else if (donors.sameLocation(i, seeker)) {
+                points += distance;
+            }
+            double days = daysSinceDonation[i];
+            points += rest * (Double.isNaN(days) ? 1 : Math.min(1, Math.max(0, days) / restDays));
+            points += reliability * donorReliability[i];
+            scores[i] = (int) Math.min(100, Math.round(points));
+        }
+        return scored;
+    }
+}
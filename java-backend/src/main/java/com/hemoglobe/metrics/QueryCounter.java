@@ -0,0 +1,34 @@
+package com.hemoglobe.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread, so {@link RequestMetricsFilter} can record
+ * queries per request. Registered as {@code hibernate.session_factory.statement_inspector}; statements issued
+ * through {@code JdbcTemplate} do not pass through it.
+ */
+public class QueryCounter implements StatementInspector {
+    
+    private static final ThreadLocal<int[]> COUNT = new ThreadLocal<>();
+    
+    @Override
+    public String inspect(String sql) {
+        int[] count = COUNT.get();
+        if (count != null) {
+            count[0]++;
+        }
+        return sql;
+    }
+    
+    /** Start counting on this thread. */
+    static void start() {
+        COUNT.set(new int[1]);
+    }
+    
+    /** Stop counting on this thread and return the statements counted since {@link #start}. */
+    static int stop() {
+        int[] count = COUNT.get();
+        COUNT.remove();
+        return count != null ? count[0] : 0;
+    }
+}
@@ -0,0 +1,68 @@
+package com.hemoglobe.metrics;
+
+import com.hemoglobe.security.JwtPrincipal;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.MDC;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Per-request observability: tags log lines with {@code requestId} (from {@code X-Request-Id}, or generated and
+ * echoed back) and {@code userId} through the MDC, and records the Hibernate statements each request issued as the
+ * {@code http.server.requests.queries} summary, tagged by method and route template.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 10)
+public class RequestMetricsFilter extends OncePerRequestFilter {
+    
+    private static final String REQUEST_ID = "X-Request-Id";
+    
+    private final MeterRegistry meterRegistry;
+    
+    public RequestMetricsFilter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String requestId = request.getHeader(REQUEST_ID);
+        if (requestId == null || requestId.isBlank() || requestId.length() > 64) {
+            requestId = Long.toHexString(ThreadLocalRandom.current().nextLong());
+        }
+        response.setHeader(REQUEST_ID, requestId);
+        MDC.put("requestId", requestId);
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof JwtPrincipal principal) {
+            MDC.put("userId", String.valueOf(principal.userId()));
+        }
+        QueryCounter.start();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            int queries = QueryCounter.stop();
+            Object route = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            DistributionSummary.builder("http.server.requests.queries")
+                    .description("Hibernate statements per request")
+                    .tag("method", request.getMethod())
+                    .tag("uri", route != null ? route.toString() : "UNKNOWN")
+                    .register(meterRegistry)
+                    .record(queries);
+            MDC.remove("requestId");
+            MDC.remove("userId");
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.hemoglobe.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hemoglobe.entity.OutboxEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.UUID;
+
+/**
+ * Write side of the transactional outbox: events are inserted in the caller's transaction, so they commit or roll
+ * back with the change they describe, and the {@link OutboxRelay} is woken once the transaction commits.
+ */
+@Component
+public class Outbox {
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private OutboxRelay relay;
+    
+    private final Counter appended;
+    
+    public Outbox(MeterRegistry meterRegistry) {
+        this.appended = meterRegistry.counter("outbox.appended");
+    }
+    
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(String eventType, String aggregateType, long aggregateId, Object payload) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize " + eventType + " outbox payload", e);
+        }
+        entityManager.persist(new OutboxEvent(UUID.randomUUID().toString(), eventType, aggregateType, aggregateId, json));
+        appended.increment();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                relay.wakeUp();
+            }
+        });
+    }
+}
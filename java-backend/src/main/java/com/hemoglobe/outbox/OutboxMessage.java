@@ -0,0 +1,11 @@
+package com.hemoglobe.outbox;
+
+import java.time.LocalDateTime;
+
+/**
+ * One outbox event as handed to a subscriber. Delivery is at least once, so the same {@code idempotencyKey} can
+ * arrive again after a failure or restart.
+ */
+public record OutboxMessage<T>(long id, String idempotencyKey, String aggregateType, long aggregateId,
+                               LocalDateTime createdAt, T payload) {
+}
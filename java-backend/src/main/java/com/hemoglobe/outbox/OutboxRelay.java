@@ -0,0 +1,267 @@
+package com.hemoglobe.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Read side of the transactional outbox. A dedicated thread claims up to {@code outbox.batch-size} undelivered events
+ * in id order ({@code FOR UPDATE SKIP LOCKED}, so several instances can relay side by side), hands each event type's
+ * batch to its {@link OutboxSubscriber}s and marks the batch delivered in the same transaction. It runs when a
+ * transaction with outbox events commits and every {@code outbox.poll-interval-ms} to pick up anything missed.
+ * <p>
+ * Delivery is at least once. A batch a subscriber rejects is retried message by message; messages that still fail are
+ * rescheduled with exponential backoff from {@code outbox.retry-backoff-ms} and given up after
+ * {@code outbox.max-attempts}. Subscribers that already handled a redelivered message are skipped through a bounded
+ * cache of idempotency keys, which does not survive a restart. Delivered events are purged after
+ * {@code outbox.retention-hours}.
+ */
+@Component
+public class OutboxRelay {
+    
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+    
+    private static final String CLAIM_SQL =
+            "SELECT id, idempotency_key, event_type, aggregate_type, aggregate_id, payload, attempts, created_at " +
+            "FROM outbox_events WHERE delivered_at IS NULL AND available_at <= ? AND attempts < ? ORDER BY id LIMIT ? FOR UPDATE";
+    
+    private static final String DELIVERED_SQL = "UPDATE outbox_events SET delivered_at = ? WHERE id = ?";
+    
+    private static final String FAILED_SQL =
+            "UPDATE outbox_events SET attempts = attempts + 1, available_at = ?, last_error = ? WHERE id = ?";
+    
+    private static final String PURGE_SQL = "DELETE FROM outbox_events WHERE delivered_at < ?";
+    
+    private static final long MAX_BACKOFF_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    
+    private static final RowMapper<Row> ROW_MAPPER = (rs, n) -> new Row(rs.getLong(1), rs.getString(2), rs.getString(3),
+            rs.getString(4), rs.getLong(5), rs.getString(6), rs.getInt(7), rs.getTimestamp(8).toLocalDateTime());
+    
+    private final Map<String, List<OutboxSubscriber<?>>> subscribers = new HashMap<>();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "outbox-relay");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean wakeUpPending = new AtomicBoolean();
+    private final Cache<String, Boolean> handled;
+    private final int batchSize;
+    private final long pollIntervalMillis;
+    private final int maxAttempts;
+    private final long retryBackoffMillis;
+    private final long retentionHours;
+    private final MeterRegistry meterRegistry;
+    private final Timer batchTimer;
+    private final Timer lag;
+    private volatile boolean started;
+    private volatile String claimSql;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    public OutboxRelay(MeterRegistry meterRegistry, List<OutboxSubscriber<?>> subscribers,
+                       @Value("${outbox.batch-size:200}") int batchSize,
+                       @Value("${outbox.poll-interval-ms:1000}") long pollIntervalMillis,
+                       @Value("${outbox.max-attempts:10}") int maxAttempts,
+                       @Value("${outbox.retry-backoff-ms:1000}") long retryBackoffMillis,
+                       @Value("${outbox.retention-hours:24}") long retentionHours,
+                       @Value("${outbox.dedupe-keys:100000}") long dedupeKeys) {
+        for (OutboxSubscriber<?> subscriber : subscribers) {
+            this.subscribers.computeIfAbsent(subscriber.eventType(), type -> new ArrayList<>()).add(subscriber);
+        }
+        this.handled = Caffeine.newBuilder().maximumSize(dedupeKeys).build();
+        this.batchSize = batchSize;
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffMillis = retryBackoffMillis;
+        this.retentionHours = retentionHours;
+        this.meterRegistry = meterRegistry;
+        this.batchTimer = meterRegistry.timer("outbox.relay.batch");
+        this.lag = Timer.builder("outbox.delivery.lag").description("Time from outbox insert to delivery")
+                .publishPercentileHistogram().register(meterRegistry);
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        started = true;
+        executor.scheduleWithFixedDelay(this::drain, 0, pollIntervalMillis, TimeUnit.MILLISECONDS);
+        executor.scheduleWithFixedDelay(this::purge, 1, 60, TimeUnit.MINUTES);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+    
+    /**
+     * Drain soon on the relay thread; wake-ups arriving while one is queued collapse into it.
+     */
+    public void wakeUp() {
+        if (started && wakeUpPending.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                wakeUpPending.set(false);
+                drain();
+            });
+        }
+    }
+    
+    /** Relay batches until one comes back short; package-private so tests can drain without the relay thread. */
+    void drain() {
+        try {
+            Integer claimed;
+            do {
+                claimed = transactionTemplate.execute(status -> relayBatch());
+            } while (claimed != null && claimed == batchSize && !Thread.currentThread().isInterrupted());
+        } catch (RuntimeException e) {
+            log.warn("Outbox relay pass failed; retrying on the next poll", e);
+        }
+    }
+    
+    private int relayBatch() {
+        long start = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now();
+        List<Row> rows = jdbcTemplate.query(claimSql(), ROW_MAPPER, Timestamp.valueOf(now), maxAttempts, batchSize);
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        Map<String, List<Row>> byType = new LinkedHashMap<>();
+        for (Row row : rows) {
+            byType.computeIfAbsent(row.eventType(), type -> new ArrayList<>()).add(row);
+        }
+        Map<Long, String> failures = new HashMap<>();
+        byType.forEach((type, typeRows) -> {
+            for (OutboxSubscriber<?> subscriber : subscribers.getOrDefault(type, List.of())) {
+                deliver(subscriber, typeRows, failures);
+            }
+        });
+    
+        LocalDateTime deliveredAt = LocalDateTime.now();
+        List<Row> delivered = rows.stream().filter(row -> !failures.containsKey(row.id())).toList();
+        List<Row> failed = rows.stream().filter(row -> failures.containsKey(row.id())).toList();
+        jdbcTemplate.batchUpdate(DELIVERED_SQL, delivered, batchSize, (ps, row) -> {
+            ps.setTimestamp(1, Timestamp.valueOf(deliveredAt));
+            ps.setLong(2, row.id());
+        });
+        jdbcTemplate.batchUpdate(FAILED_SQL, failed, batchSize, (ps, row) -> {
+            long backoff = Math.min(MAX_BACKOFF_MILLIS, retryBackoffMillis << Math.min(row.attempts(), 20));
+            ps.setTimestamp(1, Timestamp.valueOf(deliveredAt.plus(Duration.ofMillis(backoff))));
+            ps.setString(2, failures.get(row.id()));
+            ps.setLong(3, row.id());
+        });
+        for (Row row : failed) {
+            if (row.attempts() + 1 >= maxAttempts) {
+                log.error("Outbox event {} ({}) failed {} times and will not be retried: {}",
+                        row.id(), row.eventType(), maxAttempts, failures.get(row.id()));
+            }
+        }
+        for (Row row : delivered) {
+            lag.record(Duration.between(row.createdAt(), deliveredAt));
+        }
+        batchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return rows.size();
+    }
+    
+    /**
+     * Hand {@code rows} to one subscriber, skipping those it already handled; rows it fails on go into
+     * {@code failures}.
+     */
+    private <T> void deliver(OutboxSubscriber<T> subscriber, List<Row> rows, Map<Long, String> failures) {
+        List<OutboxMessage<T>> messages = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            if (handled.getIfPresent(handledKey(subscriber, row.idempotencyKey())) != null) {
+                continue;
+            }
+            try {
+                messages.add(new OutboxMessage<>(row.id(), row.idempotencyKey(), row.aggregateType(), row.aggregateId(),
+                        row.createdAt(), objectMapper.readValue(row.payload(), subscriber.payloadType())));
+            } catch (Exception e) {
+                failures.put(row.id(), "Undecodable payload: " + e.getMessage());
+            }
+        }
+        if (messages.isEmpty()) {
+            return;
+        }
+        try {
+            subscriber.deliver(messages);
+            messages.forEach(message -> markHandled(subscriber, message));
+        } catch (RuntimeException batchFailure) {
+            for (OutboxMessage<T> message : messages) {
+                try {
+                    subscriber.deliver(List.of(message));
+                    markHandled(subscriber, message);
+                } catch (RuntimeException e) {
+                    failures.put(message.id(), subscriber.name() + ": " + e);
+                    meterRegistry.counter("outbox.messages", "subscriber", subscriber.name(), "outcome", "failed").increment();
+                }
+            }
+        }
+    }
+    
+    private void markHandled(OutboxSubscriber<?> subscriber, OutboxMessage<?> message) {
+        handled.put(handledKey(subscriber, message.idempotencyKey()), Boolean.TRUE);
+        meterRegistry.counter("outbox.messages", "subscriber", subscriber.name(), "outcome", "delivered").increment();
+    }
+    
+    private static String handledKey(OutboxSubscriber<?> subscriber, String idempotencyKey) {
+        return subscriber.name() + '|' + idempotencyKey;
+    }
+    
+    private void purge() {
+        try {
+            int purged = jdbcTemplate.update(PURGE_SQL, Timestamp.valueOf(LocalDateTime.now().minusHours(retentionHours)));
+            if (purged > 0) {
+                log.debug("Purged {} delivered outbox events", purged);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Outbox purge failed", e);
+        }
+    }
+    
+    private String claimSql() {
+        String sql = claimSql;
+        if (sql == null) {
+            // Other relays skip the rows this one holds instead of waiting for them
+            Boolean postgres = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> connection.isWrapperFor(PGConnection.class));
+            claimSql = sql = Boolean.TRUE.equals(postgres) ? CLAIM_SQL + " SKIP LOCKED" : CLAIM_SQL;
+        }
+        return sql;
+    }
+    
+    private record Row(long id, String idempotencyKey, String eventType, String aggregateType, long aggregateId,
+                       String payload, int attempts, LocalDateTime createdAt) {
+    }
+}
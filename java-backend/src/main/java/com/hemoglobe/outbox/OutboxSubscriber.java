@@ -0,0 +1,19 @@
+package com.hemoglobe.outbox;
+
+import java.util.List;
+
+/**
+ * In-process consumer of one outbox event type, called on the relay thread with batches in outbox order. Throwing
+ * fails the batch: the relay then retries the messages one by one and redelivers those that still fail later.
+ */
+public interface OutboxSubscriber<T> {
+    
+    /** Stable name, used for metrics and to skip messages this subscriber already handled. */
+    String name();
+    
+    String eventType();
+    
+    Class<T> payloadType();
+    
+    void deliver(List<OutboxMessage<T>> messages);
+}
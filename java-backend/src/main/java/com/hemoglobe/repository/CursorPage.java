@@ -0,0 +1,50 @@
+package com.hemoglobe.repository;
+
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * One page of a keyset-paginated result. {@code nextCursor} is null on the last page.
+ */
+public record CursorPage<T>(List<T> items, Long nextCursor) {
+    
+    public <R> CursorPage<R> map(Function<? super T, ? extends R> mapper) {
+        return new CursorPage<>(items.stream().<R>map(mapper).toList(), nextCursor);
+    }
+    
+    /**
+     * Cut one page out of an in-memory list already sorted by ascending id.
+     */
+    public static <T> CursorPage<T> slice(List<T> sortedById, ToLongFunction<? super T> id, KeysetPage page) {
+        int size = sortedById.size();
+        // Index of the first row after the cursor in ascending order
+        int low = 0;
+        int high = size;
+        if (page.cursor() != null) {
+            boolean descending = page.direction() == Sort.Direction.DESC;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                long value = id.applyAsLong(sortedById.get(mid));
+                if (value < page.cursor() || (!descending && value == page.cursor())) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+        }
+        
+        if (page.direction() == Sort.Direction.DESC) {
+            int end = page.cursor() != null ? low : size;
+            int start = Math.max(0, end - page.limit());
+            List<T> items = new ArrayList<>(sortedById.subList(start, end)).reversed();
+            return new CursorPage<>(List.copyOf(items), start > 0 ? id.applyAsLong(items.getLast()) : null);
+        }
+        int end = Math.min(size, low + page.limit());
+        List<T> items = sortedById.subList(low, end);
+        return new CursorPage<>(List.copyOf(items), end < size ? id.applyAsLong(items.getLast()) : null);
+    }
+}
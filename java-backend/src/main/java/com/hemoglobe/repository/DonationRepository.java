@@ -1,15 +1,21 @@
 package com.hemoglobe.repository;
 
 import com.hemoglobe.entity.Donation;
-import org.springframework.data.jpa.repository.JpaRepository;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 @Repository
-public interface DonationRepository extends JpaRepository<Donation, Long> {
+public interface DonationRepository extends KeysetRepository<Donation> {
     
     List<Donation> findByDonorId(Long donorId);
     
@@ -21,12 +27,33 @@ public interface DonationRepository extends JpaRepository<Donation, Long> {
     
     List<Donation> findByUrgency(String urgency);
     
-    @Query("SELECT d FROM Donation d WHERE d.donor.id = :userId OR d.seeker.id = :userId")
+    @Query(value = "SELECT * FROM donations WHERE donor_id = :userId UNION SELECT * FROM donations WHERE seeker_id = :userId", nativeQuery = true)
     List<Donation> findDonationsByUserId(@Param("userId") Long userId);
     
+    /**
+     * Keyset page of ids of the user's donations, as a UNION of two index range scans rather than an OR over
+     * donor_id and seeker_id. Ids come back as whatever integer type the driver maps the column to.
+     */
+    @Query(value = "SELECT id FROM ((SELECT id FROM donations WHERE donor_id = :userId AND id > :after ORDER BY id LIMIT :limit) " +
+                   "UNION (SELECT id FROM donations WHERE seeker_id = :userId AND id > :after ORDER BY id LIMIT :limit)) ids " +
+                   "ORDER BY id LIMIT :limit", nativeQuery = true)
+    List<Number> findIdsByUserAfter(@Param("userId") Long userId, @Param("after") long after, @Param("limit") int limit);
+    
+    @Query(value = "SELECT id FROM ((SELECT id FROM donations WHERE donor_id = :userId AND id < :before ORDER BY id DESC LIMIT :limit) " +
+                   "UNION (SELECT id FROM donations WHERE seeker_id = :userId AND id < :before ORDER BY id DESC LIMIT :limit)) ids " +
+                   "ORDER BY id DESC LIMIT :limit", nativeQuery = true)
+    List<Number> findIdsByUserBefore(@Param("userId") Long userId, @Param("before") long before, @Param("limit") int limit);
+    
     @Query("SELECT d FROM Donation d WHERE d.bloodGroup = :bloodGroup AND d.status = :status")
     List<Donation> findByBloodGroupAndStatus(@Param("bloodGroup") String bloodGroup, @Param("status") String status);
     
     @Query("SELECT d FROM Donation d WHERE d.urgency = 'critical' AND d.status = 'pending'")
     List<Donation> findCriticalPendingDonations();
+    
+    @Query("SELECT d FROM Donation d LEFT JOIN FETCH d.donor LEFT JOIN FETCH d.seeker WHERE d.id = :id")
+    Optional<Donation> findWithUsersById(@Param("id") Long id);
+    
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("SELECT d FROM Donation d LEFT JOIN FETCH d.donor LEFT JOIN FETCH d.seeker ORDER BY d.id")
+    Stream<Donation> streamAllWithUsers();
 }
\ No newline at end of file
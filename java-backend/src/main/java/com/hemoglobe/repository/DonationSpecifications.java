@@ -0,0 +1,50 @@
+package com.hemoglobe.repository;
+
+import com.hemoglobe.entity.Donation;
+import jakarta.persistence.criteria.JoinType;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Filters for keyset-paginated donation queries.
+ */
+public final class DonationSpecifications {
+    
+    private DonationSpecifications() {}
+    
+    /**
+     * Fetch-join donor and seeker so a page of donations loads in a single select.
+     */
+    public static Specification<Donation> fetchUsers() {
+        return (root, query, cb) -> {
+            if (query.getResultType() != Long.class && query.getResultType() != long.class) {
+                root.fetch("donor", JoinType.LEFT);
+                root.fetch("seeker", JoinType.LEFT);
+            }
+            return null;
+        };
+    }
+    
+    public static Specification<Donation> byDonor(Long donorId) {
+        return (root, query, cb) -> cb.equal(root.get("donor").get("id"), donorId);
+    }
+    
+    public static Specification<Donation> bySeeker(Long seekerId) {
+        return (root, query, cb) -> cb.equal(root.get("seeker").get("id"), seekerId);
+    }
+    
+    public static Specification<Donation> byBloodGroup(String bloodGroup) {
+        return (root, query, cb) -> cb.equal(root.get("bloodGroup"), bloodGroup);
+    }
+    
+    public static Specification<Donation> byStatus(String status) {
+        return (root, query, cb) -> cb.equal(root.get("status"), status);
+    }
+    
+    public static Specification<Donation> byUrgency(String urgency) {
+        return (root, query, cb) -> cb.equal(root.get("urgency"), urgency);
+    }
+    
+    public static Specification<Donation> criticalPending() {
+        return byUrgency("critical").and(byStatus("pending"));
+    }
+}
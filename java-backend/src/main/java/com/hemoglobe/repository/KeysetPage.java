@@ -0,0 +1,22 @@
+package com.hemoglobe.repository;
+
+import org.springframework.data.domain.Sort;
+
+/**
+ * Seek-pagination request: rows strictly after {@code cursor} in id order, at most {@code limit} of them.
+ * A null cursor starts from the first row in the requested direction.
+ */
+public record KeysetPage(Long cursor, int limit, Sort.Direction direction) {
+    
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 500;
+    
+    public KeysetPage {
+        limit = Math.max(1, Math.min(limit, MAX_LIMIT));
+        direction = direction != null ? direction : Sort.Direction.ASC;
+    }
+    
+    public static KeysetPage first(int limit) {
+        return new KeysetPage(null, limit, Sort.Direction.ASC);
+    }
+}
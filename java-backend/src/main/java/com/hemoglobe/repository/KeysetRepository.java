@@ -0,0 +1,27 @@
+package com.hemoglobe.repository;
+
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.repository.NoRepositoryBean;
+
+import java.util.List;
+
+/**
+ * Base repository adding keyset pagination over the numeric primary key.
+ */
+@NoRepositoryBean
+public interface KeysetRepository<T> extends JpaRepository<T, Long>, JpaSpecificationExecutor<T> {
+    
+    /**
+     * Rows matching {@code spec} that follow the page cursor, ordered by id in the page direction.
+     * Runs a single query without a count.
+     */
+    CursorPage<T> findPage(Specification<T> spec, KeysetPage page);
+    
+    /**
+     * Build a page from ids already selected by a keyset query of {@code page.limit() + 1} rows, loading the rows
+     * with {@code spec} applied (typically fetch joins). Rows keep the order of {@code ids}, which need not be by id.
+     */
+    CursorPage<T> findPageByIds(List<? extends Number> ids, KeysetPage page, Specification<T> spec);
+}
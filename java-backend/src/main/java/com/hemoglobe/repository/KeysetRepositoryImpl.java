@@ -0,0 +1,96 @@
+package com.hemoglobe.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.support.JpaEntityInformation;
+import org.springframework.data.jpa.repository.support.SimpleJpaRepository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class KeysetRepositoryImpl<T> extends SimpleJpaRepository<T, Long> implements KeysetRepository<T> {
+    
+    private final JpaEntityInformation<T, ?> entityInformation;
+    private final EntityManager entityManager;
+    
+    public KeysetRepositoryImpl(JpaEntityInformation<T, ?> entityInformation, EntityManager entityManager) {
+        super(entityInformation, entityManager);
+        this.entityInformation = entityInformation;
+        this.entityManager = entityManager;
+    }
+    
+    @Override
+    public CursorPage<T> findPage(Specification<T> spec, KeysetPage page) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> query = cb.createQuery(getDomainClass());
+        Root<T> root = query.from(getDomainClass());
+        Path<Long> id = root.get(entityInformation.getIdAttribute().getName());
+        boolean ascending = page.direction() == Sort.Direction.ASC;
+        
+        List<Predicate> predicates = new ArrayList<>(2);
+        if (spec != null) {
+            Predicate predicate = spec.toPredicate(root, query, cb);
+            if (predicate != null) {
+                predicates.add(predicate);
+            }
+        }
+        if (page.cursor() != null) {
+            predicates.add(ascending ? cb.gt(id, page.cursor()) : cb.lt(id, page.cursor()));
+        }
+        query.select(root)
+                .where(predicates.toArray(Predicate[]::new))
+                .orderBy(ascending ? cb.asc(id) : cb.desc(id));
+        
+        // Fetch one extra row to learn whether another page exists
+        List<T> rows = entityManager.createQuery(query)
+                .setMaxResults(page.limit() + 1)
+                .getResultList();
+        if (rows.size() <= page.limit()) {
+            return new CursorPage<>(rows, null);
+        }
+        List<T> items = rows.subList(0, page.limit());
+        Long nextCursor = (Long) entityInformation.getId(items.get(items.size() - 1));
+        return new CursorPage<>(items, nextCursor);
+    }
+    
+    @Override
+    public CursorPage<T> findPageByIds(List<? extends Number> ids, KeysetPage page, Specification<T> spec) {
+        if (ids.isEmpty()) {
+            return new CursorPage<>(List.of(), null);
+        }
+        boolean hasMore = ids.size() > page.limit();
+        List<Long> pageIds = ids.stream().limit(page.limit()).map(Number::longValue).toList();
+        
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> query = cb.createQuery(getDomainClass());
+        Root<T> root = query.from(getDomainClass());
+        Path<Long> id = root.get(entityInformation.getIdAttribute().getName());
+        
+        List<Predicate> predicates = new ArrayList<>(2);
+        predicates.add(id.in(pageIds));
+        if (spec != null) {
+            Predicate predicate = spec.toPredicate(root, query, cb);
+            if (predicate != null) {
+                predicates.add(predicate);
+            }
+        }
+        query.select(root).where(predicates.toArray(Predicate[]::new));
+        
+        Map<Long, Integer> positions = new HashMap<>(pageIds.size() * 2);
+        for (int i = 0; i < pageIds.size(); i++) {
+            positions.put(pageIds.get(i), i);
+        }
+        List<T> items = new ArrayList<>(entityManager.createQuery(query).getResultList());
+        items.sort(Comparator.comparingInt(row -> positions.get((Long) entityInformation.getId(row))));
+        return new CursorPage<>(items, hasMore ? pageIds.get(pageIds.size() - 1) : null);
+    }
+}
@@ -1,15 +1,23 @@
 package com.hemoglobe.repository;
 
 import com.hemoglobe.entity.Match;
-import org.springframework.data.jpa.repository.JpaRepository;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 @Repository
-public interface MatchRepository extends JpaRepository<Match, Long> {
+public interface MatchRepository extends KeysetRepository<Match> {
     
     List<Match> findByDonorId(Long donorId);
     
@@ -19,15 +27,69 @@ public interface MatchRepository extends JpaRepository<Match, Long> {
     
     List<Match> findByStatus(String status);
     
-    @Query("SELECT m FROM Match m WHERE m.donor.id = :userId OR m.seeker.id = :userId")
+    @Query(value = "SELECT * FROM matches WHERE donor_id = :userId UNION SELECT * FROM matches WHERE seeker_id = :userId", nativeQuery = true)
     List<Match> findMatchesByUserId(@Param("userId") Long userId);
     
+    /**
+     * Keyset page of ids of the user's matches, as a UNION of two index range scans rather than an OR over
+     * donor_id and seeker_id. Ids come back as whatever integer type the driver maps the column to.
+     */
+    @Query(value = "SELECT id FROM ((SELECT id FROM matches WHERE donor_id = :userId AND id > :after ORDER BY id LIMIT :limit) " +
+                   "UNION (SELECT id FROM matches WHERE seeker_id = :userId AND id > :after ORDER BY id LIMIT :limit)) ids " +
+                   "ORDER BY id LIMIT :limit", nativeQuery = true)
+    List<Number> findIdsByUserAfter(@Param("userId") Long userId, @Param("after") long after, @Param("limit") int limit);
+    
+    @Query(value = "SELECT id FROM ((SELECT id FROM matches WHERE donor_id = :userId AND id < :before ORDER BY id DESC LIMIT :limit) " +
+                   "UNION (SELECT id FROM matches WHERE seeker_id = :userId AND id < :before ORDER BY id DESC LIMIT :limit)) ids " +
+                   "ORDER BY id DESC LIMIT :limit", nativeQuery = true)
+    List<Number> findIdsByUserBefore(@Param("userId") Long userId, @Param("before") long before, @Param("limit") int limit);
+    
     @Query("SELECT m FROM Match m WHERE m.bloodGroup = :bloodGroup AND m.status = 'pending'")
     List<Match> findPendingMatchesByBloodGroup(@Param("bloodGroup") String bloodGroup);
     
     @Query("SELECT m FROM Match m WHERE m.compatibilityScore >= :minScore ORDER BY m.compatibilityScore DESC")
     List<Match> findHighCompatibilityMatches(@Param("minScore") Integer minScore);
     
+    /**
+     * Ids of matches scoring at least {@code minScore}, best first (ties by id), that follow the match at
+     * ({@code afterScore}, {@code afterId}). Walks {@code idx_matches_compatibility}.
+     */
+    @Query(value = "SELECT id FROM matches WHERE compatibility_score >= :minScore AND (compatibility_score < :afterScore " +
+                   "OR (compatibility_score = :afterScore AND id > :afterId)) ORDER BY compatibility_score DESC, id LIMIT :limit",
+           nativeQuery = true)
+    List<Number> findIdsByScoreAfter(@Param("minScore") int minScore, @Param("afterScore") int afterScore,
+                                     @Param("afterId") long afterId, @Param("limit") int limit);
+    
+    /**
+     * The same walk in reverse, worst first, from the match at ({@code beforeScore}, {@code beforeId}).
+     */
+    @Query(value = "SELECT id FROM matches WHERE compatibility_score >= :minScore AND (compatibility_score > :beforeScore " +
+                   "OR (compatibility_score = :beforeScore AND id < :beforeId)) ORDER BY compatibility_score, id DESC LIMIT :limit",
+           nativeQuery = true)
+    List<Number> findIdsByScoreBefore(@Param("minScore") int minScore, @Param("beforeScore") int beforeScore,
+                                      @Param("beforeId") long beforeId, @Param("limit") int limit);
+    
+    @Query("SELECT m.compatibilityScore FROM Match m WHERE m.id = :id")
+    Optional<Integer> findCompatibilityScoreById(@Param("id") Long id);
+    
     @Query("SELECT m FROM Match m WHERE m.donor.location LIKE %:location% AND m.seeker.location LIKE %:location% AND m.status = 'pending'")
     List<Match> findPendingMatchesByLocation(@Param("location") String location);
+    
+    @Query("SELECT m FROM Match m LEFT JOIN FETCH m.donor LEFT JOIN FETCH m.seeker WHERE m.id = :id")
+    Optional<Match> findWithUsersById(@Param("id") Long id);
+    
+    /**
+     * Compare-and-set from pending to {@code status} by the match's donor: the row is only written if it is still
+     * pending when the UPDATE reaches it, so concurrent claims serialise on the row and all but one update nothing.
+     * Returns the rows updated.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Match m SET m.status = :status, m.updatedAt = :now, m.version = m.version + 1 " +
+           "WHERE m.id = :id AND m.donor.id = :donorId AND m.status = 'pending'")
+    int claimPending(@Param("id") Long id, @Param("donorId") Long donorId, @Param("status") String status,
+                     @Param("now") LocalDateTime now);
+    
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("SELECT m FROM Match m LEFT JOIN FETCH m.donor LEFT JOIN FETCH m.seeker ORDER BY m.id")
+    Stream<Match> streamAllWithUsers();
 }
\ No newline at end of file
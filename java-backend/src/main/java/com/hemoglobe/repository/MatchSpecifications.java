@@ -0,0 +1,49 @@
+package com.hemoglobe.repository;
+
+import com.hemoglobe.entity.Match;
+import jakarta.persistence.criteria.JoinType;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Filters for keyset-paginated match queries.
+ */
+public final class MatchSpecifications {
+    
+    private MatchSpecifications() {}
+    
+    /**
+     * Fetch-join donor and seeker so a page of matches loads in a single select.
+     */
+    public static Specification<Match> fetchUsers() {
+        return (root, query, cb) -> {
+            if (query.getResultType() != Long.class && query.getResultType() != long.class) {
+                root.fetch("donor", JoinType.LEFT);
+                root.fetch("seeker", JoinType.LEFT);
+            }
+            return null;
+        };
+    }
+    
+    public static Specification<Match> byDonor(Long donorId) {
+        return (root, query, cb) -> cb.equal(root.get("donor").get("id"), donorId);
+    }
+    
+    public static Specification<Match> bySeeker(Long seekerId) {
+        return (root, query, cb) -> cb.equal(root.get("seeker").get("id"), seekerId);
+    }
+    
+    public static Specification<Match> byBloodGroup(String bloodGroup) {
+        return (root, query, cb) -> cb.equal(root.get("bloodGroup"), bloodGroup);
+    }
+    
+    public static Specification<Match> byStatus(String status) {
+        return (root, query, cb) -> cb.equal(root.get("status"), status);
+    }
+    
+    public static Specification<Match> pendingAtLocation(String location) {
+        return (root, query, cb) -> cb.and(
+                cb.like(root.get("donor").get("location"), "%" + location + "%"),
+                cb.like(root.get("seeker").get("location"), "%" + location + "%"),
+                cb.equal(root.get("status"), "pending"));
+    }
+}
@@ -1,16 +1,24 @@
 package com.hemoglobe.repository;
 
 import com.hemoglobe.entity.User;
-import org.springframework.data.jpa.repository.JpaRepository;
+import com.hemoglobe.geo.DonorLocation;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends KeysetRepository<User> {
     
     Optional<User> findByEmail(String email);
     
@@ -21,8 +29,31 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Query("SELECT u FROM User u WHERE u.bloodGroup = :bloodGroup AND u.userType = :userType AND u.isAvailable = true")
     List<User> findAvailableUsersByBloodGroupAndType(@Param("bloodGroup") String bloodGroup, @Param("userType") String userType);
     
+    @Query("SELECT u FROM User u WHERE u.bloodGroup IN :bloodGroups AND u.userType = :userType AND u.isAvailable = true")
+    List<User> findAvailableUsersByBloodGroupsAndType(@Param("bloodGroups") Collection<String> bloodGroups, @Param("userType") String userType);
+    
+    /**
+     * Matching candidates: available donors of the given groups that are not deferred at {@code now}.
+     */
+    @Query("SELECT u FROM User u WHERE u.bloodGroup IN :bloodGroups AND u.userType = 'donor' AND u.isAvailable = true " +
+           "AND (u.nextEligibleAt IS NULL OR u.nextEligibleAt <= :now)")
+    List<User> findEligibleDonorsByBloodGroups(@Param("bloodGroups") Collection<String> bloodGroups, @Param("now") LocalDateTime now);
+    
     @Query("SELECT u FROM User u WHERE u.location LIKE %:location% AND u.userType = :userType AND u.isAvailable = true")
     List<User> findAvailableUsersByLocationAndType(@Param("location") String location, @Param("userType") String userType);
     
+    /**
+     * Located available donors with their next eligible time, leaving out those deferred until {@code until} or later.
+     */
+    @Query("SELECT u.id AS id, u.bloodGroup AS bloodGroup, u.latitude AS latitude, u.longitude AS longitude, " +
+           "u.nextEligibleAt AS nextEligibleAt FROM User u " +
+           "WHERE u.userType = 'donor' AND u.isAvailable = true AND u.latitude IS NOT NULL AND u.longitude IS NOT NULL " +
+           "AND (u.nextEligibleAt IS NULL OR u.nextEligibleAt < :until)")
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    Stream<DonorLocation> streamAvailableDonorLocations(@Param("until") LocalDateTime until);
+    
     boolean existsByEmail(String email);
+    
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    Stream<User> streamAllByOrderByIdAsc();
 }
\ No newline at end of file
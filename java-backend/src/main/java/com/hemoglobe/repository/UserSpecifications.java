@@ -0,0 +1,28 @@
+package com.hemoglobe.repository;
+
+import com.hemoglobe.entity.User;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Locale;
+
+/**
+ * Filters for keyset-paginated user queries.
+ */
+public final class UserSpecifications {
+    
+    private UserSpecifications() {}
+    
+    public static Specification<User> availableByBloodGroupAndType(String bloodGroup, String userType) {
+        return (root, query, cb) -> cb.and(
+                cb.equal(root.get("bloodGroup"), bloodGroup),
+                cb.equal(root.get("userType"), userType),
+                cb.isTrue(root.get("isAvailable")));
+    }
+    
+    public static Specification<User> availableByLocationAndType(String location, String userType) {
+        return (root, query, cb) -> cb.and(
+                cb.like(cb.lower(root.get("location")), "%" + location.toLowerCase(Locale.ROOT) + "%"),
+                cb.equal(root.get("userType"), userType),
+                cb.isTrue(root.get("isAvailable")));
+    }
+}
@@ -0,0 +1,28 @@
+package com.hemoglobe.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The authenticated user as carried in a verified token, so requests are authorized without loading the user.
+ * {@code admin} is granted from the configured administrator emails, never from the token's claims.
+ */
+public record JwtPrincipal(long userId, String email, String userType, boolean admin, Instant expiresAt) {
+    
+    public static final String ROLE_ADMIN = "ROLE_ADMIN";
+    
+    public List<GrantedAuthority> authorities() {
+        List<GrantedAuthority> authorities = new ArrayList<>(2);
+        if (userType != null) {
+            authorities.add(new SimpleGrantedAuthority("ROLE_" + userType.toUpperCase()));
+        }
+        if (admin) {
+            authorities.add(new SimpleGrantedAuthority(ROLE_ADMIN));
+        }
+        return authorities;
+    }
+}
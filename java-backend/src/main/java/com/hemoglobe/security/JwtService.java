@@ -0,0 +1,135 @@
+package com.hemoglobe.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.hemoglobe.entity.User;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Issues and verifies HS256-signed access tokens.
+ * <p>
+ * The signing key and parser are built once. Verified tokens are cached until they expire (bounded by
+ * {@code jwt.cache-size}, 0 disables it), so a client repeating its token costs one cache lookup instead of a
+ * signature check and JSON parse. Only successfully verified tokens are cached; verification never touches the
+ * database. Tokens of the {@code security.admin-emails} users carry the admin role.
+ */
+@Component
+public class JwtService {
+    
+    private static final String EMAIL = "email";
+    private static final String USER_TYPE = "type";
+    
+    private final SecretKey key;
+    private final JwtParser parser;
+    private final Duration expiration;
+    private final Clock clock;
+    private final Cache<String, JwtPrincipal> verified;
+    private final Set<String> adminEmails;
+    
+    @Autowired
+    public JwtService(@Value("${jwt.secret}") String secret,
+                      @Value("${jwt.expiration:86400000}") long expirationMillis,
+                      @Value("${jwt.cache-size:10000}") long cacheSize,
+                      @Value("${security.admin-emails:}") List<String> adminEmails) {
+        this(secret, Duration.ofMillis(expirationMillis), cacheSize, Clock.systemUTC(), adminEmails);
+    }
+    
+    public JwtService(String secret, Duration expiration, long cacheSize, Clock clock, List<String> adminEmails) {
+        byte[] secretBytes = secret.getBytes(StandardCharsets.UTF_8);
+        if (secretBytes.length < 32) {
+            throw new IllegalStateException("jwt.secret (JWT_SECRET) must be at least 32 bytes");
+        }
+        this.key = Keys.hmacShaKeyFor(secretBytes);
+        this.parser = Jwts.parser()
+                .verifyWith(key)
+                .clock(() -> Date.from(clock.instant()))
+                .build();
+        this.expiration = expiration;
+        this.clock = clock;
+        this.adminEmails = adminEmails.stream()
+                .map(email -> email.trim().toLowerCase(Locale.ROOT))
+                .filter(email -> !email.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+        this.verified = cacheSize <= 0 ? null : Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfter(new Expiry<String, JwtPrincipal>() {
+                    @Override
+                    public long expireAfterCreate(String token, JwtPrincipal principal, long currentTime) {
+                        return Math.max(0, Duration.between(clock.instant(), principal.expiresAt()).toNanos());
+                    }
+                    
+                    @Override
+                    public long expireAfterUpdate(String token, JwtPrincipal principal, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                    
+                    @Override
+                    public long expireAfterRead(String token, JwtPrincipal principal, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+    
+    /**
+     * A signed token for the user, valid for {@code jwt.expiration}.
+     */
+    public String issue(User user) {
+        Instant now = clock.instant();
+        return Jwts.builder()
+                .subject(String.valueOf(user.getId()))
+                .claim(EMAIL, user.getEmail())
+                .claim(USER_TYPE, user.getUserType())
+                .issuedAt(Date.from(now))
+                .expiration(Date.from(now.plus(expiration)))
+                .signWith(key)
+                .compact();
+    }
+    
+    /**
+     * The principal of a validly signed, unexpired token, or empty.
+     */
+    public Optional<JwtPrincipal> verify(String token) {
+        JwtPrincipal principal = verified != null ? verified.getIfPresent(token) : null;
+        if (principal != null) {
+            return Optional.of(principal);
+        }
+        try {
+            Claims claims = parser.parseSignedClaims(token).getPayload();
+            if (claims.getSubject() == null || claims.getExpiration() == null) {
+                return Optional.empty();
+            }
+            String email = claims.get(EMAIL, String.class);
+            boolean admin = email != null && adminEmails.contains(email.toLowerCase(Locale.ROOT));
+            principal = new JwtPrincipal(Long.parseLong(claims.getSubject()), email,
+                    claims.get(USER_TYPE, String.class), admin, claims.getExpiration().toInstant());
+        } catch (JwtException | IllegalArgumentException e) {
+            // malformed, forged or expired; not cached
+            return Optional.empty();
+        }
+        if (verified != null) {
+            verified.put(token, principal);
+        }
+        return Optional.of(principal);
+    }
+}
@@ -1,76 +1,235 @@
 package com.hemoglobe.service;
 
+import com.hemoglobe.analytics.DonationChangedEvent;
+import com.hemoglobe.dto.DonationView;
 import com.hemoglobe.entity.Donation;
+import com.hemoglobe.entity.User;
+import com.hemoglobe.feed.StatusChangedEvent;
+import com.hemoglobe.feed.StatusDelta;
+import com.hemoglobe.geo.Gazetteer;
+import com.hemoglobe.httpcache.ChangeCounters;
+import com.hemoglobe.httpcache.ChangeCounters.Table;
+import com.hemoglobe.matching.UserChangedEvent;
+import com.hemoglobe.outbox.Outbox;
+import com.hemoglobe.repository.CursorPage;
 import com.hemoglobe.repository.DonationRepository;
+import com.hemoglobe.repository.DonationSpecifications;
+import com.hemoglobe.repository.KeysetPage;
+import com.hemoglobe.repository.UserRepository;
+import com.hemoglobe.sos.CriticalDonationEvent;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
+@Timed(value = "service.calls", histogram = true)
 public class DonationService {
     
     @Autowired
     private DonationRepository donationRepository;
     
-    public List<Donation> getAllDonations() {
-        return donationRepository.findAll();
+    @Autowired
+    private UserRepository userRepository;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    private static final int EXPORT_BATCH_SIZE = 500;
+    
+    @Autowired
+    private Gazetteer gazetteer;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private Outbox outbox;
+    
+    @Autowired
+    private ChangeCounters changeCounters;
+    
+    @Autowired
+    private UserService userService;
+    
+    public CursorPage<DonationView> getAllDonations(KeysetPage page) {
+        return findPage(null, page);
     }
     
-    public Optional<Donation> getDonationById(Long id) {
-        return donationRepository.findById(id);
+    /**
+     * Stream every donation to {@code sink} in id order inside one read-only transaction,
+     * clearing the persistence context every batch so memory stays constant
+     */
+    @Transactional(readOnly = true)
+    public void exportDonations(Consumer<DonationView> sink) {
+        try (Stream<Donation> donations = donationRepository.streamAllWithUsers()) {
+            int[] rows = {0};
+            donations.forEach(donation -> {
+                sink.accept(DonationView.from(donation));
+                if (++rows[0] % EXPORT_BATCH_SIZE == 0) {
+                    entityManager.clear();
+                }
+            });
+        }
     }
     
-    public Donation createDonation(Donation donation) {
-        return donationRepository.save(donation);
+    public Optional<DonationView> getDonationById(Long id) {
+        return donationRepository.findWithUsersById(id).map(DonationView::from);
     }
     
-    public Donation updateDonation(Long id, Donation donationDetails) {
-        Donation donation = donationRepository.findById(id)
+    @Transactional
+    public DonationView createDonation(Donation donation) {
+        donation.setDonor(reference(donation.getDonor()));
+        donation.setSeeker(reference(donation.getSeeker()));
+        if (donation.getLatitude() == null || donation.getLongitude() == null) {
+            geocode(donation);
+        }
+        Donation savedDonation = donationRepository.save(donation);
+        changeCounters.changed(Table.DONATIONS);
+        if (isCriticalPending(savedDonation)) {
+            publishCritical(savedDonation);
+            seekerUrgencyChanged(savedDonation);
+        }
+        eventPublisher.publishEvent(new DonationChangedEvent(savedDonation.getId()));
+        return DonationView.from(savedDonation);
+    }
+    
+    /**
+     * Overwrite a donation, only if it is still at {@code expectedVersion} when one is given (If-Match)
+     */
+    @Transactional
+    public DonationView updateDonation(Long id, Donation donationDetails, Long expectedVersion) {
+        Donation donation = donationRepository.findWithUsersById(id)
                 .orElseThrow(() -> new RuntimeException("Donation not found"));
+        if (expectedVersion != null && !expectedVersion.equals(donation.getVersion())) {
+            throw new PreconditionFailedException("Donation " + id + " is at version " + donation.getVersion());
+        }
+        
+        boolean locationChanged = !Objects.equals(donation.getLocation(), donationDetails.getLocation());
+        boolean wasCriticalPending = isCriticalPending(donation);
+        String previousStatus = donation.getStatus();
         
         donation.setBloodGroup(donationDetails.getBloodGroup());
         donation.setAmount(donationDetails.getAmount());
         donation.setDonationType(donationDetails.getDonationType());
         donation.setLocation(donationDetails.getLocation());
+        if (donationDetails.getLatitude() != null && donationDetails.getLongitude() != null) {
+            donation.setLatitude(donationDetails.getLatitude());
+            donation.setLongitude(donationDetails.getLongitude());
+        } else if (locationChanged || donation.getLatitude() == null) {
+            donation.setLatitude(null);
+            donation.setLongitude(null);
+            geocode(donation);
+        }
         donation.setStatus(donationDetails.getStatus());
         donation.setUrgency(donationDetails.getUrgency());
         donation.setScheduledDate(donationDetails.getScheduledDate());
         donation.setCompletedDate(donationDetails.getCompletedDate());
         
-        return donationRepository.save(donation);
+        Donation savedDonation = donationRepository.saveAndFlush(donation);
+        changeCounters.changed(Table.DONATIONS);
+        if (!wasCriticalPending && isCriticalPending(savedDonation)) {
+            publishCritical(savedDonation);
+        }
+        if (wasCriticalPending != isCriticalPending(savedDonation)) {
+            seekerUrgencyChanged(savedDonation);
+        }
+        if ("completed".equals(savedDonation.getStatus()) && !"completed".equals(previousStatus)
+                && savedDonation.getDonor() != null) {
+            LocalDateTime donatedAt = savedDonation.getCompletedDate() != null ? savedDonation.getCompletedDate() : LocalDateTime.now();
+            userService.recordDonation(savedDonation.getDonor().getId(), savedDonation.getDonationType(), donatedAt);
+        }
+        outbox.append(StatusChangedEvent.TYPE, "donation", savedDonation.getId(), new StatusChangedEvent(
+                savedDonation.getDonor() != null ? savedDonation.getDonor().getId() : null,
+                savedDonation.getSeeker() != null ? savedDonation.getSeeker().getId() : null,
+                new StatusDelta("donation", savedDonation.getId(), savedDonation.getStatus(), previousStatus,
+                        savedDonation.getCreatedAt(), savedDonation.getUpdatedAt())));
+        eventPublisher.publishEvent(new DonationChangedEvent(savedDonation.getId()));
+        return DonationView.from(savedDonation);
     }
     
     public void deleteDonation(Long id) {
         donationRepository.deleteById(id);
+        changeCounters.changed(Table.DONATIONS);
+        eventPublisher.publishEvent(new DonationChangedEvent(id));
+    }
+    
+    public CursorPage<DonationView> getDonationsByDonor(Long donorId, KeysetPage page) {
+        return findPage(DonationSpecifications.byDonor(donorId), page);
+    }
+    
+    public CursorPage<DonationView> getDonationsBySeeker(Long seekerId, KeysetPage page) {
+        return findPage(DonationSpecifications.bySeeker(seekerId), page);
+    }
+    
+    public CursorPage<DonationView> getDonationsByBloodGroup(String bloodGroup, KeysetPage page) {
+        return findPage(DonationSpecifications.byBloodGroup(bloodGroup), page);
+    }
+    
+    public CursorPage<DonationView> getDonationsByStatus(String status, KeysetPage page) {
+        return findPage(DonationSpecifications.byStatus(status), page);
+    }
+    
+    public CursorPage<DonationView> getDonationsByUrgency(String urgency, KeysetPage page) {
+        return findPage(DonationSpecifications.byUrgency(urgency), page);
+    }
+    
+    public CursorPage<DonationView> getCriticalPendingDonations(KeysetPage page) {
+        return findPage(DonationSpecifications.criticalPending(), page);
     }
     
-    public List<Donation> getDonationsByDonor(Long donorId) {
-        return donationRepository.findByDonorId(donorId);
+    public CursorPage<DonationView> getDonationsByUserId(Long userId, KeysetPage page) {
+        List<Number> ids = page.direction() == Sort.Direction.ASC
+                ? donationRepository.findIdsByUserAfter(userId, page.cursor() != null ? page.cursor() : 0L, page.limit() + 1)
+                : donationRepository.findIdsByUserBefore(userId, page.cursor() != null ? page.cursor() : Long.MAX_VALUE, page.limit() + 1);
+        return donationRepository.findPageByIds(ids, page, DonationSpecifications.fetchUsers()).map(DonationView::from);
     }
     
-    public List<Donation> getDonationsBySeeker(Long seekerId) {
-        return donationRepository.findBySeekerId(seekerId);
+    private CursorPage<DonationView> findPage(Specification<Donation> spec, KeysetPage page) {
+        return donationRepository.findPage(DonationSpecifications.fetchUsers().and(spec), page).map(DonationView::from);
     }
     
-    public List<Donation> getDonationsByBloodGroup(String bloodGroup) {
-        return donationRepository.findByBloodGroup(bloodGroup);
+    private static boolean isCriticalPending(Donation donation) {
+        return "critical".equals(donation.getUrgency()) && "pending".equals(donation.getStatus());
     }
     
-    public List<Donation> getDonationsByStatus(String status) {
-        return donationRepository.findByStatus(status);
+    /**
+     * Hand the donation to the SOS pipeline; the listener runs only once the surrounding transaction commits.
+     */
+    private void publishCritical(Donation donation) {
+        eventPublisher.publishEvent(new CriticalDonationEvent(donation.getId(), donation.getBloodGroup(),
+                donation.getDonationType(), donation.getLatitude(), donation.getLongitude(), System.nanoTime()));
     }
     
-    public List<Donation> getDonationsByUrgency(String urgency) {
-        return donationRepository.findByUrgency(urgency);
+    /**
+     * Critical requests raise the seeker's match scores, so the seeker is re-matched.
+     */
+    private void seekerUrgencyChanged(Donation donation) {
+        if (donation.getSeeker() != null) {
+            eventPublisher.publishEvent(UserChangedEvent.of(donation.getSeeker().getId()));
+        }
     }
     
-    public List<Donation> getCriticalPendingDonations() {
-        return donationRepository.findCriticalPendingDonations();
+    private User reference(User user) {
+        return user != null && user.getId() != null ? userRepository.getReferenceById(user.getId()) : null;
     }
     
-    public List<Donation> getDonationsByUserId(Long userId) {
-        return donationRepository.findDonationsByUserId(userId);
+    private void geocode(Donation donation) {
+        gazetteer.lookup(donation.getLocation()).ifPresent(point -> {
+            donation.setLatitude(point.latitude());
+            donation.setLongitude(point.longitude());
+        });
     }
 }
\ No newline at end of file
@@ -0,0 +1,11 @@
+package com.hemoglobe.service;
+
+/**
+ * A write the authenticated user may not make to this row, or whose credentials did not check out; answered with 403.
+ */
+public class ForbiddenException extends RuntimeException {
+    
+    public ForbiddenException(String message) {
+        super(message);
+    }
+}
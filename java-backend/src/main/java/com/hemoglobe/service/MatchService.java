@@ -1,17 +1,44 @@
 package com.hemoglobe.service;
 
+import com.hemoglobe.assignment.AssignmentPlan;
+import com.hemoglobe.assignment.AssignmentReport;
+import com.hemoglobe.assignment.DonorAssignment;
+import com.hemoglobe.automatch.AutoMatchJob;
+import com.hemoglobe.automatch.AutoMatchJobView;
+import com.hemoglobe.automatch.AutoMatchJobs;
+import com.hemoglobe.dto.MatchView;
 import com.hemoglobe.entity.Match;
 import com.hemoglobe.entity.User;
+import com.hemoglobe.feed.StatusChangedEvent;
+import com.hemoglobe.feed.StatusDelta;
+import com.hemoglobe.httpcache.ChangeCounters;
+import com.hemoglobe.httpcache.ChangeCounters.Table;
+import com.hemoglobe.matching.BloodCompatibility;
+import com.hemoglobe.matching.MatchingEngine;
+import com.hemoglobe.matching.MatchingReport;
+import com.hemoglobe.outbox.Outbox;
+import com.hemoglobe.repository.CursorPage;
+import com.hemoglobe.repository.KeysetPage;
 import com.hemoglobe.repository.MatchRepository;
+import com.hemoglobe.repository.MatchSpecifications;
 import com.hemoglobe.repository.UserRepository;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
+@Timed(value = "service.calls", histogram = true)
 public class MatchService {
     
     @Autowired
@@ -20,122 +47,220 @@ public class MatchService {
     @Autowired
     private UserRepository userRepository;
     
-    public List<Match> getAllMatches() {
-        return matchRepository.findAll();
+    @Autowired
+    private MatchingEngine matchingEngine;
+    
+    @Autowired
+    private DonorAssignment donorAssignment;
+    
+    @Autowired
+    private AutoMatchJobs autoMatchJobs;
+    
+    @Autowired
+    private Outbox outbox;
+    
+    @Autowired
+    private ChangeCounters changeCounters;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    private static final int EXPORT_BATCH_SIZE = 500;
+    
+    public CursorPage<MatchView> getAllMatches(KeysetPage page) {
+        return findPage(null, page);
     }
     
-    public Optional<Match> getMatchById(Long id) {
-        return matchRepository.findById(id);
+    /**
+     * Stream every match to {@code sink} in id order inside one read-only transaction,
+     * clearing the persistence context every batch so memory stays constant
+     */
+    @Transactional(readOnly = true)
+    public void exportMatches(Consumer<MatchView> sink) {
+        try (Stream<Match> matches = matchRepository.streamAllWithUsers()) {
+            int[] rows = {0};
+            matches.forEach(match -> {
+                sink.accept(MatchView.from(match));
+                if (++rows[0] % EXPORT_BATCH_SIZE == 0) {
+                    entityManager.clear();
+                }
+            });
+        }
+    }
+    
+    public Optional<MatchView> getMatchById(Long id) {
+        return matchRepository.findWithUsersById(id).map(MatchView::from);
     }
     
-    public Match createMatch(Match match) {
-        return matchRepository.save(match);
+    @Transactional
+    public MatchView createMatch(Match match) {
+        match.setDonor(reference(match.getDonor()));
+        match.setSeeker(reference(match.getSeeker()));
+        Match savedMatch = matchRepository.save(match);
+        changeCounters.changed(Table.MATCHES);
+        return MatchView.from(savedMatch);
     }
     
-    public Match updateMatch(Long id, Match matchDetails) {
-        Match match = matchRepository.findById(id)
+    /**
+     * Overwrite a match. With an {@code expectedVersion} (from If-Match) the update only applies to that version of
+     * the row; either way the {@code @Version} check at flush rejects a write that raced this one
+     */
+    @Transactional
+    public MatchView updateMatch(Long id, Match matchDetails, Long expectedVersion) {
+        Match match = matchRepository.findWithUsersById(id)
                 .orElseThrow(() -> new RuntimeException("Match not found"));
+        if (expectedVersion != null && !expectedVersion.equals(match.getVersion())) {
+            throw new PreconditionFailedException("Match " + id + " is at version " + match.getVersion());
+        }
         
+        String previousStatus = match.getStatus();
         match.setBloodGroup(matchDetails.getBloodGroup());
         match.setDistance(matchDetails.getDistance());
         match.setCompatibilityScore(matchDetails.getCompatibilityScore());
         match.setStatus(matchDetails.getStatus());
         
-        return matchRepository.save(match);
+        Match savedMatch = matchRepository.saveAndFlush(match);
+        changeCounters.changed(Table.MATCHES);
+        statusChanged(savedMatch, previousStatus);
+        return MatchView.from(savedMatch);
+    }
+    
+    /**
+     * Move a pending match to {@code status} on behalf of its donor with one conditional UPDATE, so of any number of
+     * concurrent claims exactly one succeeds without holding row locks across the request; the rest get an
+     * IllegalStateException, and any other user a ForbiddenException
+     */
+    @Transactional
+    public MatchView claimMatch(Long id, String status, long donorId) {
+        if (matchRepository.claimPending(id, donorId, status, LocalDateTime.now()) == 0) {
+            Match match = matchRepository.findById(id)
+                    .orElseThrow(() -> new RuntimeException("Match not found"));
+            if (match.getDonor() == null || match.getDonor().getId() != donorId) {
+                throw new ForbiddenException("Match " + id + " is not offered to user " + donorId);
+            }
+            throw new IllegalStateException("Match " + id + " is already " + match.getStatus());
+        }
+        changeCounters.changed(Table.MATCHES);
+        Match claimed = matchRepository.findWithUsersById(id)
+                .orElseThrow(() -> new RuntimeException("Match not found"));
+        statusChanged(claimed, "pending");
+        return MatchView.from(claimed);
     }
     
     public void deleteMatch(Long id) {
         matchRepository.deleteById(id);
+        changeCounters.changed(Table.MATCHES);
     }
     
-    public List<Match> getMatchesByDonor(Long donorId) {
-        return matchRepository.findByDonorId(donorId);
+    public CursorPage<MatchView> getMatchesByDonor(Long donorId, KeysetPage page) {
+        return findPage(MatchSpecifications.byDonor(donorId), page);
     }
     
-    public List<Match> getMatchesBySeeker(Long seekerId) {
-        return matchRepository.findBySeekerId(seekerId);
+    public CursorPage<MatchView> getMatchesBySeeker(Long seekerId, KeysetPage page) {
+        return findPage(MatchSpecifications.bySeeker(seekerId), page);
     }
     
-    public List<Match> getMatchesByBloodGroup(String bloodGroup) {
-        return matchRepository.findByBloodGroup(bloodGroup);
+    public CursorPage<MatchView> getMatchesByBloodGroup(String bloodGroup, KeysetPage page) {
+        return findPage(MatchSpecifications.byBloodGroup(bloodGroup), page);
     }
     
-    public List<Match> getMatchesByStatus(String status) {
-        return matchRepository.findByStatus(status);
+    public CursorPage<MatchView> getMatchesByStatus(String status, KeysetPage page) {
+        return findPage(MatchSpecifications.byStatus(status), page);
     }
     
-    public List<Match> getMatchesByUserId(Long userId) {
-        return matchRepository.findMatchesByUserId(userId);
+    public CursorPage<MatchView> getMatchesByUserId(Long userId, KeysetPage page) {
+        List<Number> ids = page.direction() == Sort.Direction.ASC
+                ? matchRepository.findIdsByUserAfter(userId, page.cursor() != null ? page.cursor() : 0L, page.limit() + 1)
+                : matchRepository.findIdsByUserBefore(userId, page.cursor() != null ? page.cursor() : Long.MAX_VALUE, page.limit() + 1);
+        return matchRepository.findPageByIds(ids, page, MatchSpecifications.fetchUsers()).map(MatchView::from);
     }
     
     public List<Match> getPendingMatchesByBloodGroup(String bloodGroup) {
         return matchRepository.findPendingMatchesByBloodGroup(bloodGroup);
     }
     
-    public List<Match> getHighCompatibilityMatches(Integer minScore) {
-        return matchRepository.findHighCompatibilityMatches(minScore);
+    /**
+     * Matches scoring at least {@code minScore}, best first with ties by id ({@code desc} reverses it). The page is
+     * keyed on (score, id); the cursor is the id of the last match seen, whose current score positions the next page,
+     * so a cursor match that has since been deleted ends the walk.
+     */
+    public CursorPage<MatchView> getHighCompatibilityMatches(Integer minScore, KeysetPage page) {
+        boolean best = page.direction() == Sort.Direction.ASC;
+        Optional<Integer> cursorScore = page.cursor() != null
+                ? matchRepository.findCompatibilityScoreById(page.cursor())
+                : Optional.of(best ? Integer.MAX_VALUE : Integer.MIN_VALUE);
+        if (cursorScore.isEmpty()) {
+            return new CursorPage<>(List.of(), null);
+        }
+        List<Number> ids = best
+                ? matchRepository.findIdsByScoreAfter(minScore, cursorScore.get(), page.cursor() != null ? page.cursor() : 0L, page.limit() + 1)
+                : matchRepository.findIdsByScoreBefore(minScore, cursorScore.get(), page.cursor() != null ? page.cursor() : Long.MAX_VALUE, page.limit() + 1);
+        return matchRepository.findPageByIds(ids, page, MatchSpecifications.fetchUsers()).map(MatchView::from);
     }
     
-    public List<Match> findPotentialMatches(String bloodGroup, String location) {
-        return matchRepository.findPendingMatchesByLocation(location);
+    public CursorPage<MatchView> findPotentialMatches(String bloodGroup, String location, KeysetPage page) {
+        return findPage(MatchSpecifications.pendingAtLocation(location), page);
     }
     
     /**
-     * Create matches between available donors and seekers
-     * This is a simplified matching algorithm
+     * Create matches between available seekers of a blood group and every compatible donor
+     * Deferred donors are pruned by the candidate query; scoring and persistence are delegated to the batched matching engine
      */
-    public void createAutomaticMatches(String bloodGroup) {
-        List<User> donors = userRepository.findAvailableUsersByBloodGroupAndType(bloodGroup, "donor");
+    public MatchingReport createAutomaticMatches(String bloodGroup, String donationType) {
+        List<String> donorGroups = BloodCompatibility.donorGroupsFor(bloodGroup, donationType);
+        List<User> donors = userRepository.findEligibleDonorsByBloodGroups(donorGroups, LocalDateTime.now());
         List<User> seekers = userRepository.findAvailableUsersByBloodGroupAndType(bloodGroup, "seeker");
         
-        for (User seeker : seekers) {
-            for (User donor : donors) {
-                // Simple compatibility scoring based on location similarity
-                Integer compatibilityScore = calculateCompatibilityScore(donor, seeker);
-                
-                if (compatibilityScore >= 50) { // Only create matches with 50%+ compatibility
-                    Match match = new Match();
-                    match.setDonor(donor);
-                    match.setSeeker(seeker);
-                    match.setBloodGroup(bloodGroup);
-                    match.setCompatibilityScore(compatibilityScore);
-                    match.setDistance(calculateDistance(donor.getLocation(), seeker.getLocation()));
-                    
-                    matchRepository.save(match);
-                }
-            }
-        }
+        return matchingEngine.run(bloodGroup, donationType, seekers, donors);
     }
     
-    private Integer calculateCompatibilityScore(User donor, User seeker) {
-        int score = 0;
-        
-        // Blood group compatibility (base score)
-        if (donor.getBloodGroup().equals(seeker.getBloodGroup())) {
-            score += 50;
-        }
-        
-        // Location proximity (simplified)
-        if (donor.getLocation().toLowerCase().contains(seeker.getLocation().toLowerCase()) ||
-            seeker.getLocation().toLowerCase().contains(donor.getLocation().toLowerCase())) {
-            score += 30;
-        }
-        
-        // Donor availability
-        if (donor.getIsAvailable()) {
-            score += 20;
-        }
+    /**
+     * Shortage mode of {@link #createAutomaticMatches}: give each eligible donor to at most one seeker (per
+     * {@code assignment.donor-capacity}) so that the total weight over the blood group is maximal, and make those
+     * pairs the seekers' only pending matches
+     */
+    public AssignmentReport assignDonors(String bloodGroup, String donationType) {
+        long start = System.nanoTime();
+        List<String> donorGroups = BloodCompatibility.donorGroupsFor(bloodGroup, donationType);
+        List<User> donors = userRepository.findEligibleDonorsByBloodGroups(donorGroups, LocalDateTime.now());
+        List<User> seekers = userRepository.findAvailableUsersByBloodGroupAndType(bloodGroup, "seeker");
         
-        return Math.min(score, 100); // Cap at 100
+        AssignmentPlan plan = donorAssignment.plan(donationType, seekers, donorAssignment.pendingRequests(), donors);
+        MatchingEngine.WriteCounts counts = matchingEngine.write(seekers.stream().map(User::getId).toList(), plan.candidates());
+        return new AssignmentReport(bloodGroup, seekers.size(), donors.size(), plan.pairsEvaluated(), plan.edges(),
+                plan.components(), plan.hungarianComponents(), plan.candidates().size(), plan.totalWeight(), plan.optimal(),
+                counts.written(), counts.retired(), (System.nanoTime() - start) / 1_000_000);
     }
     
-    private BigDecimal calculateDistance(String location1, String location2) {
-        // Simplified distance calculation - in a real app, you'd use a geo-coding service
-        if (location1.equalsIgnoreCase(location2)) {
-            return BigDecimal.ZERO;
-        }
-        
-        // Return a random distance between 1-50 miles for demo purposes
-        return BigDecimal.valueOf(Math.random() * 50 + 1);
+    /**
+     * Start an asynchronous auto-match over every blood group, sharded and scored in parallel; poll it with
+     * {@link #getAutoMatchJob}.
+     */
+    public AutoMatchJobView startAutoMatchJob(String donationType) {
+        return autoMatchJobs.start(donationType).view();
+    }
+    
+    public Optional<AutoMatchJobView> getAutoMatchJob(String id) {
+        return autoMatchJobs.get(id).map(AutoMatchJob::view);
+    }
+    
+    public Optional<AutoMatchJobView> cancelAutoMatchJob(String id) {
+        return autoMatchJobs.cancel(id).map(AutoMatchJob::view);
+    }
+    
+    private CursorPage<MatchView> findPage(Specification<Match> spec, KeysetPage page) {
+        return matchRepository.findPage(MatchSpecifications.fetchUsers().and(spec), page).map(MatchView::from);
+    }
+    
+    private void statusChanged(Match match, String previousStatus) {
+        outbox.append(StatusChangedEvent.TYPE, "match", match.getId(), new StatusChangedEvent(
+                match.getDonor() != null ? match.getDonor().getId() : null,
+                match.getSeeker() != null ? match.getSeeker().getId() : null,
+                new StatusDelta("match", match.getId(), match.getStatus(), previousStatus,
+                        match.getCreatedAt(), match.getUpdatedAt())));
+    }
+    
+    private User reference(User user) {
+        return user != null && user.getId() != null ? userRepository.getReferenceById(user.getId()) : null;
     }
 }
\ No newline at end of file
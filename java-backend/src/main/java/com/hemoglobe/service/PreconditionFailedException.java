@@ -0,0 +1,11 @@
+package com.hemoglobe.service;
+
+/**
+ * A conditional update whose expected version no longer matches the stored row; answered with 412.
+ */
+public class PreconditionFailedException extends RuntimeException {
+    
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+}
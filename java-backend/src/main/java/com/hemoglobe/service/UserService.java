@@ -1,74 +1,292 @@
 package com.hemoglobe.service;
 
+import com.hemoglobe.cache.AvailableUserCache;
+import com.hemoglobe.dto.UserSummary;
+import com.hemoglobe.eligibility.EligibilityRules;
 import com.hemoglobe.entity.User;
+import com.hemoglobe.geo.DonorSpatialIndex;
+import com.hemoglobe.geo.Gazetteer;
+import com.hemoglobe.geo.NearbyDonor;
+import com.hemoglobe.httpcache.ChangeCounters;
+import com.hemoglobe.httpcache.ChangeCounters.Table;
+import com.hemoglobe.matching.BloodCompatibility;
+import com.hemoglobe.matching.UserChangedEvent;
+import com.hemoglobe.repository.CursorPage;
+import com.hemoglobe.repository.KeysetPage;
 import com.hemoglobe.repository.UserRepository;
+import com.hemoglobe.repository.UserSpecifications;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
+@Timed(value = "service.calls", histogram = true)
 public class UserService {
     
     @Autowired
     private UserRepository userRepository;
     
-    public List<User> getAllUsers() {
-        return userRepository.findAll();
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Autowired
+    private Gazetteer gazetteer;
+    
+    @Autowired
+    private DonorSpatialIndex donorSpatialIndex;
+    
+    @Autowired
+    private AvailableUserCache availableUserCache;
+    
+    @Autowired
+    private ChangeCounters changeCounters;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private EligibilityRules eligibilityRules;
+    
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+    
+    private static final int EXPORT_BATCH_SIZE = 500;
+    
+    public CursorPage<UserSummary> getAllUsers(KeysetPage page) {
+        return userRepository.findPage(null, page).map(UserSummary::from);
+    }
+    
+    /**
+     * Stream every user to {@code sink} in id order inside one read-only transaction,
+     * clearing the persistence context every batch so memory stays constant
+     */
+    @Transactional(readOnly = true)
+    public void exportUsers(Consumer<UserSummary> sink) {
+        try (Stream<User> users = userRepository.streamAllByOrderByIdAsc()) {
+            int[] rows = {0};
+            users.forEach(user -> {
+                sink.accept(UserSummary.from(user));
+                if (++rows[0] % EXPORT_BATCH_SIZE == 0) {
+                    entityManager.clear();
+                }
+            });
+        }
     }
     
-    public Optional<User> getUserById(Long id) {
-        return userRepository.findById(id);
+    public Optional<UserSummary> getUserById(Long id) {
+        return userRepository.findById(id).map(UserSummary::from);
     }
     
     public Optional<User> getUserByEmail(String email) {
         return userRepository.findByEmail(email);
     }
     
-    public User createUser(User user) {
+    public UserSummary createUser(User user) {
         if (userRepository.existsByEmail(user.getEmail())) {
             throw new RuntimeException("Email already exists");
         }
-        return userRepository.save(user);
+        if (user.getLatitude() == null || user.getLongitude() == null) {
+            geocode(user);
+        }
+        eligibilityRules.apply(user);
+        hashPassword(user, user.getRawPassword());
+        User savedUser = userRepository.save(user);
+        changeCounters.changed(Table.USERS);
+        refreshSpatialIndex(savedUser);
+        evictAvailableUsers(savedUser);
+        eventPublisher.publishEvent(UserChangedEvent.of(savedUser.getId()));
+        return UserSummary.from(savedUser);
     }
     
-    public User updateUser(Long id, User userDetails) {
+    /**
+     * Overwrite a user, only if it is still at {@code expectedVersion} when one is given (If-Match)
+     */
+    public UserSummary updateUser(Long id, User userDetails, Long expectedVersion) {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("User not found"));
+        if (expectedVersion != null && !expectedVersion.equals(user.getVersion())) {
+            throw new PreconditionFailedException("User " + id + " is at version " + user.getVersion());
+        }
+        
+        boolean wasAvailable = Boolean.TRUE.equals(user.getIsAvailable());
+        String previousBloodGroup = user.getBloodGroup();
+        String previousUserType = user.getUserType();
+        boolean locationChanged = !Objects.equals(user.getLocation(), userDetails.getLocation());
+        Double previousLatitude = user.getLatitude();
+        Double previousLongitude = user.getLongitude();
         
         user.setName(userDetails.getName());
         user.setPhone(userDetails.getPhone());
         user.setBloodGroup(userDetails.getBloodGroup());
         user.setLocation(userDetails.getLocation());
+        if (userDetails.getLatitude() != null && userDetails.getLongitude() != null) {
+            user.setLatitude(userDetails.getLatitude());
+            user.setLongitude(userDetails.getLongitude());
+        } else if (locationChanged || user.getLatitude() == null) {
+            user.setLatitude(null);
+            user.setLongitude(null);
+            geocode(user);
+        }
         user.setAge(userDetails.getAge());
         user.setWeight(userDetails.getWeight());
         user.setUserType(userDetails.getUserType());
         user.setIsAvailable(userDetails.getIsAvailable());
         user.setLastDonation(userDetails.getLastDonation());
+        user.setLastDonationType(userDetails.getLastDonationType());
         user.setMedicalConditions(userDetails.getMedicalConditions());
         user.setEmergencyContact(userDetails.getEmergencyContact());
+        boolean eligibilityChanged = eligibilityRules.apply(user);
         
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        changeCounters.changed(Table.USERS);
+        refreshSpatialIndex(savedUser);
+        if (wasAvailable) {
+            availableUserCache.invalidate(previousBloodGroup, previousUserType);
+        }
+        evictAvailableUsers(savedUser);
+        if (wasAvailable != Boolean.TRUE.equals(savedUser.getIsAvailable())
+                || !Objects.equals(previousBloodGroup, savedUser.getBloodGroup())
+                || !Objects.equals(previousUserType, savedUser.getUserType())
+                || locationChanged
+                || eligibilityChanged
+                || !Objects.equals(previousLatitude, savedUser.getLatitude())
+                || !Objects.equals(previousLongitude, savedUser.getLongitude())) {
+            eventPublisher.publishEvent(UserChangedEvent.of(savedUser.getId()));
+        }
+        return UserSummary.from(savedUser);
+    }
+    
+    /**
+     * Record a completed donation on the donor, restarting their deferral; older donations than the one on
+     * record are ignored
+     */
+    @Transactional
+    public void recordDonation(Long donorId, String donationType, LocalDateTime donatedAt) {
+        User donor = userRepository.findById(donorId)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        if (donor.getLastDonation() != null && donor.getLastDonation().isAfter(donatedAt)) {
+            return;
+        }
+        donor.setLastDonation(donatedAt);
+        donor.setLastDonationType(donationType);
+        eligibilityRules.apply(donor);
+        User savedDonor = userRepository.save(donor);
+        changeCounters.changed(Table.USERS);
+        refreshSpatialIndex(savedDonor);
+        evictAvailableUsers(savedDonor);
+        eventPublisher.publishEvent(UserChangedEvent.of(savedDonor.getId()));
+    }
+    
+    /**
+     * Replace the user's password after checking their current one; a ForbiddenException if it does not match.
+     */
+    @Transactional
+    public void changePassword(Long id, String currentPassword, String newPassword) {
+        User user = userRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        if (!passwordMatches(user, currentPassword)) {
+            throw new ForbiddenException("Current password does not match");
+        }
+        hashPassword(user, newPassword);
+        userRepository.save(user);
+        // The save bumps the user's version, so its ETag changes too
+        changeCounters.changed(Table.USERS);
+    }
+    
+    /**
+     * Whether {@code rawPassword} matches the user's stored hash; users without a password never match.
+     */
+    public boolean passwordMatches(User user, String rawPassword) {
+        return user.getPasswordHash() != null && passwordEncoder.matches(rawPassword, user.getPasswordHash());
     }
     
     public void deleteUser(Long id) {
+        Optional<User> user = userRepository.findById(id);
         userRepository.deleteById(id);
+        changeCounters.changed(Table.USERS);
+        donorSpatialIndex.remove(id);
+        user.ifPresent(this::evictAvailableUsers);
+        eventPublisher.publishEvent(UserChangedEvent.of(id));
+    }
+    
+    /**
+     * Served from the available-user cache; the page is cut from the cached snapshot without touching the database.
+     */
+    public CursorPage<UserSummary> getUsersByBloodGroupAndType(String bloodGroup, String userType, KeysetPage page) {
+        return CursorPage.slice(availableUserCache.get(bloodGroup, userType), UserSummary::id, page);
     }
     
-    public List<User> getUsersByBloodGroupAndType(String bloodGroup, String userType) {
-        return userRepository.findByBloodGroupAndUserTypeAndIsAvailableTrue(bloodGroup, userType);
+    public CursorPage<UserSummary> getUsersByLocationAndType(String location, String userType, KeysetPage page) {
+        return userRepository.findPage(UserSpecifications.availableByLocationAndType(location, userType), page).map(UserSummary::from);
     }
     
-    public List<User> getUsersByLocationAndType(String location, String userType) {
-        return userRepository.findByLocationContainingIgnoreCaseAndUserTypeAndIsAvailableTrue(location, userType);
+    public CursorPage<UserSummary> getAvailableDonors(String bloodGroup, KeysetPage page) {
+        return getUsersByBloodGroupAndType(bloodGroup, "donor", page);
     }
     
-    public List<User> getAvailableDonors(String bloodGroup) {
-        return userRepository.findAvailableUsersByBloodGroupAndType(bloodGroup, "donor");
+    public CursorPage<UserSummary> getAvailableSeekers(String bloodGroup, KeysetPage page) {
+        return getUsersByBloodGroupAndType(bloodGroup, "seeker", page);
     }
     
-    public List<User> getAvailableSeekers(String bloodGroup) {
-        return userRepository.findAvailableUsersByBloodGroupAndType(bloodGroup, "seeker");
+    /**
+     * Nearest available donors whose blood group can give {@code donationType} to {@code bloodGroup},
+     * or donors of any group when no blood group is given
+     */
+    public List<NearbyDonor> getNearbyDonors(double latitude, double longitude, double radiusKm,
+                                             String bloodGroup, String donationType, int limit) {
+        int donorMask = 0xFF;
+        if (bloodGroup != null) {
+            int recipient = BloodCompatibility.indexOf(bloodGroup);
+            if (recipient < 0) {
+                throw new IllegalArgumentException("Unknown blood group: " + bloodGroup);
+            }
+            donorMask = BloodCompatibility.donorMask(donationType, recipient);
+        }
+        return donorSpatialIndex.nearest(latitude, longitude, radiusKm, donorMask, limit);
+    }
+    
+    private void geocode(User user) {
+        gazetteer.lookup(user.getLocation()).ifPresent(point -> {
+            user.setLatitude(point.latitude());
+            user.setLongitude(point.longitude());
+        });
+    }
+    
+    private void evictAvailableUsers(User user) {
+        if (Boolean.TRUE.equals(user.getIsAvailable())) {
+            availableUserCache.invalidate(user.getBloodGroup(), user.getUserType());
+        }
+    }
+    
+    /** Index available located donors until their next eligible time; disqualified donors are dropped. */
+    private void refreshSpatialIndex(User user) {
+        if ("donor".equals(user.getUserType()) && Boolean.TRUE.equals(user.getIsAvailable())
+                && user.getLatitude() != null && user.getLongitude() != null
+                && !EligibilityRules.DEFERRED_INDEFINITELY.equals(user.getNextEligibleAt())) {
+            donorSpatialIndex.put(user.getId(), user.getBloodGroup(), user.getLatitude(), user.getLongitude(),
+                    user.getNextEligibleAt());
+        } else {
+            donorSpatialIndex.remove(user.getId());
+        }
+    }
+    
+    /** Replace the stored hash when a new password was sent; an absent password keeps the current one. */
+    private void hashPassword(User user, String rawPassword) {
+        if (rawPassword != null) {
+            user.setPasswordHash(passwordEncoder.encode(rawPassword));
+            user.setPassword(null);
+        }
     }
 }
\ No newline at end of file
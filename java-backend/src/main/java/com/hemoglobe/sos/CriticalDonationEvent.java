@@ -0,0 +1,14 @@
+package com.hemoglobe.sos;
+
+/**
+ * Published when a pending donation is saved with critical urgency. {@code createdNanos} is the
+ * {@link System#nanoTime()} at which the donation was saved, used for end-to-end latency.
+ */
+public record CriticalDonationEvent(
+        long donationId,
+        String bloodGroup,
+        String donationType,
+        Double latitude,
+        Double longitude,
+        long createdNanos) {
+}
@@ -0,0 +1,40 @@
+package com.hemoglobe.sos;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Keeps the most recent notifications in memory, for development and load testing.
+ */
+@Component
+@ConditionalOnProperty(name = "sos.sink", havingValue = "memory")
+public class InMemoryNotificationSink implements NotificationSink {
+    
+    private final Deque<SosNotification> recent = new ArrayDeque<>();
+    private final int capacity;
+    
+    public InMemoryNotificationSink(@Value("${sos.memory-sink.capacity:1000}") int capacity) {
+        this.capacity = capacity;
+    }
+    
+    @Override
+    public synchronized void send(SosNotification notification) {
+        if (recent.size() == capacity) {
+            recent.removeFirst();
+        }
+        recent.addLast(notification);
+    }
+    
+    /**
+     * Notifications in the order they were sent, oldest first.
+     */
+    public synchronized List<SosNotification> recent() {
+        return new ArrayList<>(recent);
+    }
+}
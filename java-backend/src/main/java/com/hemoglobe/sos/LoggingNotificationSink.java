@@ -0,0 +1,22 @@
+package com.hemoglobe.sos;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Writes each notification to the application log.
+ */
+@Component
+@ConditionalOnProperty(name = "sos.sink", havingValue = "log", matchIfMissing = true)
+public class LoggingNotificationSink implements NotificationSink {
+    
+    private static final Logger log = LoggerFactory.getLogger(LoggingNotificationSink.class);
+    
+    @Override
+    public void send(SosNotification notification) {
+        log.info("SOS donation {} -> donor {} ({}, {} km, rank {})", notification.donationId(), notification.donorId(),
+                notification.donorBloodGroup(), String.format("%.1f", notification.distanceKm()), notification.rank());
+    }
+}
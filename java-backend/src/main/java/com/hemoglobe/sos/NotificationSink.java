@@ -0,0 +1,10 @@
+package com.hemoglobe.sos;
+
+/**
+ * Delivery channel for SOS notifications. Implementations are called concurrently from virtual threads
+ * and may block on I/O.
+ */
+public interface NotificationSink {
+    
+    void send(SosNotification notification);
+}
@@ -0,0 +1,152 @@
+package com.hemoglobe.sos;
+
+import com.hemoglobe.geo.DonorSpatialIndex;
+import com.hemoglobe.geo.NearbyDonor;
+import com.hemoglobe.matching.BloodCompatibility;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Fans a critical donation out to the nearest compatible donors.
+ * <p>
+ * Runs asynchronously after the donation commits, entirely off the request thread: the query stage reads candidates
+ * from the in-memory {@link DonorSpatialIndex}, the rank stage orders them, and the dispatch stage sends one
+ * notification per donor as its own task on the application task executor (virtual threads when enabled), so a slow
+ * sink never holds back the rest.
+ */
+@Component
+public class SosDispatcher {
+    
+    private static final Logger log = LoggerFactory.getLogger(SosDispatcher.class);
+    
+    private final DonorSpatialIndex donorSpatialIndex;
+    private final NotificationSink sink;
+    private final TaskExecutor executor;
+    
+    private final Timer queryTimer;
+    private final Timer rankTimer;
+    private final Timer dispatchTimer;
+    private final Timer firstNotificationTimer;
+    private final Counter unlocated;
+    private final Counter failures;
+    
+    @Value("${sos.radius-km:50}")
+    private double radiusKm;
+    
+    @Value("${sos.max-donors:20}")
+    private int maxDonors;
+    
+    @Value("${sos.candidate-pool:100}")
+    private int candidatePool;
+    
+    @Value("${sos.cross-group-penalty-km:5}")
+    private double crossGroupPenaltyKm;
+    
+    public SosDispatcher(DonorSpatialIndex donorSpatialIndex, NotificationSink sink, MeterRegistry meterRegistry,
+                         @Qualifier("applicationTaskExecutor") TaskExecutor executor) {
+        this.donorSpatialIndex = donorSpatialIndex;
+        this.sink = sink;
+        this.executor = executor;
+        this.queryTimer = stageTimer(meterRegistry, "query");
+        this.rankTimer = stageTimer(meterRegistry, "rank");
+        this.dispatchTimer = stageTimer(meterRegistry, "dispatch");
+        this.firstNotificationTimer = Timer.builder("sos.first.notification")
+                .description("Time from the critical request to its first delivered notification")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.unlocated = meterRegistry.counter("sos.unlocated");
+        this.failures = meterRegistry.counter("sos.notification.failures");
+    }
+    
+    @Async
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCriticalDonation(CriticalDonationEvent event) {
+        if (event.latitude() == null || event.longitude() == null) {
+            unlocated.increment();
+            log.warn("Critical donation {} has no coordinates; no donors notified", event.donationId());
+            return;
+        }
+        int recipient = BloodCompatibility.indexOf(event.bloodGroup());
+        if (recipient < 0) {
+            log.warn("Critical donation {} has unknown blood group {}", event.donationId(), event.bloodGroup());
+            return;
+        }
+        
+        long start = System.nanoTime();
+        int donorMask;
+        try {
+            donorMask = BloodCompatibility.donorMask(event.donationType(), recipient);
+        } catch (IllegalArgumentException e) {
+            log.warn("Critical donation {} has unknown donation type {}", event.donationId(), event.donationType());
+            return;
+        }
+        List<NearbyDonor> candidates = donorSpatialIndex.nearest(event.latitude(), event.longitude(),
+                radiusKm, donorMask, Math.max(candidatePool, maxDonors));
+        long queried = System.nanoTime();
+        queryTimer.record(queried - start, TimeUnit.NANOSECONDS);
+        
+        List<NearbyDonor> ranked = rank(event.bloodGroup(), candidates);
+        long rankedAt = System.nanoTime();
+        rankTimer.record(rankedAt - queried, TimeUnit.NANOSECONDS);
+        
+        AtomicBoolean first = new AtomicBoolean();
+        Instant sentAt = Instant.now();
+        for (int i = 0; i < ranked.size(); i++) {
+            NearbyDonor donor = ranked.get(i);
+            SosNotification notification = new SosNotification(event.donationId(), donor.userId(), donor.bloodGroup(),
+                    event.bloodGroup(), donor.distanceKm(), i + 1, sentAt);
+            executor.execute(() -> send(notification, event, first));
+        }
+        dispatchTimer.record(System.nanoTime() - rankedAt, TimeUnit.NANOSECONDS);
+        log.debug("Critical donation {}: {} candidates, {} notified", event.donationId(), candidates.size(), ranked.size());
+    }
+    
+    /**
+     * Order candidates by distance, charging donors of another (compatible) group a fixed penalty so
+     * scarce groups such as O- are only called on when they are clearly closer.
+     */
+    List<NearbyDonor> rank(String bloodGroup, List<NearbyDonor> candidates) {
+        List<NearbyDonor> ranked = new ArrayList<>(candidates);
+        ranked.sort(Comparator.comparingDouble((NearbyDonor donor) ->
+                donor.distanceKm() + (bloodGroup.equals(donor.bloodGroup()) ? 0 : crossGroupPenaltyKm))
+                .thenComparingLong(NearbyDonor::userId));
+        return ranked.size() > maxDonors ? ranked.subList(0, maxDonors) : ranked;
+    }
+    
+    private void send(SosNotification notification, CriticalDonationEvent event, AtomicBoolean first) {
+        try {
+            sink.send(notification);
+            if (first.compareAndSet(false, true)) {
+                firstNotificationTimer.record(System.nanoTime() - event.createdNanos(), TimeUnit.NANOSECONDS);
+            }
+        } catch (RuntimeException e) {
+            failures.increment();
+            log.warn("Failed to notify donor {} of donation {}", notification.donorId(), notification.donationId(), e);
+        }
+    }
+    
+    private static Timer stageTimer(MeterRegistry meterRegistry, String stage) {
+        return Timer.builder("sos.stage")
+                .description("Latency of one stage of the critical donation pipeline")
+                .tag("stage", stage)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+}
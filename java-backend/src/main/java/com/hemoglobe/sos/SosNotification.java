@@ -0,0 +1,16 @@
+package com.hemoglobe.sos;
+
+import java.time.Instant;
+
+/**
+ * A request to one donor to answer a critical donation. {@code rank} starts at 1 for the best candidate.
+ */
+public record SosNotification(
+        long donationId,
+        long donorId,
+        String donorBloodGroup,
+        String bloodGroup,
+        double distanceKm,
+        int rank,
+        Instant sentAt) {
+}
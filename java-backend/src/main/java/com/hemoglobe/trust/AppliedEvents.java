@@ -0,0 +1,81 @@
+package com.hemoglobe.trust;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The id of the last outbox event applied to each aggregate (one match or donation row), so redelivered events can be
+ * recognised. A status write takes its row's lock before appending its event, so one aggregate's events commit, and are
+ * relayed, in id order; one donor's events across several rows are not, which is why positions are not kept per donor.
+ * <p>
+ * Positions changed since the last {@link #drainDirty} are flagged for checkpointing. Once an aggregate's last event is
+ * delivered nothing at or below it can be relayed again, so its position can be {@link #forget forgotten}.
+ */
+final class AppliedEvents {
+    
+    record Position(String aggregateType, long aggregateId, long eventId) {
+    }
+    
+    private record Key(String aggregateType, long aggregateId) {
+    }
+    
+    private final Map<Key, Long> positions = new HashMap<>();
+    private final Set<Key> dirty = new HashSet<>();
+    
+    /**
+     * Claim outbox event {@code eventId} for its aggregate before applying it.
+     *
+     * @return false if an event at or above {@code eventId} was already applied, so this one must be skipped
+     */
+    synchronized boolean advance(String aggregateType, long aggregateId, long eventId) {
+        Key key = new Key(aggregateType, aggregateId);
+        Long applied = positions.get(key);
+        if (applied != null && eventId <= applied) {
+            return false;
+        }
+        positions.put(key, eventId);
+        dirty.add(key);
+        return true;
+    }
+    
+    /** Merge a checkpointed position, keeping the later of it and any position already applied. */
+    synchronized void load(Position position) {
+        positions.merge(new Key(position.aggregateType(), position.aggregateId()), position.eventId(), Math::max);
+    }
+    
+    /** Snapshot and clear the positions changed since the last drain. */
+    synchronized List<Position> drainDirty() {
+        List<Position> changed = new ArrayList<>(dirty.size());
+        for (Key key : dirty) {
+            changed.add(new Position(key.aggregateType(), key.aggregateId(), positions.get(key)));
+        }
+        dirty.clear();
+        return changed;
+    }
+    
+    /** Re-flag positions whose checkpoint failed. */
+    synchronized void markDirty(List<Position> failed) {
+        for (Position position : failed) {
+            Key key = new Key(position.aggregateType(), position.aggregateId());
+            if (positions.containsKey(key)) {
+                dirty.add(key);
+            }
+        }
+    }
+    
+    /** Drop a checkpointed position, unless its aggregate has moved past it since. */
+    synchronized void forget(Position position) {
+        Key key = new Key(position.aggregateType(), position.aggregateId());
+        if (!dirty.contains(key) && Long.valueOf(position.eventId()).equals(positions.get(key))) {
+            positions.remove(key);
+        }
+    }
+    
+    synchronized int size() {
+        return positions.size();
+    }
+}
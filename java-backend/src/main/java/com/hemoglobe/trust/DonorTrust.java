@@ -0,0 +1,16 @@
+package com.hemoglobe.trust;
+
+/**
+ * A donor's trust record: outcome counts, mean time to answer a match (null before the first answer),
+ * reliability in [0, 1] and the 0-100 trust score derived from it.
+ */
+public record DonorTrust(
+        long donorId,
+        int completedDonations,
+        int cancelledDonations,
+        int acceptedMatches,
+        int declinedMatches,
+        Double averageResponseMinutes,
+        double reliability,
+        int score) {
+}
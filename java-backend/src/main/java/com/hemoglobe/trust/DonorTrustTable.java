@@ -0,0 +1,244 @@
+package com.hemoglobe.trust;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Open-addressing hash table of per-donor outcome counters keyed by primitive donor id, with all counters in flat
+ * arrays so an entry costs a few dozen bytes and a lookup allocates nothing but the returned snapshot.
+ * <p>
+ * Writers take the write lock; readers use an optimistic read and retry under the read lock only if a write
+ * overlapped. Each entry also accumulates the changes made to it since the last {@link #drainDirty}, which the
+ * checkpoint adds to the stored counters instead of overwriting them, so instances checkpointing side by side do not
+ * undo each other's changes.
+ */
+final class DonorTrustTable {
+    
+    static final int COMPLETED = 0;
+    static final int CANCELLED = 1;
+    static final int ACCEPTED = 2;
+    static final int DECLINED = 3;
+    static final int RESPONSES = 4;
+    static final int FIELDS = 5;
+    
+    private static final long EMPTY = 0L; // donor ids start at 1
+    
+    private final StampedLock lock = new StampedLock();
+    private Slots slots = new Slots(1024);
+    private int size;
+    
+    /**
+     * Counters of one donor, or from {@link #drainDirty} the changes to them; {@code counts} is indexed by the field
+     * constants.
+     */
+    record Entry(long donorId, int[] counts, long responseSeconds) {
+    
+        int count(int field) {
+            return counts[field];
+        }
+    }
+    
+    /**
+     * Add {@code delta} to one counter; counters never go below zero. The change is recorded unclamped, since the stored
+     * counter may include outcomes this instance has not seen.
+     */
+    void add(long donorId, int field, int delta) {
+        long stamp = lock.writeLock();
+        try {
+            int slot = slotFor(donorId);
+            int index = slot * FIELDS + field;
+            slots.counts[index] = Math.max(0, slots.counts[index] + delta);
+            slots.changes[index] += delta;
+            slots.dirty[slot] = true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+    
+    /**
+     * Count one answered match that took {@code seconds}.
+     */
+    void addResponse(long donorId, long seconds) {
+        long stamp = lock.writeLock();
+        try {
+            int slot = slotFor(donorId);
+            slots.counts[slot * FIELDS + RESPONSES]++;
+            slots.changes[slot * FIELDS + RESPONSES]++;
+            slots.responseSeconds[slot] += Math.max(0, seconds);
+            slots.responseSecondChanges[slot] += Math.max(0, seconds);
+            slots.dirty[slot] = true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+    
+    /**
+     * Merge checkpointed counters into the table without flagging them, so changes recorded before the load are kept.
+     */
+    void load(Entry entry) {
+        long stamp = lock.writeLock();
+        try {
+            int slot = slotFor(entry.donorId());
+            for (int field = 0; field < FIELDS; field++) {
+                slots.counts[slot * FIELDS + field] += entry.count(field);
+            }
+            slots.responseSeconds[slot] += entry.responseSeconds();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+    
+    /**
+     * The donor's counters, or null if nothing has been recorded for them.
+     */
+    Entry get(long donorId) {
+        long stamp = lock.tryOptimisticRead();
+        Entry entry = find(slots, donorId);
+        if (lock.validate(stamp)) {
+            return entry;
+        }
+        stamp = lock.readLock();
+        try {
+            return find(slots, donorId);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+    
+    /**
+     * Take the changes made to each entry since the last call, clearing them.
+     */
+    List<Entry> drainDirty() {
+        long stamp = lock.writeLock();
+        try {
+            List<Entry> changed = new ArrayList<>();
+            for (int slot = 0; slot < slots.keys.length; slot++) {
+                if (slots.dirty[slot]) {
+                    int from = slot * FIELDS;
+                    changed.add(new Entry(slots.keys[slot], Arrays.copyOfRange(slots.changes, from, from + FIELDS),
+                            slots.responseSecondChanges[slot]));
+                    Arrays.fill(slots.changes, from, from + FIELDS, 0);
+                    slots.responseSecondChanges[slot] = 0;
+                    slots.dirty[slot] = false;
+                }
+            }
+            return changed;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+    
+    /**
+     * Put back changes taken by {@link #drainDirty} after a failed checkpoint, ahead of any made since.
+     */
+    void restore(List<Entry> changes) {
+        long stamp = lock.writeLock();
+        try {
+            for (Entry change : changes) {
+                int slot = slotFor(change.donorId());
+                for (int field = 0; field < FIELDS; field++) {
+                    slots.changes[slot * FIELDS + field] += change.count(field);
+                }
+                slots.responseSecondChanges[slot] += change.responseSeconds();
+                slots.dirty[slot] = true;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+    
+    int size() {
+        return size;
+    }
+    
+    private static Entry find(Slots slots, long donorId) {
+        long[] keys = slots.keys;
+        int mask = keys.length - 1;
+        for (int slot = hash(donorId) & mask, probes = 0; probes < keys.length; slot = (slot + 1) & mask, probes++) {
+            long key = keys[slot];
+            if (key == donorId) {
+                return entry(slots, slot);
+            }
+            if (key == EMPTY) {
+                return null;
+            }
+        }
+        return null;
+    }
+    
+    private static Entry entry(Slots slots, int slot) {
+        return new Entry(slots.keys[slot], Arrays.copyOfRange(slots.counts, slot * FIELDS, slot * FIELDS + FIELDS),
+                slots.responseSeconds[slot]);
+    }
+    
+    /** Slot of {@code donorId}, inserting it if absent; the caller holds the write lock. */
+    private int slotFor(long donorId) {
+        if (donorId == EMPTY) {
+            throw new IllegalArgumentException("Invalid donor id: " + donorId);
+        }
+        if ((size + 1) * 4 > slots.keys.length * 3) {
+            resize();
+        }
+        long[] keys = slots.keys;
+        int mask = keys.length - 1;
+        int slot = hash(donorId) & mask;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == donorId) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = donorId;
+        size++;
+        return slot;
+    }
+    
+    private void resize() {
+        Slots old = slots;
+        Slots grown = new Slots(old.keys.length * 2);
+        int mask = grown.keys.length - 1;
+        for (int from = 0; from < old.keys.length; from++) {
+            long key = old.keys[from];
+            if (key == EMPTY) {
+                continue;
+            }
+            int to = hash(key) & mask;
+            while (grown.keys[to] != EMPTY) {
+                to = (to + 1) & mask;
+            }
+            grown.keys[to] = key;
+            System.arraycopy(old.counts, from * FIELDS, grown.counts, to * FIELDS, FIELDS);
+            System.arraycopy(old.changes, from * FIELDS, grown.changes, to * FIELDS, FIELDS);
+            grown.responseSeconds[to] = old.responseSeconds[from];
+            grown.responseSecondChanges[to] = old.responseSecondChanges[from];
+            grown.dirty[to] = old.dirty[from];
+        }
+        // Published as one reference, so optimistic readers never mix arrays of different sizes
+        slots = grown;
+    }
+    
+    private static int hash(long donorId) {
+        long h = donorId * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+    
+    private static final class Slots {
+        final long[] keys;
+        final int[] counts;
+        final int[] changes;
+        final long[] responseSeconds;
+        final long[] responseSecondChanges;
+        final boolean[] dirty;
+    
+        Slots(int capacity) {
+            keys = new long[capacity];
+            counts = new int[capacity * FIELDS];
+            changes = new int[capacity * FIELDS];
+            responseSeconds = new long[capacity];
+            responseSecondChanges = new long[capacity];
+            dirty = new boolean[capacity];
+        }
+    }
+}
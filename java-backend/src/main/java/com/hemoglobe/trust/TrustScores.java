@@ -0,0 +1,353 @@
+package com.hemoglobe.trust;
+
+import com.hemoglobe.feed.StatusChangedEvent;
+import com.hemoglobe.feed.StatusDelta;
+import com.hemoglobe.matching.DonorReliability;
+import com.hemoglobe.outbox.OutboxMessage;
+import com.hemoglobe.outbox.OutboxSubscriber;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Donor trust scores, maintained incrementally from the donation and match status transitions the outbox relays.
+ * <p>
+ * Each committed transition moves a donor's counters (completed/cancelled donations, accepted/declined matches) in a
+ * {@link DonorTrustTable}; answering a pending match also records how long the donor took. Reads compute the score
+ * from the donor's counters in O(1) without touching the database. The changes since the last checkpoint are added to
+ * {@code donor_trust} every {@code trust.checkpoint-interval-ms} and on shutdown, and the table is reloaded from it
+ * on startup, so a crash loses at most one interval of transitions. Since checkpoints add rather than overwrite,
+ * several instances can share the relay; each one's reads see the counts loaded at its startup plus the transitions
+ * it relayed itself.
+ * <p>
+ * Delivery is at least once, so the id of the last outbox event applied to each match or donation is kept in
+ * {@link AppliedEvents} and checkpointed to {@code trust_event_positions} with the counters, and events at or below it
+ * are skipped: a batch redelivered after a rolled-back relay transaction or a restart is not counted twice. Positions
+ * are per row rather than per donor because outbox ids are assigned at insert, not commit, so one donor's events on
+ * different rows may be relayed out of id order. A position is pruned once its event is delivered.
+ * <p>
+ * Reliability blends the donation completion rate (50%), match acceptance rate (30%) and responsiveness (20%); both
+ * rates are smoothed towards 0.5 so a single outcome does not decide a new donor's score.
+ */
+@Component
+public class TrustScores implements DonorReliability, OutboxSubscriber<StatusChangedEvent> {
+    
+    private static final Logger log = LoggerFactory.getLogger(TrustScores.class);
+    
+    private static final String LOAD_SQL =
+            "SELECT donor_id, completed_donations, cancelled_donations, accepted_matches, declined_matches, responses, " +
+            "response_seconds FROM donor_trust";
+    
+    private static final String LOAD_POSITIONS_SQL =
+            "SELECT aggregate_type, aggregate_id, last_event_id FROM trust_event_positions";
+    
+    /** Rows for deleted donors select nothing and are skipped. */
+    private static final String INSERT_SQL =
+            "INSERT INTO donor_trust (donor_id) SELECT u.id FROM users u WHERE u.id = ? ON CONFLICT (donor_id) DO NOTHING";
+    
+    /** The same insert as standard MERGE, for databases without {@code ON CONFLICT} (H2). */
+    private static final String MERGE_SQL =
+            "MERGE INTO donor_trust t USING (SELECT u.id AS donor_id FROM users u WHERE u.id = ?) c " +
+            "ON t.donor_id = c.donor_id WHEN NOT MATCHED THEN INSERT (donor_id) VALUES (c.donor_id)";
+    
+    /** Adds the changes since the last checkpoint, so counts written by other instances are kept. */
+    private static final String ADD_SQL =
+            "UPDATE donor_trust SET completed_donations = GREATEST(0, completed_donations + ?), " +
+            "cancelled_donations = GREATEST(0, cancelled_donations + ?), accepted_matches = GREATEST(0, accepted_matches + ?), " +
+            "declined_matches = GREATEST(0, declined_matches + ?), responses = GREATEST(0, responses + ?), " +
+            "response_seconds = GREATEST(0, response_seconds + ?), updated_at = ? WHERE donor_id = ?";
+    
+    private static final String UPSERT_POSITION_SQL =
+            "INSERT INTO trust_event_positions (aggregate_type, aggregate_id, last_event_id) VALUES (?, ?, ?) " +
+            "ON CONFLICT (aggregate_type, aggregate_id) DO UPDATE SET " +
+            "last_event_id = GREATEST(trust_event_positions.last_event_id, EXCLUDED.last_event_id)";
+    
+    private static final String MERGE_POSITION_SQL =
+            "MERGE INTO trust_event_positions t USING (SELECT CAST(? AS VARCHAR) AS aggregate_type, " +
+            "CAST(? AS BIGINT) AS aggregate_id, CAST(? AS BIGINT) AS last_event_id) c " +
+            "ON t.aggregate_type = c.aggregate_type AND t.aggregate_id = c.aggregate_id " +
+            "WHEN MATCHED THEN UPDATE SET last_event_id = GREATEST(t.last_event_id, c.last_event_id) " +
+            "WHEN NOT MATCHED THEN INSERT (aggregate_type, aggregate_id, last_event_id) " +
+            "VALUES (c.aggregate_type, c.aggregate_id, c.last_event_id)";
+    
+    /** Positions whose event can no longer be relayed: delivered, given up on, or purged. */
+    private static final String SETTLED_POSITIONS_SQL =
+            "SELECT p.aggregate_type, p.aggregate_id, p.last_event_id FROM trust_event_positions p " +
+            "WHERE NOT EXISTS (SELECT 1 FROM outbox_events o WHERE o.id = p.last_event_id " +
+            "AND o.delivered_at IS NULL AND o.attempts < ?)";
+    
+    /** Conditional on the event id, so a position advanced by another checkpoint since is kept. */
+    private static final String DELETE_POSITION_SQL =
+            "DELETE FROM trust_event_positions WHERE aggregate_type = ? AND aggregate_id = ? AND last_event_id = ?";
+    
+    private final DonorTrustTable table = new DonorTrustTable();
+    private final AppliedEvents applied = new AppliedEvents();
+    private final ScheduledExecutorService checkpointer = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().factory());
+    private final Timer checkpointTimer;
+    private final double responseTargetMinutes;
+    private volatile boolean persistent;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Value("${bulk.batch-size:500}")
+    private int batchSize;
+    
+    @Value("${outbox.max-attempts:10}")
+    private int maxOutboxAttempts;
+    
+    public TrustScores(MeterRegistry meterRegistry,
+                       @Value("${trust.checkpoint-interval-ms:30000}") long checkpointIntervalMillis,
+                       @Value("${trust.response-target-minutes:60}") double responseTargetMinutes) {
+        this.responseTargetMinutes = responseTargetMinutes;
+        this.checkpointTimer = meterRegistry.timer("trust.checkpoint");
+        meterRegistry.gauge("trust.donors", table, DonorTrustTable::size);
+        checkpointer.scheduleWithFixedDelay(this::checkpoint, checkpointIntervalMillis, checkpointIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+    
+    /** Before the outbox relay starts, so redelivered events are checked against the checkpointed event ids. */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void load() {
+        long start = System.nanoTime();
+        try {
+            int[] rows = {0};
+            jdbcTemplate.query(LOAD_SQL, rs -> {
+                rows[0]++;
+                table.load(new DonorTrustTable.Entry(rs.getLong(1),
+                        new int[] {rs.getInt(2), rs.getInt(3), rs.getInt(4), rs.getInt(5), rs.getInt(6)}, rs.getLong(7)));
+            });
+            jdbcTemplate.query(LOAD_POSITIONS_SQL, rs -> {
+                applied.load(new AppliedEvents.Position(rs.getString(1), rs.getLong(2), rs.getLong(3)));
+            });
+            persistent = true;
+            log.info("Loaded trust counters of {} donors and {} event positions in {} ms", rows[0], applied.size(),
+                    (System.nanoTime() - start) / 1_000_000);
+        } catch (DataAccessException e) {
+            log.warn("donor_trust is not available; trust scores are kept in memory only", e);
+        }
+    }
+    
+    @Override
+    public String name() {
+        return "trust";
+    }
+    
+    @Override
+    public String eventType() {
+        return StatusChangedEvent.TYPE;
+    }
+    
+    @Override
+    public Class<StatusChangedEvent> payloadType() {
+        return StatusChangedEvent.class;
+    }
+    
+    @Override
+    public void deliver(List<OutboxMessage<StatusChangedEvent>> messages) {
+        for (OutboxMessage<StatusChangedEvent> message : messages) {
+            onStatusChanged(message);
+        }
+    }
+    
+    /**
+     * Apply one relayed status change; an event at or below the last one applied to its match or donation is a
+     * redelivery and is skipped.
+     */
+    public void onStatusChanged(OutboxMessage<StatusChangedEvent> message) {
+        StatusChangedEvent event = message.payload();
+        if (event.donorId() == null) {
+            return;
+        }
+        long donorId = event.donorId();
+        StatusDelta delta = event.delta();
+        int from;
+        int to;
+        boolean response = false;
+        if ("donation".equals(delta.entity())) {
+            from = donationField(delta.previousStatus());
+            to = donationField(delta.status());
+        } else if ("match".equals(delta.entity())) {
+            from = matchField(delta.previousStatus());
+            to = matchField(delta.status());
+            response = "pending".equals(delta.previousStatus()) && to >= 0
+                    && delta.createdAt() != null && delta.updatedAt() != null;
+        } else {
+            return;
+        }
+        if ((from == to && !response) || !applied.advance(message.aggregateType(), message.aggregateId(), message.id())) {
+            return;
+        }
+        move(donorId, from, to);
+        if (response) {
+            table.addResponse(donorId, Duration.between(delta.createdAt(), delta.updatedAt()).toSeconds());
+        }
+    }
+    
+    /**
+     * The donor's trust record; donors without any recorded outcome get a neutral one.
+     */
+    public DonorTrust get(long donorId) {
+        DonorTrustTable.Entry entry = table.get(donorId);
+        if (entry == null) {
+            return new DonorTrust(donorId, 0, 0, 0, 0, null, NEUTRAL.of(donorId), (int) Math.round(100 * NEUTRAL.of(donorId)));
+        }
+        int responses = entry.count(DonorTrustTable.RESPONSES);
+        Double averageResponseMinutes = responses > 0 ? entry.responseSeconds() / 60.0 / responses : null;
+        double reliability = reliability(entry);
+        return new DonorTrust(donorId,
+                entry.count(DonorTrustTable.COMPLETED),
+                entry.count(DonorTrustTable.CANCELLED),
+                entry.count(DonorTrustTable.ACCEPTED),
+                entry.count(DonorTrustTable.DECLINED),
+                averageResponseMinutes,
+                reliability,
+                (int) Math.round(100 * reliability));
+    }
+    
+    /**
+     * Reliability used by the matching score.
+     */
+    @Override
+    public double of(long donorId) {
+        DonorTrustTable.Entry entry = table.get(donorId);
+        return entry != null ? reliability(entry) : NEUTRAL.of(donorId);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        checkpointer.shutdownNow();
+        checkpoint();
+    }
+    
+    private double reliability(DonorTrustTable.Entry entry) {
+        double completion = smoothedRate(entry.count(DonorTrustTable.COMPLETED), entry.count(DonorTrustTable.CANCELLED));
+        double acceptance = smoothedRate(entry.count(DonorTrustTable.ACCEPTED), entry.count(DonorTrustTable.DECLINED));
+        int responses = entry.count(DonorTrustTable.RESPONSES);
+        double responsiveness = responses > 0
+                ? responseTargetMinutes / (responseTargetMinutes + entry.responseSeconds() / 60.0 / responses)
+                : 0.5;
+        return 0.5 * completion + 0.3 * acceptance + 0.2 * responsiveness;
+    }
+    
+    private static double smoothedRate(int good, int bad) {
+        return (good + 1.0) / (good + bad + 2.0);
+    }
+    
+    private static int donationField(String status) {
+        if ("completed".equals(status)) {
+            return DonorTrustTable.COMPLETED;
+        }
+        return "cancelled".equals(status) ? DonorTrustTable.CANCELLED : -1;
+    }
+    
+    private static int matchField(String status) {
+        if ("accepted".equals(status)) {
+            return DonorTrustTable.ACCEPTED;
+        }
+        return "declined".equals(status) ? DonorTrustTable.DECLINED : -1;
+    }
+    
+    private void move(long donorId, int from, int to) {
+        if (from == to) {
+            return;
+        }
+        if (from >= 0) {
+            table.add(donorId, from, -1);
+        }
+        if (to >= 0) {
+            table.add(donorId, to, 1);
+        }
+    }
+    
+    private void checkpoint() {
+        if (!persistent) {
+            return;
+        }
+        List<DonorTrustTable.Entry> changed = table.drainDirty();
+        List<AppliedEvents.Position> positions = applied.drainDirty();
+        if (changed.isEmpty() && positions.isEmpty() && applied.size() == 0) {
+            return;
+        }
+        try {
+            checkpointTimer.record(() -> {
+                Boolean postgres = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> connection.isWrapperFor(PGConnection.class));
+                Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+                // Counters and the positions they include commit together, so a reload never replays or skips an event
+                transactionTemplate.executeWithoutResult(status -> {
+                    jdbcTemplate.batchUpdate(Boolean.TRUE.equals(postgres) ? INSERT_SQL : MERGE_SQL, changed, batchSize,
+                            (ps, entry) -> ps.setLong(1, entry.donorId()));
+                    jdbcTemplate.batchUpdate(ADD_SQL, changed, batchSize, (ps, entry) -> {
+                        for (int field = 0; field < DonorTrustTable.FIELDS; field++) {
+                            ps.setInt(1 + field, entry.count(field));
+                        }
+                        ps.setLong(6, entry.responseSeconds());
+                        ps.setTimestamp(7, now);
+                        ps.setLong(8, entry.donorId());
+                    });
+                    jdbcTemplate.batchUpdate(Boolean.TRUE.equals(postgres) ? UPSERT_POSITION_SQL : MERGE_POSITION_SQL,
+                            positions, batchSize, (ps, position) -> {
+                                ps.setString(1, position.aggregateType());
+                                ps.setLong(2, position.aggregateId());
+                                ps.setLong(3, position.eventId());
+                            });
+                });
+            });
+            log.debug("Checkpointed trust counters of {} donors and {} event positions", changed.size(), positions.size());
+        } catch (RuntimeException e) {
+            // Keep the changes and retry on the next pass
+            table.restore(changed);
+            applied.markDirty(positions);
+            log.warn("Trust checkpoint of {} donors failed, will retry", changed.size(), e);
+            return;
+        }
+        prunePositions();
+    }
+    
+    /**
+     * Forget the positions whose event the relay will not hand out again. Best effort: a failure only keeps them until
+     * the next checkpoint.
+     */
+    private void prunePositions() {
+        try {
+            List<AppliedEvents.Position> settled = jdbcTemplate.query(SETTLED_POSITIONS_SQL,
+                    (rs, rowNum) -> new AppliedEvents.Position(rs.getString(1), rs.getLong(2), rs.getLong(3)), maxOutboxAttempts);
+            if (settled.isEmpty()) {
+                return;
+            }
+            jdbcTemplate.batchUpdate(DELETE_POSITION_SQL, settled, batchSize, (ps, position) -> {
+                ps.setString(1, position.aggregateType());
+                ps.setLong(2, position.aggregateId());
+                ps.setLong(3, position.eventId());
+            });
+            settled.forEach(applied::forget);
+        } catch (RuntimeException e) {
+            log.warn("Pruning trust event positions failed", e);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+-- Transactional outbox: match and donation state changes are inserted here in the same transaction as the change,
+-- and OutboxRelay delivers them to in-process subscribers afterwards. Delivered rows are kept for
+-- outbox.retention-hours; rows that keep failing stop being retried after outbox.max-attempts.
+
+CREATE TABLE IF NOT EXISTS outbox_events (
+    id bigserial PRIMARY KEY,
+    idempotency_key text NOT NULL,
+    event_type text NOT NULL,
+    aggregate_type text NOT NULL,
+    aggregate_id bigint NOT NULL,
+    payload text NOT NULL,
+    attempts integer NOT NULL DEFAULT 0,
+    last_error text,
+    created_at timestamp NOT NULL DEFAULT now(),
+    available_at timestamp NOT NULL DEFAULT now(),
+    delivered_at timestamp,
+    CONSTRAINT uq_outbox_events_key UNIQUE (idempotency_key)
+);
+
+-- The relay's scan: undelivered rows in id order
+CREATE INDEX IF NOT EXISTS idx_outbox_events_pending ON outbox_events (id) WHERE delivered_at IS NULL;
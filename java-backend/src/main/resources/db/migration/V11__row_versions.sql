@@ -0,0 +1,7 @@
+-- Optimistic-lock versions for users, donations and matches. Hibernate bumps them on entity updates; the JDBC
+-- writers (matching upserts and expiry, eligibility reconciliation) bump them too, so a version identifies one state
+-- of the row and can be served as its ETag.
+
+ALTER TABLE users ADD COLUMN IF NOT EXISTS version bigint NOT NULL DEFAULT 0;
+ALTER TABLE donations ADD COLUMN IF NOT EXISTS version bigint NOT NULL DEFAULT 0;
+ALTER TABLE matches ADD COLUMN IF NOT EXISTS version bigint NOT NULL DEFAULT 0;
@@ -0,0 +1,4 @@
+-- users: available seekers by position, so incremental matching offers a changed donor only to the seekers around it
+CREATE INDEX IF NOT EXISTS idx_users_available_seeker_coords
+    ON users (latitude, longitude) INCLUDE (blood_group)
+    WHERE user_type = 'seeker' AND is_available = true AND latitude IS NOT NULL AND longitude IS NOT NULL;
@@ -0,0 +1,16 @@
+-- Supply counts only donors who may donate now, the same predicate matching applies. Keep the SELECT in sync with
+-- DemandRollups.SUPPLY_SQL; DemandRollups refreshes the view when deferrals run out.
+
+DROP MATERIALIZED VIEW IF EXISTS supply_rollup;
+
+CREATE MATERIALIZED VIEW supply_rollup AS
+SELECT CAST(FLOOR(latitude * 10) AS INTEGER)  AS cell_lat,
+       CAST(FLOOR(longitude * 10) AS INTEGER) AS cell_lon,
+       blood_group,
+       COUNT(*)                               AS donors
+FROM users
+WHERE user_type = 'donor' AND is_available = true AND latitude IS NOT NULL AND longitude IS NOT NULL
+  AND (next_eligible_at IS NULL OR next_eligible_at <= LOCALTIMESTAMP)
+GROUP BY CAST(FLOOR(latitude * 10) AS INTEGER), CAST(FLOOR(longitude * 10) AS INTEGER), blood_group;
+
+CREATE UNIQUE INDEX IF NOT EXISTS uq_supply_rollup ON supply_rollup (cell_lat, cell_lon, blood_group);
@@ -0,0 +1,4 @@
+-- Id of the last outbox event applied to each donor's trust counters, checkpointed with them so events redelivered
+-- after a restart are skipped instead of counted twice. Rows seeded from history start at 0.
+
+ALTER TABLE donor_trust ADD COLUMN IF NOT EXISTS last_event_id bigint NOT NULL DEFAULT 0;
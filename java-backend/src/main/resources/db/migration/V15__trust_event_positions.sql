@@ -0,0 +1,13 @@
+-- Id of the last outbox event applied to the trust counters per match or donation, checkpointed with the counters so
+-- events redelivered after a restart are skipped instead of counted twice. Kept per row rather than per donor: outbox
+-- ids are assigned at insert, not commit, so one donor's events on different rows can be relayed out of id order.
+-- Rows are pruned once their event is delivered.
+
+CREATE TABLE IF NOT EXISTS trust_event_positions (
+    aggregate_type text NOT NULL,
+    aggregate_id bigint NOT NULL,
+    last_event_id bigint NOT NULL,
+    PRIMARY KEY (aggregate_type, aggregate_id)
+);
+
+ALTER TABLE donor_trust DROP COLUMN IF EXISTS last_event_id;
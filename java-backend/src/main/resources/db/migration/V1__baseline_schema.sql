@@ -0,0 +1,48 @@
+-- Schema as originally pushed by drizzle from shared/schema.ts.
+-- IF NOT EXISTS lets this run against databases that were created with drizzle-kit push.
+
+CREATE TABLE IF NOT EXISTS users (
+    id                 serial PRIMARY KEY,
+    name               text NOT NULL,
+    email              text NOT NULL UNIQUE,
+    phone              text,
+    blood_group        text NOT NULL,
+    location           text NOT NULL,
+    age                integer NOT NULL,
+    weight             numeric,
+    user_type          text NOT NULL,
+    is_available       boolean DEFAULT true,
+    last_donation      timestamp,
+    medical_conditions text,
+    emergency_contact  text,
+    created_at         timestamp DEFAULT now(),
+    updated_at         timestamp DEFAULT now()
+);
+
+CREATE TABLE IF NOT EXISTS donations (
+    id             serial PRIMARY KEY,
+    donor_id       integer REFERENCES users (id),
+    seeker_id      integer REFERENCES users (id),
+    blood_group    text NOT NULL,
+    amount         numeric,
+    donation_type  text NOT NULL,
+    location       text NOT NULL,
+    status         text NOT NULL DEFAULT 'pending',
+    urgency        text NOT NULL DEFAULT 'normal',
+    scheduled_date timestamp,
+    completed_date timestamp,
+    created_at     timestamp DEFAULT now(),
+    updated_at     timestamp DEFAULT now()
+);
+
+CREATE TABLE IF NOT EXISTS matches (
+    id                  serial PRIMARY KEY,
+    donor_id            integer REFERENCES users (id),
+    seeker_id           integer REFERENCES users (id),
+    blood_group         text NOT NULL,
+    distance            numeric,
+    compatibility_score integer,
+    status              text NOT NULL DEFAULT 'pending',
+    created_at          timestamp DEFAULT now(),
+    updated_at          timestamp DEFAULT now()
+);
@@ -0,0 +1,5 @@
+ALTER TABLE users ADD COLUMN IF NOT EXISTS latitude double precision;
+ALTER TABLE users ADD COLUMN IF NOT EXISTS longitude double precision;
+
+ALTER TABLE donations ADD COLUMN IF NOT EXISTS latitude double precision;
+ALTER TABLE donations ADD COLUMN IF NOT EXISTS longitude double precision;
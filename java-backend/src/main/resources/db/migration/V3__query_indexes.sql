@@ -0,0 +1,37 @@
+-- Indexes for the repository and keyset-pagination queries. Trailing id columns let pages
+-- be read in id order straight from the index.
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- users: available-by-group lookups (cache loader, matching, donor/seeker pages)
+CREATE INDEX IF NOT EXISTS idx_users_available_group_type
+    ON users (blood_group, user_type, id) WHERE is_available = true;
+
+-- users: available donors with coordinates, streamed into the spatial index at startup
+CREATE INDEX IF NOT EXISTS idx_users_available_donor_coords
+    ON users (id) INCLUDE (blood_group, latitude, longitude)
+    WHERE user_type = 'donor' AND is_available = true AND latitude IS NOT NULL AND longitude IS NOT NULL;
+
+-- users: substring location search, both case-sensitive LIKE and lower(location) LIKE
+CREATE INDEX IF NOT EXISTS idx_users_location_trgm ON users USING gin (location gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_users_location_lower_trgm ON users USING gin (lower(location) gin_trgm_ops);
+
+-- donations: per-user lookups, one index per side of the donor/seeker UNION
+CREATE INDEX IF NOT EXISTS idx_donations_donor ON donations (donor_id, id);
+CREATE INDEX IF NOT EXISTS idx_donations_seeker ON donations (seeker_id, id);
+
+CREATE INDEX IF NOT EXISTS idx_donations_status ON donations (status, id);
+CREATE INDEX IF NOT EXISTS idx_donations_urgency_status ON donations (urgency, status, id);
+CREATE INDEX IF NOT EXISTS idx_donations_blood_group_status ON donations (blood_group, status, id);
+CREATE INDEX IF NOT EXISTS idx_donations_critical_pending
+    ON donations (id) WHERE urgency = 'critical' AND status = 'pending';
+
+-- matches: per-user lookups, one index per side of the donor/seeker UNION
+CREATE INDEX IF NOT EXISTS idx_matches_donor ON matches (donor_id, id);
+CREATE INDEX IF NOT EXISTS idx_matches_seeker ON matches (seeker_id, id);
+
+CREATE INDEX IF NOT EXISTS idx_matches_status ON matches (status, id);
+CREATE INDEX IF NOT EXISTS idx_matches_blood_group ON matches (blood_group, id);
+CREATE INDEX IF NOT EXISTS idx_matches_pending_blood_group
+    ON matches (blood_group, id) WHERE status = 'pending';
+CREATE INDEX IF NOT EXISTS idx_matches_compatibility ON matches (compatibility_score DESC, id);
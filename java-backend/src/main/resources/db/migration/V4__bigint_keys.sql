@@ -0,0 +1,13 @@
+-- The entities map every key as a Java Long; widen the drizzle serial/integer columns to match
+-- so schema validation passes and ids cannot overflow at 2^31.
+
+ALTER TABLE donations ALTER COLUMN donor_id TYPE bigint, ALTER COLUMN seeker_id TYPE bigint;
+ALTER TABLE matches ALTER COLUMN donor_id TYPE bigint, ALTER COLUMN seeker_id TYPE bigint;
+
+ALTER TABLE users ALTER COLUMN id TYPE bigint;
+ALTER TABLE donations ALTER COLUMN id TYPE bigint;
+ALTER TABLE matches ALTER COLUMN id TYPE bigint;
+
+ALTER SEQUENCE IF EXISTS users_id_seq AS bigint;
+ALTER SEQUENCE IF EXISTS donations_id_seq AS bigint;
+ALTER SEQUENCE IF EXISTS matches_id_seq AS bigint;
@@ -0,0 +1,14 @@
+-- One match row per donor-seeker pair, so matching runs can upsert instead of appending duplicates.
+-- Existing duplicates keep a decided (non-pending) row over a pending one, then the most recent.
+
+DELETE FROM matches
+WHERE id IN (
+    SELECT id
+    FROM (SELECT id,
+                 row_number() OVER (PARTITION BY donor_id, seeker_id ORDER BY status = 'pending', id DESC) AS rank
+          FROM matches
+          WHERE donor_id IS NOT NULL AND seeker_id IS NOT NULL) ranked
+    WHERE rank > 1
+);
+
+ALTER TABLE matches ADD CONSTRAINT uq_matches_donor_seeker UNIQUE (donor_id, seeker_id);
@@ -0,0 +1,31 @@
+-- Pre-aggregated demand and supply for the heatmap API, refreshed by DemandRollups when donations or users change.
+-- Cells are 0.1 degree (cell index = floor(coordinate * 10)); demand is bucketed by hour. Keep the SELECTs in sync
+-- with DemandRollups.DEMAND_SQL / SUPPLY_SQL, which other databases query directly.
+
+CREATE MATERIALIZED VIEW IF NOT EXISTS demand_rollup AS
+SELECT CAST(FLOOR(latitude * 10) AS INTEGER)  AS cell_lat,
+       CAST(FLOOR(longitude * 10) AS INTEGER) AS cell_lon,
+       blood_group,
+       urgency,
+       DATE_TRUNC('hour', created_at)         AS bucket,
+       COUNT(*)                               AS requests,
+       SUM(CASE WHEN status = 'pending' THEN 1 ELSE 0 END) AS pending,
+       COALESCE(SUM(amount), 0)               AS amount_ml
+FROM donations
+WHERE latitude IS NOT NULL AND longitude IS NOT NULL AND created_at IS NOT NULL
+GROUP BY CAST(FLOOR(latitude * 10) AS INTEGER), CAST(FLOOR(longitude * 10) AS INTEGER), blood_group, urgency,
+         DATE_TRUNC('hour', created_at);
+
+-- Required for REFRESH MATERIALIZED VIEW CONCURRENTLY; also serves the time-window scan
+CREATE UNIQUE INDEX IF NOT EXISTS uq_demand_rollup ON demand_rollup (bucket, cell_lat, cell_lon, blood_group, urgency);
+
+CREATE MATERIALIZED VIEW IF NOT EXISTS supply_rollup AS
+SELECT CAST(FLOOR(latitude * 10) AS INTEGER)  AS cell_lat,
+       CAST(FLOOR(longitude * 10) AS INTEGER) AS cell_lon,
+       blood_group,
+       COUNT(*)                               AS donors
+FROM users
+WHERE user_type = 'donor' AND is_available = true AND latitude IS NOT NULL AND longitude IS NOT NULL
+GROUP BY CAST(FLOOR(latitude * 10) AS INTEGER), CAST(FLOOR(longitude * 10) AS INTEGER), blood_group;
+
+CREATE UNIQUE INDEX IF NOT EXISTS uq_supply_rollup ON supply_rollup (cell_lat, cell_lon, blood_group);
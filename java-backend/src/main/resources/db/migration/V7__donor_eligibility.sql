@@ -0,0 +1,16 @@
+-- Donor eligibility: the type of the last donation and the computed date a donor may donate again, so the
+-- matching candidate query can drop deferred donors through an index instead of in memory.
+-- Values are recomputed from the configured eligibility rules on startup and on every write; the backfill here
+-- uses the default whole-blood deferral so the column is usable before the first start.
+
+ALTER TABLE users ADD COLUMN IF NOT EXISTS last_donation_type text;
+ALTER TABLE users ADD COLUMN IF NOT EXISTS next_eligible_at timestamp;
+
+UPDATE users SET next_eligible_at = last_donation + INTERVAL '56 days'
+WHERE last_donation IS NOT NULL AND next_eligible_at IS NULL;
+
+-- users: eligible available donors per blood group (matching candidates, newly eligible donor sweep)
+CREATE INDEX IF NOT EXISTS idx_users_eligible_donors
+    ON users (blood_group, next_eligible_at, id) WHERE user_type = 'donor' AND is_available = true;
+CREATE INDEX IF NOT EXISTS idx_users_donor_next_eligible
+    ON users (next_eligible_at) WHERE user_type = 'donor' AND is_available = true;
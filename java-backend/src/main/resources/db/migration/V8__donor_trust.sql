@@ -0,0 +1,35 @@
+-- Checkpoint of the in-memory donor trust table: per-donor counts of donation and match outcomes and the total
+-- time donors took to answer matches. The application keeps the live counts in memory and upserts changed donors
+-- here periodically; this script seeds it from the existing history.
+
+CREATE TABLE IF NOT EXISTS donor_trust (
+    donor_id bigint PRIMARY KEY REFERENCES users (id) ON DELETE CASCADE,
+    completed_donations integer NOT NULL DEFAULT 0,
+    cancelled_donations integer NOT NULL DEFAULT 0,
+    accepted_matches integer NOT NULL DEFAULT 0,
+    declined_matches integer NOT NULL DEFAULT 0,
+    responses integer NOT NULL DEFAULT 0,
+    response_seconds bigint NOT NULL DEFAULT 0,
+    updated_at timestamp NOT NULL DEFAULT now()
+);
+
+INSERT INTO donor_trust (donor_id, completed_donations, cancelled_donations, accepted_matches, declined_matches,
+                         responses, response_seconds)
+SELECT donor_id, SUM(completed), SUM(cancelled), SUM(accepted), SUM(declined), SUM(responses), SUM(response_seconds)
+FROM (
+    SELECT donor_id,
+           COUNT(*) FILTER (WHERE status = 'completed') AS completed,
+           COUNT(*) FILTER (WHERE status = 'cancelled') AS cancelled,
+           0 AS accepted, 0 AS declined, 0 AS responses, 0 AS response_seconds
+    FROM donations WHERE donor_id IS NOT NULL GROUP BY donor_id
+    UNION ALL
+    SELECT donor_id, 0, 0,
+           COUNT(*) FILTER (WHERE status = 'accepted'),
+           COUNT(*) FILTER (WHERE status = 'declined'),
+           COUNT(*) FILTER (WHERE status IN ('accepted', 'declined') AND created_at IS NOT NULL AND updated_at IS NOT NULL),
+           COALESCE(CAST(SUM(GREATEST(0, EXTRACT(EPOCH FROM updated_at - created_at)))
+               FILTER (WHERE status IN ('accepted', 'declined')) AS bigint), 0)
+    FROM matches WHERE donor_id IS NOT NULL GROUP BY donor_id
+) outcomes
+GROUP BY donor_id
+ON CONFLICT (donor_id) DO NOTHING;
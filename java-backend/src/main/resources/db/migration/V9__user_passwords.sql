@@ -0,0 +1,4 @@
+-- BCrypt hash of the user's password, set on registration or a password change. Users created before this
+-- migration, or imported in bulk, have none and cannot log in until one is set.
+
+ALTER TABLE users ADD COLUMN IF NOT EXISTS password_hash text;
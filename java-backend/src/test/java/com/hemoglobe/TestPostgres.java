@@ -0,0 +1,73 @@
+package com.hemoglobe;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One embedded PostgreSQL server per test JVM. Every caller gets its own database, migrated with the
+ * application's Flyway scripts, so tests do not see each other's rows.
+ * <p>
+ * The server stops in a JVM shutdown hook, which races the one that closes cached Spring contexts. A context per
+ * database is never reused anyway, so Spring tests close theirs after the class ({@code @DirtiesContext}) rather than
+ * leave its background tasks polling a stopped server at exit.
+ */
+public final class TestPostgres {
+    
+    private static final AtomicInteger databases = new AtomicInteger();
+    private static EmbeddedPostgres server;
+    
+    private TestPostgres() {}
+    
+    /**
+     * Name of a new, fully migrated database.
+     */
+    public static synchronized String newDatabase() {
+        String name = "hemoglobe_test_" + databases.incrementAndGet();
+        try (Connection connection = server().getPostgresDatabase().getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE DATABASE " + name);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not create test database " + name, e);
+        }
+        Flyway.configure()
+                .dataSource(dataSource(name))
+                .locations("classpath:db/migration")
+                .load()
+                .migrate();
+        return name;
+    }
+    
+    public static String jdbcUrl(String database) {
+        return server().getJdbcUrl("postgres", database);
+    }
+    
+    public static DataSource dataSource(String database) {
+        return server().getDatabase("postgres", database);
+    }
+    
+    private static EmbeddedPostgres server() {
+        if (server == null) {
+            try {
+                server = EmbeddedPostgres.builder().start();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not start embedded PostgreSQL", e);
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    server.close();
+                } catch (IOException ignored) {
+                    // The JVM is exiting anyway
+                }
+            }));
+        }
+        return server;
+    }
+}
@@ -0,0 +1,74 @@
+package com.hemoglobe.admission;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BufferedBodyRequestTest {
+    
+    @Test
+    void readListenerReadsTheBufferedBodyThenCompletes() {
+        byte[] body = "{\"bloodGroup\":\"O+\"}".getBytes(StandardCharsets.UTF_8);
+        ServletInputStream in = new BufferedBodyRequest(new MockHttpServletRequest(), body).getInputStream();
+        ByteArrayOutputStream read = new ByteArrayOutputStream();
+        List<String> calls = new ArrayList<>();
+        
+        in.setReadListener(new ReadListener() {
+            @Override
+            public void onDataAvailable() throws IOException {
+                calls.add("data");
+                byte[] buffer = new byte[8];
+                while (in.isReady() && !in.isFinished()) {
+                    read.write(buffer, 0, in.read(buffer));
+                }
+            }
+            
+            @Override
+            public void onAllDataRead() {
+                calls.add("done");
+            }
+            
+            @Override
+            public void onError(Throwable t) {
+                calls.add("error");
+            }
+        });
+        
+        assertEquals(List.of("data", "done"), calls);
+        assertEquals(new String(body, StandardCharsets.UTF_8), read.toString(StandardCharsets.UTF_8));
+    }
+    
+    @Test
+    void emptyBodyCompletesWithoutData() {
+        ServletInputStream in = new BufferedBodyRequest(new MockHttpServletRequest(), new byte[0]).getInputStream();
+        List<String> calls = new ArrayList<>();
+        
+        in.setReadListener(new ReadListener() {
+            @Override
+            public void onDataAvailable() {
+                calls.add("data");
+            }
+            
+            @Override
+            public void onAllDataRead() {
+                calls.add("done");
+            }
+            
+            @Override
+            public void onError(Throwable t) {
+                calls.add("error");
+            }
+        });
+        
+        assertEquals(List.of("done"), calls);
+    }
+}
@@ -0,0 +1,105 @@
+package com.hemoglobe.admission;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RateLimiterTest {
+    
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+    
+    private final AtomicLong clock = new AtomicLong(1_000 * SECOND);
+    private final RateLimiter rateLimiter = new RateLimiter(1000, Duration.ofMinutes(10), clock::get);
+    
+    @Test
+    void burstIsAdmittedThenTheNextTokenIsOneIntervalAway() {
+        RoutePolicy policy = new RoutePolicy("test", List.of("/**"), 2, 5);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, rateLimiter.tryAcquire("client", policy));
+        }
+        assertEquals(SECOND / 2, rateLimiter.tryAcquire("client", policy));
+        
+        clock.addAndGet(SECOND / 4);
+        assertEquals(SECOND / 4, rateLimiter.tryAcquire("client", policy));
+        clock.addAndGet(SECOND / 4);
+        assertEquals(0, rateLimiter.tryAcquire("client", policy));
+        assertEquals(SECOND / 2, rateLimiter.tryAcquire("client", policy));
+    }
+    
+    @Test
+    void idleTimeRefillsUpToTheBurstOnly() {
+        RoutePolicy policy = new RoutePolicy("test", List.of("/**"), 10, 3);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, rateLimiter.tryAcquire("client", policy));
+        }
+        
+        clock.addAndGet(60 * SECOND);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, rateLimiter.tryAcquire("client", policy));
+        }
+        assertEquals(SECOND / 10, rateLimiter.tryAcquire("client", policy));
+    }
+    
+    @Test
+    void rejectedRequestsDoNotSpendTokens() {
+        RoutePolicy policy = new RoutePolicy("test", List.of("/**"), 1, 1);
+        assertEquals(0, rateLimiter.tryAcquire("client", policy));
+        for (int i = 0; i < 10; i++) {
+            assertEquals(SECOND, rateLimiter.tryAcquire("client", policy));
+        }
+        
+        clock.addAndGet(SECOND);
+        assertEquals(0, rateLimiter.tryAcquire("client", policy));
+    }
+    
+    @Test
+    void keysHaveSeparateBuckets() {
+        RoutePolicy policy = new RoutePolicy("test", List.of("/**"), 1, 1);
+        assertEquals(0, rateLimiter.tryAcquire("user:1|standard", policy));
+        assertEquals(0, rateLimiter.tryAcquire("user:1|critical", policy));
+        assertEquals(0, rateLimiter.tryAcquire("user:2|standard", policy));
+        assertEquals(SECOND, rateLimiter.tryAcquire("user:1|standard", policy));
+    }
+    
+    @Test
+    void concurrentCallersGetExactlyTheBurst() throws Exception {
+        RoutePolicy policy = new RoutePolicy("test", List.of("/**"), 1, 50);
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Integer>> admitted = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                admitted.add(executor.submit(() -> {
+                    start.await();
+                    int count = 0;
+                    for (int i = 0; i < 100; i++) {
+                        if (rateLimiter.tryAcquire("client", policy) == 0) {
+                            count++;
+                        }
+                    }
+                    return count;
+                }));
+            }
+            start.countDown();
+            
+            int total = 0;
+            for (Future<Integer> future : admitted) {
+                total += future.get(10, TimeUnit.SECONDS);
+            }
+            assertEquals(50, total);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
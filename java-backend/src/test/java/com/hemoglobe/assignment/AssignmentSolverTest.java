@@ -0,0 +1,158 @@
+package com.hemoglobe.assignment;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AssignmentSolverTest {
+    
+    private static final long NO_DEADLINE = Long.MAX_VALUE / 2;
+    
+    private final HungarianSolver hungarian = new HungarianSolver(Long.MAX_VALUE);
+    private final MinCostFlowSolver minCostFlow = new MinCostFlowSolver();
+    
+    @Test
+    void bothSolversMatchBruteForceOnSmallGraphs() {
+        Random random = new Random(11);
+        for (int round = 0; round < 300; round++) {
+            // Alternate the side that has more than one slot, so every graph also fits the Hungarian solver
+            boolean multiDemand = round % 2 == 0;
+            AssignmentProblem problem = random(random, 1 + random.nextInt(5), 1 + random.nextInt(5),
+                    multiDemand ? 3 : 1, multiDemand ? 1 : 3, 0.5);
+            long best = bruteForce(problem, 0, problem.demand().clone(), problem.capacity().clone(), problem.edgeSeekers());
+            
+            assertTrue(hungarian.fits(problem));
+            assertOptimal(problem, hungarian.solve(problem, deadline()), best);
+            assertOptimal(problem, minCostFlow.solve(problem, deadline()), best);
+        }
+    }
+    
+    @Test
+    void minCostFlowMatchesBruteForceWhenBothSidesHaveSeveralSlots() {
+        Random random = new Random(23);
+        for (int round = 0; round < 300; round++) {
+            AssignmentProblem problem = random(random, 1 + random.nextInt(4), 1 + random.nextInt(4), 3, 3, 0.6);
+            long best = bruteForce(problem, 0, problem.demand().clone(), problem.capacity().clone(), problem.edgeSeekers());
+            
+            assertOptimal(problem, minCostFlow.solve(problem, deadline()), best);
+        }
+    }
+    
+    @Test
+    void hungarianAndMinCostFlowAgreeOnLargerGraphs() {
+        Random random = new Random(37);
+        for (int round = 0; round < 40; round++) {
+            boolean multiDemand = round % 2 == 0;
+            AssignmentProblem problem = random(random, 20 + random.nextInt(40), 20 + random.nextInt(40),
+                    multiDemand ? 3 : 1, multiDemand ? 1 : 3, 0.15);
+            
+            Assignment byHungarian = hungarian.solve(problem, deadline());
+            Assignment byFlow = minCostFlow.solve(problem, deadline());
+            assertFeasible(problem, byHungarian);
+            assertFeasible(problem, byFlow);
+            assertTrue(byHungarian.optimal() && byFlow.optimal());
+            assertEquals(problem.weight(byHungarian.edges()), problem.weight(byFlow.edges()));
+        }
+    }
+    
+    @Test
+    void expiredDeadlineReturnsAFeasibleAssignmentMarkedNotOptimal() {
+        AssignmentProblem problem = random(new Random(5), 50, 50, 1, 1, 0.2);
+        long expired = System.nanoTime() - 1;
+        
+        for (AssignmentSolver solver : new AssignmentSolver[] {hungarian, minCostFlow}) {
+            Assignment assignment = solver.solve(problem, expired);
+            assertFalse(assignment.optimal());
+            assertFeasible(problem, assignment);
+        }
+    }
+    
+    @Test
+    void componentsPartitionTheEdges() {
+        AssignmentProblem problem = random(new Random(8), 30, 30, 2, 2, 0.05);
+        boolean[] seen = new boolean[problem.edges()];
+        int edges = 0;
+        for (AssignmentProblem.Component component : problem.components()) {
+            for (int e = 0; e < component.edges().length; e++) {
+                int global = component.edges()[e];
+                assertFalse(seen[global]);
+                seen[global] = true;
+                assertEquals(problem.weights()[global], component.problem().weights()[e]);
+                edges++;
+            }
+        }
+        assertEquals(problem.edges(), edges);
+    }
+    
+    private static long deadline() {
+        return System.nanoTime() + NO_DEADLINE;
+    }
+    
+    /** Every seeker gets each donor as an edge with {@code density}, in ascending donor order. */
+    private static AssignmentProblem random(Random random, int seekers, int donors, int maxDemand, int maxCapacity, double density) {
+        int[] demand = new int[seekers];
+        int[] capacity = new int[donors];
+        int[] rowStart = new int[seekers + 1];
+        int[] edgeDonors = new int[seekers * donors];
+        int[] weights = new int[seekers * donors];
+        int e = 0;
+        for (int s = 0; s < seekers; s++) {
+            demand[s] = 1 + random.nextInt(maxDemand);
+            for (int d = 0; d < donors; d++) {
+                if (random.nextDouble() < density) {
+                    edgeDonors[e] = d;
+                    weights[e++] = 1 + random.nextInt(100);
+                }
+            }
+            rowStart[s + 1] = e;
+        }
+        for (int d = 0; d < donors; d++) {
+            capacity[d] = 1 + random.nextInt(maxCapacity);
+        }
+        return new AssignmentProblem(demand, capacity, rowStart, Arrays.copyOf(edgeDonors, e),
+                Arrays.copyOf(weights, e));
+    }
+    
+    /** Best total weight over every subset of edges that respects demand and capacity. */
+    private static long bruteForce(AssignmentProblem problem, int edge, int[] demandLeft, int[] capacityLeft, int[] edgeSeekers) {
+        if (edge == problem.edges()) {
+            return 0;
+        }
+        long best = bruteForce(problem, edge + 1, demandLeft, capacityLeft, edgeSeekers);
+        int seeker = edgeSeekers[edge];
+        int donor = problem.donors()[edge];
+        if (demandLeft[seeker] > 0 && capacityLeft[donor] > 0) {
+            demandLeft[seeker]--;
+            capacityLeft[donor]--;
+            best = Math.max(best, problem.weights()[edge]
+                    + bruteForce(problem, edge + 1, demandLeft, capacityLeft, edgeSeekers));
+            demandLeft[seeker]++;
+            capacityLeft[donor]++;
+        }
+        return best;
+    }
+    
+    private static void assertOptimal(AssignmentProblem problem, Assignment assignment, long best) {
+        assertTrue(assignment.optimal());
+        assertFeasible(problem, assignment);
+        assertEquals(best, problem.weight(assignment.edges()));
+    }
+    
+    private static void assertFeasible(AssignmentProblem problem, Assignment assignment) {
+        int[] seekers = problem.edgeSeekers();
+        int[] demandLeft = problem.demand().clone();
+        int[] capacityLeft = problem.capacity().clone();
+        int previous = -1;
+        for (int e : assignment.edges()) {
+            assertTrue(e > previous, "edges are ascending and distinct");
+            previous = e;
+            assertTrue(--demandLeft[seekers[e]] >= 0, "seeker over demand");
+            assertTrue(--capacityLeft[problem.donors()[e]] >= 0, "donor over capacity");
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.hemoglobe.assignment;
+
+import com.hemoglobe.entity.User;
+import com.hemoglobe.matching.BloodCompatibility;
+import com.hemoglobe.matching.MatchCandidate;
+import com.hemoglobe.matching.ScoringModelRegistry;
+import com.hemoglobe.matching.WeightedScoringModel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Planning end to end without the database: parallelism does not change the plan, and a spent time budget still
+ * gives a complete, feasible plan marked as not optimal.
+ */
+class DonorAssignmentTest {
+    
+    private static final String[] GROUPS = {"O-", "A-", "B-", "AB-", "O+", "A+", "B+", "AB+"};
+    
+    private final List<User> seekers = new ArrayList<>();
+    private final List<User> donors = new ArrayList<>();
+    private final Map<Long, PendingRequests> requests = new HashMap<>();
+    
+    DonorAssignmentTest() {
+        Random random = new Random(3);
+        for (long id = 1; id <= 600; id++) {
+            User user = new User("User " + id, id + "@example.com", GROUPS[random.nextInt(GROUPS.length)], "Pune", 30,
+                    id <= 200 ? "seeker" : "donor");
+            user.setId(id);
+            user.setLatitude(18.52 + random.nextGaussian() * 0.2);
+            user.setLongitude(73.85 + random.nextGaussian() * 0.2);
+            if (id <= 200) {
+                seekers.add(user);
+                if (id % 3 == 0) {
+                    requests.put(id, new PendingRequests(1 + random.nextInt(3), id % 9 == 0));
+                }
+            } else {
+                donors.add(user);
+            }
+        }
+    }
+    
+    @Test
+    void planIsTheSameWhateverTheParallelism() {
+        AssignmentPlan sequential = plan(1, 10_000);
+        AssignmentPlan parallel = plan(4, 10_000);
+        
+        assertTrue(sequential.optimal());
+        assertTrue(sequential.components() > sequential.hungarianComponents() && sequential.hungarianComponents() > 0,
+                "both solvers take part");
+        assertEquals(sequential, parallel);
+        assertEquals(sequential, plan(4, 10_000));
+    }
+    
+    @Test
+    void spentBudgetIsFilledGreedilyAndReportedAsNotOptimal() {
+        AssignmentPlan optimal = plan(2, 10_000);
+        AssignmentPlan greedy = plan(2, 0);
+        
+        assertFalse(greedy.optimal());
+        assertFeasible(greedy);
+        assertFalse(greedy.candidates().isEmpty());
+        assertTrue(greedy.totalWeight() <= optimal.totalWeight());
+        assertEquals(optimal.edges(), greedy.edges());
+    }
+    
+    private AssignmentPlan plan(int parallelism, long timeBudgetMillis) {
+        DonorAssignment assignment = new DonorAssignment(new SimpleMeterRegistry(), 8, 0, 50, 1, 3, 10, 2_000,
+                timeBudgetMillis, parallelism);
+        ReflectionTestUtils.setField(assignment, "scoringModels",
+                new ScoringModelRegistry(new WeightedScoringModel(50, 40, 30, 200, 10, 180, 10, 10)));
+        try {
+            return assignment.plan(BloodCompatibility.WHOLE_BLOOD, seekers, requests, donors);
+        } finally {
+            assignment.shutdown();
+        }
+    }
+    
+    private void assertFeasible(AssignmentPlan plan) {
+        Map<Long, Integer> perSeeker = new HashMap<>();
+        Map<Long, Integer> perDonor = new HashMap<>();
+        for (MatchCandidate candidate : plan.candidates()) {
+            perSeeker.merge(candidate.seekerId(), 1, Integer::sum);
+            perDonor.merge(candidate.donorId(), 1, Integer::sum);
+        }
+        perDonor.values().forEach(count -> assertEquals(1, count));
+        perSeeker.forEach((seeker, count) ->
+                assertTrue(count <= Math.max(1, requests.getOrDefault(seeker, PendingRequests.NONE).count())));
+    }
+}
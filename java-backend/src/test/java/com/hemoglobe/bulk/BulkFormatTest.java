@@ -0,0 +1,101 @@
+package com.hemoglobe.bulk;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BulkFormatTest {
+    
+    private final ObjectMapper objectMapper = JsonMapper.builder()
+            .addModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+    
+    @Test
+    void csvReadsByHeaderIgnoringUnknownColumnsAndBlankCells() throws IOException {
+        String csv = """
+                email,name,bloodGroup,unknownColumn,age,isAvailable,latitude,lastDonation
+                 a@example.com ,Ann,O-,x,30,false,52.5,2026-01-02T03:04:05
+                b@example.com,Bob,AB+,,41,,,
+                """;
+        
+        List<BulkUserRow> rows = read(BulkFormat.CSV, csv);
+        
+        assertEquals(2, rows.size());
+        BulkUserRow ann = rows.get(0);
+        assertEquals("a@example.com", ann.email());
+        assertEquals("Ann", ann.name());
+        assertEquals(30, ann.age());
+        assertEquals(Boolean.FALSE, ann.isAvailable());
+        assertEquals(52.5, ann.latitude());
+        assertEquals(LocalDateTime.of(2026, 1, 2, 3, 4, 5), ann.lastDonation());
+        BulkUserRow bob = rows.get(1);
+        assertNull(bob.isAvailable());
+        assertNull(bob.latitude());
+        assertNull(bob.lastDonation());
+        // A missing availability imports as available
+        assertEquals(Boolean.TRUE, bob.toUser().getIsAvailable());
+    }
+    
+    @Test
+    void ndjsonReadsOneObjectPerLineIgnoringUnknownProperties() throws IOException {
+        String ndjson = """
+                {"email":"a@example.com","bloodGroup":"A+","age":25,"id":99,"weight":61.5}
+                {"email":"b@example.com","bloodGroup":"B-","userType":"seeker"}
+                """;
+        
+        List<BulkUserRow> rows = read(BulkFormat.NDJSON, ndjson);
+        
+        assertEquals(List.of("a@example.com", "b@example.com"), rows.stream().map(BulkUserRow::email).toList());
+        assertEquals(new BigDecimal("61.5"), rows.get(0).weight());
+        assertEquals("seeker", rows.get(1).userType());
+    }
+    
+    @Test
+    void writtenRowsReadBackUnchanged() throws IOException {
+        List<BulkUserRow> rows = List.of(
+                new BulkUserRow("Ann", "a@example.com", "+1 555", "O-", "Pune, district 4", 18.5, 73.8, 30,
+                        new BigDecimal("60.5"), "donor", true, LocalDateTime.of(2026, 5, 1, 9, 0), "plasma", "none, \"quoted\"", null),
+                new BulkUserRow("Bob", "b@example.com", null, "AB+", "Paris", null, null, 41, null, "seeker", false,
+                        null, null, null, "Eve"));
+        
+        for (BulkFormat format : BulkFormat.values()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (var writer = format.writer(objectMapper, BulkUserRow.class).writeValues(out)) {
+                writer.writeAll(rows);
+            }
+            assertEquals(rows, read(format, out.toString(StandardCharsets.UTF_8)), format.name());
+        }
+    }
+    
+    @Test
+    void formatsResolveFromNamesAndContentTypes() {
+        assertEquals(BulkFormat.CSV, BulkFormat.of(" csv "));
+        assertEquals(BulkFormat.NDJSON, BulkFormat.of("NDJSON"));
+        assertThrows(IllegalArgumentException.class, () -> BulkFormat.of("xml"));
+        
+        assertEquals(BulkFormat.CSV, BulkFormat.of(MediaType.parseMediaType("text/csv;charset=UTF-8")));
+        assertEquals(BulkFormat.NDJSON, BulkFormat.of(MediaType.APPLICATION_NDJSON));
+        assertNull(BulkFormat.of(MediaType.APPLICATION_JSON));
+    }
+    
+    private List<BulkUserRow> read(BulkFormat format, String body) throws IOException {
+        try (var iterator = format.reader(objectMapper, BulkUserRow.class).<BulkUserRow>readValues(body)) {
+            return iterator.readAll();
+        }
+    }
+}
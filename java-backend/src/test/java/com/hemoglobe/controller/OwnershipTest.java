@@ -0,0 +1,205 @@
+package com.hemoglobe.controller;
+
+import com.hemoglobe.TestPostgres;
+import com.hemoglobe.entity.User;
+import com.hemoglobe.security.JwtService;
+import com.hemoglobe.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Endpoints that act on behalf of one user, or need the admin role: the event stream, match answers, user updates,
+ * deletes and password changes, and bulk imports.
+ */
+@DirtiesContext
+@SpringBootTest(properties = "security.admin-emails=admin@example.com")
+@AutoConfigureMockMvc
+class OwnershipTest {
+    
+    private static final String DATABASE = TestPostgres.newDatabase();
+    
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> TestPostgres.jdbcUrl(DATABASE));
+    }
+    
+    @Autowired
+    private MockMvc mockMvc;
+    
+    @Autowired
+    private JwtService jwtService;
+    
+    @Autowired
+    private UserService userService;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    private User donor;
+    private User seeker;
+    private User admin;
+    
+    @BeforeEach
+    void users() {
+        jdbcTemplate.execute("TRUNCATE matches, donations, outbox_events, donor_trust, users RESTART IDENTITY CASCADE");
+        donor = user("donor@example.com", "donor");
+        seeker = user("seeker@example.com", "seeker");
+        admin = user("admin@example.com", "seeker");
+    }
+    
+    @Test
+    void eventsAreOpenOnlyToTheirUser() throws Exception {
+        mockMvc.perform(get("/users/{id}/events", donor.getId()).header(HttpHeaders.AUTHORIZATION, bearer(seeker)))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/users/{id}/events", donor.getId()).header(HttpHeaders.AUTHORIZATION, bearer(donor)))
+                .andExpect(status().isOk());
+    }
+    
+    @Test
+    void onlyTheDonorMayAnswerAMatch() throws Exception {
+        long matchId = jdbcTemplate.queryForObject("INSERT INTO matches (donor_id, seeker_id, blood_group, distance, " +
+                "compatibility_score, status) VALUES (?, ?, 'O+', 5, 90, 'pending') RETURNING id", Long.class,
+                donor.getId(), seeker.getId());
+        
+        mockMvc.perform(post("/matches/{id}/accept", matchId).header(HttpHeaders.AUTHORIZATION, bearer(seeker)))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(post("/matches/{id}/decline", matchId).header(HttpHeaders.AUTHORIZATION, bearer(seeker)))
+                .andExpect(status().isForbidden());
+        assertEquals("pending", matchStatus(matchId));
+        
+        mockMvc.perform(post("/matches/{id}/accept", matchId).header(HttpHeaders.AUTHORIZATION, bearer(donor)))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/matches/{id}/decline", matchId).header(HttpHeaders.AUTHORIZATION, bearer(donor)))
+                .andExpect(status().isConflict());
+        assertEquals("accepted", matchStatus(matchId));
+    }
+    
+    @Test
+    void passwordChangesNeedTheUserAndTheCurrentPassword() throws Exception {
+        String change = """
+                {"currentPassword":"%s","newPassword":"new-password"}
+                """;
+        mockMvc.perform(put("/users/{id}/password", donor.getId()).header(HttpHeaders.AUTHORIZATION, bearer(seeker))
+                        .contentType(MediaType.APPLICATION_JSON).content(change.formatted("old-password")))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(put("/users/{id}/password", donor.getId()).header(HttpHeaders.AUTHORIZATION, bearer(donor))
+                        .contentType(MediaType.APPLICATION_JSON).content(change.formatted("wrong-password")))
+                .andExpect(status().isForbidden());
+        assertEquals(200, login("old-password"));
+        
+        mockMvc.perform(put("/users/{id}/password", donor.getId()).header(HttpHeaders.AUTHORIZATION, bearer(donor))
+                        .contentType(MediaType.APPLICATION_JSON).content(change.formatted("old-password")))
+                .andExpect(status().isNoContent());
+        assertEquals(401, login("old-password"));
+        assertEquals(200, login("new-password"));
+    }
+    
+    @Test
+    void userUpdatesIgnorePasswords() throws Exception {
+        mockMvc.perform(put("/users/{id}", donor.getId()).header(HttpHeaders.AUTHORIZATION, bearer(donor))
+                        .contentType(MediaType.APPLICATION_JSON).content("""
+                                {"name":"Donor","email":"donor@example.com","bloodGroup":"O+","location":"Pune",
+                                 "age":30,"userType":"donor","password":"taken-over"}
+                                """))
+                .andExpect(status().isOk());
+        
+        assertEquals(401, login("taken-over"));
+        assertEquals(200, login("old-password"));
+    }
+    
+    @Test
+    void usersAreUpdatedAndDeletedOnlyByThemselvesOrAnAdmin() throws Exception {
+        String update = """
+                {"name":"%s","email":"donor@example.com","bloodGroup":"O+","location":"Pune","age":30,"userType":"donor"}
+                """;
+        mockMvc.perform(put("/users/{id}", donor.getId()).header(HttpHeaders.AUTHORIZATION, bearer(seeker))
+                        .contentType(MediaType.APPLICATION_JSON).content(update.formatted("Taken Over")))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(put("/users/{id}", donor.getId()).header(HttpHeaders.AUTHORIZATION, bearer(admin))
+                        .contentType(MediaType.APPLICATION_JSON).content(update.formatted("Renamed")))
+                .andExpect(status().isOk());
+        assertEquals("Renamed", jdbcTemplate.queryForObject("SELECT name FROM users WHERE id = ?", String.class, donor.getId()));
+        
+        mockMvc.perform(delete("/users/{id}", seeker.getId()).header(HttpHeaders.AUTHORIZATION, bearer(donor)))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(delete("/users/{id}", seeker.getId()).header(HttpHeaders.AUTHORIZATION, bearer(seeker)))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(delete("/users/{id}", donor.getId()).header(HttpHeaders.AUTHORIZATION, bearer(admin)))
+                .andExpect(status().isNoContent());
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Integer.class));
+    }
+    
+    @Test
+    void bulkImportsNeedTheAdminRole() throws Exception {
+        String roster = """
+                {"name":"Imported","email":"imported@example.com","bloodGroup":"A+","location":"Pune","age":40,"userType":"donor"}
+                """;
+        mockMvc.perform(post("/users/bulk").header(HttpHeaders.AUTHORIZATION, bearer(donor))
+                        .contentType(MediaType.APPLICATION_NDJSON).content(roster))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/users/bulk/imports/{importId}/errors", "unknown").header(HttpHeaders.AUTHORIZATION, bearer(donor)))
+                .andExpect(status().isForbidden());
+        
+        mockMvc.perform(post("/users/bulk").header(HttpHeaders.AUTHORIZATION, bearer(admin))
+                        .contentType(MediaType.APPLICATION_NDJSON).content(roster))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/users/bulk/imports/{importId}/errors", "unknown").header(HttpHeaders.AUTHORIZATION, bearer(admin)))
+                .andExpect(status().isNotFound());
+    }
+    
+    @Test
+    void passwordChangesInvalidateTheUsersETag() throws Exception {
+        String etag = mockMvc.perform(get("/users/{id}", donor.getId()).header(HttpHeaders.AUTHORIZATION, bearer(donor)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        
+        mockMvc.perform(put("/users/{id}/password", donor.getId()).header(HttpHeaders.AUTHORIZATION, bearer(donor))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"currentPassword\":\"old-password\",\"newPassword\":\"new-password\"}"))
+                .andExpect(status().isNoContent());
+        
+        mockMvc.perform(get("/users/{id}", donor.getId()).header(HttpHeaders.AUTHORIZATION, bearer(donor))
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+    
+    private User user(String email, String userType) {
+        User user = new User("Test", email, "O+", "Pune", 30, userType);
+        user.setLatitude(18.52);
+        user.setLongitude(73.85);
+        user.setPassword("old-password");
+        userService.createUser(user);
+        return user;
+    }
+    
+    private int login(String password) throws Exception {
+        return mockMvc.perform(post("/auth/login").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"donor@example.com\",\"password\":\"" + password + "\"}"))
+                .andReturn().getResponse().getStatus();
+    }
+    
+    private String matchStatus(long matchId) {
+        return jdbcTemplate.queryForObject("SELECT status FROM matches WHERE id = ?", String.class, matchId);
+    }
+    
+    private String bearer(User user) {
+        return "Bearer " + jwtService.issue(user);
+    }
+}
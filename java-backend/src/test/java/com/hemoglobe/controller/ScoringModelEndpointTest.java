@@ -0,0 +1,81 @@
+package com.hemoglobe.controller;
+
+import com.hemoglobe.TestPostgres;
+import com.hemoglobe.entity.User;
+import com.hemoglobe.matching.ScoringModel;
+import com.hemoglobe.matching.ScoringModelRegistry;
+import com.hemoglobe.matching.WeightedScoringModel;
+import com.hemoglobe.security.JwtService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Replacing the scoring model: admins only, and only with weights inside the bounds.
+ */
+@DirtiesContext
+@SpringBootTest(properties = "security.admin-emails=Admin@Example.com")
+@AutoConfigureMockMvc
+class ScoringModelEndpointTest {
+    
+    private static final String DATABASE = TestPostgres.newDatabase();
+    private static final String WEIGHTS = """
+            {"aboExact":60,"aboCompatible":40,"distance":30,"maxDistanceKm":80,"rest":10,"restDays":120,"reliability":10,"urgency":%s}
+            """;
+    
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> TestPostgres.jdbcUrl(DATABASE));
+    }
+    
+    @Autowired
+    private MockMvc mockMvc;
+    
+    @Autowired
+    private JwtService jwtService;
+    
+    @Autowired
+    private ScoringModelRegistry scoringModels;
+    
+    @Test
+    void onlyAdminsMayReplaceTheModel() throws Exception {
+        mockMvc.perform(put("/matches/scoring").contentType(MediaType.APPLICATION_JSON).content(WEIGHTS.formatted(10)))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(put("/matches/scoring").header(HttpHeaders.AUTHORIZATION, bearer(2, "donor@example.com"))
+                        .contentType(MediaType.APPLICATION_JSON).content(WEIGHTS.formatted(10)))
+                .andExpect(status().isForbidden());
+        
+        mockMvc.perform(put("/matches/scoring").header(HttpHeaders.AUTHORIZATION, bearer(1, "admin@example.com"))
+                        .contentType(MediaType.APPLICATION_JSON).content(WEIGHTS.formatted(10)))
+                .andExpect(status().isOk());
+        assertEquals(new WeightedScoringModel(60, 40, 30, 80, 10, 120, 10, 10), scoringModels.current());
+    }
+    
+    @Test
+    void weightsOutOfBoundsAreRejected() throws Exception {
+        ScoringModel before = scoringModels.current();
+        for (String urgency : new String[] {"101", "-1"}) {
+            mockMvc.perform(put("/matches/scoring").header(HttpHeaders.AUTHORIZATION, bearer(1, "admin@example.com"))
+                            .contentType(MediaType.APPLICATION_JSON).content(WEIGHTS.formatted(urgency)))
+                    .andExpect(status().isBadRequest());
+        }
+        assertEquals(before, scoringModels.current());
+    }
+    
+    private String bearer(long id, String email) {
+        User user = new User("Test", email, "O+", "Pune", 30, "donor");
+        user.setId(id);
+        return "Bearer " + jwtService.issue(user);
+    }
+}
@@ -0,0 +1,150 @@
+package com.hemoglobe.geo;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DonorSpatialIndexTest {
+    
+    private static final String[] GROUPS = {"O-", "A-", "B-", "AB-", "O+", "A+", "B+", "AB+"};
+    private static final int ALL_GROUPS = 0xff;
+    
+    record Donor(Long id, String bloodGroup, Double latitude, Double longitude, LocalDateTime nextEligibleAt)
+            implements DonorLocation {
+        
+        public Long getId() {
+            return id;
+        }
+        
+        public String getBloodGroup() {
+            return bloodGroup;
+        }
+        
+        public Double getLatitude() {
+            return latitude;
+        }
+        
+        public Double getLongitude() {
+            return longitude;
+        }
+        
+        public LocalDateTime getNextEligibleAt() {
+            return nextEligibleAt;
+        }
+    }
+    
+    @Test
+    void nearestMatchesBruteForceHaversineAtHighLatitudes() {
+        Random random = new Random(42);
+        for (double baseLatitude : new double[] {0, 45, 65, 75}) {
+            List<Donor> donors = randomDonors(random, 3000, baseLatitude, 10.0, 2.0);
+            DonorSpatialIndex index = new DonorSpatialIndex(0.1);
+            index.replaceAll(donors.stream());
+            
+            for (int query = 0; query < 200; query++) {
+                double latitude = baseLatitude + (random.nextDouble() - 0.5) * 2;
+                double longitude = 10.0 + (random.nextDouble() - 0.5) * 4;
+                double radiusKm = 5 + random.nextDouble() * 60;
+                int limit = 1 + random.nextInt(40);
+                
+                List<NearbyDonor> expected = donors.stream()
+                        .map(d -> new NearbyDonor(d.id(), d.bloodGroup(), d.latitude(), d.longitude(),
+                                GeoPoint.haversineKm(latitude, longitude, d.latitude(), d.longitude())))
+                        .filter(d -> d.distanceKm() <= radiusKm)
+                        .sorted(Comparator.comparingDouble(NearbyDonor::distanceKm))
+                        .limit(limit)
+                        .toList();
+                List<NearbyDonor> actual = index.nearest(latitude, longitude, radiusKm, ALL_GROUPS, limit);
+                
+                assertEquals(expected.size(), actual.size(), "result count at latitude " + latitude);
+                for (int i = 0; i < expected.size(); i++) {
+                    assertEquals(expected.get(i).distanceKm(), actual.get(i).distanceKm(), 1e-9,
+                            "distance of result " + i + " at latitude " + latitude);
+                }
+            }
+        }
+    }
+    
+    @Test
+    void nearestFiltersByDonorMask() {
+        DonorSpatialIndex index = new DonorSpatialIndex(0.1);
+        index.put(1, "O-", 52.0, 4.0, null);
+        index.put(2, "AB+", 52.0001, 4.0, null);
+        index.put(3, "A+", 52.0002, 4.0, null);
+        
+        List<NearbyDonor> result = index.nearest(52.0, 4.0, 10, 1 << 0 | 1 << 5, 10);
+        
+        assertEquals(List.of(1L, 3L), result.stream().map(NearbyDonor::userId).toList());
+    }
+    
+    @Test
+    void putMovesAndRemoveDropsDonors() {
+        DonorSpatialIndex index = new DonorSpatialIndex(0.1);
+        index.put(1, "O+", 52.0, 4.0, null);
+        index.put(1, "O+", 48.0, 2.0, null);
+        
+        assertTrue(index.nearest(52.0, 4.0, 10, ALL_GROUPS, 10).isEmpty());
+        assertEquals(1, index.nearest(48.0, 2.0, 10, ALL_GROUPS, 10).size());
+        
+        index.remove(1);
+        assertTrue(index.nearest(48.0, 2.0, 10, ALL_GROUPS, 10).isEmpty());
+        assertEquals(0, index.size());
+    }
+    
+    @Test
+    void deferredDonorsAreSkippedUntilEligible() {
+        LocalDateTime now = LocalDateTime.now();
+        DonorSpatialIndex index = new DonorSpatialIndex(0.1);
+        index.replaceAll(List.of(
+                new Donor(1L, "O+", 52.0, 4.0, now.plusDays(30)),
+                new Donor(2L, "O+", 52.001, 4.0, now.minusDays(1))).stream());
+        index.put(3, "O+", 52.002, 4.0, now.plusDays(7));
+        index.put(4, "O+", 52.003, 4.0, null);
+        
+        assertEquals(List.of(2L, 4L), index.nearest(52.0, 4.0, 10, ALL_GROUPS, 10).stream().map(NearbyDonor::userId).toList());
+        
+        // A recorded donation defers an indexed donor in place
+        index.put(4, "O+", 52.003, 4.0, now.plusDays(56));
+        assertEquals(List.of(2L), index.nearest(52.0, 4.0, 10, ALL_GROUPS, 10).stream().map(NearbyDonor::userId).toList());
+        assertEquals(4, index.size());
+    }
+    
+    @Test
+    void queriesNeverSeeAPartialReload() throws Exception {
+        List<Donor> donors = randomDonors(new Random(7), 2000, 52.0, 4.0, 0.05);
+        DonorSpatialIndex index = new DonorSpatialIndex(0.01);
+        index.replaceAll(donors.stream());
+        
+        AtomicBoolean done = new AtomicBoolean();
+        Thread reloader = new Thread(() -> {
+            while (!done.get()) {
+                index.replaceAll(donors.stream());
+            }
+        });
+        reloader.start();
+        try {
+            for (int i = 0; i < 2000; i++) {
+                assertEquals(50, index.nearest(52.0, 4.0, 50, ALL_GROUPS, 50).size());
+            }
+        } finally {
+            done.set(true);
+            reloader.join();
+        }
+    }
+    
+    private static List<Donor> randomDonors(Random random, int count, double latitude, double longitude, double spread) {
+        List<Donor> donors = new ArrayList<>(count);
+        IntStream.range(0, count).forEach(i -> donors.add(new Donor((long) i, GROUPS[random.nextInt(8)],
+                latitude + (random.nextDouble() - 0.5) * spread, longitude + (random.nextDouble() - 0.5) * spread * 2, null)));
+        return donors;
+    }
+}
@@ -0,0 +1,78 @@
+package com.hemoglobe.httpcache;
+
+import com.hemoglobe.httpcache.ChangeCounters.Table;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChangeCountersTest {
+    
+    private final ChangeCounters counters = new ChangeCounters(Duration.ofHours(1));
+    
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+    
+    @Test
+    void writesOutsideATransactionCountImmediately() {
+        String users = counters.tag(Table.USERS);
+        String matches = counters.tag(Table.MATCHES, Table.USERS);
+        
+        counters.changed(Table.MATCHES);
+        
+        assertEquals(users, counters.tag(Table.USERS));
+        assertNotEquals(matches, counters.tag(Table.MATCHES, Table.USERS));
+        assertEquals(1, counters.generation(Table.MATCHES, Table.USERS));
+        counters.changed(Table.USERS, Table.MATCHES);
+        assertEquals(3, counters.generation(Table.MATCHES, Table.USERS));
+        assertEquals(0, counters.generation(Table.DONATIONS));
+    }
+    
+    @Test
+    void writesInsideATransactionCountOnlyOnceItCommits() {
+        String before = counters.tag(Table.DONATIONS);
+        TransactionSynchronizationManager.initSynchronization();
+        
+        counters.changed(Table.DONATIONS);
+        assertEquals(before, counters.tag(Table.DONATIONS));
+        
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertNotEquals(before, counters.tag(Table.DONATIONS));
+        assertEquals(1, counters.generation(Table.DONATIONS));
+    }
+    
+    @Test
+    void rolledBackWritesNeverCount() {
+        String before = counters.tag(Table.USERS);
+        TransactionSynchronizationManager.initSynchronization();
+        
+        counters.changed(Table.USERS);
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        
+        assertEquals(before, counters.tag(Table.USERS));
+        assertEquals(0, counters.generation(Table.USERS));
+    }
+    
+    @Test
+    void tagsAreWeakAndExpireWithTheValidatorTtl() throws InterruptedException {
+        ChangeCounters shortLived = new ChangeCounters(Duration.ofMillis(5));
+        String tag = shortLived.tag(Table.MATCHES);
+        assertTrue(tag.startsWith("W/\"") && tag.endsWith("\""), tag);
+        
+        Thread.sleep(20);
+        
+        assertNotEquals(tag, shortLived.tag(Table.MATCHES));
+        assertEquals(0, shortLived.generation(Table.MATCHES));
+    }
+}
@@ -0,0 +1,70 @@
+package com.hemoglobe.httpcache;
+
+import com.hemoglobe.dto.UserRef;
+import com.hemoglobe.service.PreconditionFailedException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ETagsTest {
+    
+    @Test
+    void tagsCarryTheRowVersionFirstAndTheEmbeddedUsersAfter() {
+        assertEquals("\"3\"", ETags.of(3L));
+        assertEquals("\"3.7.9\"", ETags.of(3L, user(7L), user(9L)));
+        assertEquals("\"3.-.9\"", ETags.of(3L, null, user(9L)));
+        assertEquals("\"3.7.-\"", ETags.of(3L, user(7L), user(null)));
+    }
+    
+    @Test
+    void ifNoneMatchUsesWeakComparison() {
+        String tag = "W/\"abc.1.2\"";
+        assertTrue(ETags.matches("W/\"abc.1.2\"", tag));
+        assertTrue(ETags.matches("\"abc.1.2\"", tag));
+        assertTrue(ETags.matches("\"x\", W/\"abc.1.2\"", tag));
+        assertTrue(ETags.matches("*", tag));
+        assertTrue(ETags.matches("W/\"4.1.1\"", "\"4.1.1\""));
+        assertFalse(ETags.matches("W/\"abc.1.3\"", tag));
+        assertFalse(ETags.matches("abc.1.2", tag));
+    }
+    
+    @Test
+    void ifMatchGivesTheRowVersion() {
+        assertNull(ETags.expectedVersion(null));
+        assertNull(ETags.expectedVersion(" "));
+        assertNull(ETags.expectedVersion("*"));
+        assertEquals(4L, ETags.expectedVersion("\"4\""));
+        assertEquals(4L, ETags.expectedVersion(" \"4.7.-\" "));
+        assertEquals(12L, ETags.expectedVersion(ETags.of(12L, user(1L), user(2L))));
+    }
+    
+    @Test
+    void ifMatchNeverAcceptsWeakListedOrForeignTags() {
+        for (String header : new String[] {"W/\"4\"", "\"4\", \"5\"", "4", "\"\"", "\"abc\"", "\"4"}) {
+            assertThrows(PreconditionFailedException.class, () -> ETags.expectedVersion(header), header);
+        }
+    }
+    
+    @Test
+    void responsesCarryTheTag() {
+        ResponseEntity<String> ok = ETags.ok("body", "\"1\"");
+        assertEquals(HttpStatus.OK, ok.getStatusCode());
+        assertEquals("\"1\"", ok.getHeaders().getETag());
+        assertEquals("body", ok.getBody());
+        
+        ResponseEntity<Object> notModified = ETags.notModified("W/\"a.1\"");
+        assertEquals(HttpStatus.NOT_MODIFIED, notModified.getStatusCode());
+        assertEquals("W/\"a.1\"", notModified.getHeaders().getETag());
+        assertNull(notModified.getBody());
+    }
+    
+    private static UserRef user(Long version) {
+        return new UserRef(1L, "Test", "O+", "Pune", version);
+    }
+}
@@ -0,0 +1,73 @@
+package com.hemoglobe.matching;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BloodCompatibilityTest {
+    
+    private static final String[] GROUPS = {"O-", "A-", "B-", "AB-", "O+", "A+", "B+", "AB+"};
+    
+    @Test
+    void indexesRoundTripThroughLabels() {
+        for (int i = 0; i < GROUPS.length; i++) {
+            assertEquals(i, BloodCompatibility.indexOf(GROUPS[i]));
+            assertEquals(GROUPS[i], BloodCompatibility.labelOf(i));
+        }
+        assertEquals(7, BloodCompatibility.indexOf(" ab+ "));
+        assertEquals(-1, BloodCompatibility.indexOf("C+"));
+        assertEquals(-1, BloodCompatibility.indexOf(null));
+    }
+    
+    @Test
+    void redCellsFollowTheStandardChart() {
+        assertEquals(List.of("O-"), BloodCompatibility.donorGroupsFor("O-", BloodCompatibility.WHOLE_BLOOD));
+        assertEquals(List.of("O-", "A-"), BloodCompatibility.donorGroupsFor("A-", BloodCompatibility.WHOLE_BLOOD));
+        assertEquals(List.of("O-", "B-", "O+", "B+"), BloodCompatibility.donorGroupsFor("B+", BloodCompatibility.WHOLE_BLOOD));
+        assertEquals(List.of(GROUPS), BloodCompatibility.donorGroupsFor("AB+", BloodCompatibility.WHOLE_BLOOD));
+        // A null donation type means whole blood
+        assertEquals(BloodCompatibility.donorMask(BloodCompatibility.WHOLE_BLOOD, 5), BloodCompatibility.donorMask(null, 5));
+    }
+    
+    @Test
+    void plasmaReversesAboAndIgnoresRh() {
+        assertEquals(List.of("AB-", "AB+"), BloodCompatibility.donorGroupsFor("AB+", BloodCompatibility.PLASMA));
+        assertEquals(List.of(GROUPS), BloodCompatibility.donorGroupsFor("O-", BloodCompatibility.PLASMA));
+        assertEquals(List.of("A-", "AB-", "A+", "AB+"), BloodCompatibility.donorGroupsFor("A-", BloodCompatibility.PLASMA));
+    }
+    
+    @Test
+    void plateletsAreAboPlasmaCompatibleAndRhNegativeForRhNegativeRecipients() {
+        assertEquals(List.of("A-", "AB-"), BloodCompatibility.donorGroupsFor("A-", BloodCompatibility.PLATELETS));
+        assertEquals(List.of("A-", "AB-", "A+", "AB+"), BloodCompatibility.donorGroupsFor("A+", BloodCompatibility.PLATELETS));
+    }
+    
+    @Test
+    void recipientMaskIsTheTransposeOfDonorMask() {
+        for (String type : new String[] {BloodCompatibility.WHOLE_BLOOD, BloodCompatibility.PLATELETS, BloodCompatibility.PLASMA}) {
+            for (int donor = 0; donor < 8; donor++) {
+                int recipients = BloodCompatibility.recipientMask(type, donor);
+                for (int recipient = 0; recipient < 8; recipient++) {
+                    boolean compatible = BloodCompatibility.isCompatible(BloodCompatibility.donorMask(type, recipient), donor);
+                    assertEquals(compatible, (recipients & (1 << recipient)) != 0, type + " " + GROUPS[donor] + " -> " + GROUPS[recipient]);
+                }
+            }
+        }
+        // O- gives red cells to everyone, AB+ only to itself
+        assertEquals(0xff, BloodCompatibility.recipientMask(BloodCompatibility.WHOLE_BLOOD, 0));
+        assertEquals(1 << 7, BloodCompatibility.recipientMask(BloodCompatibility.WHOLE_BLOOD, 7));
+    }
+    
+    @Test
+    void unknownGroupsAndTypesAreRejected() {
+        assertFalse(BloodCompatibility.isCompatible(0xff, -1));
+        assertTrue(BloodCompatibility.isCompatible(0b1, 0));
+        assertThrows(IllegalArgumentException.class, () -> BloodCompatibility.donorGroupsFor("C+", BloodCompatibility.WHOLE_BLOOD));
+        assertThrows(IllegalArgumentException.class, () -> BloodCompatibility.donorMask("marrow", 0));
+    }
+}
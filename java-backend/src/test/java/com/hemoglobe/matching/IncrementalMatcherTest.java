@@ -0,0 +1,114 @@
+package com.hemoglobe.matching;
+
+import com.hemoglobe.TestPostgres;
+import com.hemoglobe.geo.DonorIndexLoader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Incremental re-planning against PostgreSQL: changed donors reach only the seekers around them, and re-planned
+ * seekers keep their pending donors from outside the neighbourhood.
+ */
+@DirtiesContext
+@SpringBootTest(properties = {
+        "matching.incremental.interval-ms=3600000",
+        "matching.incremental.radius-km=50"
+})
+class IncrementalMatcherTest {
+    
+    private static final String DATABASE = TestPostgres.newDatabase();
+    
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> TestPostgres.jdbcUrl(DATABASE));
+    }
+    
+    @Autowired
+    private IncrementalMatcher incrementalMatcher;
+    
+    @Autowired
+    private DonorIndexLoader donorIndexLoader;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @BeforeEach
+    void clean() {
+        jdbcTemplate.execute("TRUNCATE matches, donations, outbox_events, donor_trust, users RESTART IDENTITY CASCADE");
+    }
+    
+    @Test
+    void changedDonorIsOfferedOnlyToSeekersWithinTheRadius() {
+        long puneSeeker = user("pune-seeker", "seeker", "A+", 18.52, 73.85);
+        long nearbySeeker = user("khadki-seeker", "seeker", "AB+", 18.56, 73.84);
+        long londonSeeker = user("london-seeker", "seeker", "A+", 51.50, -0.12);
+        long donor = user("pune-donor", "donor", "A+", 18.53, 73.86);
+        donorIndexLoader.load();
+        
+        MatchingReport report = incrementalMatcher.rematch(List.of(donor));
+        
+        assertEquals(List.of(puneSeeker, nearbySeeker), pendingSeekersOf(donor));
+        assertTrue(pendingDonorsOf(londonSeeker).isEmpty());
+        // Only the two nearby seekers were scored, each against its own pool of one donor
+        assertEquals(2, report.pairsEvaluated());
+    }
+    
+    @Test
+    void replannedSeekerKeepsPendingDonorsFromOutsideTheRadius() {
+        long seeker = user("pune-seeker", "seeker", "O+", 18.52, 73.85);
+        long farDonor = user("mumbai-donor", "donor", "O+", 19.07, 72.88);
+        long nearDonor = user("pune-donor", "donor", "O-", 18.50, 73.80);
+        jdbcTemplate.update("INSERT INTO matches (donor_id, seeker_id, blood_group, distance, compatibility_score, status) " +
+                "VALUES (?, ?, 'O+', 120, 60, 'pending')", farDonor, seeker);
+        donorIndexLoader.load();
+        
+        incrementalMatcher.rematch(List.of(seeker));
+        
+        assertEquals(List.of(farDonor, nearDonor), pendingDonorsOf(seeker));
+    }
+    
+    @Test
+    void matchesOfAnUnavailableDonorExpireAndItsSeekersAreReplanned() {
+        long seeker = user("pune-seeker", "seeker", "B+", 18.52, 73.85);
+        long donor = user("pune-donor", "donor", "B+", 18.53, 73.86);
+        long otherDonor = user("pune-donor-2", "donor", "B-", 18.51, 73.84);
+        donorIndexLoader.load();
+        incrementalMatcher.rematch(List.of(seeker));
+        assertEquals(List.of(donor, otherDonor), pendingDonorsOf(seeker));
+        
+        jdbcTemplate.update("UPDATE users SET is_available = false WHERE id = ?", donor);
+        donorIndexLoader.load();
+        incrementalMatcher.rematch(List.of(donor));
+        
+        assertEquals(List.of(otherDonor), pendingDonorsOf(seeker));
+        assertEquals("expired", jdbcTemplate.queryForObject(
+                "SELECT status FROM matches WHERE donor_id = ? AND seeker_id = ?", String.class, donor, seeker));
+    }
+    
+    private long user(String name, String type, String bloodGroup, double latitude, double longitude) {
+        return jdbcTemplate.queryForObject("INSERT INTO users (name, email, blood_group, location, latitude, longitude, age, " +
+                "weight, user_type, is_available) VALUES (?, ?, ?, 'Pune', ?, ?, 30, 70, ?, true) RETURNING id", Long.class,
+                name, name + "@example.com", bloodGroup, latitude, longitude, type);
+    }
+    
+    private List<Long> pendingSeekersOf(long donorId) {
+        return jdbcTemplate.queryForList("SELECT seeker_id FROM matches WHERE donor_id = ? AND status = 'pending' ORDER BY seeker_id",
+                Long.class, donorId);
+    }
+    
+    private List<Long> pendingDonorsOf(long seekerId) {
+        return jdbcTemplate.queryForList("SELECT donor_id FROM matches WHERE seeker_id = ? AND status = 'pending' ORDER BY donor_id",
+                Long.class, seekerId);
+    }
+}
@@ -0,0 +1,216 @@
+package com.hemoglobe.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hemoglobe.TestPostgres;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Relay passes against PostgreSQL: per-message retries after a failed batch, backoff and the attempt limit, and
+ * skipping subscribers that already handled a redelivered message.
+ */
+class OutboxRelayTest {
+    
+    private static final DataSource DATA_SOURCE = TestPostgres.dataSource(TestPostgres.newDatabase());
+    private static final long BACKOFF_MILLIS = 60_000;
+    private static final int MAX_ATTEMPTS = 3;
+    
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(DATA_SOURCE);
+    private final RecordingSubscriber feed = new RecordingSubscriber("feed");
+    private final RecordingSubscriber trust = new RecordingSubscriber("trust");
+    private OutboxRelay relay;
+    
+    @BeforeEach
+    void relay() {
+        jdbcTemplate.execute("TRUNCATE outbox_events RESTART IDENTITY");
+        relay = new OutboxRelay(new SimpleMeterRegistry(), List.of(feed, trust), 200, 1000, MAX_ATTEMPTS, BACKOFF_MILLIS, 24, 1000);
+        ReflectionTestUtils.setField(relay, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(relay, "transactionTemplate", new TransactionTemplate(new DataSourceTransactionManager(DATA_SOURCE)));
+        ReflectionTestUtils.setField(relay, "objectMapper", new ObjectMapper());
+    }
+    
+    @AfterEach
+    void shutdown() {
+        relay.shutdown();
+    }
+    
+    @Test
+    void batchesAreDeliveredInOrderAndMarkedDelivered() {
+        long first = event("a");
+        long second = event("b");
+        
+        relay.drain();
+        
+        assertEquals(List.of(List.of(first, second)), feed.batches);
+        assertEquals(List.of(List.of(first, second)), trust.batches);
+        assertNotNull(row(first).deliveredAt());
+        assertNotNull(row(second).deliveredAt());
+        
+        relay.drain();
+        assertEquals(1, feed.batches.size());
+    }
+    
+    @Test
+    void failedBatchIsRetriedMessageByMessageAndOnlyTheFailureIsRescheduled() {
+        long good = event("a");
+        long poison = event("poison");
+        long after = event("b");
+        feed.failing.add("poison");
+        
+        LocalDateTime before = LocalDateTime.now();
+        relay.drain();
+        
+        assertEquals(List.of(List.of(good, poison, after), List.of(good), List.of(poison), List.of(after)), feed.batches);
+        assertNotNull(row(good).deliveredAt());
+        assertNotNull(row(after).deliveredAt());
+        Row failed = row(poison);
+        assertNull(failed.deliveredAt());
+        assertEquals(1, failed.attempts());
+        assertTrue(failed.lastError().startsWith("feed: "));
+        assertTrue(!failed.availableAt().isBefore(before.plus(Duration.ofMillis(BACKOFF_MILLIS))));
+        
+        // Not due yet
+        relay.drain();
+        assertEquals(4, feed.batches.size());
+    }
+    
+    @Test
+    void backoffDoublesAndRetriesStopAtTheAttemptLimit() {
+        long poison = event("poison");
+        feed.failing.add("poison");
+        
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            LocalDateTime before = LocalDateTime.now();
+            relay.drain();
+            Row row = row(poison);
+            assertEquals(attempt, row.attempts());
+            Duration backoff = Duration.between(before, row.availableAt());
+            long expected = BACKOFF_MILLIS << (attempt - 1);
+            assertTrue(backoff.toMillis() >= expected && backoff.toMillis() < expected + 5_000, "backoff " + backoff);
+            makeDue(poison);
+        }
+        int calls = feed.batches.size();
+        
+        relay.drain();
+        assertEquals(calls, feed.batches.size());
+        assertNull(row(poison).deliveredAt());
+    }
+    
+    @Test
+    void redeliveryIsSkippedForSubscribersThatAlreadyHandledTheMessage() {
+        long id = event("flaky");
+        trust.failing.add("flaky");
+        
+        relay.drain();
+        assertEquals(List.of(List.of(id)), feed.batches);
+        assertEquals(1, row(id).attempts());
+        
+        trust.failing.clear();
+        makeDue(id);
+        relay.drain();
+        
+        // Only the subscriber that failed sees the message again
+        assertEquals(List.of(List.of(id)), feed.batches);
+        assertEquals(List.of(List.of(id), List.of(id), List.of(id)), trust.batches);
+        assertNotNull(row(id).deliveredAt());
+    }
+    
+    @Test
+    void undecodablePayloadFailsOnlyItsOwnRow() {
+        long good = event("a");
+        long broken = insert("not json");
+        
+        relay.drain();
+        
+        assertEquals(List.of(List.of(good)), feed.batches);
+        assertNotNull(row(good).deliveredAt());
+        Row failed = row(broken);
+        assertNull(failed.deliveredAt());
+        assertTrue(failed.lastError().startsWith("Undecodable payload"));
+    }
+    
+    private long event(String value) {
+        return insert("{\"value\":\"" + value + "\"}");
+    }
+    
+    private long insert(String payload) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now().minusSeconds(1));
+        return jdbcTemplate.queryForObject("INSERT INTO outbox_events (idempotency_key, event_type, aggregate_type, " +
+                "aggregate_id, payload, created_at, available_at) VALUES (gen_random_uuid()::text, 'ping', 'test', 1, ?, ?, ?) " +
+                "RETURNING id", Long.class, payload, now, now);
+    }
+    
+    private void makeDue(long id) {
+        jdbcTemplate.update("UPDATE outbox_events SET available_at = ? WHERE id = ?",
+                Timestamp.valueOf(LocalDateTime.now().minusSeconds(1)), id);
+    }
+    
+    private Row row(long id) {
+        return jdbcTemplate.queryForObject("SELECT attempts, last_error, available_at, delivered_at FROM outbox_events WHERE id = ?",
+                (rs, n) -> new Row(rs.getInt(1), rs.getString(2), rs.getTimestamp(3).toLocalDateTime(),
+                        rs.getTimestamp(4) != null ? rs.getTimestamp(4).toLocalDateTime() : null), id);
+    }
+    
+    private record Row(int attempts, String lastError, LocalDateTime availableAt, LocalDateTime deliveredAt) {
+    }
+    
+    record Ping(String value) {
+    }
+    
+    /** Records the ids of every batch it is handed and throws when one carries a failing value. */
+    private static final class RecordingSubscriber implements OutboxSubscriber<Ping> {
+        
+        private final String name;
+        private final List<List<Long>> batches = new ArrayList<>();
+        private final Set<String> failing = new CopyOnWriteArraySet<>();
+        
+        RecordingSubscriber(String name) {
+            this.name = name;
+        }
+        
+        @Override
+        public String name() {
+            return name;
+        }
+        
+        @Override
+        public String eventType() {
+            return "ping";
+        }
+        
+        @Override
+        public Class<Ping> payloadType() {
+            return Ping.class;
+        }
+        
+        @Override
+        public void deliver(List<OutboxMessage<Ping>> messages) {
+            batches.add(messages.stream().map(OutboxMessage::id).toList());
+            for (OutboxMessage<Ping> message : messages) {
+                if (failing.contains(message.payload().value())) {
+                    throw new IllegalStateException("Cannot handle " + message.payload().value());
+                }
+            }
+        }
+    }
+}
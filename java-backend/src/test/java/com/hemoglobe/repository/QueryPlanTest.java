@@ -0,0 +1,110 @@
+package com.hemoglobe.repository;
+
+import com.hemoglobe.TestPostgres;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * EXPLAIN plans of the hot queries against a seeded PostgreSQL database: each must be answered from the V3
+ * indexes rather than a sequential scan. The per-user UNIONs are read from the repository annotations, so a
+ * change to them is checked here as well.
+ */
+class QueryPlanTest {
+    
+    private static final Pattern INDEX_SCAN = Pattern.compile("(Bitmap )?Index (Only )?Scan");
+    
+    private static JdbcTemplate jdbc;
+    
+    @BeforeAll
+    static void seed() {
+        jdbc = new JdbcTemplate(TestPostgres.dataSource(TestPostgres.newDatabase()));
+        jdbc.execute("INSERT INTO users (name, email, blood_group, location, age, user_type, is_available) " +
+                "SELECT 'u' || g, 'u' || g || '@example.com', (ARRAY['O-','A-','B-','AB-','O+','A+','B+','AB+'])[1 + g % 8], " +
+                "(ARRAY['Pune','Mumbai','Delhi','Chennai','London','Paris'])[1 + g % 6] || ' district ' || (g % 500), 30, " +
+                "CASE WHEN g % 3 = 0 THEN 'seeker' ELSE 'donor' END, g % 4 <> 0 FROM generate_series(1, 100000) g");
+        // 7 and 13 are coprime to 100000, so every (donor, seeker) pair is distinct
+        jdbc.execute("INSERT INTO matches (donor_id, seeker_id, blood_group, compatibility_score, status) " +
+                "SELECT 1 + (g * 7) % 100000, 1 + (g * 13) % 100000, (ARRAY['O-','A-','B-','AB-','O+','A+','B+','AB+'])[1 + g % 8], " +
+                "g % 100, CASE WHEN g % 10 = 0 THEN 'pending' ELSE 'accepted' END FROM generate_series(1, 100000) g");
+        jdbc.execute("INSERT INTO donations (donor_id, seeker_id, blood_group, donation_type, location, status, urgency) " +
+                "SELECT 1 + (g * 7) % 100000, 1 + (g * 13) % 100000, 'A+', 'whole_blood', 'Pune', " +
+                "CASE WHEN g % 20 = 0 THEN 'pending' ELSE 'completed' END, CASE WHEN g % 50 = 0 THEN 'critical' ELSE 'normal' END " +
+                "FROM generate_series(1, 100000) g");
+        jdbc.execute("ANALYZE");
+    }
+    
+    @Test
+    void perUserMatchPagesUseTheDonorAndSeekerIndexes() {
+        String sql = nativeQuery(MatchRepository.class, "findIdsByUserAfter");
+        assertIndexScans(bind(sql, "userId", "777", "after", "0", "limit", "51"), "matches");
+        sql = nativeQuery(MatchRepository.class, "findIdsByUserBefore");
+        assertIndexScans(bind(sql, "userId", "777", "before", "9223372036854775807", "limit", "51"), "matches");
+    }
+    
+    @Test
+    void highCompatibilityPagesWalkTheScoreIndex() {
+        String sql = nativeQuery(MatchRepository.class, "findIdsByScoreAfter");
+        assertIndexScans(bind(sql, "minScore", "80", "afterScore", "95", "afterId", "4000", "limit", "51"), "matches");
+        sql = nativeQuery(MatchRepository.class, "findIdsByScoreBefore");
+        assertIndexScans(bind(sql, "minScore", "80", "beforeScore", "85", "beforeId", "4000", "limit", "51"), "matches");
+    }
+    
+    @Test
+    void perUserDonationPagesUseTheDonorAndSeekerIndexes() {
+        String sql = nativeQuery(DonationRepository.class, "findIdsByUserAfter");
+        assertIndexScans(bind(sql, "userId", "777", "after", "0", "limit", "51"), "donations");
+        sql = nativeQuery(DonationRepository.class, "findIdsByUserBefore");
+        assertIndexScans(bind(sql, "userId", "777", "before", "9223372036854775807", "limit", "51"), "donations");
+    }
+    
+    @Test
+    void criticalPendingDonationsUseThePartialIndex() {
+        assertIndexScans("SELECT * FROM donations WHERE urgency = 'critical' AND status = 'pending'", "donations");
+        assertIndexScans("SELECT * FROM donations WHERE urgency = 'critical' AND status = 'pending' AND id > 100 " +
+                "ORDER BY id LIMIT 51", "donations");
+    }
+    
+    @Test
+    void pendingMatchesByGroupUseThePartialIndex() {
+        assertIndexScans("SELECT * FROM matches WHERE blood_group = 'A+' AND status = 'pending'", "matches");
+    }
+    
+    @Test
+    void locationSubstringSearchesUseTheTrigramIndexes() {
+        assertIndexScans("SELECT * FROM users WHERE location LIKE '%district 42%' AND user_type = 'seeker' " +
+                "AND is_available = true", "users");
+        assertIndexScans("SELECT * FROM users WHERE lower(location) LIKE '%district 42%' AND user_type = 'seeker' " +
+                "AND is_available = true", "users");
+    }
+    
+    private static void assertIndexScans(String sql, String table) {
+        String plan = String.join("\n", jdbc.queryForList("EXPLAIN " + sql, String.class));
+        assertTrue(INDEX_SCAN.matcher(plan).find(), () -> "Expected an index scan for " + sql + "\n" + plan);
+        assertFalse(plan.contains("Seq Scan on " + table), () -> "Unexpected sequential scan for " + sql + "\n" + plan);
+    }
+    
+    private static String nativeQuery(Class<?> repository, String method) {
+        List<Query> queries = Arrays.stream(repository.getMethods())
+                .filter(m -> m.getName().equals(method))
+                .map(m -> m.getAnnotation(Query.class))
+                .toList();
+        assertTrue(queries.size() == 1 && queries.get(0).nativeQuery(), repository.getSimpleName() + "." + method);
+        return queries.get(0).value();
+    }
+    
+    private static String bind(String sql, String... namesAndValues) {
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            sql = sql.replace(":" + namesAndValues[i], namesAndValues[i + 1]);
+        }
+        return sql;
+    }
+}
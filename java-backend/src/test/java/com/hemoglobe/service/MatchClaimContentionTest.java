@@ -0,0 +1,157 @@
+package com.hemoglobe.service;
+
+import com.hemoglobe.TestPostgres;
+import com.hemoglobe.entity.Match;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Races many virtual threads per pending match against PostgreSQL: a third claim it as its donor, a third claim it as
+ * another user and a third send a conditional update with the version read before the race (If-Match). Each match
+ * must be accepted exactly once, written once and produce one outbox event.
+ */
+@DirtiesContext
+@SpringBootTest(properties = {
+        // Background matching would rescore or expire the pending rows under the test
+        "matching.incremental.enabled=false",
+        // Hundreds of contenders queue for the pool; the race is on the rows, not on connections
+        "spring.datasource.hikari.connection-timeout=60000"
+})
+class MatchClaimContentionTest {
+    
+    private static final String DATABASE = TestPostgres.newDatabase();
+    private static final int MATCHES = 40;
+    private static final int CONTENDERS = 24;
+    
+    enum Outcome { ACCEPTED, ALREADY_CLAIMED, FORBIDDEN, STALE_VERSION, LOST_RACE, ERROR }
+    
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> TestPostgres.jdbcUrl(DATABASE));
+    }
+    
+    @Autowired
+    private MatchService matchService;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Test
+    void everyMatchIsAcceptedExactlyOnce() throws InterruptedException {
+        List<long[]> matches = insertPendingMatches();
+        Map<Long, AtomicInteger> winners = new ConcurrentHashMap<>();
+        Map<Outcome, AtomicInteger> outcomes = new EnumMap<>(Outcome.class);
+        for (Outcome outcome : Outcome.values()) {
+            outcomes.put(outcome, new AtomicInteger());
+        }
+        
+        CountDownLatch go = new CountDownLatch(1);
+        try (ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long[] match : matches) {
+                long id = match[0];
+                winners.put(id, new AtomicInteger());
+                for (int i = 0; i < CONTENDERS; i++) {
+                    int kind = i % 3;
+                    threads.execute(() -> {
+                        try {
+                            go.await();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                        Outcome outcome = switch (kind) {
+                            case 0 -> claim(id, match[1]);
+                            case 1 -> claim(id, match[2]);
+                            default -> conditionalUpdate(id, 0L);
+                        };
+                        outcomes.get(outcome).incrementAndGet();
+                        if (outcome == Outcome.ACCEPTED) {
+                            winners.get(id).incrementAndGet();
+                        }
+                    });
+                }
+            }
+            go.countDown();
+        }
+        
+        assertEquals(0, outcomes.get(Outcome.ERROR).get(), outcomes.toString());
+        assertEquals(MATCHES * CONTENDERS / 3, outcomes.get(Outcome.FORBIDDEN).get(), outcomes.toString());
+        winners.forEach((id, count) -> assertEquals(1, count.get(), "winners of match " + id));
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM matches WHERE status <> 'accepted' OR version <> 1", Integer.class));
+        assertEquals(MATCHES, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM outbox_events WHERE aggregate_type = 'match'", Integer.class));
+        assertEquals(MATCHES, jdbcTemplate.queryForObject(
+                "SELECT COUNT(DISTINCT aggregate_id) FROM outbox_events WHERE aggregate_type = 'match'", Integer.class));
+    }
+    
+    private Outcome claim(long id, long userId) {
+        try {
+            matchService.claimMatch(id, "accepted", userId);
+            return Outcome.ACCEPTED;
+        } catch (ForbiddenException e) {
+            return Outcome.FORBIDDEN;
+        } catch (IllegalStateException e) {
+            return Outcome.ALREADY_CLAIMED;
+        } catch (RuntimeException e) {
+            return Outcome.ERROR;
+        }
+    }
+    
+    private Outcome conditionalUpdate(long id, Long version) {
+        Match details = new Match();
+        details.setBloodGroup("O+");
+        details.setCompatibilityScore(80);
+        details.setStatus("accepted");
+        try {
+            matchService.updateMatch(id, details, version);
+            return Outcome.ACCEPTED;
+        } catch (PreconditionFailedException e) {
+            return Outcome.STALE_VERSION;
+        } catch (OptimisticLockingFailureException e) {
+            return Outcome.LOST_RACE;
+        } catch (RuntimeException e) {
+            return Outcome.ERROR;
+        }
+    }
+    
+    /**
+     * One pending match per donor and seeker pair, inserted directly so every row starts at version 0. Each entry holds
+     * the match id, its donor and its seeker.
+     */
+    private List<long[]> insertPendingMatches() {
+        jdbcTemplate.execute("TRUNCATE matches, donations, outbox_events, donor_trust, users RESTART IDENTITY CASCADE");
+        List<long[]> matches = new ArrayList<>(MATCHES);
+        for (int i = 0; i < MATCHES; i++) {
+            long donor = user("donor-" + i, "donor");
+            long seeker = user("seeker-" + i, "seeker");
+            long id = jdbcTemplate.queryForObject("INSERT INTO matches (donor_id, seeker_id, blood_group, " +
+                    "compatibility_score, status) VALUES (?, ?, 'O+', 75, 'pending') RETURNING id", Long.class, donor, seeker);
+            matches.add(new long[] {id, donor, seeker});
+        }
+        return matches;
+    }
+    
+    private long user(String name, String type) {
+        return jdbcTemplate.queryForObject("INSERT INTO users (name, email, blood_group, location, latitude, longitude, age, " +
+                "weight, user_type, is_available) VALUES (?, ?, 'O+', 'Pune', 18.52, 73.85, 30, 70, ?, true) RETURNING id",
+                Long.class, name, name + "@example.com", type);
+    }
+}
@@ -0,0 +1,75 @@
+package com.hemoglobe.trust;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AppliedEventsTest {
+    
+    @Test
+    void advanceRejectsEventsAtOrBelowTheLastAppliedToTheAggregate() {
+        AppliedEvents applied = new AppliedEvents();
+        assertTrue(applied.advance("match", 1, 10));
+        assertFalse(applied.advance("match", 1, 10));
+        assertFalse(applied.advance("match", 1, 9));
+        assertTrue(applied.advance("match", 1, 11));
+        // Positions are tracked per aggregate, so lower ids on other rows still apply
+        assertTrue(applied.advance("match", 2, 5));
+        assertTrue(applied.advance("donation", 1, 3));
+        
+        assertEquals(List.of(new AppliedEvents.Position("donation", 1, 3), new AppliedEvents.Position("match", 1, 11),
+                new AppliedEvents.Position("match", 2, 5)), sorted(applied.drainDirty()));
+        assertTrue(applied.drainDirty().isEmpty());
+    }
+    
+    @Test
+    void loadKeepsTheLaterPositionWithoutFlagging() {
+        AppliedEvents applied = new AppliedEvents();
+        applied.advance("match", 1, 50);
+        applied.drainDirty();
+        
+        applied.load(new AppliedEvents.Position("match", 1, 40));
+        applied.load(new AppliedEvents.Position("donation", 4, 90));
+        
+        assertFalse(applied.advance("match", 1, 45));
+        assertFalse(applied.advance("donation", 4, 90));
+        assertTrue(applied.drainDirty().isEmpty());
+    }
+    
+    @Test
+    void failedCheckpointsFlagTheirPositionsAgain() {
+        AppliedEvents applied = new AppliedEvents();
+        applied.advance("match", 1, 10);
+        List<AppliedEvents.Position> changed = applied.drainDirty();
+        
+        applied.markDirty(changed);
+        assertEquals(changed, applied.drainDirty());
+    }
+    
+    @Test
+    void forgetKeepsPositionsThatMovedOn() {
+        AppliedEvents applied = new AppliedEvents();
+        applied.advance("match", 1, 10);
+        applied.advance("match", 2, 20);
+        applied.drainDirty();
+        applied.advance("match", 2, 21);
+        
+        applied.forget(new AppliedEvents.Position("match", 1, 10));
+        applied.forget(new AppliedEvents.Position("match", 2, 20));
+        
+        assertEquals(1, applied.size());
+        assertTrue(applied.advance("match", 1, 10));
+        assertFalse(applied.advance("match", 2, 21));
+    }
+    
+    private static List<AppliedEvents.Position> sorted(List<AppliedEvents.Position> positions) {
+        return positions.stream()
+                .sorted((a, b) -> a.aggregateType().equals(b.aggregateType())
+                        ? Long.compare(a.aggregateId(), b.aggregateId()) : a.aggregateType().compareTo(b.aggregateType()))
+                .toList();
+    }
+}
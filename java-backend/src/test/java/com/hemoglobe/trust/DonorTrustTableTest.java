@@ -0,0 +1,104 @@
+package com.hemoglobe.trust;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DonorTrustTableTest {
+    
+    @Test
+    void countersStartAtZeroAndNeverGoNegative() {
+        DonorTrustTable table = new DonorTrustTable();
+        assertNull(table.get(7));
+        
+        table.add(7, DonorTrustTable.COMPLETED, 1);
+        table.add(7, DonorTrustTable.CANCELLED, -1);
+        table.addResponse(7, 90);
+        table.addResponse(7, -30);
+        
+        DonorTrustTable.Entry entry = table.get(7);
+        assertArrayEquals(new int[] {1, 0, 0, 0, 2}, entry.counts());
+        assertEquals(90, entry.responseSeconds());
+        assertEquals(1, table.size());
+    }
+    
+    @Test
+    void drainReturnsEachChangedEntryOnceUntilFlaggedAgain() {
+        DonorTrustTable table = new DonorTrustTable();
+        table.add(1, DonorTrustTable.ACCEPTED, 1);
+        table.add(2, DonorTrustTable.DECLINED, 1);
+        table.add(1, DonorTrustTable.ACCEPTED, 1);
+        
+        List<DonorTrustTable.Entry> changed = table.drainDirty();
+        assertEquals(List.of(1L, 2L), changed.stream().map(DonorTrustTable.Entry::donorId).sorted().toList());
+        assertTrue(table.drainDirty().isEmpty());
+        
+        // A failed checkpoint puts its changes back
+        table.restore(changed);
+        assertEquals(2, table.drainDirty().size());
+    }
+    
+    @Test
+    void drainTakesTheUnclampedChangesSinceTheLastDrain() {
+        DonorTrustTable table = new DonorTrustTable();
+        table.load(new DonorTrustTable.Entry(4, new int[] {3, 0, 0, 0, 0}, 0));
+        table.add(4, DonorTrustTable.COMPLETED, 1);
+        table.add(4, DonorTrustTable.CANCELLED, -1);
+        table.addResponse(4, 45);
+        
+        List<DonorTrustTable.Entry> changes = table.drainDirty();
+        assertArrayEquals(new int[] {1, -1, 0, 0, 1}, changes.get(0).counts());
+        assertEquals(45, changes.get(0).responseSeconds());
+        assertArrayEquals(new int[] {4, 0, 0, 0, 1}, table.get(4).counts());
+        
+        // Restored changes are merged with the ones made since
+        table.add(4, DonorTrustTable.COMPLETED, 1);
+        table.restore(changes);
+        DonorTrustTable.Entry merged = table.drainDirty().get(0);
+        assertArrayEquals(new int[] {2, -1, 0, 0, 1}, merged.counts());
+        assertEquals(45, merged.responseSeconds());
+        assertArrayEquals(new int[] {5, 0, 0, 0, 1}, table.get(4).counts());
+    }
+    
+    @Test
+    void loadMergesWithoutFlagging() {
+        DonorTrustTable table = new DonorTrustTable();
+        table.add(3, DonorTrustTable.COMPLETED, 1);
+        table.drainDirty();
+        
+        table.load(new DonorTrustTable.Entry(3, new int[] {4, 1, 2, 0, 2}, 600));
+        table.load(new DonorTrustTable.Entry(5, new int[] {0, 0, 1, 1, 2}, 120));
+        
+        assertArrayEquals(new int[] {5, 1, 2, 0, 2}, table.get(3).counts());
+        assertEquals(120, table.get(5).responseSeconds());
+        assertTrue(table.drainDirty().isEmpty());
+    }
+    
+    @Test
+    void entriesSurviveResizing() {
+        DonorTrustTable table = new DonorTrustTable();
+        for (long donorId = 1; donorId <= 5000; donorId++) {
+            table.add(donorId, DonorTrustTable.COMPLETED, (int) (donorId % 7));
+            table.addResponse(donorId, donorId * 10);
+        }
+        
+        assertEquals(5000, table.size());
+        for (long donorId = 1; donorId <= 5000; donorId++) {
+            DonorTrustTable.Entry entry = table.get(donorId);
+            assertEquals(donorId % 7, entry.count(DonorTrustTable.COMPLETED));
+            assertEquals(donorId * 10, entry.responseSeconds());
+        }
+        assertEquals(5000, table.drainDirty().size());
+    }
+    
+    @Test
+    void donorIdZeroIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new DonorTrustTable().add(0, DonorTrustTable.COMPLETED, 1));
+    }
+}
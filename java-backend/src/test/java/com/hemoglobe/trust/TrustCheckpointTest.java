@@ -0,0 +1,118 @@
+package com.hemoglobe.trust;
+
+import com.hemoglobe.TestPostgres;
+import com.hemoglobe.feed.StatusChangedEvent;
+import com.hemoglobe.feed.StatusDelta;
+import com.hemoglobe.outbox.OutboxMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checkpoints against PostgreSQL: instances add their changes to the stored counters, and applied event positions
+ * survive a restart until their event is delivered.
+ */
+class TrustCheckpointTest {
+    
+    private static final DataSource DATA_SOURCE = TestPostgres.dataSource(TestPostgres.newDatabase());
+    private static final LocalDateTime CREATED = LocalDateTime.of(2026, 3, 1, 10, 0);
+    
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(DATA_SOURCE);
+    private long donorId;
+    
+    @BeforeEach
+    void donor() {
+        jdbcTemplate.execute("TRUNCATE matches, donations, outbox_events, donor_trust, trust_event_positions, users " +
+                "RESTART IDENTITY CASCADE");
+        donorId = jdbcTemplate.queryForObject("INSERT INTO users (name, email, blood_group, location, latitude, longitude, " +
+                "age, weight, user_type, is_available) VALUES ('donor', 'donor@example.com', 'O+', 'Pune', 18.52, 73.85, 30, " +
+                "70, 'donor', true) RETURNING id", Long.class);
+    }
+    
+    @Test
+    void instancesAddTheirChangesInsteadOfOverwritingEachOther() {
+        TrustScores first = trustScores();
+        TrustScores second = trustScores();
+        
+        first.deliver(List.of(message(event("donation", 1), donation(1, "completed", "pending"))));
+        second.deliver(List.of(message(event("match", 2), match(2, "accepted", "pending"))));
+        // The donation's completion was counted by the other instance; taking it back must still reach the checkpoint
+        second.deliver(List.of(message(event("donation", 1), donation(1, "cancelled", "completed"))));
+        first.shutdown();
+        second.shutdown();
+        
+        Map<String, Object> row = jdbcTemplate.queryForMap("SELECT completed_donations, cancelled_donations, " +
+                "accepted_matches, responses FROM donor_trust WHERE donor_id = ?", donorId);
+        assertEquals(0, row.get("completed_donations"));
+        assertEquals(1, row.get("cancelled_donations"));
+        assertEquals(1, row.get("accepted_matches"));
+        assertEquals(1, row.get("responses"));
+    }
+    
+    @Test
+    void positionsSurviveARestartUntilTheirEventIsDelivered() {
+        long completed = event("donation", 1);
+        long accepted = event("match", 2);
+        List<OutboxMessage<StatusChangedEvent>> batch = List.of(
+                message(completed, donation(1, "completed", "pending")),
+                message(accepted, match(2, "accepted", "pending")));
+        TrustScores before = trustScores();
+        before.deliver(batch);
+        before.shutdown();
+        
+        TrustScores after = trustScores();
+        after.deliver(batch);
+        assertEquals(1, after.get(donorId).completedDonations());
+        assertEquals(1, after.get(donorId).acceptedMatches());
+        
+        jdbcTemplate.update("UPDATE outbox_events SET delivered_at = now() WHERE id = ?", completed);
+        after.shutdown();
+        assertEquals(List.of(accepted), jdbcTemplate.queryForList("SELECT last_event_id FROM trust_event_positions", Long.class));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT completed_donations FROM donor_trust WHERE donor_id = ?",
+                Integer.class, donorId));
+    }
+    
+    private TrustScores trustScores() {
+        TrustScores trustScores = new TrustScores(new SimpleMeterRegistry(), 3_600_000, 60);
+        ReflectionTestUtils.setField(trustScores, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(trustScores, "transactionTemplate",
+                new TransactionTemplate(new DataSourceTransactionManager(DATA_SOURCE)));
+        ReflectionTestUtils.setField(trustScores, "batchSize", 500);
+        ReflectionTestUtils.setField(trustScores, "maxOutboxAttempts", 10);
+        trustScores.load();
+        return trustScores;
+    }
+    
+    /** A pending outbox row, so the position of its event is kept until it is delivered. */
+    private long event(String aggregateType, long aggregateId) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        return jdbcTemplate.queryForObject("INSERT INTO outbox_events (idempotency_key, event_type, aggregate_type, " +
+                "aggregate_id, payload, created_at, available_at) VALUES (gen_random_uuid()::text, ?, ?, ?, '{}', ?, ?) " +
+                "RETURNING id", Long.class, StatusChangedEvent.TYPE, aggregateType, aggregateId, now, now);
+    }
+    
+    private OutboxMessage<StatusChangedEvent> message(long id, StatusDelta delta) {
+        return new OutboxMessage<>(id, delta.entity() + ":" + delta.id() + ":" + id, delta.entity(), delta.id(), CREATED,
+                new StatusChangedEvent(donorId, 7L, delta));
+    }
+    
+    private static StatusDelta match(long id, String status, String previousStatus) {
+        return new StatusDelta("match", id, status, previousStatus, CREATED, CREATED.plusMinutes(30));
+    }
+    
+    private static StatusDelta donation(long id, String status, String previousStatus) {
+        return new StatusDelta("donation", id, status, previousStatus, CREATED, CREATED);
+    }
+}
@@ -0,0 +1,88 @@
+package com.hemoglobe.trust;
+
+import com.hemoglobe.feed.StatusChangedEvent;
+import com.hemoglobe.feed.StatusDelta;
+import com.hemoglobe.outbox.OutboxMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TrustScoresTest {
+    
+    private static final LocalDateTime CREATED = LocalDateTime.of(2026, 3, 1, 10, 0);
+    
+    private final TrustScores trustScores = new TrustScores(new SimpleMeterRegistry(), 3_600_000, 60);
+    
+    @AfterEach
+    void shutdown() {
+        trustScores.shutdown();
+    }
+    
+    @Test
+    void redeliveredEventsAreCountedOnce() {
+        List<OutboxMessage<StatusChangedEvent>> batch = List.of(
+                message(1, match(1, "accepted", "pending", 30)),
+                message(2, donation(2, "completed", "pending")),
+                message(3, match(3, "declined", "pending", 90)));
+        
+        trustScores.deliver(batch);
+        trustScores.deliver(batch);
+        trustScores.deliver(List.of(batch.get(1)));
+        
+        DonorTrust trust = trustScores.get(42);
+        assertEquals(1, trust.completedDonations());
+        assertEquals(1, trust.acceptedMatches());
+        assertEquals(1, trust.declinedMatches());
+        assertEquals(60.0, trust.averageResponseMinutes());
+    }
+    
+    @Test
+    void eventsOnOneDonorsOtherRowsMayArriveOutOfOrder() {
+        // Outbox ids are assigned at insert, so a donation write can commit, and be relayed, before an older match write
+        trustScores.deliver(List.of(message(11, donation(2, "completed", "pending"))));
+        trustScores.deliver(List.of(message(10, match(1, "accepted", "pending", 30))));
+        trustScores.deliver(List.of(message(11, donation(2, "completed", "pending")),
+                message(10, match(1, "accepted", "pending", 30))));
+        
+        DonorTrust trust = trustScores.get(42);
+        assertEquals(1, trust.completedDonations());
+        assertEquals(1, trust.acceptedMatches());
+        assertEquals(30.0, trust.averageResponseMinutes());
+    }
+    
+    @Test
+    void laterTransitionsStillApply() {
+        trustScores.deliver(List.of(message(10, donation(5, "completed", "pending"))));
+        trustScores.deliver(List.of(message(11, donation(5, "cancelled", "completed"))));
+        trustScores.deliver(List.of(message(10, donation(5, "completed", "pending"))));
+        
+        DonorTrust trust = trustScores.get(42);
+        assertEquals(0, trust.completedDonations());
+        assertEquals(1, trust.cancelledDonations());
+    }
+    
+    @Test
+    void eventsThatChangeNoCounterLeaveTheDonorNeutral() {
+        trustScores.deliver(List.of(message(1, match(1, "pending", null, 0))));
+        
+        assertEquals(50, trustScores.get(42).score());
+    }
+    
+    private static OutboxMessage<StatusChangedEvent> message(long id, StatusDelta delta) {
+        return new OutboxMessage<>(id, delta.entity() + ":" + delta.id() + ":" + id, delta.entity(), delta.id(), CREATED,
+                new StatusChangedEvent(42L, 7L, delta));
+    }
+    
+    private static StatusDelta match(long id, String status, String previousStatus, int answeredAfterMinutes) {
+        return new StatusDelta("match", id, status, previousStatus, CREATED, CREATED.plusMinutes(answeredAfterMinutes));
+    }
+    
+    private static StatusDelta donation(long id, String status, String previousStatus) {
+        return new StatusDelta("donation", id, status, previousStatus, CREATED, CREATED);
+    }
+}
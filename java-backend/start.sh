@@ -4,6 +4,10 @@ echo "Starting HemoGlobe Java Backend..."
 
 # Set environment variables
 export DATABASE_URL=${DATABASE_URL}
+if [ -z "$JWT_SECRET" ]; then
+    echo "JWT_SECRET must be set (at least 32 bytes)" >&2
+    exit 1
+fi
 export JAVA_OPTS="-Xmx512m -Xms256m"
 
 # Build and run the application
@@ -1,54 +1,104 @@
-import { pgTable, text, serial, integer, boolean, timestamp, decimal } from "drizzle-orm/pg-core";
+import { pgTable, text, bigserial, bigint, integer, boolean, timestamp, decimal, doublePrecision, unique, primaryKey } from "drizzle-orm/pg-core";
 import { createInsertSchema } from "drizzle-zod";
 import { z } from "zod";
 import { relations } from "drizzle-orm";
 
 export const users = pgTable("users", {
-  id: serial("id").primaryKey(),
+  id: bigserial("id", { mode: "number" }).primaryKey(),
   name: text("name").notNull(),
   email: text("email").notNull().unique(),
   phone: text("phone"),
   bloodGroup: text("blood_group").notNull(),
   location: text("location").notNull(),
+  latitude: doublePrecision("latitude"),
+  longitude: doublePrecision("longitude"),
   age: integer("age").notNull(),
   weight: decimal("weight"),
   userType: text("user_type").notNull(), // 'donor' or 'seeker'
   isAvailable: boolean("is_available").default(true),
   lastDonation: timestamp("last_donation"),
+  lastDonationType: text("last_donation_type"), // 'whole_blood', 'platelets', 'plasma'
+  nextEligibleAt: timestamp("next_eligible_at"), // computed by the backend eligibility rules
   medicalConditions: text("medical_conditions"),
   emergencyContact: text("emergency_contact"),
+  passwordHash: text("password_hash"), // BCrypt, set by the backend
   createdAt: timestamp("created_at").defaultNow(),
   updatedAt: timestamp("updated_at").defaultNow(),
+  version: bigint("version", { mode: "number" }).notNull().default(0),
 });
 
 export const donations = pgTable("donations", {
-  id: serial("id").primaryKey(),
-  donorId: integer("donor_id").references(() => users.id),
-  seekerId: integer("seeker_id").references(() => users.id),
+  id: bigserial("id", { mode: "number" }).primaryKey(),
+  donorId: bigint("donor_id", { mode: "number" }).references(() => users.id),
+  seekerId: bigint("seeker_id", { mode: "number" }).references(() => users.id),
   bloodGroup: text("blood_group").notNull(),
   amount: decimal("amount"), // in ml
   donationType: text("donation_type").notNull(), // 'whole_blood', 'platelets', 'plasma'
   location: text("location").notNull(),
+  latitude: doublePrecision("latitude"),
+  longitude: doublePrecision("longitude"),
   status: text("status").notNull().default('pending'), // 'pending', 'completed', 'cancelled'
   urgency: text("urgency").notNull().default('normal'), // 'critical', 'normal'
   scheduledDate: timestamp("scheduled_date"),
   completedDate: timestamp("completed_date"),
   createdAt: timestamp("created_at").defaultNow(),
   updatedAt: timestamp("updated_at").defaultNow(),
+  version: bigint("version", { mode: "number" }).notNull().default(0),
 });
 
 export const matches = pgTable("matches", {
-  id: serial("id").primaryKey(),
-  donorId: integer("donor_id").references(() => users.id),
-  seekerId: integer("seeker_id").references(() => users.id),
+  id: bigserial("id", { mode: "number" }).primaryKey(),
+  donorId: bigint("donor_id", { mode: "number" }).references(() => users.id),
+  seekerId: bigint("seeker_id", { mode: "number" }).references(() => users.id),
   bloodGroup: text("blood_group").notNull(),
   distance: decimal("distance"), // in miles/km
   compatibilityScore: integer("compatibility_score"), // 0-100
-  status: text("status").notNull().default('pending'), // 'pending', 'accepted', 'declined'
+  status: text("status").notNull().default('pending'), // 'pending', 'accepted', 'declined', 'expired'
   createdAt: timestamp("created_at").defaultNow(),
   updatedAt: timestamp("updated_at").defaultNow(),
+  version: bigint("version", { mode: "number" }).notNull().default(0),
+}, (table) => ({
+  donorSeeker: unique("uq_matches_donor_seeker").on(table.donorId, table.seekerId),
+}));
+
+// Checkpoint of the backend's in-memory donor trust counters
+export const donorTrust = pgTable("donor_trust", {
+  donorId: bigint("donor_id", { mode: "number" }).primaryKey().references(() => users.id, { onDelete: "cascade" }),
+  completedDonations: integer("completed_donations").notNull().default(0),
+  cancelledDonations: integer("cancelled_donations").notNull().default(0),
+  acceptedMatches: integer("accepted_matches").notNull().default(0),
+  declinedMatches: integer("declined_matches").notNull().default(0),
+  responses: integer("responses").notNull().default(0),
+  responseSeconds: bigint("response_seconds", { mode: "number" }).notNull().default(0),
+  updatedAt: timestamp("updated_at").notNull().defaultNow(),
 });
 
+// Last outbox event applied to the trust counters per match or donation, pruned once delivered
+export const trustEventPositions = pgTable("trust_event_positions", {
+  aggregateType: text("aggregate_type").notNull(),
+  aggregateId: bigint("aggregate_id", { mode: "number" }).notNull(),
+  lastEventId: bigint("last_event_id", { mode: "number" }).notNull(),
+}, (table) => ({
+  pk: primaryKey({ columns: [table.aggregateType, table.aggregateId] }),
+}));
+
+// Transactional outbox of match and donation state changes, drained by the backend's relay
+export const outboxEvents = pgTable("outbox_events", {
+  id: bigserial("id", { mode: "number" }).primaryKey(),
+  idempotencyKey: text("idempotency_key").notNull(),
+  eventType: text("event_type").notNull(),
+  aggregateType: text("aggregate_type").notNull(),
+  aggregateId: bigint("aggregate_id", { mode: "number" }).notNull(),
+  payload: text("payload").notNull(),
+  attempts: integer("attempts").notNull().default(0),
+  lastError: text("last_error"),
+  createdAt: timestamp("created_at").notNull().defaultNow(),
+  availableAt: timestamp("available_at").notNull().defaultNow(),
+  deliveredAt: timestamp("delivered_at"),
+}, (table) => ({
+  idempotencyKey: unique("uq_outbox_events_key").on(table.idempotencyKey),
+}));
+
 // Relations
 export const usersRelations = relations(users, ({ many }) => ({
   donatedDonations: many(donations, { relationName: "donor" }),